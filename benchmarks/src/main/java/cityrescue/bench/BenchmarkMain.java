@@ -0,0 +1,29 @@
+package cityrescue.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmarks jar. Runs JMH with the given arguments, and
+ * writes results as JSON to {@code jmh-result.json} unless a result format is
+ * given, so results from different builds can be compared.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> all = new ArrayList<>(Arrays.asList(args));
+        if (!all.contains("-rf") && !all.contains("-h") && !all.contains("-l")) {
+            all.add("-rf");
+            all.add("json");
+            if (!all.contains("-rff")) {
+                all.add("-rff");
+                all.add("jmh-result.json");
+            }
+        }
+        org.openjdk.jmh.Main.main(all.toArray(new String[0]));
+    }
+}
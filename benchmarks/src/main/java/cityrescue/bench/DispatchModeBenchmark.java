@@ -0,0 +1,89 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one-by-one and batch dispatch on the same seeded scenario. Besides
+ * the time per simulated tick, the auxiliary counters report how many units
+ * were dispatched and their total response distance, so the average distance
+ * per dispatch of the two modes can be compared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchModeBenchmark {
+
+    private static final long SEED = 20240501L;
+
+    @Param({ "false", "true" })
+    public boolean batch;
+
+    @Param({ "300", "3000" })
+    public int unitCount;
+
+    @Param({ "5", "40" })
+    public double arrivalRate;
+
+    private ScenarioGenerator generator;
+    private CityRescueImpl cr;
+    private long distanceMark;
+    private int dispatchMark;
+
+    /**
+     * Counters reported next to the timing score
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long dispatched;
+        public long responseDistance;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            dispatched = 0;
+            responseDistance = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        generator = new ScenarioGenerator(SEED, 200, 0.1, Math.max(1, unitCount / 20), unitCount, arrivalRate);
+        cr = new CityRescueImpl(CityRescueConfig.builder().batchDispatch(batch).initialUnitCapacity(unitCount).build());
+        generator.populate(cr);
+        generator.run(cr, SimulationBenchmark.WARM_TICKS);
+        distanceMark = cr.getTotalResponseDistance();
+        dispatchMark = cr.getDispatchCount();
+    }
+
+    @Benchmark
+    public int step(Counters counters) throws Exception {
+        int reported = generator.reportArrivals(cr);
+        cr.dispatch();
+        cr.tick();
+        counters.dispatched += cr.getDispatchCount() - dispatchMark;
+        counters.responseDistance += cr.getTotalResponseDistance() - distanceMark;
+        dispatchMark = cr.getDispatchCount();
+        distanceMark = cr.getTotalResponseDistance();
+        return reported;
+    }
+}
@@ -0,0 +1,118 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescue;
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+import cityrescue.ConcurrentCityRescue;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures incident intake with 32 threads reporting incidents while one
+ * simulation thread keeps calling dispatch and tick.
+ *
+ * <p>{@code locked} is the old way of sharing a {@link CityRescueImpl}: every
+ * call inside one global lock. {@code concurrent} uses
+ * {@link ConcurrentCityRescue}. The report score is the throughput of the
+ * producers; the simulate score shows how much the simulation thread is held
+ * up by them. Each iteration starts from a fresh simulation, as incidents
+ * pile up quickly.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class IntakeContentionBenchmark {
+
+    private static final int SIDE = 1000;
+    private static final int UNITS = 10000;
+
+    @State(Scope.Group)
+    public static class Sim {
+
+        @Param({ "locked", "concurrent" })
+        public String impl;
+
+        CityRescue cr;
+        boolean locked;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            locked = impl.equals("locked");
+            CityRescueConfig config = CityRescueConfig.builder()
+                    .initialUnitCapacity(UNITS)
+                    .initialIncidentCapacity(1 << 20)
+                    .defaultStationCapacity(UNITS)
+                    .spatialIndex(true)
+                    .build();
+            cr = locked ? new CityRescueImpl(config) : new ConcurrentCityRescue(config);
+            cr.initialise(SIDE, SIDE);
+            SplittableRandom rnd = new SplittableRandom(5);
+            UnitType[] types = UnitType.values();
+            for (int s = 0; s < 100; s++) {
+                int station = cr.addStation("S" + s, rnd.nextInt(SIDE), rnd.nextInt(SIDE));
+                for (int i = 0; i < UNITS / 100; i++) {
+                    cr.addUnit(station, types[i % types.length]);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        final SplittableRandom rnd = new SplittableRandom(Thread.currentThread().getId());
+        int lastId = 1;
+    }
+
+    @Benchmark
+    @Group("intake")
+    @GroupThreads(32)
+    public int report(Sim sim, Producer p) throws Exception {
+        IncidentType type = IncidentType.values()[p.rnd.nextInt(IncidentType.values().length)];
+        int severity = 1 + p.rnd.nextInt(5);
+        int x = p.rnd.nextInt(SIDE);
+        int y = p.rnd.nextInt(SIDE);
+        if (sim.locked) {
+            synchronized (sim) {
+                p.lastId = sim.cr.reportIncident(type, severity, x, y);
+            }
+        } else {
+            p.lastId = sim.cr.reportIncident(type, severity, x, y);
+        }
+        return p.lastId;
+    }
+
+    @Benchmark
+    @Group("intake")
+    @GroupThreads(1)
+    public void simulate(Sim sim) {
+        if (sim.locked) {
+            synchronized (sim) {
+                sim.cr.dispatch();
+                sim.cr.tick();
+            }
+        } else {
+            sim.cr.dispatch();
+            sim.cr.tick();
+        }
+    }
+}
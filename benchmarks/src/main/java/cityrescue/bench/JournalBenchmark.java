@@ -0,0 +1,85 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescue;
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+import cityrescue.journal.JournalWriter;
+import cityrescue.journal.JournalingCityRescue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what journaling every call adds to a full simulation step, by
+ * running the same scenario with and without a {@link JournalingCityRescue}
+ * in front of the simulation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    private static final long SEED = 20240501L;
+
+    @Param({ "false", "true" })
+    public boolean journaled;
+
+    @Param({ "1000" })
+    public int unitCount;
+
+    private ScenarioGenerator generator;
+    private CityRescue cr;
+    private JournalWriter journal;
+    private Path file;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        generator = new ScenarioGenerator(SEED, 1000, 0.1, unitCount / 50, unitCount, 10);
+        cr = new CityRescueImpl(CityRescueConfig.builder().initialUnitCapacity(unitCount).build());
+        if (journaled) {
+            file = Files.createTempFile("bench", ".journal");
+            journal = new JournalWriter(file);
+            cr = new JournalingCityRescue(cr, journal);
+        }
+        generator.populate(cr);
+        generator.run(cr, SimulationBenchmark.WARM_TICKS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+            Files.deleteIfExists(file);
+            journal = null;
+        }
+    }
+
+    /**
+     * One tick's arrivals, a dispatch round and the tick itself
+     */
+    @Benchmark
+    public int step() throws Exception {
+        int reported = generator.reportArrivals(cr);
+        cr.dispatch();
+        cr.tick();
+        return reported;
+    }
+}
@@ -0,0 +1,119 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares greedy and routed unit movement on a map full of cup-shaped
+ * obstacles that open towards the stations, the layout that traps the greedy
+ * mover.
+ *
+ * <p>Each operation builds the scenario, dispatches one fire engine per cup and
+ * ticks until every engine has arrived or the tick cap is hit. The auxiliary
+ * counters report ticks per operation, so time per tick is the score divided
+ * by {@code ticks}, and {@code arrivals}/{@code stuck} show how many engines
+ * made it.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MovementBenchmark {
+
+    private static final int CUP_SPACING = 12;
+
+    @Param({ "96", "240" })
+    public int gridSize;
+
+    @Param({ "false", "true" })
+    public boolean routed;
+
+    private CityRescueConfig config;
+
+    /**
+     * Counters reported next to the timing score
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long ticks;
+        public long arrivals;
+        public long stuck;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ticks = 0;
+            arrivals = 0;
+            stuck = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = CityRescueConfig.builder().routedMovement(routed).initialIncidentCapacity(1024).build();
+    }
+
+    @Benchmark
+    public int runToArrival(Counters counters) throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(config);
+        cr.initialise(gridSize, gridSize);
+        int cups = 0;
+        int[] incidentIds = new int[(gridSize / CUP_SPACING) * (gridSize / CUP_SPACING)];
+        for (int cy = 0; cy + CUP_SPACING <= gridSize; cy += CUP_SPACING) {
+            for (int cx = 0; cx + CUP_SPACING <= gridSize; cx += CUP_SPACING) {
+                buildCup(cr, cx + 2, cy + 5);
+                int station = cr.addStation("S" + cups, cx + 6, cy + 9);
+                cr.addUnit(station, UnitType.FIRE_ENGINE);
+                incidentIds[cups++] = cr.reportIncident(IncidentType.FIRE, 3, cx + 6, cy + 1);
+            }
+        }
+        cr.dispatch();
+        int cap = 4 * gridSize;
+        int pending = cups;
+        int ticks = 0;
+        while (pending > 0 && ticks < cap) {
+            cr.tick();
+            ticks++;
+            for (int i = 0; i < cups; i++) {
+                if (incidentIds[i] > 0 && !cr.viewIncident(incidentIds[i]).contains("STATUS=DISPATCHED")) {
+                    incidentIds[i] = -incidentIds[i];
+                    pending--;
+                }
+            }
+        }
+        counters.ticks += ticks;
+        counters.arrivals += cups - pending;
+        counters.stuck += pending;
+        return ticks;
+    }
+
+    private static void buildCup(CityRescueImpl cr, int left, int top) throws Exception {
+        for (int x = left; x <= left + 8; x++) {
+            cr.addObstacle(x, top);
+        }
+        for (int y = top + 1; y <= top + 3; y++) {
+            cr.addObstacle(left, y);
+            cr.addObstacle(left + 8, y);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescue;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Builds repeatable benchmark scenarios through the public {@link CityRescue}
+ * interface, so any implementation can be measured the same way.
+ *
+ * <p>Everything random comes from one seeded {@link Random}, so the same
+ * settings always give the same obstacles, stations, units and incident
+ * stream. Incidents arrive at a fixed average rate per tick; fractional rates
+ * are carried over between ticks.</p>
+ */
+public class ScenarioGenerator {
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+    private static final IncidentType[] INCIDENT_TYPES = IncidentType.values();
+
+    private final int gridSize;
+    private final double obstacleDensity;
+    private final int stationCount;
+    private final int unitCount;
+    private final double arrivalRate;
+    private final Random rnd;
+    private final BitSet obstacles = new BitSet();
+    private double carried;
+
+    /**
+     * Creates new scenario generator
+     *
+     * @param seed            random seed
+     * @param gridSize        width and height of the map
+     * @param obstacleDensity share of cells, 0 to 1, that hold an obstacle
+     * @param stationCount    number of stations
+     * @param unitCount       number of units, spread evenly over stations and
+     *                        unit types
+     * @param arrivalRate     average number of new incidents per tick
+     */
+    public ScenarioGenerator(long seed, int gridSize, double obstacleDensity, int stationCount, int unitCount,
+            double arrivalRate) {
+        if (obstacleDensity < 0 || obstacleDensity >= 1) {
+            throw new IllegalArgumentException("Obstacle density must be in [0, 1).");
+        }
+        this.gridSize = gridSize;
+        this.obstacleDensity = obstacleDensity;
+        this.stationCount = stationCount;
+        this.unitCount = unitCount;
+        this.arrivalRate = arrivalRate;
+        this.rnd = new Random(seed);
+    }
+
+    /**
+     * Initialises a simulation and fills it with obstacles, stations and units
+     *
+     * @param cr simulation to set up
+     * @return the same simulation
+     * @throws Exception in case the simulation rejects the scenario
+     */
+    public CityRescue populate(CityRescue cr) throws Exception {
+        cr.initialise(gridSize, gridSize);
+        obstacles.clear();
+        carried = 0;
+        int target = (int) (obstacleDensity * gridSize * gridSize);
+        for (int placed = 0; placed < target;) {
+            int x = rnd.nextInt(gridSize);
+            int y = rnd.nextInt(gridSize);
+            if (!obstacles.get(y * gridSize + x)) {
+                obstacles.set(y * gridSize + x);
+                cr.addObstacle(x, y);
+                placed++;
+            }
+        }
+        int[] stationIds = new int[stationCount];
+        int perStation = (unitCount + stationCount - 1) / stationCount;
+        for (int i = 0; i < stationCount; i++) {
+            int cell = freeCell();
+            stationIds[i] = cr.addStation("S" + i, cell % gridSize, cell / gridSize);
+            cr.setStationCapacity(stationIds[i], Math.max(1, perStation));
+        }
+        for (int i = 0; i < unitCount; i++) {
+            cr.addUnit(stationIds[i % stationCount], UNIT_TYPES[i % UNIT_TYPES.length]);
+        }
+        return cr;
+    }
+
+    /**
+     * Reports the incidents arriving during one tick
+     *
+     * @param cr simulation to report to
+     * @return number of incidents reported
+     * @throws Exception in case the simulation rejects an incident
+     */
+    public int reportArrivals(CityRescue cr) throws Exception {
+        carried += arrivalRate;
+        int count = (int) carried;
+        carried -= count;
+        for (int i = 0; i < count; i++) {
+            int cell = freeCell();
+            cr.reportIncident(INCIDENT_TYPES[rnd.nextInt(INCIDENT_TYPES.length)], 1 + rnd.nextInt(5),
+                    cell % gridSize, cell / gridSize);
+        }
+        return count;
+    }
+
+    /**
+     * Runs whole ticks of arrivals, dispatch and movement, e.g. to bring a
+     * fresh scenario into a steady state before measuring
+     *
+     * @param cr    simulation to run
+     * @param ticks number of ticks
+     * @throws Exception in case the simulation rejects an incident
+     */
+    public void run(CityRescue cr, int ticks) throws Exception {
+        for (int t = 0; t < ticks; t++) {
+            reportArrivals(cr);
+            cr.dispatch();
+            cr.tick();
+        }
+    }
+
+    private int freeCell() {
+        while (true) {
+            int cell = rnd.nextInt(gridSize * gridSize);
+            if (!obstacles.get(cell)) {
+                return cell;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatch, tick and status hot paths on scenarios from
+ * {@link ScenarioGenerator}.
+ *
+ * <p>Each iteration starts from a freshly generated scenario that has already
+ * run {@link #WARM_TICKS} ticks, so units are spread over the map and there
+ * is a backlog of incidents. Every invocation then advances the simulation by
+ * one tick's worth of the measured operation, so the state keeps evolving the
+ * way it would in a real run.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+    static final int WARM_TICKS = 50;
+    private static final long SEED = 20240501L;
+
+    @Param({ "100", "1000" })
+    public int gridSize;
+
+    @Param({ "0.0", "0.2" })
+    public double obstacleDensity;
+
+    @Param({ "100", "10000" })
+    public int unitCount;
+
+    @Param({ "1", "10" })
+    public double arrivalRate;
+
+    private ScenarioGenerator generator;
+    private CityRescueImpl cr;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        generator = new ScenarioGenerator(SEED, gridSize, obstacleDensity, Math.max(1, unitCount / 50), unitCount,
+                arrivalRate);
+        cr = new CityRescueImpl(CityRescueConfig.builder().initialUnitCapacity(unitCount).build());
+        generator.populate(cr);
+        generator.run(cr, WARM_TICKS);
+    }
+
+    /**
+     * One tick's arrivals followed by a dispatch round
+     */
+    @Benchmark
+    public int dispatch() throws Exception {
+        int reported = generator.reportArrivals(cr);
+        cr.dispatch();
+        return reported;
+    }
+
+    /**
+     * One tick's arrivals, a dispatch round and the tick itself, the full
+     * per-tick cost
+     */
+    @Benchmark
+    public int step() throws Exception {
+        int reported = generator.reportArrivals(cr);
+        cr.dispatch();
+        cr.tick();
+        return reported;
+    }
+
+    /**
+     * One tick with no new work, which is mostly unit movement and resolution
+     */
+    @Benchmark
+    public int tick() {
+        cr.tick();
+        return cr.getCurrentTick();
+    }
+
+    @Benchmark
+    public String status() {
+        return cr.getStatus();
+    }
+}
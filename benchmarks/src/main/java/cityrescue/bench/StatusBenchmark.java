@@ -0,0 +1,119 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of producing the status report on a large state. Run with
+ * {@code -prof gc} to see the allocation rate of each way of producing it.
+ *
+ * <p>{@code perEntityViews} is the old approach of building one String per
+ * incident and unit through viewIncident/viewUnit, but joined linearly; the
+ * original repeated {@code +=} concatenation was quadratic and does not finish
+ * in reasonable time at 100k incidents. {@code getStatus} builds the whole
+ * report into one presized StringBuilder, {@code writeStatusReusedBuilder}
+ * streams into a builder kept between calls and {@code writeStatusToWriter}
+ * streams into a Writer that discards its input, which is the case of writing
+ * straight to a socket or file.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Thread)
+public class StatusBenchmark {
+
+    @Param({ "10000" })
+    public int unitCount;
+
+    @Param({ "100000" })
+    public int incidentCount;
+
+    private CityRescueImpl cr;
+    private StringBuilder reused;
+    private final Writer discard = Writer.nullWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int side = 1000;
+        int stationCount = Math.max(1, unitCount / 100);
+        cr = new CityRescueImpl(CityRescueConfig.builder()
+                .initialStationCapacity(stationCount)
+                .initialUnitCapacity(unitCount)
+                .initialIncidentCapacity(incidentCount)
+                .defaultStationCapacity(unitCount / stationCount + 1)
+                .build());
+        cr.initialise(side, side);
+        Random rnd = new Random(42);
+        int[] stationIds = new int[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            stationIds[i] = cr.addStation("S" + i, rnd.nextInt(side), rnd.nextInt(side));
+        }
+        UnitType[] unitTypes = UnitType.values();
+        for (int i = 0; i < unitCount; i++) {
+            cr.addUnit(stationIds[i % stationCount], unitTypes[i % unitTypes.length]);
+        }
+        IncidentType[] incidentTypes = IncidentType.values();
+        for (int i = 0; i < incidentCount; i++) {
+            cr.reportIncident(incidentTypes[rnd.nextInt(incidentTypes.length)], 1 + rnd.nextInt(5),
+                    rnd.nextInt(side), rnd.nextInt(side));
+        }
+        cr.dispatch();
+        cr.advance(20);
+        reused = new StringBuilder(cr.getStatus().length());
+    }
+
+    @Benchmark
+    public String perEntityViews() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TICK=").append(cr.getCurrentTick()).append('\n');
+        sb.append("INCIDENTS");
+        for (int id : cr.getIncidentIds()) {
+            sb.append('\n').append(cr.viewIncident(id));
+        }
+        sb.append("\nUNITS");
+        for (int id : cr.getUnitIds()) {
+            sb.append('\n').append(cr.viewUnit(id));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String getStatus() {
+        return cr.getStatus();
+    }
+
+    @Benchmark
+    public int writeStatusReusedBuilder() throws IOException {
+        reused.setLength(0);
+        cr.writeStatus(reused);
+        return reused.length();
+    }
+
+    @Benchmark
+    public Writer writeStatusToWriter() throws IOException {
+        cr.writeStatus(discard);
+        return discard;
+    }
+}
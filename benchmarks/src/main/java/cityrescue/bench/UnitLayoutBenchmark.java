@@ -0,0 +1,102 @@
+package cityrescue.bench;
+
+import cityrescue.CityRescueConfig;
+import cityrescue.CityRescueImpl;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares tick throughput of the object unit layout with the struct-of-arrays
+ * {@link cityrescue.model.UnitTable} layout, ticking sequentially or in
+ * parallel.
+ *
+ * <p>Every unit is dispatched to an incident 1 to 400 cells away, so during
+ * the measured ticks most units are moving and a steady trickle arrive, work
+ * and resolve. Each iteration starts from a fresh simulation and runs exactly
+ * {@link #TICKS} ticks, so every iteration measures the same work; the score
+ * is time per batch of ticks.</p>
+ *
+ * <p>{@link #parallelThreshold} 0 ticks on the benchmark thread; any other
+ * value splits movement and work countdown across the common fork-join pool
+ * once that many units take part.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = UnitLayoutBenchmark.TICKS)
+@Measurement(iterations = 10, batchSize = UnitLayoutBenchmark.TICKS)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Thread)
+public class UnitLayoutBenchmark {
+
+    static final int TICKS = 200;
+    private static final int SIDE = 2000;
+
+    @Param({ "objects", "table" })
+    public String layout;
+
+    @Param({ "10000", "100000" })
+    public int unitCount;
+
+    @Param({ "0", "4096" })
+    public int parallelThreshold;
+
+    private CityRescueImpl cr;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        int stationCount = Math.max(1, unitCount / 100);
+        cr = new CityRescueImpl(CityRescueConfig.builder()
+                .unitTable(layout.equals("table"))
+                .parallelTickThreshold(parallelThreshold)
+                .initialStationCapacity(stationCount)
+                .initialUnitCapacity(unitCount)
+                .initialIncidentCapacity(unitCount)
+                .defaultStationCapacity(unitCount / stationCount + 1)
+                .build());
+        cr.initialise(SIDE, SIDE);
+        Random rnd = new Random(99);
+        int[] stationX = new int[stationCount];
+        int[] stationY = new int[stationCount];
+        int[] stationIds = new int[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            stationX[i] = 400 + rnd.nextInt(SIDE - 800);
+            stationY[i] = 400 + rnd.nextInt(SIDE - 800);
+            stationIds[i] = cr.addStation("S" + i, stationX[i], stationY[i]);
+        }
+        UnitType[] unitTypes = UnitType.values();
+        IncidentType[] incidentTypes = { IncidentType.MEDICAL, IncidentType.FIRE, IncidentType.CRIME };
+        for (int i = 0; i < unitCount; i++) {
+            int s = i % stationCount;
+            int t = i % unitTypes.length;
+            cr.addUnit(stationIds[s], unitTypes[t]);
+            int reach = 1 + rnd.nextInt(400);
+            int dx = rnd.nextInt(reach + 1);
+            int dy = reach - dx;
+            cr.reportIncident(incidentTypes[t], 1 + rnd.nextInt(5), stationX[s] + (rnd.nextBoolean() ? dx : -dx),
+                    stationY[s] + (rnd.nextBoolean() ? dy : -dy));
+        }
+        cr.dispatch();
+    }
+
+    @Benchmark
+    public int tick() {
+        cr.tick();
+        return cr.getCurrentTick();
+    }
+}
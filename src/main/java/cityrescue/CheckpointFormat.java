@@ -0,0 +1,125 @@
+package cityrescue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Layout of the binary checkpoint files written by
+ * {@link CityRescueImpl#saveCheckpoint(java.nio.file.Path)}, plus buffered
+ * readers and writers over a FileChannel.
+ *
+ * <p>All numbers are big-endian. After the fixed header come the obstacle
+ * grid as packed 64-bit words, fixed-width station records, the station names
+ * as UTF-8, fixed-width unit and incident records, the multi-unit response
+ * teams, archived incident records, the remaining moves of any planned
+ * routes, and finally the relocations of IDLE units under way. Records are
+ * written in ID order, relocations in the order they are stepped. Version 1
+ * files, written before teams existed, have no team section, and files before
+ * version 3 have no relocation section; both can still be read.</p>
+ */
+final class CheckpointFormat {
+
+    /** "CRCK" */
+    static final int MAGIC = 0x4352434B;
+    static final int VERSION = 3;
+
+    /** id, x, y, max units, name length */
+    static final int STATION_BYTES = 20;
+    /** id, home, x, y, incident, work, type, status, 2 spare */
+    static final int UNIT_BYTES = 28;
+    /** id, x, y, unit, type, severity, status, 1 spare */
+    static final int INCIDENT_BYTES = 20;
+    /** incident id, crew ticks left, tick counted from, size, then one unit id per member */
+    static final int TEAM_HEADER_BYTES = 16;
+    /** id, x, y, type, severity, status, 1 spare */
+    static final int ARCHIVED_BYTES = 16;
+    /** unit id, reachable flag, move count, then one byte per move */
+    static final int ROUTE_HEADER_BYTES = 9;
+    /** unit id, target x, target y, deadline tick */
+    static final int RELOCATION_BYTES = 16;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private CheckpointFormat() {
+    }
+
+    /**
+     * Buffered writer; records are put straight into the buffer handed out by
+     * {@link #reserve(int)}
+     */
+    static final class Out {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        Out(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int off = 0;
+            while (off < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - off);
+                buffer.put(bytes, off, n);
+                off += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Buffered reader; {@link #require(int)} makes sure a whole record is in
+     * the buffer before it is decoded
+     */
+    static final class In {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        In(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("Checkpoint is truncated.");
+                    }
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+
+        byte[] getBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int off = 0;
+            while (off < length) {
+                int n = Math.min(BUFFER_BYTES, length - off);
+                require(n).get(bytes, off, n);
+                off += n;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cityrescue;
+
+import cityrescue.enums.UnitType;
+import cityrescue.exceptions.*;
+
+/**
+ * {@link CityRescue} with bulk variants of the set-up calls, for building
+ * large cities quickly. Each call checks every argument before changing
+ * anything, so it either applies completely or, when it throws, leaves the
+ * simulation as it was.
+ */
+public interface CityRescueBulk extends CityRescue {
+
+    /**
+     * Adds obstacles on several cells; cells already blocked stay blocked
+     *
+     * @param xs x-Coordinates of the cells
+     * @param ys y-Coordinates of the cells, same length as xs
+     * @throws InvalidLocationException in case of any cell being out of bounds
+     * @throws IllegalArgumentException in case of the arrays having different
+     *                                  lengths
+     */
+    void addObstacles(int[] xs, int[] ys) throws InvalidLocationException;
+
+    /**
+     * Adds several stations, given consecutive IDs in array order
+     *
+     * @param names names of the stations
+     * @param xs    x-Coordinates of the stations, same length as names
+     * @param ys    y-Coordinates of the stations, same length as names
+     * @return IDs of the new stations
+     * @throws InvalidNameException      in case of any name being blank
+     * @throws InvalidLocationException  in case of any location being out of
+     *                                   bounds or blocked
+     * @throws CapacityExceededException in case of the stations not fitting
+     *                                   in the configured station limit
+     * @throws IllegalArgumentException  in case of the arrays having different
+     *                                   lengths
+     */
+    IdRange addStations(String[] names, int[] xs, int[] ys) throws InvalidNameException, InvalidLocationException;
+
+    /**
+     * Adds several units of one type to a station, given consecutive IDs
+     *
+     * @param stationId ID of the station
+     * @param type      type of the units
+     * @param count     number of units, 0 or more
+     * @return IDs of the new units
+     * @throws IDNotRecognisedException  in case of station ID being
+     *                                   non-existent
+     * @throws InvalidUnitException      in case of unit type being null
+     * @throws IllegalStateException     in case of the units not fitting in
+     *                                   the station's capacity
+     * @throws CapacityExceededException in case of the units not fitting in
+     *                                   the configured unit limit
+     * @throws IllegalArgumentException  in case of count being negative
+     */
+    IdRange addUnits(int stationId, UnitType type, int count)
+            throws IDNotRecognisedException, InvalidUnitException, IllegalStateException;
+}
@@ -0,0 +1,667 @@
+package cityrescue;
+
+import cityrescue.metrics.MetricsRegistry;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable settings for a {@link CityRescueImpl}. Created through
+ * {@link #builder()}; {@link #defaults()} gives the settings used by the
+ * no-argument constructor.
+ *
+ * <p>Initial capacities only size the storage up front, it grows by doubling
+ * when they are exceeded. Limits are optional soft caps: a limit of 0 means
+ * unlimited, otherwise adding past the limit throws
+ * {@link cityrescue.exceptions.CapacityExceededException}.</p>
+ */
+public class CityRescueConfig {
+
+    /** Limit value meaning "no limit". */
+    public static final int UNLIMITED = 0;
+
+    private final int initialStationCapacity;
+    private final int initialUnitCapacity;
+    private final int initialIncidentCapacity;
+    private final int stationLimit;
+    private final int unitLimit;
+    private final int incidentLimit;
+    private final int defaultStationCapacity;
+    private final boolean spatialIndex;
+    private final int spatialCellSize;
+    private final boolean pathDistanceDispatch;
+    private final int distanceFieldCacheSize;
+    private final boolean routedMovement;
+    private final boolean checkConsistency;
+
+    private final boolean batchDispatch;
+    private final int batchDispatchMaxSize;
+    private final int batchDispatchBudgetMillis;
+    private final boolean severityOrderedDispatch;
+    private final int archiveSpillThreshold;
+    private final Path archiveDirectory;
+    private final boolean unitTable;
+    private final int parallelTickThreshold;
+    private final ForkJoinPool tickPool;
+    private final boolean snapshots;
+    private final Path mapFile;
+    private final MetricsRegistry metrics;
+    private final boolean multiUnitResponse;
+    private final int rebalanceInterval;
+    private CityRescueConfig(Builder b) {
+        this.initialStationCapacity = b.initialStationCapacity;
+        this.initialUnitCapacity = b.initialUnitCapacity;
+        this.initialIncidentCapacity = b.initialIncidentCapacity;
+        this.stationLimit = b.stationLimit;
+        this.unitLimit = b.unitLimit;
+        this.incidentLimit = b.incidentLimit;
+        this.defaultStationCapacity = b.defaultStationCapacity;
+        this.spatialIndex = b.spatialIndex;
+        this.spatialCellSize = b.spatialCellSize;
+        this.pathDistanceDispatch = b.pathDistanceDispatch;
+        this.distanceFieldCacheSize = b.distanceFieldCacheSize;
+        this.routedMovement = b.routedMovement;
+        this.checkConsistency = b.checkConsistency;
+        this.batchDispatch = b.batchDispatch;
+        this.batchDispatchMaxSize = b.batchDispatchMaxSize;
+        this.batchDispatchBudgetMillis = b.batchDispatchBudgetMillis;
+        this.severityOrderedDispatch = b.severityOrderedDispatch;
+        this.archiveSpillThreshold = b.archiveSpillThreshold;
+        this.archiveDirectory = b.archiveDirectory;
+        this.unitTable = b.unitTable;
+        this.parallelTickThreshold = b.parallelTickThreshold;
+        this.tickPool = b.tickPool;
+        this.snapshots = b.snapshots;
+        this.mapFile = b.mapFile;
+        this.metrics = b.metrics;
+        this.multiUnitResponse = b.multiUnitResponse;
+        this.rebalanceInterval = b.rebalanceInterval;
+    }
+
+    /**
+     * @return new builder holding the default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return config with every setting at its default
+     */
+    public static CityRescueConfig defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * @return number of stations storage is sized for at initialise
+     */
+    public int getInitialStationCapacity() {
+        return initialStationCapacity;
+    }
+
+    /**
+     * @return number of units storage is sized for at initialise
+     */
+    public int getInitialUnitCapacity() {
+        return initialUnitCapacity;
+    }
+
+    /**
+     * @return number of incidents storage is sized for at initialise
+     */
+    public int getInitialIncidentCapacity() {
+        return initialIncidentCapacity;
+    }
+
+    /**
+     * @return maximum number of stations, or {@link #UNLIMITED}
+     */
+    public int getStationLimit() {
+        return stationLimit;
+    }
+
+    /**
+     * @return maximum number of units, or {@link #UNLIMITED}
+     */
+    public int getUnitLimit() {
+        return unitLimit;
+    }
+
+    /**
+     * @return maximum number of incidents, or {@link #UNLIMITED}
+     */
+    public int getIncidentLimit() {
+        return incidentLimit;
+    }
+
+    /**
+     * @return unit capacity given to newly added stations
+     */
+    public int getDefaultStationCapacity() {
+        return defaultStationCapacity;
+    }
+
+    /**
+     * @return true if dispatch finds units through the grid spatial index,
+     *         false if it scans every unit
+     */
+    public boolean isSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * @return width and height in grid cells of one spatial index bucket
+     */
+    public int getSpatialCellSize() {
+        return spatialCellSize;
+    }
+
+    /**
+     * @return true if dispatch ranks units by travel distance around
+     *         obstacles, false if it uses Manhattan distance
+     */
+    public boolean isPathDistanceDispatch() {
+        return pathDistanceDispatch;
+    }
+
+    /**
+     * @return number of distance fields kept cached in path distance mode
+     */
+    public int getDistanceFieldCacheSize() {
+        return distanceFieldCacheSize;
+    }
+
+    /**
+     * @return true if units follow A* routes, false if they use the greedy
+     *         one-step rule
+     */
+    public boolean isRoutedMovement() {
+        return routedMovement;
+    }
+
+    /**
+     * @return true if unit and incident links are checked after every
+     *         mutation
+     */
+    public boolean isCheckConsistency() {
+        return checkConsistency;
+    }
+
+    /**
+     * @return true if dispatch assigns units to all pending incidents of a
+     *         type at once, false if it serves incidents one by one in ID
+     *         order
+     */
+    public boolean isBatchDispatch() {
+        return batchDispatch;
+    }
+
+    /**
+     * @return largest number of incidents of one type assigned as a batch
+     */
+    public int getBatchDispatchMaxSize() {
+        return batchDispatchMaxSize;
+    }
+
+    /**
+     * @return time in milliseconds one dispatch call may spend solving
+     *         batches
+     */
+    public int getBatchDispatchBudgetMillis() {
+        return batchDispatchBudgetMillis;
+    }
+
+    /**
+     * @return true if dispatch serves pending incidents most severe first,
+     *         false if it serves them in ID order
+     */
+    public boolean isSeverityOrderedDispatch() {
+        return severityOrderedDispatch;
+    }
+
+    /**
+     * @return number of finished incidents kept in memory before they are
+     *         appended to the archive file, or 0 to keep them all in memory
+     */
+    public int getArchiveSpillThreshold() {
+        return archiveSpillThreshold;
+    }
+
+    /**
+     * @return directory the archive file is created in, or null for the
+     *         system temporary directory
+     */
+    public Path getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    /**
+     * @return true if unit fields are stored in a struct-of-arrays
+     *         {@link cityrescue.model.UnitTable}
+     */
+    public boolean isUnitTable() {
+        return unitTable;
+    }
+
+    /**
+     * @return smallest number of moving or working units for which tick()
+     *         splits a phase across the fork-join pool, or 0 if ticks always
+     *         run on the calling thread
+     */
+    public int getParallelTickThreshold() {
+        return parallelTickThreshold;
+    }
+
+    /**
+     * @return pool parallel ticks run on, or null for the common pool
+     */
+    public ForkJoinPool getTickPool() {
+        return tickPool;
+    }
+
+    /**
+     * @return true if a {@link CitySnapshot} is published at the end of every
+     *         tick and dispatch
+     */
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return file the obstacle grid is memory-mapped from, or null to keep
+     *         the grid on the heap
+     */
+    public Path getMapFile() {
+        return mapFile;
+    }
+
+    /**
+     * @return registry metrics are recorded in, or null if metrics are off
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return true if incidents need a team of units that grows with
+     *         severity, false if one unit serves each incident
+     */
+    public boolean isMultiUnitResponse() {
+        return multiUnitResponse;
+    }
+
+    /**
+     * @return ticks between coverage rebalancing passes, or 0 if idle units
+     *         stay where they finished
+     */
+    public int getRebalanceInterval() {
+        return rebalanceInterval;
+    }
+
+    /**
+     * Builds {@link CityRescueConfig} instances
+     */
+    public static class Builder {
+        private int initialStationCapacity = 20;
+        private int initialUnitCapacity = 50;
+        private int initialIncidentCapacity = 200;
+        private int stationLimit = UNLIMITED;
+        private int unitLimit = UNLIMITED;
+        private int incidentLimit = UNLIMITED;
+        private int defaultStationCapacity = 5;
+        private boolean spatialIndex = true;
+        private int spatialCellSize = 8;
+        private boolean pathDistanceDispatch = false;
+        private int distanceFieldCacheSize = 4;
+        private boolean routedMovement = false;
+        private boolean checkConsistency = false;
+        private boolean batchDispatch = false;
+        private int batchDispatchMaxSize = 256;
+        private int batchDispatchBudgetMillis = 20;
+        private boolean severityOrderedDispatch = false;
+        private int archiveSpillThreshold = 0;
+        private Path archiveDirectory = null;
+        private boolean unitTable = false;
+        private int parallelTickThreshold = 0;
+        private ForkJoinPool tickPool = null;
+        private boolean snapshots = false;
+        private Path mapFile = null;
+        private MetricsRegistry metrics = null;
+        private boolean multiUnitResponse = false;
+        private int rebalanceInterval = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * @param capacity number of stations to size storage for
+         * @return this builder
+         */
+        public Builder initialStationCapacity(int capacity) {
+            this.initialStationCapacity = requirePositive(capacity, "initialStationCapacity");
+            return this;
+        }
+
+        /**
+         * @param capacity number of units to size storage for
+         * @return this builder
+         */
+        public Builder initialUnitCapacity(int capacity) {
+            this.initialUnitCapacity = requirePositive(capacity, "initialUnitCapacity");
+            return this;
+        }
+
+        /**
+         * @param capacity number of incidents to size storage for
+         * @return this builder
+         */
+        public Builder initialIncidentCapacity(int capacity) {
+            this.initialIncidentCapacity = requirePositive(capacity, "initialIncidentCapacity");
+            return this;
+        }
+
+        /**
+         * @param limit maximum number of stations, or {@link #UNLIMITED}
+         * @return this builder
+         */
+        public Builder stationLimit(int limit) {
+            this.stationLimit = requireLimit(limit, "stationLimit");
+            return this;
+        }
+
+        /**
+         * @param limit maximum number of units, or {@link #UNLIMITED}
+         * @return this builder
+         */
+        public Builder unitLimit(int limit) {
+            this.unitLimit = requireLimit(limit, "unitLimit");
+            return this;
+        }
+
+        /**
+         * @param limit maximum number of incidents, or {@link #UNLIMITED}
+         * @return this builder
+         */
+        public Builder incidentLimit(int limit) {
+            this.incidentLimit = requireLimit(limit, "incidentLimit");
+            return this;
+        }
+
+        /**
+         * @param capacity unit capacity given to newly added stations
+         * @return this builder
+         */
+        public Builder defaultStationCapacity(int capacity) {
+            this.defaultStationCapacity = requirePositive(capacity, "defaultStationCapacity");
+            return this;
+        }
+
+        /**
+         * @param enabled true to find units through the grid spatial index,
+         *                false to scan every unit (same results, slower)
+         * @return this builder
+         */
+        public Builder spatialIndex(boolean enabled) {
+            this.spatialIndex = enabled;
+            return this;
+        }
+
+        /**
+         * @param cellSize width and height in grid cells of one spatial index
+         *                 bucket
+         * @return this builder
+         */
+        public Builder spatialCellSize(int cellSize) {
+            this.spatialCellSize = requirePositive(cellSize, "spatialCellSize");
+            return this;
+        }
+
+        /**
+         * Ranks units by travel distance around obstacles (breadth-first search
+         * over the map) instead of Manhattan distance. Always uses the grid
+         * spatial index.
+         *
+         * @param enabled true to rank by travel distance
+         * @return this builder
+         */
+        public Builder pathDistanceDispatch(boolean enabled) {
+            this.pathDistanceDispatch = enabled;
+            return this;
+        }
+
+        /**
+         * @param size number of distance fields to keep cached in path distance
+         *             mode; each one costs about 12 bytes per map cell
+         * @return this builder
+         */
+        public Builder distanceFieldCacheSize(int size) {
+            this.distanceFieldCacheSize = requirePositive(size, "distanceFieldCacheSize");
+            return this;
+        }
+
+        /**
+         * Moves units along shortest routes planned at dispatch instead of the
+         * greedy one-step rule, so they no longer get stuck behind obstacles.
+         *
+         * @param enabled true to use routed movement
+         * @return this builder
+         */
+        public Builder routedMovement(boolean enabled) {
+            this.routedMovement = enabled;
+            return this;
+        }
+
+        /**
+         * Checks unit and incident links after every mutation and throws
+         * IllegalStateException on the first disagreement. Slow, meant for
+         * tests.
+         *
+         * @param enabled true to check after every mutation
+         * @return this builder
+         */
+        public Builder checkConsistency(boolean enabled) {
+            this.checkConsistency = enabled;
+            return this;
+        }
+
+        /**
+         * Assigns units to all pending incidents of each unit type at once,
+         * minimising the severity-weighted total distance, instead of letting
+         * each incident take the nearest unit in ID order. Falls back to the
+         * one-by-one rule for batches over the size or time limits.
+         *
+         * @param enabled true to use batch dispatch
+         * @return this builder
+         */
+        public Builder batchDispatch(boolean enabled) {
+            this.batchDispatch = enabled;
+            return this;
+        }
+
+        /**
+         * @param size largest number of incidents of one type assigned as a
+         *             batch; bigger batches fall back to one-by-one dispatch
+         * @return this builder
+         */
+        public Builder batchDispatchMaxSize(int size) {
+            this.batchDispatchMaxSize = requirePositive(size, "batchDispatchMaxSize");
+            return this;
+        }
+
+        /**
+         * @param millis time one dispatch call may spend solving batches; the
+         *               batches left when it runs out are dispatched one by one
+         * @return this builder
+         */
+        public Builder batchDispatchBudgetMillis(int millis) {
+            this.batchDispatchBudgetMillis = requirePositive(millis, "batchDispatchBudgetMillis");
+            return this;
+        }
+
+        /**
+         * Serves pending incidents most severe first, lowest ID first among
+         * equal severities, instead of in ID order. Matters when units are
+         * scarce.
+         *
+         * @param enabled true to serve by severity
+         * @return this builder
+         */
+        public Builder severityOrderedDispatch(boolean enabled) {
+            this.severityOrderedDispatch = enabled;
+            return this;
+        }
+
+        /**
+         * Bounds the heap used by finished incidents: once this many RESOLVED
+         * or CANCELLED incidents are archived in memory, they are appended to
+         * an archive file and freed. They can still be viewed and are still
+         * listed in the status report.
+         *
+         * @param threshold number of archived incidents kept in memory, or 0
+         *                  to keep them all in memory
+         * @return this builder
+         */
+        public Builder archiveSpillThreshold(int threshold) {
+            this.archiveSpillThreshold = requireLimit(threshold, "archiveSpillThreshold");
+            return this;
+        }
+
+        /**
+         * @param directory directory to create the archive file in, or null
+         *                  for the system temporary directory
+         * @return this builder
+         */
+        public Builder archiveDirectory(Path directory) {
+            this.archiveDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Stores the changing unit fields in one primitive array per field
+         * instead of in each unit object, so the movement and work passes of
+         * tick() run as tight loops over arrays. Pays off for very large unit
+         * counts; units behave the same either way.
+         *
+         * @param enabled true to use a unit table
+         * @return this builder
+         */
+        public Builder unitTable(boolean enabled) {
+            this.unitTable = enabled;
+            return this;
+        }
+
+        /**
+         * Lets tick() split the unit movement and work countdown phases
+         * across a fork-join pool once a phase has at least this many units.
+         * Arrivals and resolutions always run on the calling thread, so the
+         * results are exactly the same as a sequential tick.
+         *
+         * @param threshold smallest number of units worth splitting, or 0 to
+         *                  always tick on the calling thread
+         * @return this builder
+         */
+        public Builder parallelTickThreshold(int threshold) {
+            this.parallelTickThreshold = requireLimit(threshold, "parallelTickThreshold");
+            return this;
+        }
+
+        /**
+         * @param pool pool parallel ticks run on, or null for
+         *             {@link ForkJoinPool#commonPool()}
+         * @return this builder
+         */
+        public Builder tickPool(ForkJoinPool pool) {
+            this.tickPool = pool;
+            return this;
+        }
+
+        /**
+         * Publishes an immutable {@link CitySnapshot} at the end of every tick
+         * and dispatch, for readers on other threads
+         *
+         * @param enabled true to publish snapshots
+         * @return this builder
+         */
+        public Builder snapshots(boolean enabled) {
+            this.snapshots = enabled;
+            return this;
+        }
+
+        /**
+         * Keeps the obstacle grid in a memory-mapped file instead of on the
+         * heap, see {@link cityrescue.model.MappedCityMap}. A file already
+         * holding a grid of the size passed to initialise is used as it is,
+         * so large maps built once load without being read
+         *
+         * @param file map file, or null to keep the grid on the heap
+         * @return this builder
+         */
+        public Builder mapFile(Path file) {
+            this.mapFile = file;
+            return this;
+        }
+
+        /**
+         * Records counters, queue depths, call and tick phase timings and
+         * per-type response times in a registry. With no registry the only
+         * cost is one null check per call
+         *
+         * @param registry registry to record in, or null to turn metrics off
+         * @return this builder
+         */
+        public Builder metrics(MetricsRegistry registry) {
+            this.metrics = registry;
+            return this;
+        }
+
+        /**
+         * Switches to multi-unit response: an incident of severity s needs
+         * (s + 1) / 2 units of its type, dispatch assembles the team from
+         * the nearest available units and work is shared by the units on
+         * scene. Work per unit grows with severity. Off by default, so
+         * every incident takes exactly one unit.
+         *
+         * @param enabled true to send teams
+         * @return this builder
+         */
+        public Builder multiUnitResponse(boolean enabled) {
+            this.multiUnitResponse = enabled;
+            return this;
+        }
+
+        /**
+         * Every this many ticks, sends IDLE units left at incident locations
+         * to the stations worst covered for their type, see
+         * {@link cityrescue.coverage.Rebalancer}. Relocating units stay
+         * dispatchable. 0, the default, turns rebalancing off
+         *
+         * @param ticks ticks between passes, or 0
+         * @return this builder
+         */
+        public Builder rebalanceInterval(int ticks) {
+            this.rebalanceInterval = requireLimit(ticks, "rebalanceInterval");
+            return this;
+        }
+
+        /**
+         * @return new config holding this builder's settings
+         */
+        public CityRescueConfig build() {
+            return new CityRescueConfig(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be > 0.");
+            }
+            return value;
+        }
+
+        private static int requireLimit(int value, String name) {
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must be >= 0.");
+            }
+            return value;
+        }
+    }
+}
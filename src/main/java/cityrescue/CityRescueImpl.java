@@ -1,57 +1,185 @@
 package cityrescue;
 
+import cityrescue.archive.IncidentArchive;
+import cityrescue.coverage.CoverageStats;
+import cityrescue.coverage.Rebalancer;
+import cityrescue.dispatch.BatchDispatcher;
+import cityrescue.dispatch.BruteForceUnitSelector;
+import cityrescue.dispatch.GridUnitSelector;
+import cityrescue.dispatch.PathDistanceUnitSelector;
+import cityrescue.dispatch.UnitSelector;
 import cityrescue.enums.*;
 import cityrescue.exceptions.*;
+import cityrescue.metrics.Counter;
+import cityrescue.metrics.Gauge;
+import cityrescue.metrics.MetricsRegistry;
+import cityrescue.metrics.ResponseStage;
+import cityrescue.metrics.Timer;
 import cityrescue.model.*;
+import cityrescue.util.ActiveSet;
+import cityrescue.util.IndexedMinHeap;
+import cityrescue.util.LongMinHeap;
+import cityrescue.util.RangeAction;
+import cityrescue.routing.GreedyMover;
+import cityrescue.routing.Route;
+import cityrescue.routing.RoutedMover;
+import cityrescue.routing.UnitMover;
+import cityrescue.util.EntityRegistry;
 
-public class CityRescueImpl implements CityRescue {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
 
-    private static final int MAX_STATIONS = 20;
-    private static final int MAX_UNITS = 50;
-    private static final int MAX_INCIDENTS = 200;
-    private static final int DEFAULT_STATION_CAPACITY = 5;
+public class CityRescueImpl implements CityRescueBulk {
 
+    private static final long STATION_BYTES = 40;
+    private static final long UNIT_BYTES = 48;
+    private static final long INCIDENT_BYTES = 40;
+    private static final long STRING_BYTES = 40;
+    private static final int MAX_SEVERITY = 5;
+
+    private CityRescueConfig config;
     private CityMap map;
     private int currentTick;
 
-    private Station[] stations;
-    private int stationCount;
+    private EntityRegistry<Station> stations;
     private int nextStationId;
 
-    private Unit[] units;
-    private int unitCount;
+    private EntityRegistry<Unit> units;
     private int nextUnitId;
 
-    private Incident[] incidents;
-    private int incidentCount;
+    private EntityRegistry<Incident> incidents;
     private int nextIncidentId;
+    private IncidentArchive archive;
+
+    private UnitSelector selector;
+    private UnitMover mover;
+    private UnitTable unitTable;
+    private ResponseTeams teams;
+    private Rebalancer rebalancer;
+    private GreedyMover tableMover;
+    private ForkJoinPool tickPool;
+    private SnapshotPublisher publisher;
+    private MetricsRegistry metrics;
+    private volatile CitySnapshot snapshot;
+    private BatchDispatcher batch;
+    private int batchCutoff = -1;
+    private long totalResponseDistance;
+    private int dispatchCount;
+
+    private final ActiveSet<Unit> enRoute = new ActiveSet<>();
+    private final ActiveSet<Unit> atScene = new ActiveSet<>();
+    private final LongMinHeap completions = new LongMinHeap();
+    private final IndexedMinHeap<Incident>[] pending = newPendingQueues();
+
+    /**
+     * Creates new simulation using the default config
+     */
+    public CityRescueImpl() {
+        this(CityRescueConfig.defaults());
+    }
 
     /**
-     * Starts the simulation and eliminates existing data
+     * Creates new simulation using the given config
+     *
+     * @param config storage sizes and limits used by every initialise
+     */
+    public CityRescueImpl(CityRescueConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config must not be null.");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Replaces the config and then starts the simulation, eliminating existing
+     * data
      *
      * @param width  width of the map
      * @param height height of the map
+     * @param config storage sizes and limits to use from now on
      * @throws InvalidGridException in case width and/or height are negative numbers
      */
+    public void initialise(int width, int height, CityRescueConfig config) throws InvalidGridException {
+        if (config == null) {
+            throw new IllegalArgumentException("Config must not be null.");
+        }
+        this.config = config;
+        initialise(width, height);
+    }
+
+    /**
+     * Starts the simulation and eliminates existing data. When the config
+     * names a map file, obstacles already stored in it are kept
+     *
+     * @param width  width of the map
+     * @param height height of the map
+     * @throws InvalidGridException in case width and/or height are negative
+     *                              numbers, or the map file holds a grid of
+     *                              another size
+     */
     @Override
     public void initialise(int width, int height) throws InvalidGridException {
         if (width <= 0 || height <= 0) {
             throw new InvalidGridException("Width and height must be positive.");
         }
-        map = new CityMap(width, height);
+        CityMap newMap = createMap(width, height);
+        if (map instanceof MappedCityMap) {
+            ((MappedCityMap) map).close();
+        }
+        map = newMap;
         currentTick = 0;
 
-        stations = new Station[MAX_STATIONS];
-        stationCount = 0;
+        stations = new EntityRegistry<>(config.getInitialStationCapacity());
         nextStationId = 1;
 
-        units = new Unit[MAX_UNITS];
-        unitCount = 0;
+        units = new EntityRegistry<>(config.getInitialUnitCapacity());
         nextUnitId = 1;
 
-        incidents = new Incident[MAX_INCIDENTS];
-        incidentCount = 0;
+        incidents = new EntityRegistry<>(config.getInitialIncidentCapacity());
         nextIncidentId = 1;
+        if (archive != null) {
+            archive.close();
+        }
+        archive = new IncidentArchive(config.getArchiveSpillThreshold(), config.getArchiveDirectory());
+
+        selector = createSelector();
+        rebalancer = null;
+        if (config.getRebalanceInterval() > 0) {
+            try {
+                rebalancer = new Rebalancer(map, selector);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidGridException(e.getMessage());
+            }
+            selector = rebalancer.getSelector();
+        }
+        mover = config.isRoutedMovement() ? new RoutedMover(map) : new GreedyMover(map);
+        unitTable = config.isUnitTable() ? new UnitTable(config.getInitialUnitCapacity() + 1) : null;
+        teams = config.isMultiUnitResponse() ? new ResponseTeams(64) : null;
+        tableMover = unitTable != null && mover instanceof GreedyMover ? (GreedyMover) mover : null;
+        tickPool = config.getTickPool() != null ? config.getTickPool() : ForkJoinPool.commonPool();
+        batch = config.isBatchDispatch() ? new BatchDispatcher(selector, width + height) : null;
+        totalResponseDistance = 0;
+        dispatchCount = 0;
+        enRoute.clear();
+        atScene.clear();
+        completions.clear();
+        for (IndexedMinHeap<Incident> queue : pending) {
+            queue.clear();
+        }
+        publisher = config.isSnapshots() ? new SnapshotPublisher(map, stations, units, incidents, archive) : null;
+        metrics = config.getMetrics();
+        snapshot = publisher != null ? publisher.publish(currentTick) : null;
     }
 
     /**
@@ -80,6 +208,24 @@ public class CityRescueImpl implements CityRescue {
         map.setBlocked(x, y);
     }
 
+    /**
+     * Adds obstacles on several cells at once
+     *
+     * @param xs x-Coordinates of the cells
+     * @param ys y-Coordinates of the cells
+     * @throws InvalidLocationException in case of any cell being out-of-bounds
+     */
+    @Override
+    public void addObstacles(int[] xs, int[] ys) throws InvalidLocationException {
+        checkLengths(xs, ys, xs == null ? 0 : xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            if (!map.inBounds(xs[i], ys[i])) {
+                throw new InvalidLocationException("Location (" + xs[i] + "," + ys[i] + ") is out of bounds.");
+            }
+        }
+        map.setBlocked(xs, ys);
+    }
+
     /**
      * Removes an obstacle from the grid
      *
@@ -95,6 +241,47 @@ public class CityRescueImpl implements CityRescue {
         map.clearBlocked(x, y);
     }
 
+    /**
+     * Adds obstacles on every cell of a rectangle
+     *
+     * @param x1 x-Coordinate of one corner
+     * @param y1 y-Coordinate of one corner
+     * @param x2 x-Coordinate of the opposite corner
+     * @param y2 y-Coordinate of the opposite corner
+     * @throws InvalidLocationException in case a corner is out-of-bounds
+     */
+    public void addObstacleRect(int x1, int y1, int x2, int y2) throws InvalidLocationException {
+        checkRect(x1, y1, x2, y2);
+        map.setBlockedRect(x1, y1, x2, y2);
+    }
+
+    /**
+     * Removes obstacles from every cell of a rectangle
+     *
+     * @param x1 x-Coordinate of one corner
+     * @param y1 y-Coordinate of one corner
+     * @param x2 x-Coordinate of the opposite corner
+     * @param y2 y-Coordinate of the opposite corner
+     * @throws InvalidLocationException in case a corner is out-of-bounds
+     */
+    public void removeObstacleRect(int x1, int y1, int x2, int y2) throws InvalidLocationException {
+        checkRect(x1, y1, x2, y2);
+        map.clearBlockedRect(x1, y1, x2, y2);
+    }
+
+    /**
+     * Replaces all obstacles on the grid, e.g. with imported map data
+     *
+     * @param cells obstacle bits, bit y * width + x standing for cell (x, y)
+     * @throws InvalidLocationException in case a bit lies outside the grid
+     */
+    public void loadObstacles(BitSet cells) throws InvalidLocationException {
+        if (cells.length() > (long) map.getWidth() * map.getHeight()) {
+            throw new InvalidLocationException("Obstacle bit " + (cells.length() - 1) + " is out of bounds.");
+        }
+        map.loadObstacles(cells);
+    }
+
     /**
      * Adds a station to the grid
      *
@@ -105,6 +292,8 @@ public class CityRescueImpl implements CityRescue {
      * @throws InvalidNameException     in case of a name for the station not
      *                                  provided
      * @throws InvalidLocationException in case of (x, y) coords being out-of-bounds
+     * @throws CapacityExceededException in case of the configured station limit
+     *                                   being reached
      */
     @Override
     public int addStation(String name, int x, int y) throws InvalidNameException, InvalidLocationException {
@@ -117,15 +306,63 @@ public class CityRescueImpl implements CityRescue {
         if (map.isBlocked(x, y)) {
             throw new InvalidLocationException("Location (" + x + "," + y + ") is blocked.");
         }
-        if (stationCount >= MAX_STATIONS) {
-            throw new InvalidLocationException("Maximum number of stations reached.");
+        checkLimit(stations.size(), config.getStationLimit(), "stations");
+        Station s = new Station(nextStationId, name, x, y, config.getDefaultStationCapacity());
+        stations.add(nextStationId, s);
+        if (publisher != null) {
+            publisher.stationsChanged();
         }
-        Station s = new Station(nextStationId, name, x, y, DEFAULT_STATION_CAPACITY);
-        stations[stationCount] = s;
-        stationCount++;
         return nextStationId++;
     }
 
+    /**
+     * Adds several stations at once
+     *
+     * @param names names of the stations
+     * @param xs    x-Coordinates of the stations
+     * @param ys    y-Coordinates of the stations
+     * @return IDs of the created stations
+     * @throws InvalidNameException     in case of any name being blank
+     * @throws InvalidLocationException in case of any location being
+     *                                  out-of-bounds or blocked
+     * @throws CapacityExceededException in case of the stations not fitting in
+     *                                   the configured station limit
+     */
+    @Override
+    public IdRange addStations(String[] names, int[] xs, int[] ys)
+            throws InvalidNameException, InvalidLocationException {
+        if (names == null) {
+            throw new IllegalArgumentException("Names must not be null.");
+        }
+        int n = names.length;
+        checkLengths(xs, ys, n);
+        for (int i = 0; i < n; i++) {
+            if (names[i] == null || names[i].trim().isEmpty()) {
+                throw new InvalidNameException("Station name must not be blank.");
+            }
+            if (!map.inBounds(xs[i], ys[i])) {
+                throw new InvalidLocationException("Location (" + xs[i] + "," + ys[i] + ") is out of bounds.");
+            }
+            if (map.isBlocked(xs[i], ys[i])) {
+                throw new InvalidLocationException("Location (" + xs[i] + "," + ys[i] + ") is blocked.");
+            }
+        }
+        if (n > 0) {
+            checkLimit(stations.size() + n - 1, config.getStationLimit(), "stations");
+        }
+        IdRange ids = new IdRange(nextStationId, n);
+        stations.ensureCapacity(stations.slotLimit() + n);
+        int capacity = config.getDefaultStationCapacity();
+        for (int i = 0; i < n; i++) {
+            stations.add(nextStationId, new Station(nextStationId, names[i], xs[i], ys[i], capacity));
+            nextStationId++;
+        }
+        if (publisher != null && n > 0) {
+            publisher.stationsChanged();
+        }
+        return ids;
+    }
+
     /**
      * Remove station from the map
      *
@@ -136,15 +373,14 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public void removeStation(int stationId) throws IDNotRecognisedException, IllegalStateException {
-        int idx = findStationIndex(stationId);
-        if (stations[idx].getUnitCount() > 0) {
+        Station s = findStation(stationId);
+        if (s.getUnitCount() > 0) {
             throw new IllegalStateException("Station " + stationId + " still has units.");
         }
-        for (int i = idx; i < stationCount - 1; i++) {
-            stations[i] = stations[i + 1];
+        stations.remove(stationId);
+        if (publisher != null) {
+            publisher.stationsChanged();
         }
-        stations[stationCount - 1] = null;
-        stationCount--;
     }
 
     /**
@@ -159,14 +395,14 @@ public class CityRescueImpl implements CityRescue {
     @Override
     public void setStationCapacity(int stationId, int maxUnits)
             throws IDNotRecognisedException, InvalidCapacityException {
-        int idx = findStationIndex(stationId);
+        Station s = findStation(stationId);
         if (maxUnits <= 0) {
             throw new InvalidCapacityException("Capacity must be > 0.");
         }
-        if (maxUnits < stations[idx].getUnitCount()) {
+        if (maxUnits < s.getUnitCount()) {
             throw new InvalidCapacityException("Capacity less than current unit count.");
         }
-        stations[idx].setMaxUnits(maxUnits);
+        s.setMaxUnits(maxUnits);
     }
 
     /**
@@ -176,12 +412,7 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public int[] getStationIds() {
-        int[] ids = new int[stationCount];
-        for (int i = 0; i < stationCount; i++) {
-            ids[i] = stations[i].getStationId();
-        }
-        sortAscending(ids);
-        return ids;
+        return stations.ids();
     }
 
     /**
@@ -194,27 +425,83 @@ public class CityRescueImpl implements CityRescue {
      * @throws InvalidUnitException     in case of unit type being null
      * @throws IllegalStateException    in case of maximum number of units at
      *                                  station reached.
+     * @throws CapacityExceededException in case of the configured unit limit
+     *                                   being reached
      */
     @Override
     public int addUnit(int stationId, UnitType type)
             throws IDNotRecognisedException, InvalidUnitException, IllegalStateException {
-        int sIdx = findStationIndex(stationId);
+        Station s = findStation(stationId);
         if (type == null) {
             throw new InvalidUnitException("UnitType must not be null.");
         }
-        if (!stations[sIdx].hasCapacity()) {
+        if (!s.hasCapacity()) {
             throw new IllegalStateException("Station " + stationId + " is at full capacity.");
         }
-        if (unitCount >= MAX_UNITS) {
-            throw new IllegalStateException("Maximum number of units reached.");
+        checkLimit(units.size(), config.getUnitLimit(), "units");
+        Unit u = createUnit(nextUnitId, type, stationId, s.getX(), s.getY());
+        if (unitTable != null) {
+            u.bindTo(unitTable);
         }
-        Unit u = createUnit(nextUnitId, type, stationId, stations[sIdx].getX(), stations[sIdx].getY());
-        units[unitCount] = u;
-        unitCount++;
-        stations[sIdx].incrementUnitCount();
+        units.add(nextUnitId, u);
+        selector.unitAvailable(u);
+        s.incrementUnitCount();
+        unitChanged(u);
+        afterMutation();
         return nextUnitId++;
     }
 
+    /**
+     * Adds several units of one type to a station at once
+     *
+     * @param stationId number of StationID
+     * @param type      type of the units
+     * @param count     number of units to add
+     * @return IDs of the created units
+     * @throws IDNotRecognisedException in case of station ID being non-existent
+     * @throws InvalidUnitException     in case of unit type being null
+     * @throws IllegalStateException    in case of the units not fitting in the
+     *                                  station's capacity
+     * @throws CapacityExceededException in case of the units not fitting in the
+     *                                   configured unit limit
+     */
+    @Override
+    public IdRange addUnits(int stationId, UnitType type, int count)
+            throws IDNotRecognisedException, InvalidUnitException, IllegalStateException {
+        Station s = findStation(stationId);
+        if (type == null) {
+            throw new InvalidUnitException("UnitType must not be null.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must be >= 0.");
+        }
+        if (count > s.getMaxUnits() - s.getUnitCount()) {
+            throw new IllegalStateException("Station " + stationId + " has room for "
+                    + (s.getMaxUnits() - s.getUnitCount()) + " more units, not " + count + ".");
+        }
+        if (count > 0) {
+            checkLimit(units.size() + count - 1, config.getUnitLimit(), "units");
+        }
+        IdRange ids = new IdRange(nextUnitId, count);
+        units.ensureCapacity(units.slotLimit() + count);
+        if (unitTable != null && count > 0) {
+            unitTable.ensureRow(nextUnitId + count - 1);
+        }
+        for (int i = 0; i < count; i++) {
+            Unit u = createUnit(nextUnitId, type, stationId, s.getX(), s.getY());
+            if (unitTable != null) {
+                u.bindTo(unitTable);
+            }
+            units.add(nextUnitId, u);
+            selector.unitAvailable(u);
+            s.incrementUnitCount();
+            unitChanged(u);
+            nextUnitId++;
+        }
+        afterMutation();
+        return ids;
+    }
+
     /**
      * Permanently removes unit
      *
@@ -225,18 +512,19 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public void decommissionUnit(int unitId) throws IDNotRecognisedException, IllegalStateException {
-        int idx = findUnitIndex(unitId);
-        Unit u = units[idx];
+        Unit u = findUnit(unitId);
         if (u.getStatus() == UnitStatus.EN_ROUTE || u.getStatus() == UnitStatus.AT_SCENE) {
             throw new IllegalStateException("Cannot decommission unit " + unitId + ": currently active.");
         }
-        int sIdx = findStationIndex(u.getHomeStationId());
-        stations[sIdx].decrementUnitCount();
-        for (int i = idx; i < unitCount - 1; i++) {
-            units[i] = units[i + 1];
+        findStation(u.getHomeStationId()).decrementUnitCount();
+        if (u.getStatus() == UnitStatus.IDLE) {
+            selector.unitUnavailable(u);
         }
-        units[unitCount - 1] = null;
-        unitCount--;
+        units.remove(unitId);
+        if (publisher != null) {
+            publisher.unitRemoved(unitId);
+        }
+        afterMutation();
     }
 
     /**
@@ -246,12 +534,7 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public int[] getUnitIds() {
-        int[] ids = new int[unitCount];
-        for (int i = 0; i < unitCount; i++) {
-            ids[i] = units[i].getUnitId();
-        }
-        sortAscending(ids);
-        return ids;
+        return units.ids();
     }
 
     /**
@@ -265,10 +548,33 @@ public class CityRescueImpl implements CityRescue {
      * @throws InvalidSeverityException in case of severity argument not being
      *                                  between 1-5
      * @throws InvalidLocationException in case of (x, y) coords being out-of-bounds
+     * @throws CapacityExceededException in case of the configured incident
+     *                                   limit being reached
      */
     @Override
     public int reportIncident(IncidentType type, int severity, int x, int y)
             throws InvalidSeverityException, InvalidLocationException {
+        if (metrics == null) {
+            return addIncident(type, severity, x, y);
+        }
+        long start = System.nanoTime();
+        try {
+            return addIncident(type, severity, x, y);
+        } finally {
+            metrics.recordTime(Timer.REPORT_INCIDENT, System.nanoTime() - start);
+        }
+    }
+
+    private int addIncident(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
+        validateIncident(type, severity, x, y);
+        checkLimit(incidents.size() + archive.size(), config.getIncidentLimit(), "incidents");
+        insertIncident(new Incident(nextIncidentId, type, severity, x, y));
+        return nextIncidentId - 1;
+    }
+
+    void validateIncident(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
         if (type == null) {
             throw new InvalidLocationException("IncidentType must not be null.");
         }
@@ -281,13 +587,23 @@ public class CityRescueImpl implements CityRescue {
         if (map.isBlocked(x, y)) {
             throw new InvalidLocationException("Location (" + x + "," + y + ") is blocked.");
         }
-        if (incidentCount >= MAX_INCIDENTS) {
-            throw new InvalidLocationException("Maximum number of incidents reached.");
+    }
+
+    void insertIncident(Incident inc) {
+        if (inc.getIncidentId() != nextIncidentId) {
+            throw new IllegalStateException("Expected incident ID " + nextIncidentId + ", got " + inc.getIncidentId() + ".");
+        }
+        if (teams != null) {
+            inc.setRequiredUnits(ResponseTeams.requiredUnits(inc.getSeverity()));
+        }
+        incidents.add(nextIncidentId, inc);
+        pending[inc.getType().ordinal()].add(nextIncidentId, pendingKey(inc), inc);
+        incidentChanged(inc);
+        nextIncidentId++;
+        if (metrics != null) {
+            inc.setStatusTick(currentTick);
+            metrics.increment(Counter.INCIDENTS_REPORTED);
         }
-        Incident inc = new Incident(nextIncidentId, type, severity, x, y);
-        incidents[incidentCount] = inc;
-        incidentCount++;
-        return nextIncidentId++;
     }
 
     /**
@@ -297,11 +613,28 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public int[] getIncidentIds() {
-        int[] ids = new int[incidentCount];
-        for (int i = 0; i < incidentCount; i++) {
-            ids[i] = incidents[i].getIncidentId();
+        if (archive.size() == 0) {
+            return incidents.ids();
+        }
+        int[] ids = new int[incidents.size() + archive.size()];
+        IncidentArchive.Cursor archived = archive.cursor();
+        boolean more = archived.next();
+        int n = 0;
+        for (int i = 0; i < incidents.slotLimit(); i++) {
+            Incident inc = incidents.valueAt(i);
+            if (inc == null) {
+                continue;
+            }
+            while (more && archived.get().getId() < inc.getIncidentId()) {
+                ids[n++] = archived.get().getId();
+                more = archived.next();
+            }
+            ids[n++] = inc.getIncidentId();
+        }
+        while (more) {
+            ids[n++] = archived.get().getId();
+            more = archived.next();
         }
-        sortAscending(ids);
         return ids;
     }
 
@@ -316,22 +649,24 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public void transferUnit(int unitId, int newStationId) throws IDNotRecognisedException, IllegalStateException {
-        int idx = findUnitIndex(unitId);
-        Unit u = units[idx];
-        int sIdx = findStationIndex(newStationId);
-        Station s = stations[sIdx];
+        Unit u = findUnit(unitId);
+        Station s = findStation(newStationId);
         if (u.getStatus() != UnitStatus.IDLE) {
             throw new IllegalStateException("Unit must be Idle");
         }
         if (!s.hasCapacity()) {
             throw new IllegalStateException("Station is at capacity");
         }
-        int oldIdx = findStationIndex(u.getHomeStationId());
-        stations[oldIdx].decrementUnitCount();
+        findStation(u.getHomeStationId()).decrementUnitCount();
+        int oldX = u.getX();
+        int oldY = u.getY();
         u.setHomeStationId(newStationId);
         u.setX(s.getX());
         u.setY(s.getY());
+        selector.unitMoved(u, oldX, oldY);
         s.incrementUnitCount();
+        unitChanged(u);
+        afterMutation();
     }
 
     /**
@@ -347,20 +682,23 @@ public class CityRescueImpl implements CityRescue {
     @Override
     public void setUnitOutOfService(int unitId, boolean outOfService)
             throws IDNotRecognisedException, IllegalStateException {
-        int idx = findUnitIndex(unitId);
-        Unit u = units[idx];
+        Unit u = findUnit(unitId);
         if (outOfService) {
             if (u.getStatus() != UnitStatus.IDLE) {
                 throw new IllegalStateException("Unit must be Idle");
             }
             u.setStatus(UnitStatus.OUT_OF_SERVICE);
+            selector.unitUnavailable(u);
         } else {
             if (u.getStatus() != UnitStatus.OUT_OF_SERVICE) {
                 throw new IllegalStateException("Unit must be Out of Service");
 
             }
             u.setStatus(UnitStatus.IDLE);
+            selector.unitAvailable(u);
         }
+        unitChanged(u);
+        afterMutation();
     }
 
     /**
@@ -370,18 +708,14 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public String viewUnit(int unitId) throws IDNotRecognisedException {
-        int idx = findUnitIndex(unitId);
-        Unit u = units[idx];
-        String result = "U#" + u.getUnitId()
-                + " TYPE=" + u.getUnitType()
-                + " HOME=" + u.getHomeStationId()
-                + " LOC=(" + u.getX() + "," + u.getY() + ")"
-                + " STATUS=" + u.getStatus()
-                + " INCIDENT=" + (u.getAssignedIncidentId() == -1 ? "-" : u.getAssignedIncidentId());
-        if (u.getStatus() == UnitStatus.AT_SCENE) {
-            result += " WORK=" + u.getWorkTicksRemaining();
+        Unit u = findUnit(unitId);
+        StringBuilder sb = new StringBuilder(96);
+        try {
+            StatusFormat.appendUnit(sb, u);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return result;
+        return sb.toString();
     }
 
     /**
@@ -394,19 +728,34 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public void cancelIncident(int incidentId) throws IDNotRecognisedException, IllegalStateException {
-        int idx = findIncidentIndex(incidentId);
-        Incident i = incidents[idx];
-        if (i.getStatus() != IncidentStatus.REPORTED && i.getStatus() != IncidentStatus.DISPATCHED) {
+        Incident i = incidents.get(incidentId);
+        if (i == null && !archive.contains(incidentId)) {
+            throw new IDNotRecognisedException("No incident with ID " + incidentId);
+        }
+        if (i == null || (i.getStatus() != IncidentStatus.REPORTED && i.getStatus() != IncidentStatus.DISPATCHED)) {
             throw new IllegalStateException("Cannot cancel incident");
         }
-        if (i.getStatus() == IncidentStatus.DISPATCHED) {
-            int uIdx = findUnitIndex(i.getAssignedUnitId());
-            Unit u = units[uIdx];
+        if (teams != null && i.getStatus() == IncidentStatus.DISPATCHED) {
+            releaseTeam(i);
+        } else if (i.getStatus() == IncidentStatus.DISPATCHED) {
+            Unit u = i.getAssignedUnit();
+            enRoute.remove(u.getUnitId());
             u.setStatus(UnitStatus.IDLE);
-            u.setAssignedIncidentId(-1);
+            u.setAssignedIncident(null);
+            u.setRoute(null);
+            selector.unitAvailable(u);
+            unitChanged(u);
+        } else {
+            pending[i.getType().ordinal()].remove(incidentId);
         }
         i.setStatus(IncidentStatus.CANCELLED);
-        i.setAssignedUnitId(-1);
+        if (metrics != null) {
+            metrics.increment(Counter.INCIDENTS_CANCELLED);
+        }
+        i.setAssignedUnit(null);
+        incidentChanged(i);
+        archiveIncident(i);
+        afterMutation();
     }
 
     /**
@@ -422,15 +771,31 @@ public class CityRescueImpl implements CityRescue {
     @Override
     public void escalateIncident(int incidentId, int newSeverity)
             throws IDNotRecognisedException, InvalidSeverityException, IllegalStateException {
-        int idx = findIncidentIndex(incidentId);
-        Incident i = incidents[idx];
+        Incident i = incidents.get(incidentId);
+        if (i == null && !archive.contains(incidentId)) {
+            throw new IDNotRecognisedException("No incident with ID " + incidentId);
+        }
         if (newSeverity < 1 || newSeverity > 5) {
             throw new InvalidSeverityException("Severity must be 1-5");
         }
-        if (i.getStatus() == IncidentStatus.RESOLVED || i.getStatus() == IncidentStatus.CANCELLED) {
+        if (i == null || i.getStatus() == IncidentStatus.RESOLVED || i.getStatus() == IncidentStatus.CANCELLED) {
             throw new IllegalStateException("Incident must not be Resolved or Cancelled");
         }
         i.setSeverity(newSeverity);
+        if (teams != null) {
+            i.setRequiredUnits(ResponseTeams.requiredUnits(newSeverity));
+        }
+        incidentChanged(i);
+        IndexedMinHeap<Incident> queue = pending[i.getType().ordinal()];
+        if (!queue.contains(incidentId)) {
+            if (needsUnits(i)) {
+                queue.add(incidentId, pendingKey(i), i);
+            }
+        } else if (i.getStatus() == IncidentStatus.REPORTED || needsUnits(i)) {
+            queue.updateKey(incidentId, pendingKey(i));
+        } else {
+            queue.remove(incidentId);
+        }
     }
 
     /**
@@ -443,56 +808,122 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public String viewIncident(int incidentId) throws IDNotRecognisedException {
-        int idx = findIncidentIndex(incidentId);
-        Incident i = incidents[idx];
-        String result = "I#" + i.getIncidentId()
-                + " TYPE=" + i.getType()
-                + " SEV=" + i.getSeverity()
-                + " LOC=(" + i.getX() + "," + i.getY() + ")"
-                + " STATUS=" + i.getStatus()
-                + " UNIT=" + (i.getAssignedUnitId() == -1 ? "-" : i.getAssignedUnitId());
-        return result;
+        Incident i = incidents.get(incidentId);
+        IncidentArchive.Record archived = null;
+        if (i == null) {
+            archived = new IncidentArchive.Record();
+            if (!archive.find(incidentId, archived)) {
+                throw new IDNotRecognisedException("No incident with ID " + incidentId);
+            }
+        }
+        StringBuilder sb = new StringBuilder(80);
+        try {
+            if (i != null) {
+                StatusFormat.appendIncident(sb, i);
+            } else {
+                StatusFormat.appendArchived(sb, archived);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
     }
 
     /**
      * Dispatches units to assigned incidents and sets units and incidents to
      * EN_ROUTE and DISPATCHED statuses
+     * Only pending incidents are visited, through one queue per incident
+     * type, in ID order or most severe first if so configured.
+     * In batch mode each unit type's pending incidents are first assigned
+     * together; whatever is left is served one by one.
+     * In multi-unit mode an incident is sent the nearest units until its team
+     * is complete; a team left short stays queued for the next dispatch.
      */
     @Override
     public void dispatch() {
-        for (int i = 0; i < incidentCount; i++) {
-            if (incidents[i].getStatus() != IncidentStatus.REPORTED) {
+        dispatchTimed(-1, false);
+    }
+
+    /**
+     * Dispatches like {@link #dispatch()}, but in batch mode gives up the
+     * batch assignment after a given number of batches instead of when the
+     * time budget runs out, so a recorded dispatch can be repeated exactly
+     * however fast the replay runs
+     *
+     * @param batchCutoff number of batches to solve before giving up, as
+     *                    returned by {@link #getLastBatchCutoff()}, or -1 to
+     *                    solve every batch
+     */
+    public void dispatch(int batchCutoff) {
+        dispatchTimed(batchCutoff, true);
+    }
+
+    /**
+     * @return number of batches the last dispatch solved before its time
+     *         budget ran out, or -1 if it solved every batch or batch mode
+     *         is off
+     */
+    public int getLastBatchCutoff() {
+        return batchCutoff;
+    }
+
+    private void dispatchTimed(int cutoff, boolean forced) {
+        if (metrics == null) {
+            dispatchPending(cutoff, forced);
+            return;
+        }
+        long start = System.nanoTime();
+        dispatchPending(cutoff, forced);
+        metrics.recordTime(Timer.DISPATCH, System.nanoTime() - start);
+        recordGauges();
+    }
+
+    private void dispatchPending(int cutoff, boolean forced) {
+        batchCutoff = -1;
+        if (batch != null) {
+            dispatchBatches(cutoff, forced);
+        }
+        for (IncidentType type : IncidentType.values()) {
+            IndexedMinHeap<Incident> queue = pending[type.ordinal()];
+            UnitType unitType = UnitSelector.unitTypeFor(type);
+            if (queue.size() == 0 || !selector.hasAvailable(unitType)) {
                 continue;
             }
-            Unit bestUnit = null;
-            for (int j = 0; j < unitCount; j++) {
-                if (units[j].getStatus() == UnitStatus.IDLE && units[j].canHandle(incidents[i].getType())) {
-                    if (bestUnit == null) {
-                        bestUnit = units[j];
-                    } else {
-                        int newDistance = units[j].manhattanDistance(incidents[i].getX(), incidents[i].getY());
-                        int bestDistance = bestUnit.manhattanDistance(incidents[i].getX(), incidents[i].getY());
-                        if (newDistance < bestDistance) {
-                            bestUnit = units[j];
-                        } else if (newDistance == bestDistance) {
-                            if (units[j].getUnitId() < bestUnit.getUnitId()) {
-                                bestUnit = units[j];
-                            } else if (units[j].getUnitId() == bestUnit.getUnitId()) {
-                                if (units[j].getHomeStationId() < bestUnit.getHomeStationId()) {
-                                    bestUnit = units[j];
-                                }
-                            }
-                        }
-                    }
+            Incident[] unserved = new Incident[queue.size()];
+            int n = 0;
+            Incident inc;
+            while (selector.hasAvailable(unitType) && (inc = queue.poll()) != null) {
+                Unit bestUnit = selector.selectUnit(inc);
+                while (bestUnit != null) {
+                    assign(bestUnit, inc, selector.distance(bestUnit, inc));
+                    bestUnit = needsUnits(inc) ? selector.selectUnit(inc) : null;
+                }
+                if (needsUnits(inc)) {
+                    unserved[n++] = inc;
                 }
             }
-            if (bestUnit != null) {
-                bestUnit.setStatus(UnitStatus.EN_ROUTE);
-                bestUnit.setAssignedIncidentId(incidents[i].getIncidentId());
-                incidents[i].setStatus(IncidentStatus.DISPATCHED);
-                incidents[i].setAssignedUnitId((bestUnit.getUnitId()));
+            for (int i = 0; i < n; i++) {
+                queue.add(unserved[i].getIncidentId(), pendingKey(unserved[i]), unserved[i]);
             }
         }
+        publishSnapshot();
+        afterMutation();
+    }
+
+    /**
+     * @return sum over every dispatch so far of the distance from the unit to
+     *         its incident at the moment it was sent, in the metric dispatch
+     *         ranks units by
+     */
+    public long getTotalResponseDistance() {
+        return totalResponseDistance;
+    }
+
+    /**
+     * @return number of units dispatched so far
+     */
+    public int getDispatchCount() {
+        return dispatchCount;
     }
 
     /**
@@ -501,98 +932,228 @@ public class CityRescueImpl implements CityRescue {
      * Checks for unit arrivals and starts AT_SCENE status
      * Decreases work ticks remaining for IN_PROGRESS incidents
      * Sets completed incidents to RESOLVED
+     * With rebalancing on, moves relocating IDLE units and runs a rebalancing
+     * pass every configured interval
+     * Only EN_ROUTE, AT_SCENE and relocating units are visited, other idle
+     * units and finished incidents cost nothing.
+     * Movement and work countdown only touch each unit's own fields, so with a
+     * parallel tick threshold set they are split across the fork-join pool;
+     * arrivals and resolutions stay on the calling thread in set order.
      */
     @Override
     public void tick() {
-        currentTick++;
+        if (metrics != null) {
+            timedTick();
+            return;
+        }
+        beginTick();
+        runPhase(this::moveRange, enRoute.size());
+        handleArrivals();
+        runPhase(this::workRange, atScene.size());
+        handleCompletions();
+        rebalancePhase();
+        publishSnapshot();
+        afterMutation();
+    }
 
-        for (int i = 0; i < unitCount; i++) {
-            if (units[i].getStatus() == UnitStatus.EN_ROUTE) {
-                int xCoord = 0;
-                int yCoord = 0;
-                for (int k = 0; k < incidentCount; k++) {
-                    if (incidents[k].getIncidentId() == units[i].getAssignedIncidentId()) {
-                        xCoord = incidents[k].getX();
-                        yCoord = incidents[k].getY();
-                        break;
-                    }
-                }
-                int unitX = units[i].getX();
-                int unitY = units[i].getY();
-                int[] xDirection = { 0, 1, 0, -1 };
-                int[] yDirection = { -1, 0, 1, 0 };
-                boolean moved = false;
-                int distance = units[i].manhattanDistance(xCoord, yCoord);
-                for (int j = 0; j < xDirection.length; j++) {
-                    int newX = unitX + xDirection[j];
-                    int newY = unitY + yDirection[j];
-                    if (map.isLegalMove(newX, newY)) {
-                        int newDistance = Math.abs(newX - xCoord) + Math.abs(newY - yCoord);
-                        if (newDistance < distance) {
-                            moved = true;
-                            units[i].setX(newX);
-                            units[i].setY(newY);
-                            break;
-                        }
-                    }
-                }
-                if (!moved) {
-                    for (int k = 0; k < yDirection.length; k++) {
-                        int newX = unitX + xDirection[k];
-                        int newY = unitY + yDirection[k];
-                        if (map.isLegalMove(newX, newY)) {
-                            units[i].setX(newX);
-                            units[i].setY(newY);
-                            break;
-                        }
-                    }
-                }
+    private void timedTick() {
+        long start = System.nanoTime();
+        beginTick();
+        runPhase(this::moveRange, enRoute.size());
+        long moved = System.nanoTime();
+        handleArrivals();
+        long arrived = System.nanoTime();
+        runPhase(this::workRange, atScene.size());
+        long worked = System.nanoTime();
+        handleCompletions();
+        long completed = System.nanoTime();
+        rebalancePhase();
+        long rebalanced = System.nanoTime();
+        publishSnapshot();
+        afterMutation();
+        metrics.recordTime(Timer.TICK_MOVE, moved - start);
+        metrics.recordTime(Timer.TICK_ARRIVALS, arrived - moved);
+        metrics.recordTime(Timer.TICK_WORK, worked - arrived);
+        metrics.recordTime(Timer.TICK_COMPLETIONS, completed - worked);
+        metrics.recordTime(Timer.TICK_REBALANCE, rebalanced - completed);
+        metrics.recordTime(Timer.TICK, System.nanoTime() - start);
+        metrics.increment(Counter.TICKS);
+        recordGauges();
+    }
+
+    private void beginTick() {
+        currentTick++;
+        if (publisher != null) {
+            // every unit that moves, arrives, works or finishes is in one of these
+            for (int i = 0; i < enRoute.size(); i++) {
+                publisher.unitChanged(enRoute.get(i));
+            }
+            for (int i = 0; i < atScene.size(); i++) {
+                publisher.unitChanged(atScene.get(i));
+            }
+            for (int i = 0; i < relocatingCount(); i++) {
+                publisher.unitChanged(rebalancer.relocatingUnit(i));
             }
         }
-        for (int i = 0; i < unitCount; i++) {
-            if (units[i].getStatus() == UnitStatus.EN_ROUTE) {
-                int xUnit = units[i].getX();
-                int yUnit = units[i].getY();
-                int xIncident = 0;
-                int yIncident = 0;
-                Incident inc = null;
-                for (int l = 0; l < incidentCount; l++) {
-                    if (incidents[l].getIncidentId() == units[i].getAssignedIncidentId()) {
-                        inc = incidents[l];
-                        xIncident = incidents[l].getX();
-                        yIncident = incidents[l].getY();
-                        break;
-                    }
-                }
-                if (xUnit == xIncident && yUnit == yIncident) {
-                    units[i].setStatus(UnitStatus.AT_SCENE);
-                    units[i].setWorkTicksRemaining(units[i].getTicksToResolve(0));
-                    inc.setStatus(IncidentStatus.IN_PROGRESS);
+    }
+
+    private void handleArrivals() {
+        for (int i = enRoute.size() - 1; i >= 0; i--) {
+            if (unitTable != null && !unitTable.isAtTarget(enRoute.idAt(i))) {
+                continue;
+            }
+            Unit unit = enRoute.get(i);
+            Incident inc = unit.getAssignedIncident();
+            if (unit.getX() == inc.getX() && unit.getY() == inc.getY()) {
+                enRoute.remove(unit.getUnitId());
+                unit.setStatus(UnitStatus.AT_SCENE);
+                unit.setRoute(null);
+                if (teams != null) {
+                    joinCrew(unit, inc);
+                    continue;
                 }
+                unit.setWorkTicksRemaining(unit.getTicksToResolve(0));
+                inc.setStatus(IncidentStatus.IN_PROGRESS);
+                incidentChanged(inc);
+                stageEnded(inc, ResponseStage.DISPATCH_TO_ARRIVAL);
+                atScene.add(unit.getUnitId(), unit);
+                scheduleCompletion(unit, currentTick + Math.max(unit.getWorkTicksRemaining() - 1, 0));
             }
         }
-        for (int i = 0; i < unitCount; i++) {
-            if (units[i].getStatus() == UnitStatus.AT_SCENE) {
-                units[i].decrementWorkTicks();
+    }
+
+    private void handleCompletions() {
+        while (!completions.isEmpty() && (int) (completions.peek() >>> 32) <= currentTick) {
+            Unit u = units.get((int) completions.pop());
+            if (u == null || u.getStatus() != UnitStatus.AT_SCENE) {
+                continue;
+            }
+            if (u.getWorkTicksRemaining() > 0) {
+                scheduleCompletion(u, currentTick + u.getWorkTicksRemaining());
+                continue;
+            }
+            Incident inc = u.getAssignedIncident();
+            inc.setStatus(IncidentStatus.RESOLVED);
+            if (teams != null) {
+                releaseTeam(inc);
             }
+            inc.setAssignedUnit(null);
+            incidentChanged(inc);
+            stageEnded(inc, ResponseStage.ARRIVAL_TO_RESOLVE);
+            archiveIncident(inc);
+            if (teams != null) {
+                continue;
+            }
+            atScene.remove(u.getUnitId());
+            u.setStatus(UnitStatus.IDLE);
+            u.setAssignedIncident(null);
+            selector.unitAvailable(u);
         }
-        for (int j = 0; j < incidentCount; j++) {
-            if (incidents[j].getStatus() == IncidentStatus.IN_PROGRESS) {
-                Unit u = null;
-                for (int k = 0; k < unitCount; k++) {
-                    if (units[k].getUnitId() == incidents[j].getAssignedUnitId()) {
-                        u = units[k];
-                        break;
-                    }
+    }
+
+    private void rebalancePhase() {
+        if (rebalancer == null) {
+            return;
+        }
+        rebalancer.step(mover, currentTick);
+        if (currentTick % config.getRebalanceInterval() == 0) {
+            rebalancer.rebalance(stations, units, mover, currentTick);
+        }
+    }
+
+    private int relocatingCount() {
+        return rebalancer == null ? 0 : rebalancer.relocatingCount();
+    }
+
+    private int nextRebalanceTick() {
+        if (rebalancer == null) {
+            return Integer.MAX_VALUE;
+        }
+        int interval = config.getRebalanceInterval();
+        return (int) Math.min(Integer.MAX_VALUE, ((long) currentTick / interval + 1) * interval);
+    }
+
+    /**
+     * Advances the simulation by several ticks. The result is the same as
+     * calling {@link #tick()} that many times, but while no unit is EN_ROUTE
+     * or relocating the ticks up to the next work completion or rebalancing
+     * pass are skipped in one step.
+     *
+     * @param ticks number of ticks to advance
+     * @throws IllegalArgumentException in case of ticks being negative
+     */
+    public void advance(int ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("Ticks must be >= 0.");
+        }
+        int target = currentTick + ticks;
+        while (currentTick < target) {
+            if (enRoute.size() == 0 && relocatingCount() == 0) {
+                int next = completions.isEmpty() ? target : (int) (completions.peek() >>> 32);
+                next = Math.min(next, nextRebalanceTick());
+                int skip = Math.min(next, target) - currentTick - 1;
+                if (skip > 0) {
+                    skipTicks(skip);
                 }
-                if (u != null && u.getWorkTicksRemaining() == 0) {
-                    incidents[j].setStatus(IncidentStatus.RESOLVED);
-                    incidents[j].setAssignedUnitId(-1);
-                    u.setStatus(UnitStatus.IDLE);
-                    u.setAssignedIncidentId(-1);
+            }
+            tick();
+        }
+    }
+
+    /**
+     * Advances the simulation until no unit is EN_ROUTE or AT_SCENE, skipping
+     * empty ticks like {@link #advance(int)}. A unit that can never reach its
+     * incident keeps the simulation busy, so a tick limit is required.
+     *
+     * @param maxTicks maximum number of ticks to advance
+     * @return number of ticks advanced
+     * @throws IllegalArgumentException in case of maxTicks being negative
+     */
+    public int advanceUntilQuiescent(int maxTicks) {
+        if (maxTicks < 0) {
+            throw new IllegalArgumentException("Max ticks must be >= 0.");
+        }
+        int start = currentTick;
+        int limit = currentTick + maxTicks;
+        while (!isQuiescent() && currentTick < limit) {
+            if (enRoute.size() == 0 && relocatingCount() == 0) {
+                int next = Math.min((int) (completions.peek() >>> 32), nextRebalanceTick());
+                int skip = Math.min(next, limit) - currentTick - 1;
+                if (skip > 0) {
+                    skipTicks(skip);
                 }
             }
+            tick();
+        }
+        return currentTick - start;
+    }
+
+    /**
+     * @return true if no unit is EN_ROUTE, AT_SCENE or relocating, so ticking
+     *         changes nothing but the tick counter until the next rebalancing
+     *         pass
+     */
+    public boolean isQuiescent() {
+        return enRoute.size() == 0 && atScene.size() == 0 && relocatingCount() == 0;
+    }
+
+    /**
+     * Measures how far the free cells are from the nearest IDLE unit of a
+     * type, counting relocating units at the station they head for. With
+     * rebalancing on the grid is kept up to date between calls; otherwise it
+     * is computed from scratch on every call.
+     *
+     * @param type unit type
+     * @return coverage statistics of that type
+     * @throws IllegalArgumentException in case of type being null, or the map
+     *                                  being too large for coverage grids
+     */
+    public CoverageStats getCoverageStats(UnitType type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Unit type must not be null.");
         }
+        Rebalancer r = rebalancer != null ? rebalancer : new Rebalancer(map, selector);
+        return r.stats(type, units);
     }
 
     /**
@@ -604,75 +1165,395 @@ public class CityRescueImpl implements CityRescue {
      */
     @Override
     public String getStatus() {
-        String result = "TICK=" + currentTick + "\n";
-        result += "STATIONS=" + stationCount + " UNITS=" + unitCount + " INCIDENTS=" + incidentCount + " OBSTACLES="
-                + map.countObstacles();
-        result += "\nINCIDENTS";
-        for (int i = 0; i < incidentCount; i++) {
-            try {
-                result += "\n" + viewIncident(incidents[i].getIncidentId());
-            } catch (IDNotRecognisedException e) {
+        if (metrics == null) {
+            return buildStatus();
+        }
+        long start = System.nanoTime();
+        String status = buildStatus();
+        metrics.recordTime(Timer.GET_STATUS, System.nanoTime() - start);
+        return status;
+    }
+
+    private String buildStatus() {
+        StringBuilder sb = new StringBuilder(64 + 80 * (incidents.size() + archive.size()) + 96 * units.size());
+        try {
+            writeStatus(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the same report as {@link #getStatus()} straight to a sink in a
+     * single pass over incidents and units, without building the report or
+     * any per-line Strings in memory
+     *
+     * @param out sink to write the status to, e.g. a Writer or StringBuilder
+     * @throws IOException in case the sink fails to accept a write
+     */
+    public void writeStatus(Appendable out) throws IOException {
+        out.append("TICK=");
+        StatusFormat.appendInt(out, currentTick);
+        out.append("\nSTATIONS=");
+        StatusFormat.appendInt(out, stations.size());
+        out.append(" UNITS=");
+        StatusFormat.appendInt(out, units.size());
+        out.append(" INCIDENTS=");
+        StatusFormat.appendInt(out, incidents.size() + archive.size());
+        out.append(" OBSTACLES=");
+        StatusFormat.appendInt(out, map.countObstacles());
+        out.append("\nINCIDENTS");
+        IncidentArchive.Cursor archived = archive.cursor();
+        boolean more = archived.next();
+        for (int i = 0; i < incidents.slotLimit(); i++) {
+            Incident inc = incidents.valueAt(i);
+            if (inc == null) {
+                continue;
+            }
+            while (more && archived.get().getId() < inc.getIncidentId()) {
+                out.append('\n');
+                StatusFormat.appendArchived(out, archived.get());
+                more = archived.next();
             }
+            out.append('\n');
+            StatusFormat.appendIncident(out, inc);
         }
-        result += "\nUNITS";
-        for (int i = 0; i < unitCount; i++) {
+        while (more) {
+            out.append('\n');
+            StatusFormat.appendArchived(out, archived.get());
+            more = archived.next();
+        }
+        out.append("\nUNITS");
+        for (int i = 0; i < units.slotLimit(); i++) {
+            Unit u = units.valueAt(i);
+            if (u != null) {
+                out.append('\n');
+                StatusFormat.appendUnit(out, u);
+            }
+        }
+    }
+
+    /**
+     * Creates a report of estimated heap use per entity kind, to help size the
+     * heap for large simulations. Figures are estimates for a 64-bit JVM with
+     * compressed references.
+     *
+     * @return one line per entity kind with count, storage capacity and bytes,
+     *         followed by a total
+     */
+    public String getMemoryReport() {
+        long stationBytes = stations.footprintBytes();
+        for (int i = 0; i < stations.slotLimit(); i++) {
+            Station s = stations.valueAt(i);
+            if (s != null) {
+                stationBytes += STATION_BYTES + STRING_BYTES + s.getName().length();
+            }
+        }
+        long unitBytes = units.footprintBytes() + units.size() * UNIT_BYTES;
+        if (unitTable != null) {
+            unitBytes += unitTable.footprintBytes();
+        }
+        long incidentBytes = incidents.footprintBytes() + incidents.size() * INCIDENT_BYTES;
+        for (IndexedMinHeap<Incident> queue : pending) {
+            incidentBytes += queue.footprintBytes();
+        }
+        long mapBytes = map.footprintBytes();
+        UnitSelector base = rebalancer != null ? rebalancer.getWrappedSelector() : selector;
+        if (base instanceof PathDistanceUnitSelector) {
+            mapBytes += ((PathDistanceUnitSelector) base).footprintBytes();
+        }
+        if (rebalancer != null) {
+            mapBytes += rebalancer.footprintBytes();
+        }
+        if (mover instanceof RoutedMover) {
+            mapBytes += ((RoutedMover) mover).footprintBytes();
+        }
+        long archiveBytes = archive.footprintBytes();
+        StringBuilder sb = new StringBuilder();
+        appendMemoryLine(sb, "STATIONS", stations.size(), stations.capacity(), stationBytes);
+        appendMemoryLine(sb, "UNITS", units.size(), units.capacity(), unitBytes);
+        appendMemoryLine(sb, "INCIDENTS", incidents.size(), incidents.capacity(), incidentBytes);
+        appendMemoryLine(sb, "ARCHIVE", archive.size(), archive.memorySize(), archiveBytes);
+        sb.append("MAP CELLS=").append((long) map.getWidth() * map.getHeight())
+                .append(" BYTES=").append(mapBytes).append('\n');
+        sb.append("TOTAL BYTES=").append(stationBytes + unitBytes + incidentBytes + archiveBytes + mapBytes);
+        return sb.toString();
+    }
+
+    /**
+     * Checks that every unit and incident link agrees with the stored IDs and
+     * statuses, and that the active unit sets and pending incident queues
+     * match unit and incident statuses. Costs a pass over every entity, so it
+     * is meant for tests; enable
+     * {@link CityRescueConfig.Builder#checkConsistency(boolean)} to run it
+     * after every mutation.
+     *
+     * @throws IllegalStateException in case of any link, ID or status
+     *                               disagreeing
+     */
+    public void checkConsistency() {
+        LinkChecker.check(units, incidents, enRoute, atScene, pending, teams);
+        if (rebalancer != null) {
+            rebalancer.check(units);
+        }
+    }
+
+    /**
+     * Writes the whole simulation state to a binary checkpoint file, see
+     * {@link CheckpointFormat}. The file is written next to the target and
+     * then moved over it, so an existing checkpoint is never left half
+     * written. The config is not saved.
+     *
+     * @param path file to write
+     * @throws IOException in case of the file not being writable
+     */
+    public void saveCheckpoint(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckpointFormat.Out out = new CheckpointFormat.Out(channel);
+            long[] words = map.toBitSet().toLongArray();
+            out.reserve(64).putInt(CheckpointFormat.MAGIC)
+                    .putInt(CheckpointFormat.VERSION)
+                    .putInt(map.getWidth())
+                    .putInt(map.getHeight())
+                    .putInt(currentTick)
+                    .putInt(nextStationId)
+                    .putInt(nextUnitId)
+                    .putInt(nextIncidentId)
+                    .putLong(totalResponseDistance)
+                    .putInt(dispatchCount)
+                    .putInt(stations.size())
+                    .putInt(units.size())
+                    .putInt(incidents.size())
+                    .putInt(archive.size())
+                    .putInt(words.length);
+            for (long w : words) {
+                out.reserve(8).putLong(w);
+            }
+            byte[][] names = new byte[stations.size()][];
+            int n = 0;
+            for (int i = 0; i < stations.slotLimit(); i++) {
+                Station s = stations.valueAt(i);
+                if (s == null) {
+                    continue;
+                }
+                names[n] = s.getName().getBytes(StandardCharsets.UTF_8);
+                out.reserve(CheckpointFormat.STATION_BYTES).putInt(s.getStationId())
+                        .putInt(s.getX())
+                        .putInt(s.getY())
+                        .putInt(s.getMaxUnits())
+                        .putInt(names[n++].length);
+            }
+            for (byte[] name : names) {
+                out.putBytes(name);
+            }
+            int routes = 0;
+            for (int i = 0; i < units.slotLimit(); i++) {
+                Unit u = units.valueAt(i);
+                if (u == null) {
+                    continue;
+                }
+                if (u.getRoute() != null) {
+                    routes++;
+                }
+                out.reserve(CheckpointFormat.UNIT_BYTES).putInt(u.getUnitId())
+                        .putInt(u.getHomeStationId())
+                        .putInt(u.getX())
+                        .putInt(u.getY())
+                        .putInt(u.getAssignedIncidentId())
+                        .putInt(u.getWorkTicksRemaining())
+                        .put((byte) u.getUnitType().ordinal())
+                        .put((byte) u.getStatus().ordinal())
+                        .putShort((short) 0);
+            }
+            for (int i = 0; i < incidents.slotLimit(); i++) {
+                Incident inc = incidents.valueAt(i);
+                if (inc != null) {
+                    out.reserve(CheckpointFormat.INCIDENT_BYTES).putInt(inc.getIncidentId())
+                            .putInt(inc.getX())
+                            .putInt(inc.getY())
+                            .putInt(inc.getAssignedUnitId())
+                            .put((byte) inc.getType().ordinal())
+                            .put((byte) inc.getSeverity())
+                            .put((byte) inc.getStatus().ordinal())
+                            .put((byte) 0);
+                }
+            }
+            int teamCount = teams == null ? 0 : teams.count();
+            out.reserve(4).putInt(teamCount);
+            for (int i = 0; teamCount > 0 && i < incidents.slotLimit(); i++) {
+                Incident inc = incidents.valueAt(i);
+                if (inc == null || inc.getTeamSlot() < 0) {
+                    continue;
+                }
+                int slot = inc.getTeamSlot();
+                ByteBuffer team = out.reserve(CheckpointFormat.TEAM_HEADER_BYTES + 4 * teams.size(slot))
+                        .putInt(inc.getIncidentId())
+                        .putInt(teams.work(slot))
+                        .putInt(teams.workTick(slot))
+                        .putInt(teams.size(slot));
+                for (int m = 0; m < teams.size(slot); m++) {
+                    team.putInt(teams.member(slot, m));
+                }
+            }
+            IncidentArchive.Cursor archived = archive.cursor();
+            while (archived.next()) {
+                IncidentArchive.Record r = archived.get();
+                out.reserve(CheckpointFormat.ARCHIVED_BYTES).putInt(r.getId())
+                        .putInt(r.getX())
+                        .putInt(r.getY())
+                        .put((byte) r.getType().ordinal())
+                        .put((byte) r.getSeverity())
+                        .put((byte) r.getStatus().ordinal())
+                        .put((byte) 0);
+            }
+            out.reserve(4).putInt(routes);
+            for (int i = 0; i < units.slotLimit(); i++) {
+                Unit u = units.valueAt(i);
+                if (u == null || u.getRoute() == null) {
+                    continue;
+                }
+                byte[] moves = u.getRoute().remainingDirections();
+                out.reserve(CheckpointFormat.ROUTE_HEADER_BYTES).putInt(u.getUnitId())
+                        .put((byte) (u.getRoute().isReachable() ? 1 : 0))
+                        .putInt(moves.length);
+                out.putBytes(moves);
+            }
+            int relocations = relocatingCount();
+            out.reserve(4).putInt(relocations);
+            for (int i = 0; i < relocations; i++) {
+                int id = rebalancer.relocatingUnit(i).getUnitId();
+                out.reserve(CheckpointFormat.RELOCATION_BYTES).putInt(id)
+                        .putInt(rebalancer.getTargetX(id))
+                        .putInt(rebalancer.getTargetY(id))
+                        .putInt(rebalancer.getDeadline(id));
+            }
+            out.flush();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Replaces the simulation state with one saved by
+     * {@link #saveCheckpoint(Path)}. Selector, dispatch queues, active unit
+     * sets and scheduled completions are rebuilt from the saved entities, so
+     * the simulation carries on exactly as the saved one would have. The
+     * current config is kept; its limits are not applied to the loaded
+     * entities.
+     *
+     * @param path file to read
+     * @throws IOException in case of the file not being readable, not being a
+     *                     checkpoint or being corrupt; a corrupt file leaves
+     *                     an empty simulation of the saved size
+     */
+    public void loadCheckpoint(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CheckpointFormat.In in = new CheckpointFormat.In(channel);
+            ByteBuffer b = in.require(8);
+            if (b.getInt() != CheckpointFormat.MAGIC) {
+                throw new IOException(path + " is not a checkpoint file.");
+            }
+            int version = b.getInt();
+            if (version < 1 || version > CheckpointFormat.VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ".");
+            }
+            b = in.require(56);
+            int width = b.getInt();
+            int height = b.getInt();
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Corrupt checkpoint: grid " + width + "x" + height + ".");
+            }
             try {
-                result += "\n" + viewUnit(units[i].getUnitId());
-            } catch (IDNotRecognisedException e) {
+                initialise(width, height);
+            } catch (InvalidGridException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            try {
+                readCheckpoint(in, b, version);
+            } catch (RuntimeException | IOException e) {
+                try {
+                    initialise(width, height);
+                } catch (InvalidGridException ignored) {
+                    // same size as before, cannot fail
+                }
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                throw new IOException("Corrupt checkpoint: " + e.getMessage(), e);
             }
         }
-        return result;
     }
 
-    int findStationIndex(int stationId) throws IDNotRecognisedException {
-        for (int i = 0; i < stationCount; i++) {
-            if (stations[i].getStationId() == stationId)
-                return i;
+    CityRescueConfig getConfig() {
+        return config;
+    }
+
+    Station findStation(int stationId) throws IDNotRecognisedException {
+        Station s = stations.get(stationId);
+        if (s == null) {
+            throw new IDNotRecognisedException("No station with ID " + stationId);
         }
-        throw new IDNotRecognisedException("No station with ID " + stationId);
+        return s;
     }
 
-    int findUnitIndex(int unitId) throws IDNotRecognisedException {
-        for (int i = 0; i < unitCount; i++) {
-            if (units[i].getUnitId() == unitId)
-                return i;
+    Unit findUnit(int unitId) throws IDNotRecognisedException {
+        Unit u = units.get(unitId);
+        if (u == null) {
+            throw new IDNotRecognisedException("No unit with ID " + unitId);
         }
-        throw new IDNotRecognisedException("No unit with ID " + unitId);
+        return u;
     }
 
-    int findIncidentIndex(int incidentId) throws IDNotRecognisedException {
-        for (int i = 0; i < incidentCount; i++) {
-            if (incidents[i].getIncidentId() == incidentId)
-                return i;
+    Incident findIncident(int incidentId) throws IDNotRecognisedException {
+        Incident i = incidents.get(incidentId);
+        if (i == null) {
+            throw new IDNotRecognisedException("No incident with ID " + incidentId);
         }
-        throw new IDNotRecognisedException("No incident with ID " + incidentId);
+        return i;
     }
 
     Station[] getStationsArray() {
-        return stations;
+        return stations.toArray(new Station[0]);
     }
 
     int getStationCount() {
-        return stationCount;
+        return stations.size();
     }
 
     Unit[] getUnitsArray() {
-        return units;
+        return units.toArray(new Unit[0]);
     }
 
     int getUnitCount() {
-        return unitCount;
+        return units.size();
     }
 
     Incident[] getIncidentsArray() {
-        return incidents;
+        return incidents.toArray(new Incident[0]);
     }
 
     int getIncidentCountField() {
-        return incidentCount;
+        return incidents.size() + archive.size();
+    }
+
+    /**
+     * Gives the snapshot published at the end of the latest tick or dispatch.
+     * Safe to call from any thread, also while the simulation is changing;
+     * changes made since then show up in the next snapshot
+     *
+     * @return latest snapshot, or null if snapshots are not enabled in the
+     *         config
+     */
+    public CitySnapshot getSnapshot() {
+        return snapshot;
     }
 
-    int getCurrentTick() {
+    /**
+     * @return number of ticks simulated since initialise
+     */
+    public int getCurrentTick() {
         return currentTick;
     }
 
@@ -684,6 +1565,515 @@ public class CityRescueImpl implements CityRescue {
         return map;
     }
 
+    private CityMap createMap(int width, int height) throws InvalidGridException {
+        if (config.getMapFile() == null) {
+            return new CityMap(width, height);
+        }
+        try {
+            return MappedCityMap.open(config.getMapFile(), width, height);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidGridException(e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UnitSelector createSelector() {
+        if (config.isPathDistanceDispatch()) {
+            return new PathDistanceUnitSelector(map, config.getSpatialCellSize(), config.getDistanceFieldCacheSize());
+        }
+        if (config.isSpatialIndex()) {
+            return new GridUnitSelector(map.getWidth(), map.getHeight(), config.getSpatialCellSize());
+        }
+        return new BruteForceUnitSelector(units);
+    }
+
+    private void checkRect(int x1, int y1, int x2, int y2) throws InvalidLocationException {
+        if (!map.inBounds(x1, y1)) {
+            throw new InvalidLocationException("Location (" + x1 + "," + y1 + ") is out of bounds.");
+        }
+        if (!map.inBounds(x2, y2)) {
+            throw new InvalidLocationException("Location (" + x2 + "," + y2 + ") is out of bounds.");
+        }
+    }
+
+    private void dispatchBatches(int cutoff, boolean forced) {
+        // a forced run stops at the recorded batch instead of on the clock
+        long deadline = System.nanoTime() + (forced ? Long.MAX_VALUE / 4 : config.getBatchDispatchBudgetMillis() * 1_000_000L);
+        int solved = 0;
+        Unit[] idle = new Unit[units.size()];
+        for (IncidentType type : IncidentType.values()) {
+            IndexedMinHeap<Incident> queue = pending[type.ordinal()];
+            int n = queue.size();
+            if (n == 0 || n > config.getBatchDispatchMaxSize()) {
+                continue;
+            }
+            int m = 0;
+            for (int i = 0; i < units.slotLimit(); i++) {
+                Unit u = units.valueAt(i);
+                if (u != null && u.getStatus() == UnitStatus.IDLE && u.canHandle(type)) {
+                    idle[m++] = u;
+                }
+            }
+            if (m == 0) {
+                continue;
+            }
+            // heap order depends on the history of queue operations, so the
+            // batch is put in ID order to keep cost ties deterministic
+            Incident[] batchIncidents = new Incident[n];
+            for (int i = 0; i < n; i++) {
+                batchIncidents[i] = queue.get(i);
+            }
+            Arrays.sort(batchIncidents, Comparator.comparingInt(Incident::getIncidentId));
+            int[] distances = new int[n];
+            Unit[] chosen = forced && solved == cutoff ? null
+                    : batch.assign(batchIncidents, n, idle, m, distances, deadline);
+            if (chosen == null) {
+                batchCutoff = solved;
+                return;
+            }
+            solved++;
+            for (int i = 0; i < n; i++) {
+                if (chosen[i] != null) {
+                    assign(chosen[i], batchIncidents[i], distances[i]);
+                    if (!needsUnits(batchIncidents[i])) {
+                        queue.remove(batchIncidents[i].getIncidentId());
+                    }
+                }
+            }
+        }
+    }
+
+    private void assign(Unit unit, Incident inc, int distance) {
+        selector.unitUnavailable(unit);
+        unit.setStatus(UnitStatus.EN_ROUTE);
+        enRoute.add(unit.getUnitId(), unit);
+        unit.setAssignedIncident(inc);
+        if (teams != null) {
+            int slot = inc.getTeamSlot() >= 0 ? inc.getTeamSlot() : teams.allocate();
+            teams.addMember(slot, unit.getUnitId());
+            inc.setTeam(slot, teams.size(slot));
+        }
+        unitChanged(unit);
+        if (inc.getAssignedUnit() == null) {
+            inc.setStatus(IncidentStatus.DISPATCHED);
+            inc.setAssignedUnit(unit);
+            incidentChanged(inc);
+            stageEnded(inc, ResponseStage.REPORT_TO_DISPATCH);
+        } else {
+            incidentChanged(inc);
+            if (metrics != null) {
+                metrics.increment(Counter.UNITS_DISPATCHED);
+            }
+        }
+        mover.planRoute(unit, inc.getX(), inc.getY());
+        if (unitTable != null) {
+            unitTable.setTarget(unit.getUnitId(), inc.getX(), inc.getY());
+        }
+        totalResponseDistance += distance;
+        dispatchCount++;
+    }
+
+    private boolean needsUnits(Incident inc) {
+        if (teams == null) {
+            return inc.getAssignedUnit() == null;
+        }
+        return inc.getTeamSize() < inc.getRequiredUnits();
+    }
+
+    private void joinCrew(Unit unit, Incident inc) {
+        int slot = inc.getTeamSlot();
+        if (teams.onScene(slot) == 0) {
+            int crewTicks = unit.getTicksToResolve(inc.getSeverity()) * inc.getRequiredUnits();
+            teams.setWork(slot, crewTicks, currentTick, 0);
+            inc.setStatus(IncidentStatus.IN_PROGRESS);
+            incidentChanged(inc);
+            stageEnded(inc, ResponseStage.DISPATCH_TO_ARRIVAL);
+        }
+        int ticks = teams.arrive(slot, currentTick);
+        atScene.add(unit.getUnitId(), unit);
+        // the whole crew now finishes together
+        for (int i = 0; i < teams.size(slot); i++) {
+            Unit member = units.get(teams.member(slot, i));
+            if (member.getStatus() == UnitStatus.AT_SCENE) {
+                member.setWorkTicksRemaining(ticks);
+            }
+        }
+        scheduleCompletion(unit, currentTick + ticks - 1);
+    }
+
+    private void releaseTeam(Incident inc) {
+        int slot = inc.getTeamSlot();
+        for (int i = 0; i < teams.size(slot); i++) {
+            Unit member = units.get(teams.member(slot, i));
+            if (member.getStatus() == UnitStatus.AT_SCENE) {
+                atScene.remove(member.getUnitId());
+            } else {
+                enRoute.remove(member.getUnitId());
+                member.setRoute(null);
+            }
+            member.setStatus(UnitStatus.IDLE);
+            member.setAssignedIncident(null);
+            selector.unitAvailable(member);
+            unitChanged(member);
+        }
+        teams.release(slot);
+        inc.setTeam(-1, 0);
+        pending[inc.getType().ordinal()].remove(inc.getIncidentId());
+    }
+
+    private long pendingKey(Incident inc) {
+        if (config.isSeverityOrderedDispatch()) {
+            return ((long) (MAX_SEVERITY - inc.getSeverity()) << 32) | inc.getIncidentId();
+        }
+        return inc.getIncidentId();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static IndexedMinHeap<Incident>[] newPendingQueues() {
+        IndexedMinHeap<Incident>[] queues = new IndexedMinHeap[IncidentType.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new IndexedMinHeap<>();
+        }
+        return queues;
+    }
+
+    private void archiveIncident(Incident inc) {
+        incidents.remove(inc.getIncidentId());
+        archive.add(inc);
+    }
+
+    private void unitChanged(Unit u) {
+        if (publisher != null) {
+            publisher.unitChanged(u);
+        }
+    }
+
+    private void incidentChanged(Incident inc) {
+        if (publisher != null) {
+            publisher.incidentChanged(inc);
+        }
+    }
+
+    private void stageEnded(Incident inc, ResponseStage stage) {
+        if (metrics != null) {
+            metrics.recordResponse(inc.getType(), stage, currentTick - inc.getStatusTick());
+            inc.setStatusTick(currentTick);
+            if (stage == ResponseStage.REPORT_TO_DISPATCH) {
+                metrics.increment(Counter.UNITS_DISPATCHED);
+            } else if (stage == ResponseStage.ARRIVAL_TO_RESOLVE) {
+                metrics.increment(Counter.INCIDENTS_RESOLVED);
+            }
+        }
+    }
+
+    private void recordGauges() {
+        int waiting = 0;
+        for (IndexedMinHeap<Incident> queue : pending) {
+            waiting += queue.size();
+        }
+        metrics.setGauge(Gauge.PENDING_INCIDENTS, waiting);
+        metrics.setGauge(Gauge.UNITS_EN_ROUTE, enRoute.size());
+        metrics.setGauge(Gauge.UNITS_AT_SCENE, atScene.size());
+    }
+
+    private void publishSnapshot() {
+        if (publisher != null) {
+            snapshot = publisher.publish(currentTick);
+        }
+    }
+
+    private void afterMutation() {
+        if (config.isCheckConsistency()) {
+            checkConsistency();
+        }
+    }
+
+    private void runPhase(RangeAction.Task task, int n) {
+        int threshold = config.getParallelTickThreshold();
+        if (threshold == 0 || n < threshold) {
+            task.run(0, n);
+            return;
+        }
+        int grain = Math.max(256, n / (tickPool.getParallelism() * 4));
+        tickPool.invoke(new RangeAction(task, 0, n, grain));
+    }
+
+    private void moveRange(int from, int to) {
+        if (tableMover != null) {
+            tableMover.stepRange(unitTable, enRoute, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            Unit unit = enRoute.get(i);
+            Incident target = unit.getAssignedIncident();
+            mover.step(unit, target.getX(), target.getY());
+        }
+    }
+
+    private void workRange(int from, int to) {
+        if (unitTable != null) {
+            unitTable.countDownWork(atScene, 1, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            atScene.get(i).decrementWorkTicks();
+        }
+    }
+
+    private void readCheckpoint(CheckpointFormat.In in, ByteBuffer b, int version) throws IOException {
+        currentTick = b.getInt();
+        int stationIdLimit = b.getInt();
+        int unitIdLimit = b.getInt();
+        int incidentIdLimit = b.getInt();
+        long responseDistance = b.getLong();
+        int dispatches = b.getInt();
+        int stationCount = b.getInt();
+        int unitCount = b.getInt();
+        int incidentCount = b.getInt();
+        int archivedCount = b.getInt();
+        int wordCount = b.getInt();
+
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = in.require(8).getLong();
+        }
+        map.loadObstacles(BitSet.valueOf(words));
+
+        int[] stationRecords = new int[stationCount * 5];
+        for (int i = 0; i < stationRecords.length; i++) {
+            stationRecords[i] = in.require(4).getInt();
+        }
+        for (int i = 0; i < stationCount; i++) {
+            int id = stationRecords[i * 5];
+            String name = new String(in.getBytes(stationRecords[i * 5 + 4]), StandardCharsets.UTF_8);
+            stations.add(id, new Station(id, name, stationRecords[i * 5 + 1], stationRecords[i * 5 + 2],
+                    stationRecords[i * 5 + 3]));
+        }
+        if (publisher != null) {
+            publisher.stationsChanged();
+        }
+
+        UnitType[] unitTypes = UnitType.values();
+        UnitStatus[] unitStatuses = UnitStatus.values();
+        for (int i = 0; i < unitCount; i++) {
+            b = in.require(CheckpointFormat.UNIT_BYTES);
+            int id = b.getInt();
+            int home = b.getInt();
+            int x = b.getInt();
+            int y = b.getInt();
+            int incidentId = b.getInt();
+            int work = b.getInt();
+            UnitType type = unitTypes[b.get()];
+            UnitStatus status = unitStatuses[b.get()];
+            b.getShort();
+            Station s = stations.get(home);
+            if (s == null || !map.inBounds(x, y)) {
+                throw new IllegalStateException("unit " + id + " has no home station or is off the grid");
+            }
+            Unit u = createUnit(id, type, home, x, y);
+            if (unitTable != null) {
+                u.bindTo(unitTable);
+            }
+            u.setStatus(status);
+            u.setAssignedIncidentId(incidentId);
+            u.setWorkTicksRemaining(work);
+            units.add(id, u);
+            s.incrementUnitCount();
+        }
+
+        IncidentType[] incidentTypes = IncidentType.values();
+        IncidentStatus[] incidentStatuses = IncidentStatus.values();
+        for (int i = 0; i < incidentCount; i++) {
+            b = in.require(CheckpointFormat.INCIDENT_BYTES);
+            int id = b.getInt();
+            int x = b.getInt();
+            int y = b.getInt();
+            int unitId = b.getInt();
+            Incident inc = new Incident(id, incidentTypes[b.get()], b.get(), x, y);
+            inc.setStatus(incidentStatuses[b.get()]);
+            inc.setStatusTick(currentTick);
+            b.get();
+            if (teams != null) {
+                inc.setRequiredUnits(ResponseTeams.requiredUnits(inc.getSeverity()));
+            }
+            incidents.add(id, inc);
+            if (unitId != -1) {
+                Unit u = units.get(unitId);
+                if (u == null) {
+                    throw new IllegalStateException("incident " + id + " is assigned to missing unit " + unitId);
+                }
+                inc.setAssignedUnit(u);
+                u.setAssignedIncident(inc);
+            } else if (inc.getStatus() == IncidentStatus.REPORTED) {
+                pending[inc.getType().ordinal()].add(id, pendingKey(inc), inc);
+            }
+            incidentChanged(inc);
+        }
+        readTeams(in, version >= 2 ? in.require(4).getInt() : 0);
+        for (int i = 0; i < archivedCount; i++) {
+            b = in.require(CheckpointFormat.ARCHIVED_BYTES);
+            int id = b.getInt();
+            int x = b.getInt();
+            int y = b.getInt();
+            Incident inc = new Incident(id, incidentTypes[b.get()], b.get(), x, y);
+            inc.setStatus(incidentStatuses[b.get()]);
+            b.get();
+            archive.add(inc);
+            incidentChanged(inc);
+        }
+
+        for (int i = 0; i < units.slotLimit(); i++) {
+            Unit u = units.valueAt(i);
+            if (u == null) {
+                continue;
+            }
+            if (u.getStatus() == UnitStatus.IDLE) {
+                selector.unitAvailable(u);
+            } else if (u.getStatus() == UnitStatus.EN_ROUTE) {
+                Incident inc = u.getAssignedIncident();
+                enRoute.add(u.getUnitId(), u);
+                if (unitTable != null && inc != null) {
+                    unitTable.setTarget(u.getUnitId(), inc.getX(), inc.getY());
+                }
+            } else if (u.getStatus() == UnitStatus.AT_SCENE) {
+                atScene.add(u.getUnitId(), u);
+                scheduleCompletion(u, currentTick + u.getWorkTicksRemaining());
+            }
+            unitChanged(u);
+        }
+
+        int routes = in.require(4).getInt();
+        for (int i = 0; i < routes; i++) {
+            b = in.require(CheckpointFormat.ROUTE_HEADER_BYTES);
+            Unit u = units.get(b.getInt());
+            boolean reachable = b.get() != 0;
+            byte[] moves = in.getBytes(b.getInt());
+            if (u != null && mover instanceof RoutedMover) {
+                // the saved route may predate the last obstacle change, so
+                // mark it unchecked and let the first step validate it
+                u.setRoute(reachable ? new Route(moves, -1) : Route.unreachable(-1));
+            }
+        }
+        int relocations = version >= 3 ? in.require(4).getInt() : 0;
+        for (int i = 0; i < relocations; i++) {
+            b = in.require(CheckpointFormat.RELOCATION_BYTES);
+            Unit u = units.get(b.getInt());
+            int tx = b.getInt();
+            int ty = b.getInt();
+            int deadline = b.getInt();
+            if (u == null || u.getStatus() != UnitStatus.IDLE || !map.inBounds(tx, ty)) {
+                throw new IllegalStateException("relocation " + i + " is not of an IDLE unit to a cell on the map");
+            }
+            // with rebalancing off the unit just stays IDLE where it is
+            if (rebalancer != null) {
+                rebalancer.restore(u, tx, ty, deadline);
+            } else {
+                u.setRoute(null);
+            }
+        }
+
+        nextStationId = stationIdLimit;
+        nextUnitId = unitIdLimit;
+        nextIncidentId = incidentIdLimit;
+        totalResponseDistance = responseDistance;
+        dispatchCount = dispatches;
+        checkConsistency();
+        publishSnapshot();
+    }
+
+    private void readTeams(CheckpointFormat.In in, int teamCount) throws IOException {
+        if (teamCount > 0 && teams == null) {
+            throw new IllegalStateException("checkpoint holds response teams but multi-unit response is off");
+        }
+        for (int i = 0; i < teamCount; i++) {
+            ByteBuffer b = in.require(CheckpointFormat.TEAM_HEADER_BYTES);
+            int id = b.getInt();
+            int work = b.getInt();
+            int workTick = b.getInt();
+            int size = b.getInt();
+            Incident inc = incidents.get(id);
+            if (inc == null || inc.getTeamSlot() >= 0 || size < 1 || size > ResponseTeams.MAX_TEAM) {
+                throw new IllegalStateException("team of incident " + id + " is invalid");
+            }
+            int slot = teams.allocate();
+            int crew = 0;
+            for (int m = 0; m < size; m++) {
+                int unitId = in.require(4).getInt();
+                Unit u = units.get(unitId);
+                if (u == null) {
+                    throw new IllegalStateException("team of incident " + id + " holds missing unit " + unitId);
+                }
+                teams.addMember(slot, unitId);
+                u.setAssignedIncident(inc);
+                if (u.getStatus() == UnitStatus.AT_SCENE) {
+                    crew++;
+                }
+            }
+            teams.setWork(slot, work, workTick, crew);
+            inc.setTeam(slot, size);
+        }
+        if (teams == null) {
+            return;
+        }
+        // single-unit checkpoints: every assigned unit leads a team of one
+        for (int i = 0; i < incidents.slotLimit(); i++) {
+            Incident inc = incidents.valueAt(i);
+            if (inc == null || inc.getAssignedUnit() == null) {
+                continue;
+            }
+            if (inc.getTeamSlot() < 0) {
+                Unit lead = inc.getAssignedUnit();
+                int slot = teams.allocate();
+                teams.addMember(slot, lead.getUnitId());
+                boolean onScene = lead.getStatus() == UnitStatus.AT_SCENE;
+                teams.setWork(slot, onScene ? lead.getWorkTicksRemaining() : 0, currentTick + 1, onScene ? 1 : 0);
+                inc.setTeam(slot, 1);
+            }
+            if (needsUnits(inc)) {
+                pending[inc.getType().ordinal()].add(inc.getIncidentId(), pendingKey(inc), inc);
+            }
+        }
+    }
+
+    private void scheduleCompletion(Unit unit, int due) {
+        completions.push(((long) due << 32) | unit.getUnitId());
+    }
+
+    private void skipTicks(int ticks) {
+        currentTick += ticks;
+        if (metrics != null) {
+            metrics.add(Counter.TICKS, ticks);
+        }
+        if (unitTable != null) {
+            unitTable.countDownWork(atScene, ticks);
+            return;
+        }
+        for (int i = 0; i < atScene.size(); i++) {
+            atScene.get(i).decrementWorkTicks(ticks);
+        }
+    }
+
+    private void checkLimit(int count, int limit, String kind) {
+        if (limit != CityRescueConfig.UNLIMITED && count >= limit) {
+            throw new CapacityExceededException("Maximum number of " + kind + " (" + limit + ") reached.");
+        }
+    }
+
+    private static void checkLengths(int[] xs, int[] ys, int n) {
+        if (xs == null || ys == null) {
+            throw new IllegalArgumentException("Coordinate arrays must not be null.");
+        }
+        if (xs.length != n || ys.length != n) {
+            throw new IllegalArgumentException("Argument arrays must have the same length.");
+        }
+    }
+
+    private static void appendMemoryLine(StringBuilder sb, String kind, int count, int capacity, long bytes) {
+        sb.append(kind).append(" COUNT=").append(count).append(" CAPACITY=").append(capacity)
+                .append(" BYTES=").append(bytes).append('\n');
+    }
+
     private Unit createUnit(int id, UnitType type, int homeStationId, int x, int y) {
         switch (type) {
             case AMBULANCE:
@@ -696,16 +2086,4 @@ public class CityRescueImpl implements CityRescue {
                 throw new IllegalArgumentException("Unknown UnitType: " + type);
         }
     }
-
-    private void sortAscending(int[] arr) {
-        for (int i = 1; i < arr.length; i++) {
-            int key = arr[i];
-            int j = i - 1;
-            while (j >= 0 && arr[j] > key) {
-                arr[j + 1] = arr[j];
-                j--;
-            }
-            arr[j + 1] = key;
-        }
-    }
-}
\ No newline at end of file
+}
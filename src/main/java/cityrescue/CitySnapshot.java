@@ -0,0 +1,289 @@
+package cityrescue;
+
+import cityrescue.enums.IncidentStatus;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitStatus;
+import cityrescue.enums.UnitType;
+import cityrescue.exceptions.IDNotRecognisedException;
+import cityrescue.util.ChunkedArray;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Immutable picture of a simulation as it was at the end of a tick or
+ * dispatch, readable from any thread without locking while the simulation
+ * carries on.
+ *
+ * <p>Units and incidents are held in chunks of 32 IDs. Each new snapshot only
+ * copies the chunks whose entities changed and shares every other chunk with
+ * the snapshot before it, so publishing costs about as much as the change it
+ * records. The read methods mirror the view methods of {@link CityRescue} and
+ * produce the same text.</p>
+ */
+public final class CitySnapshot {
+
+    static final int CHUNK_BITS = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+    private static final UnitStatus[] UNIT_STATUSES = UnitStatus.values();
+    private static final IncidentType[] INCIDENT_TYPES = IncidentType.values();
+    private static final IncidentStatus[] INCIDENT_STATUSES = IncidentStatus.values();
+
+    private final int tick;
+    private final int width;
+    private final int height;
+    private final int obstacleCount;
+    private final int[] stationIds;
+    private final int unitCount;
+    private final ChunkedArray<UnitChunk> units;
+    private final int incidentCount;
+    private final ChunkedArray<IncidentChunk> incidents;
+
+    /**
+     * Up to 32 units with consecutive IDs, one row of fields per ID. A chunk
+     * is only changed by the publisher during the round that created it,
+     * before any snapshot refers to it
+     */
+    static final class UnitChunk {
+        static final int TYPE = 0;
+        static final int HOME = 1;
+        static final int X = 2;
+        static final int Y = 3;
+        static final int STATUS = 4;
+        static final int INCIDENT = 5;
+        static final int WORK = 6;
+        static final int STRIDE = 7;
+
+        final int[] rows;
+        final int round;
+        int present;
+
+        UnitChunk(int round) {
+            this.rows = new int[CHUNK_SIZE * STRIDE];
+            this.round = round;
+        }
+
+        UnitChunk copy(int newRound) {
+            UnitChunk c = new UnitChunk(newRound);
+            System.arraycopy(rows, 0, c.rows, 0, rows.length);
+            c.present = present;
+            return c;
+        }
+    }
+
+    /**
+     * Up to 32 incidents with consecutive IDs, one row of fields per ID, with
+     * the same rules as {@link UnitChunk}
+     */
+    static final class IncidentChunk {
+        static final int TYPE = 0;
+        static final int SEVERITY = 1;
+        static final int X = 2;
+        static final int Y = 3;
+        static final int STATUS = 4;
+        static final int UNIT = 5;
+        static final int TEAM = 6;
+        static final int REQUIRED = 7;
+        static final int STRIDE = 8;
+
+        final int[] rows;
+        final int round;
+        int present;
+
+        IncidentChunk(int round) {
+            this.rows = new int[CHUNK_SIZE * STRIDE];
+            this.round = round;
+        }
+
+        IncidentChunk copy(int newRound) {
+            IncidentChunk c = new IncidentChunk(newRound);
+            System.arraycopy(rows, 0, c.rows, 0, rows.length);
+            c.present = present;
+            return c;
+        }
+    }
+
+    CitySnapshot(int tick, int width, int height, int obstacleCount, int[] stationIds, int unitCount,
+            ChunkedArray<UnitChunk> units, int incidentCount, ChunkedArray<IncidentChunk> incidents) {
+        this.tick = tick;
+        this.width = width;
+        this.height = height;
+        this.obstacleCount = obstacleCount;
+        this.stationIds = stationIds;
+        this.unitCount = unitCount;
+        this.units = units;
+        this.incidentCount = incidentCount;
+        this.incidents = incidents;
+    }
+
+    /**
+     * @return tick the snapshot was taken at
+     */
+    public int getCurrentTick() {
+        return tick;
+    }
+
+    /**
+     * @return integer list with grid[width, height]
+     */
+    public int[] getGridSize() {
+        return new int[] { width, height };
+    }
+
+    /**
+     * @return all station IDs in ascending order
+     */
+    public int[] getStationIds() {
+        return stationIds.clone();
+    }
+
+    /**
+     * @return all unit IDs in ascending order
+     */
+    public int[] getUnitIds() {
+        int[] ids = new int[unitCount];
+        int n = 0;
+        for (int c = 0; c < units.capacity() && n < ids.length; c++) {
+            UnitChunk chunk = units.get(c);
+            if (chunk != null) {
+                n = appendIds(ids, n, c, chunk.present);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return all incident IDs in ascending order
+     */
+    public int[] getIncidentIds() {
+        int[] ids = new int[incidentCount];
+        int n = 0;
+        for (int c = 0; c < incidents.capacity() && n < ids.length; c++) {
+            IncidentChunk chunk = incidents.get(c);
+            if (chunk != null) {
+                n = appendIds(ids, n, c, chunk.present);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param unitId ID of unit
+     * @return unit string matching format
+     * @throws IDNotRecognisedException in case unitID doesn't exist
+     */
+    public String viewUnit(int unitId) throws IDNotRecognisedException {
+        UnitChunk chunk = unitId > 0 ? units.get(unitId >>> CHUNK_BITS) : null;
+        if (chunk == null || (chunk.present & (1 << unitId)) == 0) {
+            throw new IDNotRecognisedException("No unit with ID " + unitId);
+        }
+        StringBuilder sb = new StringBuilder(96);
+        try {
+            appendUnit(sb, unitId, chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param incidentId ID of incident
+     * @return incident string matching format
+     * @throws IDNotRecognisedException in case of non-existent incidentID
+     */
+    public String viewIncident(int incidentId) throws IDNotRecognisedException {
+        IncidentChunk chunk = incidentId > 0 ? incidents.get(incidentId >>> CHUNK_BITS) : null;
+        if (chunk == null || (chunk.present & (1 << incidentId)) == 0) {
+            throw new IDNotRecognisedException("No incident with ID " + incidentId);
+        }
+        StringBuilder sb = new StringBuilder(80);
+        try {
+            appendIncident(sb, incidentId, chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the same report {@link CityRescue#getStatus()} gave when the
+     *         snapshot was taken
+     */
+    public String getStatus() {
+        StringBuilder sb = new StringBuilder(64 + incidentCount * 64 + unitCount * 72);
+        try {
+            writeStatus(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Streams the status report into a sink, see
+     * {@link CityRescueImpl#writeStatus(Appendable)}
+     *
+     * @param out where to write the report
+     * @throws IOException in case the sink fails
+     */
+    public void writeStatus(Appendable out) throws IOException {
+        out.append("TICK=");
+        StatusFormat.appendInt(out, tick);
+        out.append("\nSTATIONS=");
+        StatusFormat.appendInt(out, stationIds.length);
+        out.append(" UNITS=");
+        StatusFormat.appendInt(out, unitCount);
+        out.append(" INCIDENTS=");
+        StatusFormat.appendInt(out, incidentCount);
+        out.append(" OBSTACLES=");
+        StatusFormat.appendInt(out, obstacleCount);
+        out.append("\nINCIDENTS");
+        for (int c = 0; c < incidents.capacity(); c++) {
+            IncidentChunk chunk = incidents.get(c);
+            if (chunk == null) {
+                continue;
+            }
+            for (int bits = chunk.present; bits != 0; bits &= bits - 1) {
+                out.append('\n');
+                appendIncident(out, (c << CHUNK_BITS) + Integer.numberOfTrailingZeros(bits), chunk);
+            }
+        }
+        out.append("\nUNITS");
+        for (int c = 0; c < units.capacity(); c++) {
+            UnitChunk chunk = units.get(c);
+            if (chunk == null) {
+                continue;
+            }
+            for (int bits = chunk.present; bits != 0; bits &= bits - 1) {
+                out.append('\n');
+                appendUnit(out, (c << CHUNK_BITS) + Integer.numberOfTrailingZeros(bits), chunk);
+            }
+        }
+    }
+
+    private static int appendIds(int[] ids, int n, int chunkIndex, int present) {
+        for (int bits = present; bits != 0; bits &= bits - 1) {
+            ids[n++] = (chunkIndex << CHUNK_BITS) + Integer.numberOfTrailingZeros(bits);
+        }
+        return n;
+    }
+
+    private static void appendUnit(Appendable out, int id, UnitChunk chunk) throws IOException {
+        int[] r = chunk.rows;
+        int base = (id & (CHUNK_SIZE - 1)) * UnitChunk.STRIDE;
+        StatusFormat.appendUnit(out, id, UNIT_TYPES[r[base + UnitChunk.TYPE]], r[base + UnitChunk.HOME],
+                r[base + UnitChunk.X], r[base + UnitChunk.Y], UNIT_STATUSES[r[base + UnitChunk.STATUS]],
+                r[base + UnitChunk.INCIDENT], r[base + UnitChunk.WORK]);
+    }
+
+    private static void appendIncident(Appendable out, int id, IncidentChunk chunk) throws IOException {
+        int[] r = chunk.rows;
+        int base = (id & (CHUNK_SIZE - 1)) * IncidentChunk.STRIDE;
+        StatusFormat.appendIncident(out, id, INCIDENT_TYPES[r[base + IncidentChunk.TYPE]],
+                r[base + IncidentChunk.SEVERITY], r[base + IncidentChunk.X], r[base + IncidentChunk.Y],
+                INCIDENT_STATUSES[r[base + IncidentChunk.STATUS]], r[base + IncidentChunk.UNIT],
+                r[base + IncidentChunk.TEAM], r[base + IncidentChunk.REQUIRED]);
+    }
+}
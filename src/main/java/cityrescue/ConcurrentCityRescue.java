@@ -0,0 +1,485 @@
+package cityrescue;
+
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+import cityrescue.metrics.MetricsRegistry;
+import cityrescue.metrics.Timer;
+import cityrescue.model.Incident;
+import cityrescue.model.ResponseTeams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe {@link CityRescue} for many threads reporting and viewing
+ * incidents while one simulation thread dispatches and ticks.
+ *
+ * <p>Reporting takes no lock shared with the simulation: the incident is
+ * checked against an optimistic read of the map, given the next ID from an
+ * atomic counter and parked in an intake map. Queries and views share a read
+ * lock; every other call takes the write lock. Calls that look at incidents
+ * first move the parked reports into the simulation in ID order, so dispatch
+ * and tick see exactly what a single-threaded run reporting the same
+ * incidents would see. Parked reports can already be viewed.</p>
+ *
+ * <p>With metrics on, reports are timed here, on the reporting thread, and
+ * counted when they move into the simulation.</p>
+ */
+public class ConcurrentCityRescue implements CityRescueBulk {
+
+    /** Busy-wait rounds for a report about to be parked before parking the drainer. */
+    private static final int DRAIN_SPINS = 128;
+    private static final long DRAIN_PARK_NANOS = 20_000;
+
+    private final CityRescueImpl core;
+    private final CityRescueConfig config;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StampedLock mapLock = new StampedLock();
+    private volatile Intake intake = new Intake();
+
+    /**
+     * Reports taken since the last initialise and not yet moved into the
+     * simulation
+     */
+    private static final class Intake {
+        final ConcurrentHashMap<Integer, Incident> reports = new ConcurrentHashMap<>();
+        final AtomicInteger nextId = new AtomicInteger(1);
+        int drained;
+    }
+
+    /**
+     * Creates new thread-safe simulation using the default config
+     */
+    public ConcurrentCityRescue() {
+        this(CityRescueConfig.defaults());
+    }
+
+    /**
+     * Creates new thread-safe simulation using the given config
+     *
+     * @param config storage sizes and limits used by every initialise
+     */
+    public ConcurrentCityRescue(CityRescueConfig config) {
+        this.core = new CityRescueImpl(config);
+        this.config = config;
+    }
+
+    @Override
+    public void initialise(int width, int height) throws InvalidGridException {
+        lock.writeLock().lock();
+        long stamp = mapLock.writeLock();
+        try {
+            core.initialise(width, height);
+            intake = new Intake();
+        } finally {
+            mapLock.unlockWrite(stamp);
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] getGridSize() {
+        lock.readLock().lock();
+        try {
+            return core.getGridSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addObstacle(int x, int y) throws InvalidLocationException {
+        lock.writeLock().lock();
+        long stamp = mapLock.writeLock();
+        try {
+            core.addObstacle(x, y);
+        } finally {
+            mapLock.unlockWrite(stamp);
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addObstacles(int[] xs, int[] ys) throws InvalidLocationException {
+        lock.writeLock().lock();
+        long stamp = mapLock.writeLock();
+        try {
+            core.addObstacles(xs, ys);
+        } finally {
+            mapLock.unlockWrite(stamp);
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeObstacle(int x, int y) throws InvalidLocationException {
+        lock.writeLock().lock();
+        long stamp = mapLock.writeLock();
+        try {
+            core.removeObstacle(x, y);
+        } finally {
+            mapLock.unlockWrite(stamp);
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int addStation(String name, int x, int y) throws InvalidNameException, InvalidLocationException {
+        lock.writeLock().lock();
+        try {
+            return core.addStation(name, x, y);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public IdRange addStations(String[] names, int[] xs, int[] ys)
+            throws InvalidNameException, InvalidLocationException {
+        lock.writeLock().lock();
+        try {
+            return core.addStations(names, xs, ys);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeStation(int stationId) throws IDNotRecognisedException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            core.removeStation(stationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setStationCapacity(int stationId, int maxUnits)
+            throws IDNotRecognisedException, InvalidCapacityException {
+        lock.writeLock().lock();
+        try {
+            core.setStationCapacity(stationId, maxUnits);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] getStationIds() {
+        lock.readLock().lock();
+        try {
+            return core.getStationIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int addUnit(int stationId, UnitType type)
+            throws IDNotRecognisedException, InvalidUnitException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            return core.addUnit(stationId, type);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public IdRange addUnits(int stationId, UnitType type, int count)
+            throws IDNotRecognisedException, InvalidUnitException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            return core.addUnits(stationId, type, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void decommissionUnit(int unitId) throws IDNotRecognisedException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            core.decommissionUnit(unitId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transferUnit(int unitId, int newStationId) throws IDNotRecognisedException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            core.transferUnit(unitId, newStationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setUnitOutOfService(int unitId, boolean outOfService)
+            throws IDNotRecognisedException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            core.setUnitOutOfService(unitId, outOfService);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] getUnitIds() {
+        lock.readLock().lock();
+        try {
+            return core.getUnitIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String viewUnit(int unitId) throws IDNotRecognisedException {
+        lock.readLock().lock();
+        try {
+            return core.viewUnit(unitId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reports a new incident without waiting for the simulation thread. The
+     * incident joins the simulation, in ID order, at the next call that looks
+     * at incidents, and can be viewed straight away
+     *
+     * @param type     type of incident
+     * @param severity severity of incident, 1-5
+     * @param x        x-Coordinate of incident
+     * @param y        y-Coordinate of incident
+     * @return ID of the new incident
+     * @throws InvalidSeverityException in case of severity being outside 1-5
+     * @throws InvalidLocationException in case of (x, y) being out of bounds
+     *                                  or blocked, or type being null
+     */
+    @Override
+    public int reportIncident(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
+        MetricsRegistry metrics = config.getMetrics();
+        if (metrics == null) {
+            return park(type, severity, x, y);
+        }
+        long start = System.nanoTime();
+        try {
+            return park(type, severity, x, y);
+        } finally {
+            metrics.recordTime(Timer.REPORT_INCIDENT, System.nanoTime() - start);
+        }
+    }
+
+    private int park(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
+        int limit = config.getIncidentLimit();
+        while (true) {
+            Intake in = intake;
+            validate(type, severity, x, y);
+            int id;
+            do {
+                id = in.nextId.get();
+                if (limit != CityRescueConfig.UNLIMITED && id > limit) {
+                    throw new CapacityExceededException("Maximum number of incidents (" + limit + ") reached.");
+                }
+            } while (!in.nextId.compareAndSet(id, id + 1));
+            Incident inc = new Incident(id, type, severity, x, y);
+            if (config.isMultiUnitResponse()) {
+                inc.setRequiredUnits(ResponseTeams.requiredUnits(severity));
+            }
+            in.reports.put(id, inc);
+            // a report racing initialise belongs to the new simulation
+            if (intake == in) {
+                return id;
+            }
+        }
+    }
+
+    @Override
+    public void cancelIncident(int incidentId) throws IDNotRecognisedException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            drain();
+            core.cancelIncident(incidentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void escalateIncident(int incidentId, int newSeverity)
+            throws IDNotRecognisedException, InvalidSeverityException, IllegalStateException {
+        lock.writeLock().lock();
+        try {
+            drain();
+            core.escalateIncident(incidentId, newSeverity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] getIncidentIds() {
+        readLockDrained();
+        try {
+            return core.getIncidentIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gives details of an incident, including one reported but not yet moved
+     * into the simulation
+     *
+     * @param incidentId ID of incident
+     * @return incident details
+     * @throws IDNotRecognisedException in case of no incident having that ID
+     */
+    @Override
+    public String viewIncident(int incidentId) throws IDNotRecognisedException {
+        lock.readLock().lock();
+        try {
+            return core.viewIncident(incidentId);
+        } catch (IDNotRecognisedException e) {
+            Incident parked = intake.reports.get(incidentId);
+            if (parked == null) {
+                throw e;
+            }
+            StringBuilder sb = new StringBuilder(80);
+            try {
+                StatusFormat.appendIncident(sb, parked);
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            return sb.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void dispatch() {
+        lock.writeLock().lock();
+        try {
+            drain();
+            core.dispatch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void tick() {
+        lock.writeLock().lock();
+        try {
+            core.tick();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getStatus() {
+        readLockDrained();
+        try {
+            return core.getStatus();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gives the snapshot published at the end of the latest tick or dispatch,
+     * without taking any lock
+     *
+     * @return latest snapshot, or null if snapshots are not enabled in the
+     *         config
+     */
+    public CitySnapshot getSnapshot() {
+        return core.getSnapshot();
+    }
+
+    /**
+     * @return number of reports not yet moved into the simulation
+     */
+    public int getParkedIncidentCount() {
+        return intake.reports.size();
+    }
+
+    private void validate(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
+        long stamp = mapLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                core.validateIncident(type, severity, x, y);
+                if (mapLock.validate(stamp)) {
+                    return;
+                }
+            } catch (Exception e) {
+                // only trust a failure seen on a map nobody was changing
+                if (mapLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = mapLock.readLock();
+        try {
+            core.validateIncident(type, severity, x, y);
+        } finally {
+            mapLock.unlockRead(stamp);
+        }
+    }
+
+    private void readLockDrained() {
+        if (intake.reports.isEmpty()) {
+            lock.readLock().lock();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            drain();
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void drain() {
+        Intake in = intake;
+        int last = in.nextId.get() - 1;
+        int first = in.drained;
+        int waits = 0;
+        while (in.drained < last) {
+            Incident inc = in.reports.remove(in.drained + 1);
+            if (inc == null) {
+                // ID handed out, report about to be parked; a reporter that
+                // was descheduled in between needs the CPU, not more spinning
+                if (++waits < DRAIN_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(DRAIN_PARK_NANOS);
+                }
+                continue;
+            }
+            waits = 0;
+            core.insertIncident(inc);
+            in.drained++;
+        }
+        if (in.drained > first && config.isCheckConsistency()) {
+            core.checkConsistency();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package cityrescue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Consecutive block of IDs handed out by one bulk call of
+ * {@link CityRescueBulk}.
+ */
+public final class IdRange {
+
+    private final int first;
+    private final int count;
+
+    /**
+     * Creates new ID range
+     *
+     * @param first first ID of the range
+     * @param count number of IDs, 0 or more
+     */
+    public IdRange(int first, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must be >= 0.");
+        }
+        this.first = first;
+        this.count = count;
+    }
+
+    /**
+     * @return first ID of the range
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * @return last ID of the range
+     * @throws NoSuchElementException in case of the range being empty
+     */
+    public int getLast() {
+        if (count == 0) {
+            throw new NoSuchElementException("Range is empty.");
+        }
+        return first + count - 1;
+    }
+
+    /**
+     * @return number of IDs in the range
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param id ID to look for
+     * @return true if the range holds the ID
+     */
+    public boolean contains(int id) {
+        return id >= first && id - first < count;
+    }
+
+    /**
+     * @return every ID of the range in ascending order
+     */
+    public int[] toArray() {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IdRange)) {
+            return false;
+        }
+        IdRange other = (IdRange) o;
+        return first == other.first && count == other.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * first + count;
+    }
+
+    @Override
+    public String toString() {
+        return count == 0 ? "[]" : "[" + first + ".." + (first + count - 1) + "]";
+    }
+}
@@ -0,0 +1,174 @@
+package cityrescue;
+
+import cityrescue.enums.IncidentStatus;
+import cityrescue.enums.UnitStatus;
+import cityrescue.model.Incident;
+import cityrescue.model.ResponseTeams;
+import cityrescue.model.Unit;
+import cityrescue.util.ActiveSet;
+import cityrescue.util.EntityRegistry;
+import cityrescue.util.IndexedMinHeap;
+
+/**
+ * Verifies that the object links between units and incidents agree with their
+ * int IDs and statuses, and that the active unit sets and pending incident
+ * queues hold exactly the units and incidents their statuses say. In
+ * multi-unit mode every team member must link to its incident and the team
+ * counts must match the members' statuses.
+ */
+final class LinkChecker {
+
+    private LinkChecker() {
+    }
+
+    static void check(EntityRegistry<Unit> units, EntityRegistry<Incident> incidents,
+            ActiveSet<Unit> enRoute, ActiveSet<Unit> atScene, IndexedMinHeap<Incident>[] pending,
+            ResponseTeams teams) {
+        int active = 0;
+        for (int i = 0; i < units.slotLimit(); i++) {
+            Unit u = units.valueAt(i);
+            if (u == null) {
+                continue;
+            }
+            Incident inc = u.getAssignedIncident();
+            UnitStatus status = u.getStatus();
+            boolean busy = status == UnitStatus.EN_ROUTE || status == UnitStatus.AT_SCENE;
+            if (busy != (inc != null)) {
+                fail("U#" + u.getUnitId() + " is " + status + " but incident link is " + describe(inc));
+            }
+            if (enRoute.contains(u.getUnitId()) != (status == UnitStatus.EN_ROUTE)) {
+                fail("U#" + u.getUnitId() + " is " + status + " but en-route set disagrees");
+            }
+            if (atScene.contains(u.getUnitId()) != (status == UnitStatus.AT_SCENE)) {
+                fail("U#" + u.getUnitId() + " is " + status + " but at-scene set disagrees");
+            }
+            if (inc == null) {
+                if (u.getAssignedIncidentId() != -1) {
+                    fail("U#" + u.getUnitId() + " has incident ID " + u.getAssignedIncidentId() + " but no link");
+                }
+                continue;
+            }
+            active++;
+            if (u.getAssignedIncidentId() != inc.getIncidentId()) {
+                fail("U#" + u.getUnitId() + " ID " + u.getAssignedIncidentId() + " != link " + describe(inc));
+            }
+            if (incidents.get(inc.getIncidentId()) != inc) {
+                fail("U#" + u.getUnitId() + " links to " + describe(inc) + " which is not registered");
+            }
+            if (teams != null) {
+                if (!isMember(teams, inc, u)) {
+                    fail("U#" + u.getUnitId() + " links to " + describe(inc) + " but is not in its team");
+                }
+            } else if (inc.getAssignedUnit() != u) {
+                fail("U#" + u.getUnitId() + " links to " + describe(inc) + " which links back to "
+                        + inc.getAssignedUnitId());
+            }
+        }
+        if (enRoute.size() + atScene.size() != active) {
+            fail("active sets hold " + (enRoute.size() + atScene.size()) + " units, " + active + " are busy");
+        }
+        int reported = 0;
+        for (int i = 0; i < incidents.slotLimit(); i++) {
+            Incident inc = incidents.valueAt(i);
+            if (inc == null) {
+                continue;
+            }
+            Unit u = inc.getAssignedUnit();
+            IncidentStatus status = inc.getStatus();
+            boolean queued = pending[inc.getType().ordinal()].contains(inc.getIncidentId());
+            boolean assigned = status == IncidentStatus.DISPATCHED || status == IncidentStatus.IN_PROGRESS;
+            boolean shortHanded = teams != null && assigned && inc.getTeamSize() < inc.getRequiredUnits();
+            if (queued != (status == IncidentStatus.REPORTED || shortHanded)) {
+                fail(describe(inc) + " is " + status + " but pending queue disagrees");
+            }
+            if (queued) {
+                reported++;
+            }
+            if (assigned != (u != null)) {
+                fail(describe(inc) + " is " + status + " but unit link is " + (u == null ? "null" : "U#" + u.getUnitId()));
+            }
+            if (u == null) {
+                if (inc.getAssignedUnitId() != -1) {
+                    fail(describe(inc) + " has unit ID " + inc.getAssignedUnitId() + " but no link");
+                }
+                if (inc.getTeamSlot() != -1 || inc.getTeamSize() != 0) {
+                    fail(describe(inc) + " is " + status + " but holds a team");
+                }
+                continue;
+            }
+            if (inc.getAssignedUnitId() != u.getUnitId()) {
+                fail(describe(inc) + " ID " + inc.getAssignedUnitId() + " != link U#" + u.getUnitId());
+            }
+            if (units.get(u.getUnitId()) != u) {
+                fail(describe(inc) + " links to unregistered U#" + u.getUnitId());
+            }
+            if (teams != null) {
+                checkTeam(inc, units, teams);
+                continue;
+            }
+            UnitStatus expected = status == IncidentStatus.DISPATCHED ? UnitStatus.EN_ROUTE : UnitStatus.AT_SCENE;
+            if (u.getStatus() != expected) {
+                fail(describe(inc) + " is " + status + " but U#" + u.getUnitId() + " is " + u.getStatus());
+            }
+        }
+        if (queued(pending) != reported) {
+            fail("pending queues hold " + queued(pending) + " incidents, " + reported + " are REPORTED");
+        }
+    }
+
+    private static void checkTeam(Incident inc, EntityRegistry<Unit> units, ResponseTeams teams) {
+        int slot = inc.getTeamSlot();
+        if (slot < 0 || teams.size(slot) != inc.getTeamSize() || inc.getTeamSize() == 0) {
+            fail(describe(inc) + " has team size " + inc.getTeamSize() + " but team slot " + slot);
+        }
+        if (teams.member(slot, 0) != inc.getAssignedUnitId()) {
+            fail(describe(inc) + " links to U#" + inc.getAssignedUnitId() + " but its team starts with U#"
+                    + teams.member(slot, 0));
+        }
+        int onScene = 0;
+        for (int i = 0; i < teams.size(slot); i++) {
+            Unit m = units.get(teams.member(slot, i));
+            if (m == null || m.getAssignedIncident() != inc) {
+                fail(describe(inc) + " has team member U#" + teams.member(slot, i) + " which does not link back");
+            }
+            if (m.getStatus() == UnitStatus.AT_SCENE) {
+                onScene++;
+            }
+        }
+        if (onScene != teams.onScene(slot)) {
+            fail(describe(inc) + " counts " + teams.onScene(slot) + " units on scene, " + onScene + " are AT_SCENE");
+        }
+        if ((inc.getStatus() == IncidentStatus.IN_PROGRESS) != (onScene > 0)) {
+            fail(describe(inc) + " is " + inc.getStatus() + " with " + onScene + " units on scene");
+        }
+    }
+
+    private static boolean isMember(ResponseTeams teams, Incident inc, Unit u) {
+        int slot = inc.getTeamSlot();
+        if (slot < 0) {
+            return false;
+        }
+        for (int i = 0; i < teams.size(slot); i++) {
+            if (teams.member(slot, i) == u.getUnitId()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int queued(IndexedMinHeap<Incident>[] pending) {
+        int total = 0;
+        for (IndexedMinHeap<Incident> queue : pending) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    private static String describe(Incident inc) {
+        return inc == null ? "null" : "I#" + inc.getIncidentId();
+    }
+
+    private static void fail(String message) {
+        throw new IllegalStateException("Link check failed: " + message);
+    }
+}
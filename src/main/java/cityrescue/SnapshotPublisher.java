@@ -0,0 +1,164 @@
+package cityrescue;
+
+import cityrescue.archive.IncidentArchive;
+import cityrescue.model.CityMap;
+import cityrescue.model.Incident;
+import cityrescue.model.Station;
+import cityrescue.model.Unit;
+import cityrescue.util.ChunkedArray;
+import cityrescue.util.EntityRegistry;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Builds {@link CitySnapshot}s on the simulation thread. The simulation
+ * reports each unit and incident it changed; publishing copies just the
+ * chunks holding those, writes their new rows and shares every other chunk
+ * with the previous snapshot.
+ */
+final class SnapshotPublisher {
+
+    private final CityMap map;
+    private final EntityRegistry<Station> stations;
+    private final EntityRegistry<Unit> units;
+    private final EntityRegistry<Incident> incidents;
+    private final IncidentArchive archive;
+
+    private final BitSet dirtyUnitIds = new BitSet();
+    private int[] changedUnitIds = new int[64];
+    private Unit[] changedUnits = new Unit[64];
+    private int changedUnitCount;
+    private final BitSet dirtyIncidentIds = new BitSet();
+    private Incident[] changedIncidents = new Incident[64];
+    private int changedIncidentCount;
+    private boolean stationsDirty = true;
+    private int round;
+
+    private int[] stationIds = new int[0];
+    private ChunkedArray<CitySnapshot.UnitChunk> unitChunks = ChunkedArray.empty();
+    private ChunkedArray<CitySnapshot.IncidentChunk> incidentChunks = ChunkedArray.empty();
+
+    SnapshotPublisher(CityMap map, EntityRegistry<Station> stations, EntityRegistry<Unit> units,
+            EntityRegistry<Incident> incidents, IncidentArchive archive) {
+        this.map = map;
+        this.stations = stations;
+        this.units = units;
+        this.incidents = incidents;
+        this.archive = archive;
+    }
+
+    void unitChanged(Unit u) {
+        if (!dirtyUnitIds.get(u.getUnitId())) {
+            dirtyUnitIds.set(u.getUnitId());
+            addChangedUnit(u.getUnitId(), u);
+        }
+    }
+
+    void unitRemoved(int unitId) {
+        addChangedUnit(unitId, null);
+    }
+
+    void incidentChanged(Incident inc) {
+        if (dirtyIncidentIds.get(inc.getIncidentId())) {
+            return;
+        }
+        dirtyIncidentIds.set(inc.getIncidentId());
+        if (changedIncidentCount == changedIncidents.length) {
+            changedIncidents = Arrays.copyOf(changedIncidents, changedIncidentCount * 2);
+        }
+        changedIncidents[changedIncidentCount++] = inc;
+    }
+
+    void stationsChanged() {
+        stationsDirty = true;
+    }
+
+    CitySnapshot publish(int tick) {
+        round++;
+        if (stationsDirty) {
+            stationIds = stations.ids();
+            stationsDirty = false;
+        }
+        if (changedUnitCount > 0) {
+            unitChunks = applyUnitChanges();
+        }
+        if (changedIncidentCount > 0) {
+            incidentChunks = applyIncidentChanges();
+        }
+        return new CitySnapshot(tick, map.getWidth(), map.getHeight(), map.countObstacles(), stationIds,
+                units.size(), unitChunks, incidents.size() + archive.size(), incidentChunks);
+    }
+
+    private void addChangedUnit(int unitId, Unit u) {
+        if (changedUnitCount == changedUnits.length) {
+            changedUnitIds = Arrays.copyOf(changedUnitIds, changedUnitCount * 2);
+            changedUnits = Arrays.copyOf(changedUnits, changedUnitCount * 2);
+        }
+        changedUnitIds[changedUnitCount] = unitId;
+        changedUnits[changedUnitCount++] = u;
+    }
+
+    private ChunkedArray<CitySnapshot.UnitChunk> applyUnitChanges() {
+        ChunkedArray.Editor<CitySnapshot.UnitChunk> editor = unitChunks.edit();
+        for (int i = 0; i < changedUnitCount; i++) {
+            int id = changedUnitIds[i];
+            Unit u = changedUnits[i];
+            changedUnits[i] = null;
+            int c = id >>> CitySnapshot.CHUNK_BITS;
+            CitySnapshot.UnitChunk chunk = editor.get(c);
+            if (chunk == null || chunk.round != round) {
+                chunk = chunk == null ? new CitySnapshot.UnitChunk(round) : chunk.copy(round);
+                editor.set(c, chunk);
+            }
+            int slot = id & (CitySnapshot.CHUNK_SIZE - 1);
+            if (u == null) {
+                chunk.present &= ~(1 << slot);
+                continue;
+            }
+            chunk.present |= 1 << slot;
+            int[] rows = chunk.rows;
+            int base = slot * CitySnapshot.UnitChunk.STRIDE;
+            rows[base + CitySnapshot.UnitChunk.TYPE] = u.getUnitType().ordinal();
+            rows[base + CitySnapshot.UnitChunk.HOME] = u.getHomeStationId();
+            rows[base + CitySnapshot.UnitChunk.X] = u.getX();
+            rows[base + CitySnapshot.UnitChunk.Y] = u.getY();
+            rows[base + CitySnapshot.UnitChunk.STATUS] = u.getStatus().ordinal();
+            rows[base + CitySnapshot.UnitChunk.INCIDENT] = u.getAssignedIncidentId();
+            rows[base + CitySnapshot.UnitChunk.WORK] = u.getWorkTicksRemaining();
+        }
+        changedUnitCount = 0;
+        dirtyUnitIds.clear();
+        return editor.build();
+    }
+
+    private ChunkedArray<CitySnapshot.IncidentChunk> applyIncidentChanges() {
+        ChunkedArray.Editor<CitySnapshot.IncidentChunk> editor = incidentChunks.edit();
+        for (int i = 0; i < changedIncidentCount; i++) {
+            Incident inc = changedIncidents[i];
+            changedIncidents[i] = null;
+            int id = inc.getIncidentId();
+            int c = id >>> CitySnapshot.CHUNK_BITS;
+            CitySnapshot.IncidentChunk chunk = editor.get(c);
+            if (chunk == null || chunk.round != round) {
+                chunk = chunk == null ? new CitySnapshot.IncidentChunk(round) : chunk.copy(round);
+                editor.set(c, chunk);
+            }
+            int slot = id & (CitySnapshot.CHUNK_SIZE - 1);
+            chunk.present |= 1 << slot;
+            int[] rows = chunk.rows;
+            int base = slot * CitySnapshot.IncidentChunk.STRIDE;
+            rows[base + CitySnapshot.IncidentChunk.TYPE] = inc.getType().ordinal();
+            rows[base + CitySnapshot.IncidentChunk.SEVERITY] = inc.getSeverity();
+            rows[base + CitySnapshot.IncidentChunk.X] = inc.getX();
+            rows[base + CitySnapshot.IncidentChunk.Y] = inc.getY();
+            rows[base + CitySnapshot.IncidentChunk.STATUS] = inc.getStatus().ordinal();
+            rows[base + CitySnapshot.IncidentChunk.UNIT] = inc.getAssignedUnitId();
+            rows[base + CitySnapshot.IncidentChunk.TEAM] = inc.getTeamSize();
+            rows[base + CitySnapshot.IncidentChunk.REQUIRED] = inc.getRequiredUnits();
+        }
+        changedIncidentCount = 0;
+        dirtyIncidentIds.clear();
+        return editor.build();
+    }
+}
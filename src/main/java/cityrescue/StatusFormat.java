@@ -0,0 +1,113 @@
+package cityrescue;
+
+import cityrescue.archive.IncidentArchive;
+import cityrescue.enums.IncidentStatus;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitStatus;
+import cityrescue.enums.UnitType;
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+
+import java.io.IOException;
+
+/**
+ * Appends the unit and incident lines used by viewUnit, viewIncident and the
+ * status report straight into an {@link Appendable}, without building
+ * intermediate Strings.
+ */
+final class StatusFormat {
+
+    private StatusFormat() {
+    }
+
+    static void appendUnit(Appendable out, Unit u) throws IOException {
+        appendUnit(out, u.getUnitId(), u.getUnitType(), u.getHomeStationId(), u.getX(), u.getY(), u.getStatus(),
+                u.getAssignedIncidentId(), u.getWorkTicksRemaining());
+    }
+
+    static void appendUnit(Appendable out, int id, UnitType type, int home, int x, int y, UnitStatus status,
+            int incidentId, int work) throws IOException {
+        out.append("U#");
+        appendInt(out, id);
+        out.append(" TYPE=").append(type.name());
+        out.append(" HOME=");
+        appendInt(out, home);
+        out.append(" LOC=(");
+        appendInt(out, x);
+        out.append(',');
+        appendInt(out, y);
+        out.append(") STATUS=").append(status.name());
+        out.append(" INCIDENT=");
+        appendIdOrDash(out, incidentId);
+        if (status == UnitStatus.AT_SCENE) {
+            out.append(" WORK=");
+            appendInt(out, work);
+        }
+    }
+
+    static void appendIncident(Appendable out, Incident i) throws IOException {
+        appendIncident(out, i.getIncidentId(), i.getType(), i.getSeverity(), i.getX(), i.getY(), i.getStatus(),
+                i.getAssignedUnitId(), i.getTeamSize(), i.getRequiredUnits());
+    }
+
+    static void appendArchived(Appendable out, IncidentArchive.Record r) throws IOException {
+        appendIncident(out, r.getId(), r.getType(), r.getSeverity(), r.getX(), r.getY(), r.getStatus(), -1, 0, 0);
+    }
+
+    static void appendIncident(Appendable out, int id, IncidentType type, int severity, int x, int y,
+            IncidentStatus status, int unitId, int teamSize, int requiredUnits) throws IOException {
+        out.append("I#");
+        appendInt(out, id);
+        out.append(" TYPE=").append(type.name());
+        out.append(" SEV=");
+        appendInt(out, severity);
+        out.append(" LOC=(");
+        appendInt(out, x);
+        out.append(',');
+        appendInt(out, y);
+        out.append(") STATUS=").append(status.name());
+        out.append(" UNIT=");
+        appendIdOrDash(out, unitId);
+        if (requiredUnits > 0 && status != IncidentStatus.RESOLVED && status != IncidentStatus.CANCELLED) {
+            out.append(" TEAM=");
+            appendInt(out, teamSize);
+            out.append('/');
+            appendInt(out, requiredUnits);
+        }
+    }
+
+    static void appendIdOrDash(Appendable out, int id) throws IOException {
+        if (id == -1) {
+            out.append('-');
+        } else {
+            appendInt(out, id);
+        }
+    }
+
+    /**
+     * Appends the decimal digits of an int one char at a time, so nothing is
+     * allocated whatever the sink is
+     */
+    static void appendInt(Appendable out, int value) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                out.append("-2147483648");
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.append((char) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package cityrescue.archive;
+
+import cityrescue.enums.IncidentStatus;
+import cityrescue.enums.IncidentType;
+import cityrescue.model.Incident;
+import cityrescue.util.IntIntHashMap;
+import cityrescue.util.LongMinHeap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compact store for incidents that reached a terminal status (RESOLVED or
+ * CANCELLED) and can no longer change.
+ *
+ * <p>Recent incidents are kept in memory as primitive columns, one array per
+ * field, with an ID to row map for lookups. Once the spill threshold is
+ * reached the rows are sorted by ID and appended as one segment of fixed-width
+ * records to a file, and memory is freed. Each segment keeps the first ID of
+ * every block of records in memory, so a lookup reads at most one block per
+ * segment. {@link #cursor()} walks all archived incidents in ID order by
+ * merging the memory rows with every segment.</p>
+ *
+ * <p>Readers may run concurrently with each other, but not with
+ * {@link #add(Incident)}.</p>
+ */
+public class IncidentArchive implements AutoCloseable {
+
+    /** Bytes in one spilled record. */
+    static final int RECORD_BYTES = 16;
+    /** Records per block of a spilled segment. */
+    static final int BLOCK_RECORDS = 64;
+
+    private static final IncidentType[] TYPES = IncidentType.values();
+    private static final IncidentStatus[] STATUSES = IncidentStatus.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int spillThreshold;
+    private final Path directory;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] xs = new int[INITIAL_CAPACITY];
+    private int[] ys = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private byte[] severities = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int rows;
+    private final IntIntHashMap rowOf = new IntIntHashMap(INITIAL_CAPACITY, -1);
+    private int[] sorted = new int[INITIAL_CAPACITY];
+    private int sortedCount;
+
+    private Path file;
+    private FileChannel channel;
+    private long fileEnd;
+    private Segment[] segments = new Segment[0];
+    private int spilled;
+
+    /**
+     * Creates new archive
+     *
+     * @param spillThreshold number of incidents kept in memory before they are
+     *                       appended to the spill file, or 0 to keep every
+     *                       incident in memory
+     * @param directory      directory to create the spill file in, or null for
+     *                       the system temporary directory
+     */
+    public IncidentArchive(int spillThreshold, Path directory) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("Spill threshold must be >= 0.");
+        }
+        this.spillThreshold = spillThreshold;
+        this.directory = directory;
+    }
+
+    /**
+     * Archives an incident. Incidents must be terminal and each ID may only
+     * be archived once.
+     *
+     * @param inc the incident
+     * @throws UncheckedIOException in case of the spill file failing
+     */
+    public void add(Incident inc) {
+        if (rows == ids.length) {
+            grow();
+        }
+        ids[rows] = inc.getIncidentId();
+        xs[rows] = inc.getX();
+        ys[rows] = inc.getY();
+        types[rows] = (byte) inc.getType().ordinal();
+        severities[rows] = (byte) inc.getSeverity();
+        statuses[rows] = (byte) inc.getStatus().ordinal();
+        rowOf.put(inc.getIncidentId(), rows);
+        rows++;
+        if (spillThreshold > 0 && rows >= spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * @return number of archived incidents, in memory and spilled
+     */
+    public int size() {
+        return rows + spilled;
+    }
+
+    /**
+     * @return number of archived incidents held in memory
+     */
+    public int memorySize() {
+        return rows;
+    }
+
+    /**
+     * @return number of segments appended to the spill file
+     */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Finds an archived incident
+     *
+     * @param id incident ID
+     * @param into record to fill with the incident's fields
+     * @return true if the incident is archived, false otherwise
+     * @throws UncheckedIOException in case of the spill file failing
+     */
+    public boolean find(int id, Record into) {
+        int row = rowOf.get(id);
+        if (row >= 0) {
+            into.setFromRow(this, row);
+            return true;
+        }
+        for (Segment s : segments) {
+            if (id >= s.minId && id <= s.maxId && s.find(channel, id, into)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param id incident ID
+     * @return true if the incident is archived, false otherwise
+     */
+    public boolean contains(int id) {
+        return find(id, new Record());
+    }
+
+    /**
+     * @return cursor over every archived incident in ascending ID order
+     */
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    /**
+     * @return approximate heap bytes used by the memory rows and segment
+     *         indexes
+     */
+    public long footprintBytes() {
+        long bytes = 3 * (16 + 4L * ids.length) + 3 * (16 + (long) ids.length) + rowOf.footprintBytes()
+                + 16 + 4L * sorted.length;
+        for (Segment s : segments) {
+            bytes += 48 + 16 + 4L * s.blockFirstIds.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Closes and deletes the spill file, if there is one
+     *
+     * @throws UncheckedIOException in case of the file failing to close
+     */
+    @Override
+    public void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Gives the memory rows in ascending ID order. Rows added since the last
+     * call are sorted on their own and merged in from the back, so only the
+     * sorted rows with larger IDs move; incidents mostly finish in ID order,
+     * which makes this close to an append. Synchronized so concurrent readers
+     * do not merge at the same time.
+     */
+    private synchronized int[] sortedRows() {
+        if (sortedCount < rows) {
+            if (sorted.length < rows) {
+                sorted = Arrays.copyOf(sorted, Math.max(rows, sorted.length * 2));
+            }
+            int added = rows - sortedCount;
+            long[] keys = new long[added];
+            for (int i = 0; i < added; i++) {
+                int r = sortedCount + i;
+                keys[i] = ((long) ids[r] << 32) | r;
+            }
+            Arrays.sort(keys);
+            int i = sortedCount - 1;
+            int j = added - 1;
+            for (int out = rows - 1; j >= 0; out--) {
+                if (i >= 0 && ids[sorted[i]] > (int) (keys[j] >>> 32)) {
+                    sorted[out] = sorted[i--];
+                } else {
+                    sorted[out] = (int) keys[j--];
+                }
+            }
+            sortedCount = rows;
+        }
+        return sorted;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        types = Arrays.copyOf(types, capacity);
+        severities = Arrays.copyOf(severities, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+    }
+
+    private void spill() {
+        int[] order = sortedRows();
+        try {
+            if (channel == null) {
+                file = directory == null ? Files.createTempFile("cityrescue-archive", ".bin")
+                        : Files.createTempFile(directory, "cityrescue-archive", ".bin");
+                file.toFile().deleteOnExit();
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            int[] blockFirstIds = new int[(rows + BLOCK_RECORDS - 1) / BLOCK_RECORDS];
+            ByteBuffer buf = ByteBuffer.allocate(rows * RECORD_BYTES);
+            for (int i = 0; i < rows; i++) {
+                int r = order[i];
+                if (i % BLOCK_RECORDS == 0) {
+                    blockFirstIds[i / BLOCK_RECORDS] = ids[r];
+                }
+                buf.putInt(ids[r]).putInt(xs[r]).putInt(ys[r]);
+                buf.put(types[r]).put(severities[r]).put(statuses[r]).put((byte) 0);
+            }
+            buf.flip();
+            long start = fileEnd;
+            while (buf.hasRemaining()) {
+                fileEnd += channel.write(buf, fileEnd);
+            }
+            Segment s = new Segment(start, rows, ids[order[0]], ids[order[rows - 1]], blockFirstIds);
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            segments[segments.length - 1] = s;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spilled += rows;
+        rows = 0;
+        rowOf.clear();
+        sortedCount = 0;
+    }
+
+    /**
+     * Mutable holder for the fields of one archived incident
+     */
+    public static class Record {
+        private int id;
+        private int x;
+        private int y;
+        private IncidentType type;
+        private int severity;
+        private IncidentStatus status;
+
+        /**
+         * @return incident ID
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return x-Coordinate of the incident
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * @return y-Coordinate of the incident
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * @return incident type
+         */
+        public IncidentType getType() {
+            return type;
+        }
+
+        /**
+         * @return severity when the incident was archived
+         */
+        public int getSeverity() {
+            return severity;
+        }
+
+        /**
+         * @return terminal status, RESOLVED or CANCELLED
+         */
+        public IncidentStatus getStatus() {
+            return status;
+        }
+
+        void setFromRow(IncidentArchive a, int row) {
+            id = a.ids[row];
+            x = a.xs[row];
+            y = a.ys[row];
+            type = TYPES[a.types[row]];
+            severity = a.severities[row];
+            status = STATUSES[a.statuses[row]];
+        }
+
+        void setFromBuffer(ByteBuffer buf, int offset) {
+            id = buf.getInt(offset);
+            x = buf.getInt(offset + 4);
+            y = buf.getInt(offset + 8);
+            type = TYPES[buf.get(offset + 12)];
+            severity = buf.get(offset + 13);
+            status = STATUSES[buf.get(offset + 14)];
+        }
+    }
+
+    /**
+     * Walks archived incidents in ascending ID order. Only sees incidents
+     * archived before it was created, and must not be used once more are
+     * archived.
+     */
+    public static class Cursor {
+        private final IncidentArchive archive;
+        private final int[] order;
+        private final int memoryRows;
+        private final SegmentReader[] readers;
+        private final LongMinHeap heads = new LongMinHeap();
+        private final Record current = new Record();
+        private int memoryNext;
+
+        private Cursor(IncidentArchive archive) {
+            this.archive = archive;
+            this.order = archive.sortedRows();
+            this.memoryRows = archive.rows;
+            this.readers = new SegmentReader[archive.segments.length];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new SegmentReader(archive.channel, archive.segments[i]);
+                if (readers[i].advance()) {
+                    heads.push(((long) readers[i].record.id << 32) | i);
+                }
+            }
+            if (memoryRows > 0) {
+                heads.push(((long) archive.ids[order[0]] << 32) | readers.length);
+            }
+        }
+
+        /**
+         * Moves to the next incident
+         *
+         * @return true if there is one, false at the end
+         * @throws UncheckedIOException in case of the spill file failing
+         */
+        public boolean next() {
+            if (heads.isEmpty()) {
+                return false;
+            }
+            int source = (int) heads.pop();
+            if (source == readers.length) {
+                current.setFromRow(archive, order[memoryNext++]);
+                if (memoryNext < memoryRows) {
+                    heads.push(((long) archive.ids[order[memoryNext]] << 32) | source);
+                }
+            } else {
+                SegmentReader reader = readers[source];
+                Record r = reader.record;
+                current.id = r.id;
+                current.x = r.x;
+                current.y = r.y;
+                current.type = r.type;
+                current.severity = r.severity;
+                current.status = r.status;
+                if (reader.advance()) {
+                    heads.push(((long) reader.record.id << 32) | source);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the incident the cursor is on, overwritten by the next call
+         *         to {@link #next()}
+         */
+        public Record get() {
+            return current;
+        }
+    }
+
+    private static final class Segment {
+        final long offset;
+        final int count;
+        final int minId;
+        final int maxId;
+        final int[] blockFirstIds;
+
+        Segment(long offset, int count, int minId, int maxId, int[] blockFirstIds) {
+            this.offset = offset;
+            this.count = count;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.blockFirstIds = blockFirstIds;
+        }
+
+        boolean find(FileChannel channel, int id, Record into) {
+            int block = Arrays.binarySearch(blockFirstIds, id);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            int first = block * BLOCK_RECORDS;
+            int n = Math.min(BLOCK_RECORDS, count - first);
+            ByteBuffer buf = ByteBuffer.allocate(n * RECORD_BYTES);
+            readFully(channel, buf, offset + (long) first * RECORD_BYTES);
+            int lo = 0;
+            int hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int midId = buf.getInt(mid * RECORD_BYTES);
+                if (midId < id) {
+                    lo = mid + 1;
+                } else if (midId > id) {
+                    hi = mid - 1;
+                } else {
+                    into.setFromBuffer(buf, mid * RECORD_BYTES);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class SegmentReader {
+        private final FileChannel channel;
+        private final Segment segment;
+        private final ByteBuffer buf = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_BYTES);
+        private final Record record = new Record();
+        private int read;
+        private int bufRecords;
+        private int bufNext;
+
+        SegmentReader(FileChannel channel, Segment segment) {
+            this.channel = channel;
+            this.segment = segment;
+        }
+
+        boolean advance() {
+            if (bufNext == bufRecords) {
+                if (read == segment.count) {
+                    return false;
+                }
+                bufRecords = Math.min(BLOCK_RECORDS, segment.count - read);
+                buf.clear().limit(bufRecords * RECORD_BYTES);
+                readFully(channel, buf, segment.offset + (long) read * RECORD_BYTES);
+                read += bufRecords;
+                bufNext = 0;
+            }
+            record.setFromBuffer(buf, bufNext++ * RECORD_BYTES);
+            return true;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) {
+        try {
+            long pos = position;
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf, pos);
+                if (n < 0) {
+                    throw new IOException("Archive file truncated at " + pos + ".");
+                }
+                pos += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package cityrescue.coverage;
+
+import cityrescue.enums.UnitType;
+import cityrescue.model.CityMap;
+
+import java.util.Arrays;
+
+/**
+ * Response distance from every cell of the {@link CityMap} to the nearest
+ * covering unit, one grid per unit type, measured in moves around obstacles.
+ *
+ * <p>A grid is filled by a breadth-first search started from all sources at
+ * once. Adding a source afterwards only searches the cells it brings closer,
+ * so units becoming available are cheap; removing a source cannot be undone
+ * that way, so it marks the grid invalid until the next
+ * {@link #rebuild(UnitType, int[], int)}. A grid also turns invalid when the
+ * obstacles change. Grids are allocated on first use.</p>
+ */
+public class CoverageMap {
+
+    /** Distance of a cell no source can reach. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final UnitType[] TYPES = UnitType.values();
+    private static final int[] DX = { 0, 1, 0, -1 };
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    private final CityMap map;
+    private final int width;
+    private final int height;
+    private final int cells;
+    private final int[][] dist = new int[TYPES.length][];
+    private final long[] builtVersion = new long[TYPES.length];
+    private int[] queue;
+    private int[] component;
+    private long componentVersion = -1;
+
+    /**
+     * Creates new coverage map
+     *
+     * @param map city map the distances are measured on
+     * @throws IllegalArgumentException in case of the map having too many
+     *                                  cells for int-indexed grids
+     */
+    public CoverageMap(CityMap map) {
+        long n = (long) map.getWidth() * map.getHeight();
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for coverage grids: " + n + " cells.");
+        }
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.cells = (int) n;
+        Arrays.fill(builtVersion, -1);
+    }
+
+    /**
+     * @param type unit type
+     * @return true if the grid of that type is up to date
+     */
+    public boolean isValid(UnitType type) {
+        return builtVersion[type.ordinal()] == map.getVersion();
+    }
+
+    /**
+     * Marks a grid as out of date, e.g. after a source went away
+     *
+     * @param type unit type
+     */
+    public void invalidate(UnitType type) {
+        builtVersion[type.ordinal()] = -1;
+    }
+
+    /**
+     * Recomputes a grid from scratch
+     *
+     * @param type    unit type
+     * @param sources source cells, y * width + x
+     * @param count   number of sources used from the array
+     */
+    public void rebuild(UnitType type, int[] sources, int count) {
+        int[] d = grid(type);
+        Arrays.fill(d, UNREACHABLE);
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = sources[i];
+            if (d[cell] != 0) {
+                d[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        search(d, 0, tail);
+        builtVersion[type.ordinal()] = map.getVersion();
+    }
+
+    /**
+     * Adds a source to an up-to-date grid, searching only the cells it brings
+     * closer; does nothing to an out-of-date grid
+     *
+     * @param type unit type
+     * @param x    x-Coordinate of the source
+     * @param y    y-Coordinate of the source
+     */
+    public void addSource(UnitType type, int x, int y) {
+        if (!isValid(type)) {
+            return;
+        }
+        int[] d = dist[type.ordinal()];
+        int cell = y * width + x;
+        if (d[cell] == 0) {
+            return;
+        }
+        d[cell] = 0;
+        queue[0] = cell;
+        search(d, 0, 1);
+    }
+
+    /**
+     * @param type unit type, whose grid must be up to date
+     * @param x    x-Coordinate of the cell
+     * @param y    y-Coordinate of the cell
+     * @return moves from the nearest source to the cell, or
+     *         {@link #UNREACHABLE}
+     */
+    public int distance(UnitType type, int x, int y) {
+        return dist[type.ordinal()][y * width + x];
+    }
+
+    /**
+     * Checks whether a unit could drive between two cells at all
+     *
+     * @param x1 x-Coordinate of one cell
+     * @param y1 y-Coordinate of one cell
+     * @param x2 x-Coordinate of the other cell
+     * @param y2 y-Coordinate of the other cell
+     * @return true if both cells are free and joined by free cells
+     */
+    public boolean connected(int x1, int y1, int x2, int y2) {
+        if (componentVersion != map.getVersion()) {
+            labelComponents();
+        }
+        int c = component[y1 * width + x1];
+        return c >= 0 && c == component[y2 * width + x2];
+    }
+
+    /**
+     * Summarises a grid over every free cell
+     *
+     * @param type unit type, whose grid must be up to date
+     * @return coverage statistics of that type
+     */
+    public CoverageStats stats(UnitType type) {
+        int[] d = dist[type.ordinal()];
+        int free = 0;
+        int unreachable = 0;
+        long sum = 0;
+        int max = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (map.isBlocked(cell % width, cell / width)) {
+                continue;
+            }
+            free++;
+            if (d[cell] == UNREACHABLE) {
+                unreachable++;
+            } else {
+                sum += d[cell];
+                max = Math.max(max, d[cell]);
+            }
+        }
+        int reached = free - unreachable;
+        if (reached == 0) {
+            return new CoverageStats(type, free, unreachable, 0, 0, 0);
+        }
+        int[] counts = new int[max + 1];
+        for (int cell = 0; cell < cells; cell++) {
+            if (d[cell] != UNREACHABLE && !map.isBlocked(cell % width, cell / width)) {
+                counts[d[cell]]++;
+            }
+        }
+        long wanted = (reached * 95L + 99) / 100;
+        int p95 = 0;
+        long seen = counts[0];
+        while (seen < wanted) {
+            seen += counts[++p95];
+        }
+        return new CoverageStats(type, free, unreachable, (double) sum / reached, p95, max);
+    }
+
+    /**
+     * @return approximate heap bytes used by the allocated grids
+     */
+    public long footprintBytes() {
+        long bytes = 0;
+        for (int[] d : dist) {
+            bytes += d == null ? 0 : 16 + 4L * d.length;
+        }
+        bytes += queue == null ? 0 : 16 + 4L * queue.length;
+        return bytes + (component == null ? 0 : 16 + 4L * component.length);
+    }
+
+    private int[] grid(UnitType type) {
+        if (dist[type.ordinal()] == null) {
+            dist[type.ordinal()] = new int[cells];
+        }
+        if (queue == null) {
+            queue = new int[cells];
+        }
+        return dist[type.ordinal()];
+    }
+
+    private void search(int[] d, int head, int tail) {
+        int[] q = queue;
+        while (head < tail) {
+            int cell = q[head++];
+            int x = cell % width;
+            int y = cell / width;
+            int next = d[cell] + 1;
+            for (int k = 0; k < DX.length; k++) {
+                int nx = x + DX[k];
+                int ny = y + DY[k];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int n = ny * width + nx;
+                if (d[n] > next && !map.isBlocked(nx, ny)) {
+                    d[n] = next;
+                    q[tail++] = n;
+                }
+            }
+        }
+    }
+
+    private void labelComponents() {
+        if (component == null) {
+            component = new int[cells];
+        }
+        if (queue == null) {
+            queue = new int[cells];
+        }
+        Arrays.fill(component, -1);
+        int label = 0;
+        for (int start = 0; start < cells; start++) {
+            if (component[start] >= 0 || map.isBlocked(start % width, start / width)) {
+                continue;
+            }
+            component[start] = label;
+            queue[0] = start;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int cell = queue[head++];
+                int x = cell % width;
+                int y = cell / width;
+                for (int k = 0; k < DX.length; k++) {
+                    int nx = x + DX[k];
+                    int ny = y + DY[k];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                        continue;
+                    }
+                    int n = ny * width + nx;
+                    if (component[n] < 0 && !map.isBlocked(nx, ny)) {
+                        component[n] = label;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+            label++;
+        }
+        componentVersion = map.getVersion();
+    }
+}
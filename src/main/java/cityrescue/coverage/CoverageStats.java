@@ -0,0 +1,87 @@
+package cityrescue.coverage;
+
+import cityrescue.enums.UnitType;
+
+import java.util.Locale;
+
+/**
+ * Summary of how far the free cells of the map are from the nearest IDLE
+ * unit of one type, in moves around obstacles.
+ */
+public final class CoverageStats {
+
+    private final UnitType type;
+    private final int cells;
+    private final int unreachable;
+    private final double average;
+    private final int p95;
+    private final int max;
+
+    /**
+     * Creates new coverage statistics
+     *
+     * @param type        unit type measured
+     * @param cells       number of free cells
+     * @param unreachable number of free cells no IDLE unit can reach
+     * @param average     mean distance over the reachable cells
+     * @param p95         distance within which 95% of the reachable cells lie
+     * @param max         largest distance of a reachable cell
+     */
+    public CoverageStats(UnitType type, int cells, int unreachable, double average, int p95, int max) {
+        this.type = type;
+        this.cells = cells;
+        this.unreachable = unreachable;
+        this.average = average;
+        this.p95 = p95;
+        this.max = max;
+    }
+
+    /**
+     * @return unit type measured
+     */
+    public UnitType getUnitType() {
+        return type;
+    }
+
+    /**
+     * @return number of free cells
+     */
+    public int getCellCount() {
+        return cells;
+    }
+
+    /**
+     * @return number of free cells no IDLE unit of the type can reach,
+     *         including every cell while none is IDLE
+     */
+    public int getUnreachableCount() {
+        return unreachable;
+    }
+
+    /**
+     * @return mean response distance over the reachable cells
+     */
+    public double getAverageDistance() {
+        return average;
+    }
+
+    /**
+     * @return distance within which 95% of the reachable cells lie
+     */
+    public int getP95Distance() {
+        return p95;
+    }
+
+    /**
+     * @return largest response distance of a reachable cell
+     */
+    public int getMaxDistance() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return type.name() + " AVG=" + String.format(Locale.ROOT, "%.2f", average) + " P95=" + p95 + " MAX=" + max
+                + " UNREACHABLE=" + unreachable + "/" + cells;
+    }
+}
@@ -0,0 +1,370 @@
+package cityrescue.coverage;
+
+import cityrescue.dispatch.UnitSelector;
+import cityrescue.enums.UnitStatus;
+import cityrescue.enums.UnitType;
+import cityrescue.model.CityMap;
+import cityrescue.model.Incident;
+import cityrescue.model.Station;
+import cityrescue.model.Unit;
+import cityrescue.routing.UnitMover;
+import cityrescue.util.ActiveSet;
+import cityrescue.util.EntityRegistry;
+import cityrescue.util.IntIntHashMap;
+
+/**
+ * Moves IDLE units left behind at incident locations back to stations, so the
+ * city stays covered over a long run.
+ *
+ * <p>The rebalancer keeps a coverage grid per unit type measuring how far
+ * every cell is from the nearest IDLE unit that is at a station or already on
+ * its way to one. Each {@link #rebalance} pass adds the units that arrived at
+ * a station since the last pass, then takes the drifted units in ID order and
+ * sends each to the reachable station that is currently worst covered, as
+ * long as that station has no unit of the type yet. Each placement is added to
+ * the grid incrementally. Drifted units that are not needed stay where they
+ * are, and are not part of the grid.</p>
+ *
+ * <p>Relocating units stay IDLE and can be dispatched at any time, which ends
+ * the relocation. They move one cell per tick in {@link #step}. A relocation
+ * that has not arrived after twice the width plus height of the map is given
+ * up, as the mover may be unable to find a way.</p>
+ *
+ * <p>The rebalancer learns about units becoming or ceasing to be IDLE through
+ * the selector returned by {@link #getSelector()}. The simulation must use that
+ * selector in place of the one it wraps. Only a unit of the grid being
+ * dispatched or moved, a relocation being given up, or the map changing marks
+ * the grid of that type for a rebuild on the next pass; dispatching and moving
+ * any other unit leaves it as it is.</p>
+ */
+public class Rebalancer {
+
+    private static final UnitType[] TYPES = UnitType.values();
+
+    private final CityMap map;
+    private final int width;
+    private final CoverageMap coverage;
+    private final UnitSelector inner;
+    private final UnitSelector tracking = new Tracking();
+    private final ActiveSet<Unit> relocating = new ActiveSet<>();
+    private final IntIntHashMap targets = new IntIntHashMap(-1);
+    private final IntIntHashMap deadlines = new IntIntHashMap(-1);
+    private final IntIntHashMap sourced = new IntIntHashMap(-1);
+    private CoverageMap scratch;
+
+    /**
+     * Creates new rebalancer
+     *
+     * @param map      city map units move on
+     * @param selector selector the simulation dispatches with
+     * @throws IllegalArgumentException in case of the map being too large for
+     *                                  coverage grids
+     */
+    public Rebalancer(CityMap map, UnitSelector selector) {
+        this.map = map;
+        this.width = map.getWidth();
+        this.coverage = new CoverageMap(map);
+        this.inner = selector;
+    }
+
+    /**
+     * @return selector that forwards to the wrapped one and keeps the
+     *         coverage grids and relocations up to date
+     */
+    public UnitSelector getSelector() {
+        return tracking;
+    }
+
+    /**
+     * @return selector passed to the constructor
+     */
+    public UnitSelector getWrappedSelector() {
+        return inner;
+    }
+
+    /**
+     * Runs one rebalancing pass, starting relocations for drifted units
+     *
+     * @param stations stations units can be sent to
+     * @param units    every unit of the simulation
+     * @param mover    mover used to plan the routes
+     * @param tick     current tick
+     * @return number of relocations started
+     */
+    public int rebalance(EntityRegistry<Station> stations, EntityRegistry<Unit> units, UnitMover mover, int tick) {
+        int[] stationCells = new int[stations.size()];
+        int stationCount = 0;
+        IntIntHashMap atStation = new IntIntHashMap(stations.size(), -1);
+        for (int i = 0; i < stations.slotLimit(); i++) {
+            Station s = stations.valueAt(i);
+            if (s != null && !map.isBlocked(s.getX(), s.getY())) {
+                int cell = s.getY() * width + s.getX();
+                stationCells[stationCount++] = cell;
+                atStation.put(cell, s.getStationId());
+            }
+        }
+        int[] sources = new int[units.size()];
+        Unit[] drifted = new Unit[units.size()];
+        int started = 0;
+        for (UnitType type : TYPES) {
+            int n = 0;
+            int m = 0;
+            for (int i = 0; i < units.slotLimit(); i++) {
+                Unit u = units.valueAt(i);
+                if (u == null || u.getUnitType() != type || u.getStatus() != UnitStatus.IDLE) {
+                    continue;
+                }
+                int id = u.getUnitId();
+                int cell = u.getY() * width + u.getX();
+                int source;
+                if (relocating.contains(id)) {
+                    source = targets.get(id);
+                } else if (stationCount == 0 || atStation.containsKey(cell)) {
+                    source = cell;
+                } else {
+                    drifted[m++] = u;
+                    if (sourced.remove(id) >= 0) {
+                        // its station has gone
+                        coverage.invalidate(type);
+                    }
+                    continue;
+                }
+                sources[n++] = source;
+                int old = sourced.get(id);
+                if (old != source) {
+                    if (old >= 0) {
+                        coverage.invalidate(type);
+                    }
+                    sourced.put(id, source);
+                    coverage.addSource(type, source % width, source / width);
+                }
+            }
+            if (!coverage.isValid(type)) {
+                coverage.rebuild(type, sources, n);
+            }
+            for (int i = 0; i < m; i++) {
+                Unit u = drifted[i];
+                int best = -1;
+                int gap = 0;
+                for (int k = 0; k < stationCount; k++) {
+                    int sx = stationCells[k] % width;
+                    int sy = stationCells[k] / width;
+                    int d = coverage.distance(type, sx, sy);
+                    if (d > gap && coverage.connected(u.getX(), u.getY(), sx, sy)) {
+                        best = stationCells[k];
+                        gap = d;
+                    }
+                }
+                if (best < 0) {
+                    continue;
+                }
+                int tx = best % width;
+                int ty = best / width;
+                relocating.add(u.getUnitId(), u);
+                targets.put(u.getUnitId(), best);
+                deadlines.put(u.getUnitId(), tick + 2 * (map.getWidth() + map.getHeight()));
+                sourced.put(u.getUnitId(), best);
+                mover.planRoute(u, tx, ty);
+                coverage.addSource(type, tx, ty);
+                started++;
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Moves every relocating unit one cell towards its station, ending the
+     * relocations that arrived or ran out of time
+     *
+     * @param mover mover to step the units with
+     * @param tick  current tick
+     */
+    public void step(UnitMover mover, int tick) {
+        for (int i = relocating.size() - 1; i >= 0; i--) {
+            Unit u = relocating.get(i);
+            int target = targets.get(u.getUnitId());
+            int tx = target % width;
+            int ty = target / width;
+            int oldX = u.getX();
+            int oldY = u.getY();
+            mover.step(u, tx, ty);
+            if (u.getX() != oldX || u.getY() != oldY) {
+                inner.unitMoved(u, oldX, oldY);
+            }
+            if (u.getX() == tx && u.getY() == ty) {
+                finish(u);
+            } else if (tick >= deadlines.get(u.getUnitId())) {
+                finish(u);
+                sourced.remove(u.getUnitId());
+                coverage.invalidate(u.getUnitType());
+            }
+        }
+    }
+
+    /**
+     * Measures the coverage of one unit type, counting relocating units at
+     * their target. Drifted units are not in the grid, so while there are any
+     * the coverage is computed from scratch on a second grid.
+     *
+     * @param type  unit type
+     * @param units every unit of the simulation
+     * @return coverage statistics
+     */
+    public CoverageStats stats(UnitType type, EntityRegistry<Unit> units) {
+        int[] sources = new int[units.size()];
+        int n = 0;
+        boolean outside = false;
+        for (int i = 0; i < units.slotLimit(); i++) {
+            Unit u = units.valueAt(i);
+            if (u == null || u.getUnitType() != type || u.getStatus() != UnitStatus.IDLE) {
+                continue;
+            }
+            int target = targets.get(u.getUnitId());
+            sources[n++] = target >= 0 ? target : u.getY() * width + u.getX();
+            outside |= !sourced.containsKey(u.getUnitId());
+        }
+        if (!outside) {
+            if (!coverage.isValid(type)) {
+                coverage.rebuild(type, sources, n);
+            }
+            return coverage.stats(type);
+        }
+        if (scratch == null) {
+            scratch = new CoverageMap(map);
+        }
+        scratch.rebuild(type, sources, n);
+        return scratch.stats(type);
+    }
+
+    /**
+     * @return number of units relocating
+     */
+    public int relocatingCount() {
+        return relocating.size();
+    }
+
+    /**
+     * @param index position in the relocating set, 0 to count - 1
+     * @return relocating unit at that position
+     */
+    public Unit relocatingUnit(int index) {
+        return relocating.get(index);
+    }
+
+    /**
+     * @param unitId ID of a relocating unit
+     * @return x-Coordinate of the station it heads for
+     */
+    public int getTargetX(int unitId) {
+        return targets.get(unitId) % width;
+    }
+
+    /**
+     * @param unitId ID of a relocating unit
+     * @return y-Coordinate of the station it heads for
+     */
+    public int getTargetY(int unitId) {
+        return targets.get(unitId) / width;
+    }
+
+    /**
+     * @param unitId ID of a relocating unit
+     * @return tick the relocation is given up at
+     */
+    public int getDeadline(int unitId) {
+        return deadlines.get(unitId);
+    }
+
+    /**
+     * Resumes a relocation, e.g. from a checkpoint; the unit's route is kept
+     *
+     * @param unit     IDLE unit
+     * @param tx       x-Coordinate of the station it heads for
+     * @param ty       y-Coordinate of the station it heads for
+     * @param deadline tick the relocation is given up at
+     */
+    public void restore(Unit unit, int tx, int ty, int deadline) {
+        relocating.add(unit.getUnitId(), unit);
+        targets.put(unit.getUnitId(), ty * width + tx);
+        deadlines.put(unit.getUnitId(), deadline);
+        sourced.put(unit.getUnitId(), ty * width + tx);
+        coverage.invalidate(unit.getUnitType());
+    }
+
+    /**
+     * Verifies that every relocating unit is registered and IDLE
+     *
+     * @param units every unit of the simulation
+     * @throws IllegalStateException in case of a relocating unit that is not
+     */
+    public void check(EntityRegistry<Unit> units) {
+        for (int i = 0; i < relocating.size(); i++) {
+            Unit u = relocating.get(i);
+            if (units.get(u.getUnitId()) != u || u.getStatus() != UnitStatus.IDLE) {
+                throw new IllegalStateException("Link check failed: U#" + u.getUnitId() + " is relocating but "
+                        + u.getStatus());
+            }
+        }
+    }
+
+    /**
+     * @return approximate heap bytes used by the coverage grids and
+     *         relocation tables
+     */
+    public long footprintBytes() {
+        return coverage.footprintBytes() + (scratch == null ? 0 : scratch.footprintBytes())
+                + targets.footprintBytes() + deadlines.footprintBytes() + sourced.footprintBytes();
+    }
+
+    private void leave(Unit u) {
+        if (relocating.contains(u.getUnitId())) {
+            finish(u);
+        }
+        if (sourced.remove(u.getUnitId()) >= 0) {
+            coverage.invalidate(u.getUnitType());
+        }
+    }
+
+    private void finish(Unit u) {
+        relocating.remove(u.getUnitId());
+        targets.remove(u.getUnitId());
+        deadlines.remove(u.getUnitId());
+        u.setRoute(null);
+    }
+
+    private final class Tracking implements UnitSelector {
+
+        @Override
+        public void unitAvailable(Unit unit) {
+            // added by the next pass, which knows whether it is at a station
+            inner.unitAvailable(unit);
+        }
+
+        @Override
+        public void unitUnavailable(Unit unit) {
+            inner.unitUnavailable(unit);
+            leave(unit);
+        }
+
+        @Override
+        public void unitMoved(Unit unit, int oldX, int oldY) {
+            inner.unitMoved(unit, oldX, oldY);
+            leave(unit);
+        }
+
+        @Override
+        public Unit selectUnit(Incident incident) {
+            return inner.selectUnit(incident);
+        }
+
+        @Override
+        public int distance(Unit unit, Incident incident) {
+            return inner.distance(unit, incident);
+        }
+
+        @Override
+        public boolean hasAvailable(UnitType type) {
+            return inner.hasAvailable(type);
+        }
+    }
+}
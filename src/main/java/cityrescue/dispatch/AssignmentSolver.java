@@ -0,0 +1,111 @@
+package cityrescue.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Solves the rectangular assignment problem: given an n x m cost matrix with
+ * n &lt;= m, picks one distinct column for every row so the total cost is as
+ * small as possible.
+ *
+ * <p>Uses the Hungarian method in its shortest augmenting path form, which
+ * adds one row at a time and runs in O(n * n * m). Costs are longs; a cost of
+ * {@link #FORBIDDEN} or more marks a pair that must never be chosen, so the
+ * caller has to make sure every row has at least one allowed column left.
+ * Buffers grow as needed and are reused between calls. Not safe for use by
+ * more than one thread at a time.</p>
+ */
+public class AssignmentSolver {
+
+    /** Cost marking a row and column that must not be paired. */
+    public static final long FORBIDDEN = Long.MAX_VALUE / 4;
+
+    private long[] u = new long[0];
+    private long[] v = new long[0];
+    private long[] minv = new long[0];
+    private int[] p = new int[0];
+    private int[] way = new int[0];
+    private boolean[] used = new boolean[0];
+
+    /**
+     * Finds the cheapest assignment of rows to columns
+     *
+     * @param cost     row-major cost matrix, cost[r * cols + c]
+     * @param rows     number of rows
+     * @param cols     number of columns, at least rows
+     * @param deadline System.nanoTime() value after which to give up
+     * @return column chosen for each row, or null if the deadline passed first
+     */
+    public int[] solve(long[] cost, int rows, int cols, long deadline) {
+        if (rows > cols) {
+            throw new IllegalArgumentException("More rows than columns: " + rows + " > " + cols + ".");
+        }
+        ensureCapacity(rows, cols);
+        Arrays.fill(u, 0, rows + 1, 0);
+        Arrays.fill(v, 0, cols + 1, 0);
+        Arrays.fill(p, 0, cols + 1, 0);
+        for (int i = 1; i <= rows; i++) {
+            if (System.nanoTime() - deadline > 0) {
+                return null;
+            }
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, 0, cols + 1, Long.MAX_VALUE);
+            Arrays.fill(used, 0, cols + 1, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                int base = (i0 - 1) * cols - 1;
+                long delta = Long.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= cols; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    long cur = cost[base + j] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] assignment = new int[rows];
+        for (int j = 1; j <= cols; j++) {
+            if (p[j] != 0) {
+                assignment[p[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+
+    private void ensureCapacity(int rows, int cols) {
+        if (u.length < rows + 1) {
+            u = new long[rows + 1];
+        }
+        if (v.length < cols + 1) {
+            v = new long[cols + 1];
+            minv = new long[cols + 1];
+            p = new int[cols + 1];
+            way = new int[cols + 1];
+            used = new boolean[cols + 1];
+        }
+    }
+}
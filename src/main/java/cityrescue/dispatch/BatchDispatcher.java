@@ -0,0 +1,128 @@
+package cityrescue.dispatch;
+
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+
+import java.util.Arrays;
+
+/**
+ * Assigns a batch of pending incidents of one type to IDLE units all at once,
+ * minimising the total of severity times distance over the batch, so a
+ * high-severity incident is not left waiting because an earlier low-severity
+ * one took the only nearby unit.
+ *
+ * <p>Incidents that cannot all be served pay a penalty of severity times a
+ * distance longer than any real one, so when units run short the most severe
+ * incidents are served first. Only each incident's n nearest units can appear
+ * in an optimal assignment of n incidents, so the rest are dropped before the
+ * {@link AssignmentSolver} runs, which keeps large unit pools cheap.
+ * Distances come from the {@link UnitSelector}, so batches use the same metric
+ * as one-by-one dispatch.</p>
+ */
+public class BatchDispatcher {
+
+    private final UnitSelector selector;
+    private final int penaltyDistance;
+    private final AssignmentSolver solver = new AssignmentSolver();
+
+    /**
+     * Creates new batch dispatcher
+     *
+     * @param selector        selector measuring unit to incident distances
+     * @param penaltyDistance extra distance charged for leaving an incident
+     *                        unserved, e.g. width + height of the map
+     */
+    public BatchDispatcher(UnitSelector selector, int penaltyDistance) {
+        this.selector = selector;
+        this.penaltyDistance = penaltyDistance;
+    }
+
+    /**
+     * Finds the cheapest assignment of units to incidents
+     *
+     * @param incidents pending incidents, all needing the same unit type
+     * @param n         number of incidents
+     * @param units     IDLE units able to handle them
+     * @param m         number of units
+     * @param distances filled with the distance of each chosen unit, -1
+     *                  where an incident stays unserved
+     * @param deadline  System.nanoTime() value after which to give up
+     * @return unit chosen for each incident, null where an incident stays
+     *         unserved, or null instead of the array if the deadline passed
+     */
+    public Unit[] assign(Incident[] incidents, int n, Unit[] units, int m, int[] distances, long deadline) {
+        int keep = Math.min(n, m);
+        int[] nearCols = new int[n * keep];
+        int[] nearDist = new int[n * keep];
+        int[] nearCount = new int[n];
+        long[] keys = new long[m];
+        int[] column = new int[m];
+        Arrays.fill(column, -1);
+        int used = 0;
+        int maxDistance = 0;
+        for (int i = 0; i < n; i++) {
+            if (System.nanoTime() - deadline > 0) {
+                return null;
+            }
+            int reachable = 0;
+            for (int j = 0; j < m; j++) {
+                int d = selector.distance(units[j], incidents[i]);
+                if (d >= 0) {
+                    keys[reachable++] = ((long) d << 32) | j;
+                }
+            }
+            if (reachable > keep) {
+                Arrays.sort(keys, 0, reachable);
+                reachable = keep;
+            }
+            for (int k = 0; k < reachable; k++) {
+                int j = (int) keys[k];
+                int d = (int) (keys[k] >>> 32);
+                if (column[j] < 0) {
+                    column[j] = used++;
+                }
+                nearCols[i * keep + k] = column[j];
+                nearDist[i * keep + k] = d;
+                maxDistance = Math.max(maxDistance, d);
+            }
+            nearCount[i] = reachable;
+        }
+
+        // one unserved column per incident, so every row always has a choice
+        int cols = used + n;
+        long[] cost = new long[n * cols];
+        Arrays.fill(cost, AssignmentSolver.FORBIDDEN);
+        long unserved = (long) maxDistance + penaltyDistance + 1;
+        for (int i = 0; i < n; i++) {
+            int severity = incidents[i].getSeverity();
+            for (int k = 0; k < nearCount[i]; k++) {
+                cost[i * cols + nearCols[i * keep + k]] = (long) severity * nearDist[i * keep + k];
+            }
+            Arrays.fill(cost, i * cols + used, (i + 1) * cols, severity * unserved);
+        }
+        int[] assignment = solver.solve(cost, n, cols, deadline);
+        if (assignment == null) {
+            return null;
+        }
+
+        Unit[] byColumn = new Unit[used];
+        for (int j = 0; j < m; j++) {
+            if (column[j] >= 0) {
+                byColumn[column[j]] = units[j];
+            }
+        }
+        Unit[] chosen = new Unit[n];
+        for (int i = 0; i < n; i++) {
+            distances[i] = -1;
+            if (assignment[i] < used) {
+                chosen[i] = byColumn[assignment[i]];
+                for (int k = 0; k < nearCount[i]; k++) {
+                    if (nearCols[i * keep + k] == assignment[i]) {
+                        distances[i] = nearDist[i * keep + k];
+                    }
+                }
+            }
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,74 @@
+package cityrescue.dispatch;
+
+import cityrescue.enums.UnitStatus;
+import cityrescue.enums.UnitType;
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+import cityrescue.util.EntityRegistry;
+
+/**
+ * Reference {@link UnitSelector} that scans every unit on each call. Needs no
+ * index maintenance, so it is kept for verifying faster selectors against.
+ */
+public class BruteForceUnitSelector implements UnitSelector {
+
+    private final EntityRegistry<Unit> units;
+
+    /**
+     * Creates new brute-force selector
+     *
+     * @param units registry holding every unit in the simulation
+     */
+    public BruteForceUnitSelector(EntityRegistry<Unit> units) {
+        this.units = units;
+    }
+
+    @Override
+    public void unitAvailable(Unit unit) {
+    }
+
+    @Override
+    public void unitUnavailable(Unit unit) {
+    }
+
+    @Override
+    public void unitMoved(Unit unit, int oldX, int oldY) {
+    }
+
+    /**
+     * Checks every IDLE unit and keeps the closest capable one
+     */
+    @Override
+    public Unit selectUnit(Incident incident) {
+        Unit bestUnit = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int j = 0; j < units.slotLimit(); j++) {
+            Unit u = units.valueAt(j);
+            if (u != null && u.getStatus() == UnitStatus.IDLE && u.canHandle(incident.getType())) {
+                int newDistance = u.manhattanDistance(incident.getX(), incident.getY());
+                if (bestUnit == null || newDistance < bestDistance
+                        || (newDistance == bestDistance && UnitSelector.winsTie(u, bestUnit))) {
+                    bestUnit = u;
+                    bestDistance = newDistance;
+                }
+            }
+        }
+        return bestUnit;
+    }
+
+    @Override
+    public boolean hasAvailable(UnitType type) {
+        for (int j = 0; j < units.slotLimit(); j++) {
+            Unit u = units.valueAt(j);
+            if (u != null && u.getStatus() == UnitStatus.IDLE && u.getUnitType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int distance(Unit unit, Incident incident) {
+        return unit.manhattanDistance(incident.getX(), incident.getY());
+    }
+}
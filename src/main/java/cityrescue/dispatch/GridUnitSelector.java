@@ -0,0 +1,191 @@
+package cityrescue.dispatch;
+
+import cityrescue.enums.UnitType;
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+
+import java.util.Arrays;
+
+/**
+ * {@link UnitSelector} that keeps IDLE units in uniform grid buckets, one grid
+ * per {@link UnitType}.
+ *
+ * <p>A lookup visits buckets in square rings around the incident's bucket.
+ * Every bucket in ring r is at least (r - 1) * cellSize + 1 away, so the
+ * search stops as soon as the best distance found cannot be beaten or tied by
+ * a further ring. The tie-break order is the same as the brute-force scan.</p>
+ */
+public class GridUnitSelector implements UnitSelector {
+
+    private static final int INITIAL_BUCKET_SIZE = 4;
+
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    private final Unit[][][] buckets;
+    private final int[][] bucketSizes;
+    private final int[] typeSizes;
+
+    /**
+     * Creates new grid selector for a map
+     *
+     * @param width    width of the map
+     * @param height   height of the map
+     * @param cellSize width and height of one bucket in grid cells
+     */
+    public GridUnitSelector(int width, int height, int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be > 0.");
+        }
+        this.cellSize = cellSize;
+        this.cols = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        int types = UnitType.values().length;
+        this.buckets = new Unit[types][cols * rows][];
+        this.bucketSizes = new int[types][cols * rows];
+        this.typeSizes = new int[types];
+    }
+
+    @Override
+    public void unitAvailable(Unit unit) {
+        insert(unit.getUnitType().ordinal(), bucketOf(unit.getX(), unit.getY()), unit);
+    }
+
+    @Override
+    public void unitUnavailable(Unit unit) {
+        delete(unit.getUnitType().ordinal(), bucketOf(unit.getX(), unit.getY()), unit);
+    }
+
+    @Override
+    public void unitMoved(Unit unit, int oldX, int oldY) {
+        int oldBucket = bucketOf(oldX, oldY);
+        int newBucket = bucketOf(unit.getX(), unit.getY());
+        if (oldBucket != newBucket) {
+            int t = unit.getUnitType().ordinal();
+            delete(t, oldBucket, unit);
+            insert(t, newBucket, unit);
+        }
+    }
+
+    /**
+     * Searches rings of buckets outward from the incident until no closer or
+     * equally close unit can remain
+     */
+    @Override
+    public Unit selectUnit(Incident incident) {
+        int t = UnitSelector.unitTypeFor(incident.getType()).ordinal();
+        int remaining = typeSizes[t];
+        if (remaining == 0) {
+            return null;
+        }
+        int x = incident.getX();
+        int y = incident.getY();
+        int cx = x / cellSize;
+        int cy = y / cellSize;
+        int maxRing = Math.max(Math.max(cx, cols - 1 - cx), Math.max(cy, rows - 1 - cy));
+        Unit best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int r = 0; r <= maxRing && remaining > 0; r++) {
+            if (best != null && bestDistance <= (r - 1) * cellSize) {
+                break;
+            }
+            for (int dy = -r; dy <= r; dy++) {
+                int by = cy + dy;
+                if (by < 0 || by >= rows) {
+                    continue;
+                }
+                int step = (dy == -r || dy == r) ? 1 : 2 * r;
+                for (int dx = -r; dx <= r; dx += step) {
+                    int bx = cx + dx;
+                    if (bx < 0 || bx >= cols) {
+                        continue;
+                    }
+                    int b = by * cols + bx;
+                    int n = bucketSizes[t][b];
+                    Unit[] bucket = buckets[t][b];
+                    for (int i = 0; i < n; i++) {
+                        Unit u = bucket[i];
+                        remaining--;
+                        if (!u.canHandle(incident.getType())) {
+                            continue;
+                        }
+                        int d = distance(u, x, y);
+                        if (d < 0) {
+                            continue;
+                        }
+                        if (best == null || d < bestDistance || (d == bestDistance && UnitSelector.winsTie(u, best))) {
+                            best = u;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean hasAvailable(UnitType type) {
+        return typeSizes[type.ordinal()] > 0;
+    }
+
+    @Override
+    public int distance(Unit unit, Incident incident) {
+        return distance(unit, incident.getX(), incident.getY());
+    }
+
+    /**
+     * Measures how far a unit is from a target. Subclasses may use another
+     * metric as long as it is never smaller than the Manhattan distance, which
+     * the ring cut-off relies on.
+     *
+     * @param unit candidate unit
+     * @param x    target x-Coordinate
+     * @param y    target y-Coordinate
+     * @return distance to the target, or -1 if the target cannot be reached
+     */
+    protected int distance(Unit unit, int x, int y) {
+        return unit.manhattanDistance(x, y);
+    }
+
+    /**
+     * @param type unit type
+     * @return number of IDLE units of that type currently indexed
+     */
+    public int size(UnitType type) {
+        return typeSizes[type.ordinal()];
+    }
+
+    private int bucketOf(int x, int y) {
+        return (y / cellSize) * cols + (x / cellSize);
+    }
+
+    private void insert(int t, int b, Unit unit) {
+        Unit[] bucket = buckets[t][b];
+        int n = bucketSizes[t][b];
+        if (bucket == null) {
+            bucket = new Unit[INITIAL_BUCKET_SIZE];
+            buckets[t][b] = bucket;
+        } else if (n == bucket.length) {
+            bucket = Arrays.copyOf(bucket, n * 2);
+            buckets[t][b] = bucket;
+        }
+        bucket[n] = unit;
+        bucketSizes[t][b] = n + 1;
+        typeSizes[t]++;
+    }
+
+    private void delete(int t, int b, Unit unit) {
+        Unit[] bucket = buckets[t][b];
+        int n = bucketSizes[t][b];
+        for (int i = 0; i < n; i++) {
+            if (bucket[i] == unit) {
+                bucket[i] = bucket[n - 1];
+                bucket[n - 1] = null;
+                bucketSizes[t][b] = n - 1;
+                typeSizes[t]--;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package cityrescue.dispatch;
+
+import cityrescue.model.CityMap;
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+import cityrescue.routing.DistanceField;
+import cityrescue.routing.DistanceFieldCache;
+
+/**
+ * {@link GridUnitSelector} that ranks units by real travel distance around
+ * obstacles instead of Manhattan distance. Units that cannot reach the
+ * incident at all are never chosen.
+ *
+ * <p>Travel distance is never shorter than Manhattan distance, so the grid
+ * ring search still finds the nearest unit; it just has to look a few rings
+ * further on maps with many obstacles.</p>
+ */
+public class PathDistanceUnitSelector extends GridUnitSelector {
+
+    private final DistanceFieldCache fields;
+    private DistanceField current;
+
+    /**
+     * Creates new path distance selector
+     *
+     * @param map       city map to measure distances on
+     * @param cellSize  width and height of one index bucket in grid cells
+     * @param cacheSize number of distance fields to keep cached
+     */
+    public PathDistanceUnitSelector(CityMap map, int cellSize, int cacheSize) {
+        super(map.getWidth(), map.getHeight(), cellSize);
+        this.fields = new DistanceFieldCache(map, cacheSize);
+    }
+
+    @Override
+    public Unit selectUnit(Incident incident) {
+        current = fields.fieldFor(incident.getX(), incident.getY());
+        return super.selectUnit(incident);
+    }
+
+    @Override
+    public int distance(Unit unit, Incident incident) {
+        current = fields.fieldFor(incident.getX(), incident.getY());
+        return current.distanceFrom(unit.getX(), unit.getY());
+    }
+
+    /**
+     * @return shortest path length from the unit to the incident being
+     *         dispatched, or -1 if it cannot get there
+     */
+    @Override
+    protected int distance(Unit unit, int x, int y) {
+        return current.distanceFrom(unit.getX(), unit.getY());
+    }
+
+    /**
+     * @return approximate heap bytes used by the cached distance fields
+     */
+    public long footprintBytes() {
+        return fields.footprintBytes();
+    }
+}
@@ -0,0 +1,99 @@
+package cityrescue.dispatch;
+
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+import cityrescue.model.Incident;
+import cityrescue.model.Unit;
+
+/**
+ * Strategy for choosing which IDLE unit to dispatch to an incident.
+ *
+ * <p>The simulation reports every change to the set of IDLE units through the
+ * notification methods, so implementations can keep an index up to date
+ * incrementally. Whatever the implementation, the chosen unit must be the
+ * capable IDLE unit with the smallest distance, ties broken by lowest unit ID
+ * and then lowest home station ID.</p>
+ */
+public interface UnitSelector {
+
+    /**
+     * Called when a unit becomes IDLE, including when it is first added
+     *
+     * @param unit the unit
+     */
+    void unitAvailable(Unit unit);
+
+    /**
+     * Called when an IDLE unit stops being IDLE or is removed
+     *
+     * @param unit the unit
+     */
+    void unitUnavailable(Unit unit);
+
+    /**
+     * Called after an IDLE unit changed location
+     *
+     * @param unit the unit, already at its new location
+     * @param oldX previous x-Coordinate
+     * @param oldY previous y-Coordinate
+     */
+    void unitMoved(Unit unit, int oldX, int oldY);
+
+    /**
+     * Chooses the unit to send to an incident
+     *
+     * @param incident incident needing a unit
+     * @return the best IDLE unit able to handle the incident, or null if there
+     *         is none
+     */
+    Unit selectUnit(Incident incident);
+
+    /**
+     * Measures how far a unit is from an incident, in the same metric
+     * {@link #selectUnit(Incident)} ranks units by
+     *
+     * @param unit     the unit
+     * @param incident the incident
+     * @return distance to the incident, or -1 if the unit cannot reach it
+     */
+    int distance(Unit unit, Incident incident);
+
+    /**
+     * @param type unit type
+     * @return true if at least one IDLE unit of that type exists
+     */
+    boolean hasAvailable(UnitType type);
+
+    /**
+     * Finds the unit type that handles an incident type
+     *
+     * @param type incident type
+     * @return unit type able to handle it
+     */
+    static UnitType unitTypeFor(IncidentType type) {
+        switch (type) {
+            case MEDICAL:
+                return UnitType.AMBULANCE;
+            case FIRE:
+                return UnitType.FIRE_ENGINE;
+            case CRIME:
+                return UnitType.POLICE_CAR;
+            default:
+                throw new IllegalArgumentException("Unknown IncidentType: " + type);
+        }
+    }
+
+    /**
+     * Compares two candidates that are the same distance away
+     *
+     * @param a first unit
+     * @param b second unit
+     * @return true if a wins the tie-break against b
+     */
+    static boolean winsTie(Unit a, Unit b) {
+        if (a.getUnitId() != b.getUnitId()) {
+            return a.getUnitId() < b.getUnitId();
+        }
+        return a.getHomeStationId() < b.getHomeStationId();
+    }
+}
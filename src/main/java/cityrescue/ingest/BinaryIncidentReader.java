@@ -0,0 +1,90 @@
+package cityrescue.ingest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an incident feed from a binary file written by
+ * {@link BinaryIncidentWriter}: the magic number and version, then one
+ * fixed-width record per incident (tick, type ordinal, severity, x, y),
+ * big-endian. Records are decoded straight from a reused direct buffer.
+ */
+public class BinaryIncidentReader implements IncidentSource {
+
+    /** "CRIF" */
+    static final int MAGIC = 0x43524946;
+    static final int VERSION = 1;
+    /** tick, type, severity, x, y */
+    static final int RECORD_BYTES = 14;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private boolean eof;
+
+    /**
+     * Opens a binary feed and checks its header
+     *
+     * @param file binary feed file
+     * @throws IOException in case of the file failing to open or not being a
+     *                     feed file
+     */
+    public BinaryIncidentReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        try {
+            if (!require(8) || buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not an incident feed.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported incident feed version " + version + ".");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(IncidentBatch batch) throws IOException {
+        int added = 0;
+        while (!batch.isFull() && require(RECORD_BYTES)) {
+            ByteBuffer b = buffer;
+            int n = Math.min(b.remaining() / RECORD_BYTES, batch.capacity() - batch.size());
+            for (int i = 0; i < n; i++) {
+                batch.add(b.getInt(), b.get(), b.get(), b.getInt(), b.getInt());
+            }
+            added += n;
+        }
+        return added;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (!eof && buffer.position() < bytes) {
+            eof = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (buffer.hasRemaining()) {
+            throw new EOFException("Incident feed ends inside a record.");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+package cityrescue.ingest;
+
+import cityrescue.enums.IncidentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes incident feeds in the binary format read by
+ * {@link BinaryIncidentReader}, e.g. to convert a CSV log once and read it
+ * faster afterwards.
+ */
+public class BinaryIncidentWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /**
+     * Creates new feed file, replacing any existing file
+     *
+     * @param file feed file
+     * @throws IOException in case of the file failing to open
+     */
+    public BinaryIncidentWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(BinaryIncidentReader.MAGIC).putInt(BinaryIncidentReader.VERSION);
+    }
+
+    /**
+     * Appends one incident
+     *
+     * @param tick     tick the incident is reported at
+     * @param type     type of incident
+     * @param severity severity of incident
+     * @param x        x-Coordinate of incident
+     * @param y        y-Coordinate of incident
+     * @throws IOException in case of the file failing
+     */
+    public void write(int tick, IncidentType type, int severity, int x, int y) throws IOException {
+        if (buffer.remaining() < BinaryIncidentReader.RECORD_BYTES) {
+            flush();
+        }
+        buffer.putInt(tick).put((byte) type.ordinal()).put((byte) severity).putInt(x).putInt(y);
+    }
+
+    /**
+     * Appends every incident read from another feed, e.g. a CSV file
+     *
+     * @param source feed to copy
+     * @return number of incidents copied
+     * @throws IOException in case of either file failing
+     */
+    public long writeAll(IncidentSource source) throws IOException {
+        IncidentBatch batch = new IncidentBatch(4096);
+        long count = 0;
+        while (source.read(batch) > 0) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (buffer.remaining() < BinaryIncidentReader.RECORD_BYTES) {
+                    flush();
+                }
+                buffer.putInt(batch.ticks[i]).put(batch.types[i]).put(batch.severities[i]).putInt(batch.xs[i])
+                        .putInt(batch.ys[i]);
+            }
+            count += batch.size();
+            batch.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Flushes the last records and closes the file
+     *
+     * @throws IOException in case of the file failing
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
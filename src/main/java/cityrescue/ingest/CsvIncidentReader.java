@@ -0,0 +1,207 @@
+package cityrescue.ingest;
+
+import cityrescue.enums.IncidentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an incident feed from a CSV file with one incident per line,
+ * {@code tick,type,severity,x,y}, e.g. {@code 12,FIRE,3,40,17}.
+ *
+ * <p>The type is an {@link IncidentType} name in any case. Blank lines, lines
+ * starting with {@code #} and a header on the first line are skipped. The
+ * file is read through a FileChannel into one reused buffer and parsed from
+ * the bytes, so no String or other object is made per line. A line that
+ * cannot be parsed fails the read; an unknown type is passed on as -1 for the
+ * ingestor to reject.</p>
+ */
+public class CsvIncidentReader implements IncidentSource {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final byte[][] TYPE_NAMES = typeNames();
+
+    private final FileChannel channel;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private final ByteBuffer window = ByteBuffer.wrap(buf);
+    private final int[] fieldBounds = new int[10];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private long line;
+
+    /**
+     * Opens a CSV feed
+     *
+     * @param file CSV file
+     * @throws IOException in case of the file failing to open
+     */
+    public CsvIncidentReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @Override
+    public int read(IncidentBatch batch) throws IOException {
+        int added = 0;
+        while (!batch.isFull()) {
+            int end = indexOf('\n');
+            if (end < 0) {
+                if (!eof) {
+                    fill();
+                    continue;
+                }
+                if (pos == limit) {
+                    break;
+                }
+                end = limit;
+            }
+            line++;
+            if (parseLine(pos, end, batch)) {
+                added++;
+            }
+            pos = Math.min(end + 1, limit);
+        }
+        return added;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOf(char c) {
+        for (int i = pos; i < limit; i++) {
+            if (buf[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        if (pos == 0 && limit == buf.length) {
+            throw new IOException("Line " + (line + 1) + " is longer than " + BUFFER_BYTES + " bytes.");
+        }
+        System.arraycopy(buf, pos, buf, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        window.limit(buf.length).position(limit);
+        int n = channel.read(window);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    private boolean parseLine(int from, int to, IncidentBatch batch) throws IOException {
+        if (to > from && buf[to - 1] == '\r') {
+            to--;
+        }
+        from = skipSpaces(from, to);
+        if (from == to || buf[from] == '#') {
+            return false;
+        }
+        if (line == 1 && buf[from] != '-' && (buf[from] < '0' || buf[from] > '9')) {
+            return false;
+        }
+        int[] bounds = fieldBounds;
+        int fields = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buf[i] == ',') {
+                if (fields == 5) {
+                    throw malformed("more than 5 fields");
+                }
+                bounds[2 * fields] = start;
+                bounds[2 * fields + 1] = i;
+                fields++;
+                start = i + 1;
+            }
+        }
+        if (fields != 5) {
+            throw malformed("expected 5 fields, found " + fields);
+        }
+        int tick = parseInt(bounds[0], bounds[1], "tick");
+        int type = parseType(bounds[2], bounds[3]);
+        int severity = parseInt(bounds[4], bounds[5], "severity");
+        int x = parseInt(bounds[6], bounds[7], "x");
+        int y = parseInt(bounds[8], bounds[9], "y");
+        batch.add(tick, type, severity, x, y);
+        return true;
+    }
+
+    private int parseInt(int from, int to, String field) throws IOException {
+        from = skipSpaces(from, to);
+        while (to > from && buf[to - 1] == ' ') {
+            to--;
+        }
+        boolean negative = from < to && buf[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to || to - from > 10) {
+            throw malformed("bad " + field);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                throw malformed("bad " + field);
+            }
+            value = value * 10 + d;
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw malformed(field + " out of range");
+        }
+        return (int) value;
+    }
+
+    private int parseType(int from, int to) {
+        from = skipSpaces(from, to);
+        while (to > from && buf[to - 1] == ' ') {
+            to--;
+        }
+        for (int t = 0; t < TYPE_NAMES.length; t++) {
+            byte[] name = TYPE_NAMES[t];
+            if (name.length != to - from) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length && (buf[from + i] & ~0x20) == name[i]) {
+                i++;
+            }
+            if (i == name.length) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int from, int to) {
+        while (from < to && buf[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private IOException malformed(String problem) {
+        return new IOException("Line " + line + ": " + problem + ".");
+    }
+
+    private static byte[][] typeNames() {
+        IncidentType[] types = IncidentType.values();
+        byte[][] names = new byte[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = types[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,109 @@
+package cityrescue.ingest;
+
+/**
+ * Fixed-size block of incident rows held as primitive columns, one array per
+ * field, so reading and handing over a feed costs no object per row. Batches
+ * are reused once injected.
+ */
+public final class IncidentBatch {
+
+    final int[] ticks;
+    final byte[] types;
+    final byte[] severities;
+    final int[] xs;
+    final int[] ys;
+    int size;
+    boolean last;
+
+    /**
+     * Creates new empty batch
+     *
+     * @param capacity number of rows the batch can hold
+     */
+    public IncidentBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        ticks = new int[capacity];
+        types = new byte[capacity];
+        severities = new byte[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+    }
+
+    /**
+     * @return number of rows held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of rows the batch can hold
+     */
+    public int capacity() {
+        return ticks.length;
+    }
+
+    /**
+     * @return true if no more rows fit
+     */
+    public boolean isFull() {
+        return size == ticks.length;
+    }
+
+    /**
+     * Adds a row
+     *
+     * @param tick     tick the incident is reported at
+     * @param type     ordinal of the incident type, or -1 if unknown
+     * @param severity severity of incident
+     * @param x        x-Coordinate of incident
+     * @param y        y-Coordinate of incident
+     */
+    public void add(int tick, int type, int severity, int x, int y) {
+        ticks[size] = tick;
+        types[size] = (byte) type;
+        severities[size] = (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, severity));
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    /**
+     * @param row row index
+     * @return tick the incident is reported at
+     */
+    public int getTick(int row) {
+        return ticks[row];
+    }
+
+    void clear() {
+        size = 0;
+        last = false;
+    }
+
+    int retainValid(int width, int height, int typeCount) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (isValid(i, width, height, typeCount)) {
+                if (kept != i) {
+                    ticks[kept] = ticks[i];
+                    types[kept] = types[i];
+                    severities[kept] = severities[i];
+                    xs[kept] = xs[i];
+                    ys[kept] = ys[i];
+                }
+                kept++;
+            }
+        }
+        int dropped = size - kept;
+        size = kept;
+        return dropped;
+    }
+
+    private boolean isValid(int i, int width, int height, int typeCount) {
+        return ticks[i] >= 0 && types[i] >= 0 && types[i] < typeCount && severities[i] >= 1 && severities[i] <= 5
+                && xs[i] >= 0 && xs[i] < width && ys[i] >= 0 && ys[i] < height;
+    }
+}
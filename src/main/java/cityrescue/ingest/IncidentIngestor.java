@@ -0,0 +1,211 @@
+package cityrescue.ingest;
+
+import cityrescue.CityRescue;
+import cityrescue.enums.IncidentType;
+import cityrescue.exceptions.InvalidLocationException;
+import cityrescue.exceptions.InvalidSeverityException;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams an {@link IncidentSource} into a simulation, reporting each
+ * incident at the tick it is scheduled for.
+ *
+ * <p>A background thread reads the feed a batch at a time, drops rows that
+ * break the rules {@link CityRescue#reportIncident} checks without looking at
+ * the map (unknown type, severity outside 1-5, location out of bounds) and
+ * queues the batch. The queue holds a fixed number of batches, so the reader
+ * waits once it is that far ahead and a feed of any size is read in constant
+ * memory; injected batches are reused. Incidents on blocked cells are
+ * rejected when they are injected, as the map may change in between.</p>
+ *
+ * <p>Typical use, once per tick:</p>
+ *
+ * <pre>
+ * ingestor.injectDue(cr, cr.getCurrentTick());
+ * cr.dispatch();
+ * cr.tick();
+ * </pre>
+ *
+ * <p>Apart from {@link #close()} the methods are for the simulation thread
+ * only.</p>
+ */
+public class IncidentIngestor implements AutoCloseable {
+
+    /** Default rows per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    /** Default number of batches read ahead. */
+    public static final int DEFAULT_BUFFERED_BATCHES = 16;
+
+    private static final IncidentType[] TYPES = IncidentType.values();
+
+    private final IncidentSource source;
+    private final int width;
+    private final int height;
+    private final BlockingQueue<IncidentBatch> ready;
+    private final BlockingQueue<IncidentBatch> free;
+    private final Thread reader;
+    private final AtomicLong invalid = new AtomicLong();
+    private volatile IOException failure;
+    private IncidentBatch current;
+    private int row;
+    private boolean finished;
+    private long injected;
+    private long blocked;
+
+    /**
+     * Starts reading a feed with the default buffer sizes
+     *
+     * @param source feed to read; closed by {@link #close()}
+     * @param width  width of the simulation's map
+     * @param height height of the simulation's map
+     */
+    public IncidentIngestor(IncidentSource source, int width, int height) {
+        this(source, width, height, DEFAULT_BATCH_SIZE, DEFAULT_BUFFERED_BATCHES);
+    }
+
+    /**
+     * Starts reading a feed
+     *
+     * @param source          feed to read; closed by {@link #close()}
+     * @param width           width of the simulation's map
+     * @param height          height of the simulation's map
+     * @param batchSize       rows per batch
+     * @param bufferedBatches number of batches the reader may be ahead
+     */
+    public IncidentIngestor(IncidentSource source, int width, int height, int batchSize, int bufferedBatches) {
+        if (batchSize <= 0 || bufferedBatches <= 0) {
+            throw new IllegalArgumentException("Batch size and buffered batches must be positive.");
+        }
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        ready = new ArrayBlockingQueue<>(bufferedBatches + 1);
+        free = new ArrayBlockingQueue<>(bufferedBatches + 1);
+        for (int i = 0; i <= bufferedBatches; i++) {
+            free.add(new IncidentBatch(batchSize));
+        }
+        reader = new Thread(this::readAll, "cityrescue-ingest");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Reports every incident scheduled at or before a tick that has not been
+     * reported yet, waiting for the reader if it is behind
+     *
+     * @param target simulation to report to
+     * @param tick   current tick of the simulation
+     * @return number of incidents reported
+     * @throws IOException in case of the feed failing or being malformed
+     */
+    public int injectDue(CityRescue target, int tick) throws IOException {
+        int count = 0;
+        while (advance()) {
+            IncidentBatch b = current;
+            if (b.ticks[row] > tick) {
+                break;
+            }
+            try {
+                target.reportIncident(TYPES[b.types[row]], b.severities[row], b.xs[row], b.ys[row]);
+                count++;
+            } catch (InvalidLocationException | InvalidSeverityException e) {
+                blocked++;
+            }
+            row++;
+        }
+        injected += count;
+        return count;
+    }
+
+    /**
+     * @return tick of the next incident to report, or -1 once the feed is
+     *         used up, waiting for the reader if it is behind
+     * @throws IOException in case of the feed failing or being malformed
+     */
+    public int nextTick() throws IOException {
+        return advance() ? current.ticks[row] : -1;
+    }
+
+    /**
+     * @return number of incidents reported so far
+     */
+    public long getInjectedCount() {
+        return injected;
+    }
+
+    /**
+     * @return number of rows dropped so far for breaking a reporting rule
+     */
+    public long getRejectedCount() {
+        return invalid.get() + blocked;
+    }
+
+    /**
+     * Stops the reader and closes the feed
+     *
+     * @throws IOException in case of the feed failing to close
+     */
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    private boolean advance() throws IOException {
+        while (current == null || row == current.size) {
+            if (current != null) {
+                boolean last = current.last;
+                free.add(current);
+                current = null;
+                finished = last;
+            }
+            if (finished) {
+                if (failure != null) {
+                    throw new IOException("Reading the incident feed failed: " + failure.getMessage(), failure);
+                }
+                return false;
+            }
+            try {
+                current = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the incident feed.", e);
+            }
+            row = 0;
+        }
+        return true;
+    }
+
+    private void readAll() {
+        try {
+            while (true) {
+                IncidentBatch batch = free.take();
+                batch.clear();
+                try {
+                    source.read(batch);
+                    batch.last = !batch.isFull();
+                    invalid.addAndGet(batch.retainValid(width, height, TYPES.length));
+                } catch (IOException e) {
+                    failure = e;
+                    batch.clear();
+                    batch.last = true;
+                }
+                ready.put(batch);
+                if (batch.last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package cityrescue.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Feed of incident rows (tick, type, severity, x, y), read a batch at a time.
+ * Rows are expected in tick order.
+ */
+public interface IncidentSource extends Closeable {
+
+    /**
+     * Appends rows to a batch until it is full or the feed ends
+     *
+     * @param batch batch to fill
+     * @return number of rows added, 0 once the feed has ended
+     * @throws IOException in case of the feed failing or being malformed
+     */
+    int read(IncidentBatch batch) throws IOException;
+}
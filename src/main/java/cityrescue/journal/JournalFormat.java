@@ -0,0 +1,55 @@
+package cityrescue.journal;
+
+/**
+ * Layout of the journal files written by {@link JournalWriter}.
+ *
+ * <p>A journal starts with the magic number and version, followed by one
+ * record per successful mutation. A record is a one-byte opcode and the
+ * arguments of the call, big-endian; calls that create an entity also store
+ * the ID they returned, so a replay can check it rebuilds the same IDs.
+ * Records may span the writer's segments.</p>
+ */
+final class JournalFormat {
+
+    /** "CRJN" */
+    static final int MAGIC = 0x43524A4E;
+    /** 2 added the batch cutoff to DISPATCH */
+    static final int VERSION = 2;
+
+    /** width, height */
+    static final byte INITIALISE = 1;
+    /** x, y */
+    static final byte ADD_OBSTACLE = 2;
+    /** x, y */
+    static final byte REMOVE_OBSTACLE = 3;
+    /** id, x, y, name length, then the name as UTF-8 */
+    static final byte ADD_STATION = 4;
+    /** id */
+    static final byte REMOVE_STATION = 5;
+    /** id, max units */
+    static final byte SET_STATION_CAPACITY = 6;
+    /** id, station id, type */
+    static final byte ADD_UNIT = 7;
+    /** id */
+    static final byte DECOMMISSION_UNIT = 8;
+    /** id, station id */
+    static final byte TRANSFER_UNIT = 9;
+    /** id, out of service flag */
+    static final byte SET_UNIT_OUT_OF_SERVICE = 10;
+    /** id, type, severity, x, y */
+    static final byte REPORT_INCIDENT = 11;
+    /** id */
+    static final byte CANCEL_INCIDENT = 12;
+    /** id, severity */
+    static final byte ESCALATE_INCIDENT = 13;
+    /**
+     * number of batches solved before the time budget ran out, -1 if none
+     * ran out; no arguments in version 1
+     */
+    static final byte DISPATCH = 14;
+    /** no arguments */
+    static final byte TICK = 15;
+
+    private JournalFormat() {
+    }
+}
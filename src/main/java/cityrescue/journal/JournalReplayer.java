@@ -0,0 +1,237 @@
+package cityrescue.journal;
+
+import cityrescue.CityRescue;
+import cityrescue.CityRescueImpl;
+import cityrescue.enums.IncidentType;
+import cityrescue.enums.UnitType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays a journal written through {@link JournalingCityRescue} back into a
+ * simulation. Every recorded call succeeded when it was made, so a call that
+ * throws, or an ID that differs from the recorded one, means the replay has
+ * diverged and stops it.
+ *
+ * <p>A dispatch in batch mode gives up on the clock, so it is repeated with
+ * {@link CityRescueImpl#dispatch(int)} to give up at the same batch. A
+ * recorded give-up can only be replayed into a {@link CityRescueImpl}.</p>
+ */
+public final class JournalReplayer {
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+    private static final IncidentType[] INCIDENT_TYPES = IncidentType.values();
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private JournalReplayer() {
+    }
+
+    /**
+     * Replays a whole journal
+     *
+     * @param file   journal file
+     * @param target simulation to replay into
+     * @return number of calls replayed
+     * @throws IOException in case of the file failing, being truncated or not
+     *                     being a journal, or the replay diverging
+     */
+    public static long replay(Path file, CityRescue target) throws IOException {
+        return replay(file, target, Long.MAX_VALUE);
+    }
+
+    /**
+     * Replays the start of a journal, to look at the state some way into a
+     * run
+     *
+     * @param file     journal file
+     * @param target   simulation to replay into
+     * @param maxCalls number of calls to replay at most
+     * @return number of calls replayed
+     * @throws IOException in case of the file failing, being truncated or not
+     *                     being a journal, or the replay diverging
+     */
+    public static long replay(Path file, CityRescue target, long maxCalls) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            if (!in.more()) {
+                throw new IOException(file + " is empty.");
+            }
+            ByteBuffer b = in.require(8);
+            if (b.getInt() != JournalFormat.MAGIC) {
+                throw new IOException(file + " is not a journal file.");
+            }
+            int version = b.getInt();
+            if (version < 1 || version > JournalFormat.VERSION) {
+                throw new IOException("Unsupported journal version " + version + ".");
+            }
+            long calls = 0;
+            while (calls < maxCalls && in.more()) {
+                try {
+                    apply(in, target, version);
+                } catch (IOException e) {
+                    throw new IOException("Replay failed at call " + (calls + 1) + ": " + e.getMessage(), e);
+                } catch (Exception e) {
+                    throw new IOException("Replay diverged at call " + (calls + 1) + ": " + e, e);
+                }
+                calls++;
+            }
+            return calls;
+        }
+    }
+
+    private static void apply(Reader in, CityRescue target, int version) throws Exception {
+        byte op = in.require(1).get();
+        ByteBuffer b;
+        switch (op) {
+            case JournalFormat.INITIALISE:
+                b = in.require(8);
+                target.initialise(b.getInt(), b.getInt());
+                break;
+            case JournalFormat.ADD_OBSTACLE:
+                b = in.require(8);
+                target.addObstacle(b.getInt(), b.getInt());
+                break;
+            case JournalFormat.REMOVE_OBSTACLE:
+                b = in.require(8);
+                target.removeObstacle(b.getInt(), b.getInt());
+                break;
+            case JournalFormat.ADD_STATION: {
+                b = in.require(16);
+                int id = b.getInt();
+                int x = b.getInt();
+                int y = b.getInt();
+                int length = b.getInt();
+                if (length < 0) {
+                    throw new IOException("Bad station name length " + length + ".");
+                }
+                String name = new String(in.getBytes(length), StandardCharsets.UTF_8);
+                expect("station", id, target.addStation(name, x, y));
+                break;
+            }
+            case JournalFormat.REMOVE_STATION:
+                target.removeStation(in.require(4).getInt());
+                break;
+            case JournalFormat.SET_STATION_CAPACITY:
+                b = in.require(8);
+                target.setStationCapacity(b.getInt(), b.getInt());
+                break;
+            case JournalFormat.ADD_UNIT: {
+                b = in.require(9);
+                int id = b.getInt();
+                int station = b.getInt();
+                expect("unit", id, target.addUnit(station, UNIT_TYPES[b.get()]));
+                break;
+            }
+            case JournalFormat.DECOMMISSION_UNIT:
+                target.decommissionUnit(in.require(4).getInt());
+                break;
+            case JournalFormat.TRANSFER_UNIT:
+                b = in.require(8);
+                target.transferUnit(b.getInt(), b.getInt());
+                break;
+            case JournalFormat.SET_UNIT_OUT_OF_SERVICE:
+                b = in.require(5);
+                target.setUnitOutOfService(b.getInt(), b.get() != 0);
+                break;
+            case JournalFormat.REPORT_INCIDENT: {
+                b = in.require(14);
+                int id = b.getInt();
+                IncidentType type = INCIDENT_TYPES[b.get()];
+                int severity = b.get();
+                int x = b.getInt();
+                int y = b.getInt();
+                expect("incident", id, target.reportIncident(type, severity, x, y));
+                break;
+            }
+            case JournalFormat.CANCEL_INCIDENT:
+                target.cancelIncident(in.require(4).getInt());
+                break;
+            case JournalFormat.ESCALATE_INCIDENT:
+                b = in.require(5);
+                target.escalateIncident(b.getInt(), b.get());
+                break;
+            case JournalFormat.DISPATCH: {
+                int cutoff = version >= 2 ? in.require(4).getInt() : -1;
+                if (target instanceof CityRescueImpl) {
+                    ((CityRescueImpl) target).dispatch(cutoff);
+                } else if (cutoff >= 0) {
+                    throw new IllegalStateException("recorded batch give-up after " + cutoff
+                            + " batches needs a CityRescueImpl to replay");
+                } else {
+                    target.dispatch();
+                }
+                break;
+            }
+            case JournalFormat.TICK:
+                target.tick();
+                break;
+            default:
+                throw new IOException("Unknown opcode " + op + ".");
+        }
+    }
+
+    private static void expect(String what, int recorded, int replayed) {
+        if (recorded != replayed) {
+            throw new IllegalStateException("recorded " + what + " ID " + recorded + ", replay gave " + replayed);
+        }
+    }
+
+    /**
+     * Buffered reader; {@link #require(int)} makes sure a whole record part is
+     * in the buffer before it is decoded
+     */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private boolean eof;
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        boolean more() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            buffer.clear();
+            int n = channel.read(buffer);
+            buffer.flip();
+            eof = n < 0;
+            return n > 0;
+        }
+
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("Journal is truncated.");
+                    }
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+
+        byte[] getBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int off = 0;
+            while (off < length) {
+                int n = Math.min(BUFFER_BYTES, length - off);
+                require(n).get(bytes, off, n);
+                off += n;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package cityrescue.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Append-only journal file fed through a ring of buffers.
+ *
+ * <p>Records are written into the current segment, a direct buffer. A full
+ * segment is handed to a background thread that writes it to the file and
+ * returns it to the ring, so the caller only ever copies a few bytes unless
+ * every segment is waiting to be written. A failed write is reported by a
+ * later call.</p>
+ *
+ * <p>Only one thread may write records at a time.</p>
+ */
+public class JournalWriter implements AutoCloseable {
+
+    /** Default bytes per segment. */
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 16;
+    /** Default number of segments in the ring. */
+    public static final int DEFAULT_SEGMENTS = 8;
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> full;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread flusher;
+    private final Object progress = new Object();
+    private ByteBuffer current;
+    private long handedOff;
+    private long written;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Creates new journal with the default ring size, replacing any existing
+     * file
+     *
+     * @param file journal file
+     * @throws IOException in case of the file failing to open
+     */
+    public JournalWriter(Path file) throws IOException {
+        this(file, DEFAULT_SEGMENT_BYTES, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Creates new journal, replacing any existing file
+     *
+     * @param file         journal file
+     * @param segmentBytes bytes per segment, at least 64
+     * @param segments     number of segments in the ring, at least 2
+     * @throws IOException in case of the file failing to open
+     */
+    public JournalWriter(Path file, int segmentBytes, int segments) throws IOException {
+        if (segmentBytes < 64 || segments < 2) {
+            throw new IllegalArgumentException("Need at least 2 segments of 64 bytes.");
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        full = new ArrayBlockingQueue<>(segments + 1);
+        free = new ArrayBlockingQueue<>(segments);
+        for (int i = 1; i < segments; i++) {
+            free.add(ByteBuffer.allocateDirect(segmentBytes));
+        }
+        current = ByteBuffer.allocateDirect(segmentBytes);
+        current.putInt(JournalFormat.MAGIC).putInt(JournalFormat.VERSION);
+        flusher = new Thread(this::drain, "cityrescue-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    ByteBuffer reserve(int bytes) {
+        if (current.remaining() < bytes) {
+            handOff();
+        }
+        return current;
+    }
+
+    void putBytes(byte[] bytes) {
+        int off = 0;
+        while (off < bytes.length) {
+            if (!current.hasRemaining()) {
+                handOff();
+            }
+            int n = Math.min(current.remaining(), bytes.length - off);
+            current.put(bytes, off, n);
+            off += n;
+        }
+    }
+
+    /**
+     * Waits until every record so far is written to the file
+     *
+     * @throws IOException in case of a write failing
+     */
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (current.position() > 0) {
+                handOff();
+            }
+            synchronized (progress) {
+                while (written < handedOff && failure == null) {
+                    progress.wait();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing journal.", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Flushes the journal, stops the background thread and closes the file
+     *
+     * @throws IOException in case of a write failing
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            current = END;
+            full.add(END);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private void handOff() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+        current.flip();
+        full.add(current);
+        handedOff++;
+        try {
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal.", e);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer segment;
+            try {
+                segment = full.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (segment == END) {
+                return;
+            }
+            try {
+                if (failure == null) {
+                    while (segment.hasRemaining()) {
+                        channel.write(segment);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            segment.clear();
+            free.add(segment);
+            synchronized (progress) {
+                written++;
+                progress.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package cityrescue.journal;
+
+import cityrescue.CityRescue;
+import cityrescue.CityRescueImpl;
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CityRescue} that records every successful mutation of another
+ * simulation in a {@link JournalWriter}, so {@link JournalReplayer} can build
+ * the same state again. Calls that throw are not recorded, and queries are
+ * passed straight through. A dispatch also records at which batch a
+ * {@link CityRescueImpl} in batch mode ran out of time, as the replay cannot
+ * rely on the clock.
+ *
+ * <p>The journal should be started before {@link #initialise(int, int)}, as a
+ * replay starts from an empty simulation. Like {@link cityrescue.CityRescueImpl}
+ * this class is for one thread at a time.</p>
+ */
+public class JournalingCityRescue implements CityRescue {
+
+    private final CityRescue delegate;
+    private final JournalWriter journal;
+
+    /**
+     * Creates new journaling simulation
+     *
+     * @param delegate simulation the calls are passed to
+     * @param journal  journal the mutations are recorded in
+     */
+    public JournalingCityRescue(CityRescue delegate, JournalWriter journal) {
+        if (delegate == null || journal == null) {
+            throw new IllegalArgumentException("Delegate and journal must not be null.");
+        }
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    /**
+     * @return simulation the calls are passed to
+     */
+    public CityRescue getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return journal the mutations are recorded in
+     */
+    public JournalWriter getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void initialise(int width, int height) throws InvalidGridException {
+        delegate.initialise(width, height);
+        journal.reserve(9).put(JournalFormat.INITIALISE).putInt(width).putInt(height);
+    }
+
+    @Override
+    public int[] getGridSize() {
+        return delegate.getGridSize();
+    }
+
+    @Override
+    public void addObstacle(int x, int y) throws InvalidLocationException {
+        delegate.addObstacle(x, y);
+        journal.reserve(9).put(JournalFormat.ADD_OBSTACLE).putInt(x).putInt(y);
+    }
+
+    @Override
+    public void removeObstacle(int x, int y) throws InvalidLocationException {
+        delegate.removeObstacle(x, y);
+        journal.reserve(9).put(JournalFormat.REMOVE_OBSTACLE).putInt(x).putInt(y);
+    }
+
+    @Override
+    public int addStation(String name, int x, int y) throws InvalidNameException, InvalidLocationException {
+        int id = delegate.addStation(name, x, y);
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        journal.reserve(17).put(JournalFormat.ADD_STATION).putInt(id).putInt(x).putInt(y).putInt(bytes.length);
+        journal.putBytes(bytes);
+        return id;
+    }
+
+    @Override
+    public void removeStation(int stationId) throws IDNotRecognisedException, IllegalStateException {
+        delegate.removeStation(stationId);
+        journal.reserve(5).put(JournalFormat.REMOVE_STATION).putInt(stationId);
+    }
+
+    @Override
+    public void setStationCapacity(int stationId, int maxUnits)
+            throws IDNotRecognisedException, InvalidCapacityException {
+        delegate.setStationCapacity(stationId, maxUnits);
+        journal.reserve(9).put(JournalFormat.SET_STATION_CAPACITY).putInt(stationId).putInt(maxUnits);
+    }
+
+    @Override
+    public int[] getStationIds() {
+        return delegate.getStationIds();
+    }
+
+    @Override
+    public int addUnit(int stationId, UnitType type)
+            throws IDNotRecognisedException, InvalidUnitException, IllegalStateException {
+        int id = delegate.addUnit(stationId, type);
+        journal.reserve(10).put(JournalFormat.ADD_UNIT).putInt(id).putInt(stationId).put((byte) type.ordinal());
+        return id;
+    }
+
+    @Override
+    public void decommissionUnit(int unitId) throws IDNotRecognisedException, IllegalStateException {
+        delegate.decommissionUnit(unitId);
+        journal.reserve(5).put(JournalFormat.DECOMMISSION_UNIT).putInt(unitId);
+    }
+
+    @Override
+    public void transferUnit(int unitId, int newStationId) throws IDNotRecognisedException, IllegalStateException {
+        delegate.transferUnit(unitId, newStationId);
+        journal.reserve(9).put(JournalFormat.TRANSFER_UNIT).putInt(unitId).putInt(newStationId);
+    }
+
+    @Override
+    public void setUnitOutOfService(int unitId, boolean outOfService)
+            throws IDNotRecognisedException, IllegalStateException {
+        delegate.setUnitOutOfService(unitId, outOfService);
+        journal.reserve(6).put(JournalFormat.SET_UNIT_OUT_OF_SERVICE).putInt(unitId)
+                .put((byte) (outOfService ? 1 : 0));
+    }
+
+    @Override
+    public int[] getUnitIds() {
+        return delegate.getUnitIds();
+    }
+
+    @Override
+    public String viewUnit(int unitId) throws IDNotRecognisedException {
+        return delegate.viewUnit(unitId);
+    }
+
+    @Override
+    public int reportIncident(IncidentType type, int severity, int x, int y)
+            throws InvalidSeverityException, InvalidLocationException {
+        int id = delegate.reportIncident(type, severity, x, y);
+        ByteBuffer b = journal.reserve(15);
+        b.put(JournalFormat.REPORT_INCIDENT).putInt(id).put((byte) type.ordinal()).put((byte) severity);
+        b.putInt(x).putInt(y);
+        return id;
+    }
+
+    @Override
+    public void cancelIncident(int incidentId) throws IDNotRecognisedException, IllegalStateException {
+        delegate.cancelIncident(incidentId);
+        journal.reserve(5).put(JournalFormat.CANCEL_INCIDENT).putInt(incidentId);
+    }
+
+    @Override
+    public void escalateIncident(int incidentId, int newSeverity)
+            throws IDNotRecognisedException, InvalidSeverityException, IllegalStateException {
+        delegate.escalateIncident(incidentId, newSeverity);
+        journal.reserve(6).put(JournalFormat.ESCALATE_INCIDENT).putInt(incidentId).put((byte) newSeverity);
+    }
+
+    @Override
+    public int[] getIncidentIds() {
+        return delegate.getIncidentIds();
+    }
+
+    @Override
+    public String viewIncident(int incidentId) throws IDNotRecognisedException {
+        return delegate.viewIncident(incidentId);
+    }
+
+    @Override
+    public void dispatch() {
+        delegate.dispatch();
+        int cutoff = delegate instanceof CityRescueImpl ? ((CityRescueImpl) delegate).getLastBatchCutoff() : -1;
+        journal.reserve(5).put(JournalFormat.DISPATCH).putInt(cutoff);
+    }
+
+    @Override
+    public void tick() {
+        delegate.tick();
+        journal.reserve(1).put(JournalFormat.TICK);
+    }
+
+    @Override
+    public String getStatus() {
+        return delegate.getStatus();
+    }
+}
@@ -0,0 +1,6 @@
+package cityrescue.metrics;
+
+/**
+ * Events counted by a {@link MetricsRegistry}.
+ */
+public enum Counter { INCIDENTS_REPORTED, UNITS_DISPATCHED, INCIDENTS_RESOLVED, INCIDENTS_CANCELLED, TICKS }
@@ -0,0 +1,7 @@
+package cityrescue.metrics;
+
+/**
+ * Queue depths sampled by a {@link MetricsRegistry} at the end of every
+ * dispatch and tick.
+ */
+public enum Gauge { PENDING_INCIDENTS, UNITS_EN_ROUTE, UNITS_AT_SCENE }
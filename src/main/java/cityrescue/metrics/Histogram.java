@@ -0,0 +1,94 @@
+package cityrescue.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values with fixed log-linear buckets, in the
+ * style of HdrHistogram.
+ *
+ * <p>Values below 32 get a bucket each; above that every power of two is
+ * split into 32 equal buckets, so a recorded value is known to within about
+ * 3%. All buckets are allocated up front and recording only increments a few
+ * atomic counters, so it never allocates and is safe from any thread.</p>
+ */
+public class Histogram {
+
+    static final int SUB_BITS = 5;
+    static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(-1);
+
+    /**
+     * Records one value
+     *
+     * @param value value to record; negative values are counted as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        long m = min.get();
+        while (value < m && !min.compareAndSet(m, value)) {
+            m = min.get();
+        }
+        m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Forgets every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(-1);
+    }
+
+    /**
+     * Copies the histogram. Values recorded while the copy is taken may be
+     * partly included
+     *
+     * @return copy of the recorded values
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long lo = min.get();
+        return new HistogramSnapshot(copy, count, sum.sum(), lo == Long.MAX_VALUE ? 0 : lo, Math.max(max.get(), 0));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BITS) - 1;
+        long low = ((long) (SUB_COUNT + (bucket & (SUB_COUNT - 1)))) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,79 @@
+package cityrescue.metrics;
+
+/**
+ * Immutable copy of a {@link Histogram}.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return sum of the values recorded
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return smallest value recorded, or 0 if there are none
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest value recorded, or 0 if there are none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return mean of the values recorded, or 0 if there are none
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile percentile, 0-100
+     * @return value that the given share of recorded values are at or below,
+     *         to within the bucket precision, or 0 if there are none
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be 0-100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(Math.max(Histogram.highestValueIn(i), min), max);
+            }
+        }
+        return max;
+    }
+}
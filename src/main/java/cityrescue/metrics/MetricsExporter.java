@@ -0,0 +1,92 @@
+package cityrescue.metrics;
+
+import cityrescue.enums.IncidentType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Writes a {@link MetricsSnapshot} as plain text, one metric per line in the
+ * Prometheus text format, e.g.
+ *
+ * <pre>
+ * cityrescue_units_dispatched_total 1200
+ * cityrescue_timer_nanos{timer="tick_move",quantile="0.99"} 48127
+ * cityrescue_response_ticks{type="fire",stage="dispatch_to_arrival",quantile="0.5"} 7
+ * </pre>
+ *
+ * Histograms are written as summaries with the 50th, 90th, 99th and 99.9th
+ * percentiles, the maximum, the count and the sum.
+ */
+public final class MetricsExporter {
+
+    private static final String PREFIX = "cityrescue_";
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * @param snapshot metrics to write
+     * @return the metrics as text
+     */
+    public static String toText(MetricsSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(8192);
+        try {
+            writeText(snapshot, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param snapshot metrics to write
+     * @param out      where to write them
+     * @throws IOException in case the sink fails
+     */
+    public static void writeText(MetricsSnapshot snapshot, Appendable out) throws IOException {
+        for (Counter c : Counter.values()) {
+            String name = PREFIX + lower(c) + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(Long.toString(snapshot.getCount(c))).append('\n');
+        }
+        for (Gauge g : Gauge.values()) {
+            String name = PREFIX + lower(g);
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(Long.toString(snapshot.getGauge(g))).append('\n');
+        }
+        String timerName = PREFIX + "timer_nanos";
+        out.append("# TYPE ").append(timerName).append(" summary\n");
+        for (Timer t : Timer.values()) {
+            writeSummary(out, timerName, "timer=\"" + lower(t) + "\"", snapshot.getTimer(t));
+        }
+        String responseName = PREFIX + "response_ticks";
+        out.append("# TYPE ").append(responseName).append(" summary\n");
+        for (IncidentType type : IncidentType.values()) {
+            for (ResponseStage stage : ResponseStage.values()) {
+                writeSummary(out, responseName, "type=\"" + lower(type) + "\",stage=\"" + lower(stage) + "\"",
+                        snapshot.getResponse(type, stage));
+            }
+        }
+    }
+
+    private static void writeSummary(Appendable out, String name, String labels, HistogramSnapshot h)
+            throws IOException {
+        for (double q : QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(Double.toString(q))
+                    .append("\"} ").append(Long.toString(h.getValueAtPercentile(q * 100))).append('\n');
+        }
+        out.append(name).append('{').append(labels).append(",quantile=\"1.0\"} ")
+                .append(Long.toString(h.getMax())).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(Long.toString(h.getCount()))
+                .append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(Long.toString(h.getSum()))
+                .append('\n');
+    }
+
+    private static String lower(Enum<?> e) {
+        return e.name().toLowerCase(Locale.ROOT);
+    }
+}
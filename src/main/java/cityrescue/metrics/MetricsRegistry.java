@@ -0,0 +1,125 @@
+package cityrescue.metrics;
+
+import cityrescue.enums.IncidentType;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, gauges and latency histograms of a running simulation.
+ *
+ * <p>Every metric is created up front and looked up by enum ordinal, so
+ * recording an event is a few atomic adds with no allocation and no map
+ * lookup. Recording is safe from any thread. A simulation records into the
+ * registry given to it in its config; leaving the registry out of the config
+ * turns recording off.</p>
+ */
+public class MetricsRegistry {
+
+    private static final int STAGES = ResponseStage.values().length;
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final AtomicLongArray gauges = new AtomicLongArray(Gauge.values().length);
+    private final Histogram[] timers = new Histogram[Timer.values().length];
+    private final Histogram[] responses = new Histogram[IncidentType.values().length * STAGES];
+
+    /**
+     * Creates new registry with every metric at zero
+     */
+    public MetricsRegistry() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new Histogram();
+        }
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new Histogram();
+        }
+    }
+
+    /**
+     * @param counter event to count once
+     */
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    /**
+     * @param counter event to count
+     * @param n       number of events
+     */
+    public void add(Counter counter, long n) {
+        counters[counter.ordinal()].add(n);
+    }
+
+    /**
+     * @param gauge gauge to set
+     * @param value latest value
+     */
+    public void setGauge(Gauge gauge, long value) {
+        gauges.set(gauge.ordinal(), value);
+    }
+
+    /**
+     * @param timer call or phase that was timed
+     * @param nanos time it took in nanoseconds
+     */
+    public void recordTime(Timer timer, long nanos) {
+        timers[timer.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param type  type of the incident
+     * @param stage response stage that ended
+     * @param ticks ticks the stage took
+     */
+    public void recordResponse(IncidentType type, ResponseStage stage, int ticks) {
+        responses[responseIndex(type, stage)].record(ticks);
+    }
+
+    /**
+     * Sets every metric back to zero
+     */
+    public void reset() {
+        for (LongAdder c : counters) {
+            c.reset();
+        }
+        for (int i = 0; i < gauges.length(); i++) {
+            gauges.set(i, 0);
+        }
+        for (Histogram h : timers) {
+            h.reset();
+        }
+        for (Histogram h : responses) {
+            h.reset();
+        }
+    }
+
+    /**
+     * @return copy of every metric as it is now
+     */
+    public MetricsSnapshot snapshot() {
+        long[] counts = new long[counters.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = counters[i].sum();
+        }
+        long[] gaugeValues = new long[gauges.length()];
+        for (int i = 0; i < gaugeValues.length; i++) {
+            gaugeValues[i] = gauges.get(i);
+        }
+        HistogramSnapshot[] timerCopies = new HistogramSnapshot[timers.length];
+        for (int i = 0; i < timers.length; i++) {
+            timerCopies[i] = timers[i].snapshot();
+        }
+        HistogramSnapshot[] responseCopies = new HistogramSnapshot[responses.length];
+        for (int i = 0; i < responses.length; i++) {
+            responseCopies[i] = responses[i].snapshot();
+        }
+        return new MetricsSnapshot(counts, gaugeValues, timerCopies, responseCopies);
+    }
+
+    static int responseIndex(IncidentType type, ResponseStage stage) {
+        return type.ordinal() * STAGES + stage.ordinal();
+    }
+}
@@ -0,0 +1,54 @@
+package cityrescue.metrics;
+
+import cityrescue.enums.IncidentType;
+
+/**
+ * Immutable copy of every metric in a {@link MetricsRegistry}.
+ */
+public final class MetricsSnapshot {
+
+    private final long[] counters;
+    private final long[] gauges;
+    private final HistogramSnapshot[] timers;
+    private final HistogramSnapshot[] responses;
+
+    MetricsSnapshot(long[] counters, long[] gauges, HistogramSnapshot[] timers, HistogramSnapshot[] responses) {
+        this.counters = counters;
+        this.gauges = gauges;
+        this.timers = timers;
+        this.responses = responses;
+    }
+
+    /**
+     * @param counter counted event
+     * @return number of times it happened
+     */
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * @param gauge sampled queue depth
+     * @return latest value
+     */
+    public long getGauge(Gauge gauge) {
+        return gauges[gauge.ordinal()];
+    }
+
+    /**
+     * @param timer timed call or phase
+     * @return times it took in nanoseconds
+     */
+    public HistogramSnapshot getTimer(Timer timer) {
+        return timers[timer.ordinal()];
+    }
+
+    /**
+     * @param type  type of incident
+     * @param stage response stage
+     * @return ticks the stage took for incidents of that type
+     */
+    public HistogramSnapshot getResponse(IncidentType type, ResponseStage stage) {
+        return responses[MetricsRegistry.responseIndex(type, stage)];
+    }
+}
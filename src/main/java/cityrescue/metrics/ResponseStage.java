@@ -0,0 +1,6 @@
+package cityrescue.metrics;
+
+/**
+ * Stages of an incident's response, each measured in ticks.
+ */
+public enum ResponseStage { REPORT_TO_DISPATCH, DISPATCH_TO_ARRIVAL, ARRIVAL_TO_RESOLVE }
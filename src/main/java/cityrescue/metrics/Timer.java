@@ -0,0 +1,6 @@
+package cityrescue.metrics;
+
+/**
+ * Timed calls and tick phases, recorded in nanoseconds.
+ */
+public enum Timer { TICK, TICK_MOVE, TICK_ARRIVALS, TICK_WORK, TICK_COMPLETIONS, TICK_REBALANCE, DISPATCH, REPORT_INCIDENT, GET_STATUS }
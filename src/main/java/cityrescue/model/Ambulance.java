@@ -29,10 +29,11 @@ public class Ambulance extends Unit {
     }
 
     /**
-     * @return 2 work ticks to resolve incident
+     * @return 2 work ticks to resolve incident, plus one for every severity
+     *         level above 1
      */
     @Override
     public int getTicksToResolve(int severity) {
-        return 2;
+        return scaledTicks(2, severity);
     }
 }
\ No newline at end of file
@@ -1,13 +1,24 @@
 package cityrescue.model;
 
+import java.util.BitSet;
+
 /**
  * Stores city grid map with all the sizes and obstacles.
+ *
+ * <p>Obstacles are kept as a flat row-major bitset, one bit per cell at index
+ * y * width + x, and the number of obstacles is kept up to date as cells
+ * change instead of being counted. The 64-bit words of the bitset live in a
+ * heap array unless a subclass stores them elsewhere, see
+ * {@link MappedCityMap}.</p>
  */
 public class CityMap {
 
-    private int width;
-    private int height;
-    private boolean[][] blocked;
+    private final int width;
+    private final int height;
+    private final int wordCount;
+    private final long[] blocked;
+    private int obstacleCount;
+    private long version;
 
     /**
      * Creates new city map with given size parameters
@@ -18,7 +29,38 @@ public class CityMap {
     public CityMap(int width, int height) {
         this.width = width;
         this.height = height;
-        this.blocked = new boolean[width][height];
+        this.wordCount = wordCount(width, height);
+        this.blocked = new long[wordCount];
+    }
+
+    /**
+     * Creates new city map for a subclass that stores the obstacle words
+     * itself by overriding {@link #word(int)} and {@link #setWord(int, long)}
+     *
+     * @param width         width of map
+     * @param height        height of map
+     * @param obstacleCount number of obstacles already stored
+     */
+    protected CityMap(int width, int height, int obstacleCount) {
+        this.width = width;
+        this.height = height;
+        this.wordCount = wordCount(width, height);
+        this.blocked = null;
+        this.obstacleCount = obstacleCount;
+    }
+
+    /**
+     * @param width  width of map
+     * @param height height of map
+     * @return number of 64-bit words holding one bit per cell
+     * @throws IllegalArgumentException in case the map has too many cells
+     */
+    public static int wordCount(int width, int height) {
+        long words = ((long) width * height + 63) >>> 6;
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large: " + width + "x" + height + ".");
+        }
+        return (int) words;
     }
 
     /**
@@ -54,7 +96,8 @@ public class CityMap {
      * @return true if blocked, false otherwise
      */
     public boolean isBlocked(int x, int y) {
-        return blocked[x][y];
+        long cell = (long) y * width + x;
+        return (word((int) (cell >>> 6)) & (1L << cell)) != 0;
     }
 
     /**
@@ -64,7 +107,41 @@ public class CityMap {
      * @param y y-Coordinate of grid
      */
     public void setBlocked(int x, int y) {
-        blocked[x][y] = true;
+        long cell = (long) y * width + x;
+        int word = (int) (cell >>> 6);
+        long bit = 1L << cell;
+        long old = word(word);
+        if ((old & bit) == 0) {
+            setWord(word, old | bit);
+            obstacleCount++;
+            version++;
+            changed();
+        }
+    }
+
+    /**
+     * Sets obstacles on a list of cells, bumping the version once
+     *
+     * @param xs x-Coordinates of the cells
+     * @param ys y-Coordinates of the cells, same length as xs
+     */
+    public void setBlocked(int[] xs, int[] ys) {
+        int added = 0;
+        for (int i = 0; i < xs.length; i++) {
+            long cell = (long) ys[i] * width + xs[i];
+            int word = (int) (cell >>> 6);
+            long bit = 1L << cell;
+            long old = word(word);
+            if ((old & bit) == 0) {
+                setWord(word, old | bit);
+                added++;
+            }
+        }
+        if (added > 0) {
+            obstacleCount += added;
+            version++;
+            changed();
+        }
     }
 
     /**
@@ -74,7 +151,99 @@ public class CityMap {
      * @param y y-Coordinate of grid
      */
     public void clearBlocked(int x, int y) {
-        blocked[x][y] = false;
+        long cell = (long) y * width + x;
+        int word = (int) (cell >>> 6);
+        long bit = 1L << cell;
+        long old = word(word);
+        if ((old & bit) != 0) {
+            setWord(word, old & ~bit);
+            obstacleCount--;
+            version++;
+            changed();
+        }
+    }
+
+    /**
+     * Sets obstacles on every cell of a rectangle, one word at a time
+     *
+     * @param x1 x-Coordinate of one corner
+     * @param y1 y-Coordinate of one corner
+     * @param x2 x-Coordinate of the opposite corner, inclusive
+     * @param y2 y-Coordinate of the opposite corner, inclusive
+     * @throws IllegalArgumentException in case a corner is out of bounds
+     */
+    public void setBlockedRect(int x1, int y1, int x2, int y2) {
+        fillRect(x1, y1, x2, y2, true);
+    }
+
+    /**
+     * Clears obstacles from every cell of a rectangle, one word at a time
+     *
+     * @param x1 x-Coordinate of one corner
+     * @param y1 y-Coordinate of one corner
+     * @param x2 x-Coordinate of the opposite corner, inclusive
+     * @param y2 y-Coordinate of the opposite corner, inclusive
+     * @throws IllegalArgumentException in case a corner is out of bounds
+     */
+    public void clearBlockedRect(int x1, int y1, int x2, int y2) {
+        fillRect(x1, y1, x2, y2, false);
+    }
+
+    /**
+     * Replaces every obstacle on the map with the set bits of a BitSet, where
+     * bit y * width + x stands for cell (x, y)
+     *
+     * @param cells obstacle bits in row-major order
+     * @throws IllegalArgumentException in case a bit lies outside the map
+     */
+    public void loadObstacles(BitSet cells) {
+        long limit = (long) width * height;
+        if (cells.length() > limit) {
+            throw new IllegalArgumentException("Obstacle bit " + (cells.length() - 1) + " is outside the map.");
+        }
+        long[] words = cells.toLongArray();
+        int count = 0;
+        boolean same = true;
+        for (int i = 0; i < wordCount; i++) {
+            long w = i < words.length ? words[i] : 0;
+            count += Long.bitCount(w);
+            if (word(i) != w) {
+                setWord(i, w);
+                same = false;
+            }
+        }
+        if (!same) {
+            obstacleCount = count;
+            version++;
+            changed();
+        }
+    }
+
+    /**
+     * Copies the obstacles into a BitSet, where bit y * width + x stands for
+     * cell (x, y)
+     *
+     * @return obstacle bits in row-major order
+     */
+    public BitSet toBitSet() {
+        if (blocked != null) {
+            return BitSet.valueOf(blocked);
+        }
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = word(i);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Returns a counter that changes every time an obstacle is really added or
+     * removed, so cached routing data can tell when it is out of date
+     *
+     * @return current map version
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -87,19 +256,76 @@ public class CityMap {
         return inBounds(nx, ny) && !isBlocked(nx, ny);
     }
 
+    /**
+     * @return approximate heap bytes used by the obstacle grid
+     */
+    public long footprintBytes() {
+        return 16 + 8L * wordCount;
+    }
+
     /**
      * Counts how many obstacles are on grid
      *
      * @return integer representing amount of obstacles on the map
      */
     public int countObstacles() {
-        int count = 0;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (blocked[x][y])
-                    count++;
+        return obstacleCount;
+    }
+
+    private void fillRect(int x1, int y1, int x2, int y2, boolean value) {
+        if (!inBounds(x1, y1) || !inBounds(x2, y2)) {
+            throw new IllegalArgumentException("Rectangle (" + x1 + "," + y1 + ")-(" + x2 + "," + y2
+                    + ") is out of bounds.");
+        }
+        int left = Math.min(x1, x2);
+        int right = Math.max(x1, x2);
+        int changed = 0;
+        for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+            long from = (long) y * width + left;
+            long to = (long) y * width + right;
+            int firstWord = (int) (from >>> 6);
+            int lastWord = (int) (to >>> 6);
+            for (int w = firstWord; w <= lastWord; w++) {
+                long mask = -1L;
+                if (w == firstWord) {
+                    mask &= -1L << from;
+                }
+                if (w == lastWord) {
+                    mask &= -1L >>> (63 - (int) (to & 63));
+                }
+                long old = word(w);
+                long updated = value ? old | mask : old & ~mask;
+                changed += Long.bitCount(old ^ updated);
+                setWord(w, updated);
             }
         }
-        return count;
+        if (changed > 0) {
+            obstacleCount += value ? changed : -changed;
+            version++;
+            changed();
+        }
+    }
+
+    /**
+     * @param index word index, cells 64 * index to 64 * index + 63
+     * @return obstacle bits of the word
+     */
+    protected long word(int index) {
+        return blocked[index];
+    }
+
+    /**
+     * @param index word index, cells 64 * index to 64 * index + 63
+     * @param value new obstacle bits of the word
+     */
+    protected void setWord(int index, long value) {
+        blocked[index] = value;
+    }
+
+    /**
+     * Called after obstacles really changed, once the obstacle count is up to
+     * date; does nothing unless overridden
+     */
+    protected void changed() {
     }
-}
\ No newline at end of file
+}
@@ -29,10 +29,11 @@ public class FireEngine extends Unit {
     }
 
     /**
-     * @return 4 work ticks to resolve incident
+     * @return 4 work ticks to resolve incident, plus one for every severity
+     *         level above 1
      */
     @Override
     public int getTicksToResolve(int severity) {
-        return 4;
+        return scaledTicks(4, severity);
     }
 }
\ No newline at end of file
@@ -16,6 +16,11 @@ public class Incident {
     private final int y;
     private IncidentStatus status;
     private int assignedUnitId;
+    private Unit assignedUnit;
+    private int statusTick;
+    private int requiredUnits;
+    private int teamSlot;
+    private int teamSize;
 
     /**
      * Creates new instance of an Incident
@@ -34,6 +39,7 @@ public class Incident {
         this.y = y;
         this.status = IncidentStatus.REPORTED;
         this.assignedUnitId = -1;
+        this.teamSlot = -1;
     }
 
     /**
@@ -85,6 +91,44 @@ public class Incident {
         return assignedUnitId;
     }
 
+    /**
+     * @return the unit assigned to the incident, or null if none
+     */
+    public Unit getAssignedUnit() {
+        return assignedUnit;
+    }
+
+    /**
+     * @return tick the incident entered its current status, only kept up to
+     *         date while metrics are recorded
+     */
+    public int getStatusTick() {
+        return statusTick;
+    }
+
+    /**
+     * @return number of units the incident needs, or 0 if it is served by a
+     *         single unit outside multi-unit mode
+     */
+    public int getRequiredUnits() {
+        return requiredUnits;
+    }
+
+    /**
+     * @return slot of the incident's team in the team store, or -1 if it has
+     *         none
+     */
+    public int getTeamSlot() {
+        return teamSlot;
+    }
+
+    /**
+     * @return number of units currently assigned in multi-unit mode
+     */
+    public int getTeamSize() {
+        return teamSize;
+    }
+
     /**
      * Sets new severity level
      * 
@@ -111,4 +155,43 @@ public class Incident {
     public void setAssignedUnitId(int unitId) {
         this.assignedUnitId = unitId;
     }
-}
\ No newline at end of file
+
+    /**
+     * Assigns a unit to the incident, keeping the unit ID in step
+     *
+     * @param unit new assigned unit, or null to clear it
+     */
+    public void setAssignedUnit(Unit unit) {
+        this.assignedUnit = unit;
+        this.assignedUnitId = unit == null ? -1 : unit.getUnitId();
+    }
+
+    /**
+     * Sets the tick the incident entered its current status
+     *
+     * @param tick tick of the status change
+     */
+    public void setStatusTick(int tick) {
+        this.statusTick = tick;
+    }
+
+    /**
+     * Sets the number of units the incident needs
+     *
+     * @param count number of units, or 0 outside multi-unit mode
+     */
+    public void setRequiredUnits(int count) {
+        this.requiredUnits = count;
+    }
+
+    /**
+     * Sets the team of the incident
+     *
+     * @param slot slot in the team store, or -1 to clear it
+     * @param size number of units in the team
+     */
+    public void setTeam(int slot, int size) {
+        this.teamSlot = slot;
+        this.teamSize = size;
+    }
+}
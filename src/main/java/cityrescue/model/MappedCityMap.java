@@ -0,0 +1,167 @@
+package cityrescue.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * City map whose obstacle bitset lives in a memory-mapped file instead of on
+ * the heap.
+ *
+ * <p>The file starts with a 64-byte header (magic, version, width, height and
+ * obstacle count) followed by the obstacle words, little-endian. The words are
+ * mapped in segments of at most 1 GiB, so opening a map only sets up the
+ * mappings; the operating system reads a page the first time a cell on it is
+ * looked at, and a new file is created sparse. Lookups read straight from the
+ * mapping and allocate nothing.</p>
+ *
+ * <p>A file that already holds a grid of the requested size is reused with
+ * its obstacles, so a large map can be built once and opened again at almost
+ * no cost.</p>
+ */
+public class MappedCityMap extends CityMap implements AutoCloseable {
+
+    /** "CRMP" */
+    static final int MAGIC = 0x43524D50;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private static final int COUNT_OFFSET = 16;
+    /** 2^27 words, 1 GiB per segment. */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final Path file;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] mapped;
+    private LongBuffer[] segments;
+
+    private MappedCityMap(int width, int height, Path file, MappedByteBuffer header, MappedByteBuffer[] mapped) {
+        super(width, height, header.getInt(COUNT_OFFSET));
+        this.file = file;
+        this.header = header;
+        this.mapped = mapped;
+        this.segments = new LongBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            segments[i] = mapped[i].asLongBuffer();
+        }
+    }
+
+    /**
+     * Opens a map file, creating it if it does not exist
+     *
+     * @param file   map file
+     * @param width  width of map
+     * @param height height of map
+     * @return map backed by the file
+     * @throws IOException              in case of the file failing to open or
+     *                                  not being a map file
+     * @throws IllegalArgumentException in case the file holds a grid of
+     *                                  another size
+     */
+    public static MappedCityMap open(Path file, int width, int height) throws IOException {
+        int words = wordCount(width, height);
+        long size = HEADER_BYTES + 8L * words;
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (!fresh && channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a map file.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (fresh) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, width);
+                header.putInt(12, height);
+                header.putInt(COUNT_OFFSET, 0);
+            } else {
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException(file + " is not a map file.");
+                }
+                if (header.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported map file version " + header.getInt(4) + ".");
+                }
+                if (header.getInt(8) != width || header.getInt(12) != height) {
+                    throw new IllegalArgumentException(file + " holds a " + header.getInt(8) + "x"
+                            + header.getInt(12) + " grid, not " + width + "x" + height + ".");
+                }
+                if (channel.size() < size) {
+                    throw new IOException(file + " is truncated.");
+                }
+            }
+            MappedByteBuffer[] mapped = new MappedByteBuffer[(words + SEGMENT_MASK) >>> SEGMENT_SHIFT];
+            for (int i = 0; i < mapped.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long count = Math.min(1L << SEGMENT_SHIFT, words - first);
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + 8 * first, 8 * count);
+                mapped[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedCityMap(width, height, file, header, mapped);
+        }
+    }
+
+    /**
+     * @return file the map is stored in
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes every changed page back to the file
+     */
+    public void flush() {
+        header.force();
+        for (MappedByteBuffer m : mapped) {
+            m.force();
+        }
+    }
+
+    /**
+     * Flushes the map and lets go of the mappings; the map must not be used
+     * afterwards. The memory is unmapped once the buffers are collected
+     */
+    @Override
+    public void close() {
+        if (header == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            header = null;
+            mapped = null;
+            segments = null;
+        }
+    }
+
+    /**
+     * @return approximate heap bytes used; the obstacle words are off-heap
+     */
+    @Override
+    public long footprintBytes() {
+        return 64 + 48L * segments.length;
+    }
+
+    @Override
+    protected long word(int index) {
+        return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    @Override
+    protected void setWord(int index, long value) {
+        segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+    }
+
+    @Override
+    protected void changed() {
+        header.putInt(COUNT_OFFSET, countObstacles());
+    }
+}
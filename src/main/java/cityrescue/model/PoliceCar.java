@@ -29,10 +29,11 @@ public class PoliceCar extends Unit {
     }
 
     /**
-     * @return 3 work ticks to resolve incident
+     * @return 3 work ticks to resolve incident, plus one for every severity
+     *         level above 1
      */
     @Override
     public int getTicksToResolve(int severity) {
-        return 3;
+        return scaledTicks(3, severity);
     }
 }
\ No newline at end of file
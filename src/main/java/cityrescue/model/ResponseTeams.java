@@ -0,0 +1,194 @@
+package cityrescue.model;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays store for the teams of units responding to incidents in
+ * multi-unit mode. Each dispatched incident holds one slot, given out on
+ * first dispatch and freed when the incident is resolved or cancelled, so the
+ * arrays grow with the number of active incidents rather than with incident
+ * IDs.
+ *
+ * <p>Work is counted in crew ticks: every unit on scene does one per tick. A
+ * slot keeps the crew ticks still needed as of the work phase of one tick, so
+ * it only has to be brought up to date when the crew changes.</p>
+ */
+public class ResponseTeams {
+
+    /** Most units any incident needs, at severity 5. */
+    public static final int MAX_TEAM = 3;
+
+    private int[] members;
+    private int[] size;
+    private int[] onScene;
+    private int[] work;
+    private int[] workTick;
+    private int[] free;
+    private int freeCount;
+    private int used;
+
+    /**
+     * Creates new team store
+     *
+     * @param capacity number of teams to size the arrays for
+     */
+    public ResponseTeams(int capacity) {
+        int n = Math.max(capacity, 16);
+        members = new int[n * MAX_TEAM];
+        size = new int[n];
+        onScene = new int[n];
+        work = new int[n];
+        workTick = new int[n];
+        free = new int[n];
+    }
+
+    /**
+     * @param severity incident severity, 1-5
+     * @return number of units an incident of that severity needs
+     */
+    public static int requiredUnits(int severity) {
+        return Math.min(MAX_TEAM, Math.max(1, (severity + 1) / 2));
+    }
+
+    /**
+     * Takes a free slot for a new team with no members
+     *
+     * @return slot of the team
+     */
+    public int allocate() {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (used == size.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        size[slot] = 0;
+        onScene[slot] = 0;
+        work[slot] = 0;
+        workTick[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Gives a slot back once its incident is finished
+     *
+     * @param slot slot of the team
+     */
+    public void release(int slot) {
+        size[slot] = 0;
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * Adds a unit to a team
+     *
+     * @param slot   slot of the team
+     * @param unitId ID of the unit
+     * @throws IllegalStateException in case of the team being full
+     */
+    public void addMember(int slot, int unitId) {
+        if (size[slot] == MAX_TEAM) {
+            throw new IllegalStateException("Team is full.");
+        }
+        members[slot * MAX_TEAM + size[slot]++] = unitId;
+    }
+
+    /**
+     * @param slot slot of the team
+     * @return number of units in the team
+     */
+    public int size(int slot) {
+        return size[slot];
+    }
+
+    /**
+     * @param slot  slot of the team
+     * @param index position in the team, in dispatch order
+     * @return ID of the unit at that position
+     */
+    public int member(int slot, int index) {
+        return members[slot * MAX_TEAM + index];
+    }
+
+    /**
+     * @param slot slot of the team
+     * @return number of units of the team at the scene
+     */
+    public int onScene(int slot) {
+        return onScene[slot];
+    }
+
+    /**
+     * @param slot slot of the team
+     * @return crew ticks still needed as of the work phase of
+     *         {@link #workTick(int)}
+     */
+    public int work(int slot) {
+        return work[slot];
+    }
+
+    /**
+     * @param slot slot of the team
+     * @return tick the remaining work was last brought up to date at
+     */
+    public int workTick(int slot) {
+        return workTick[slot];
+    }
+
+    /**
+     * Sets the work of a team, when its first unit arrives or when a team is
+     * restored
+     *
+     * @param slot      slot of the team
+     * @param crewTicks crew ticks still needed
+     * @param tick      tick whose work phase the crew ticks are counted from
+     * @param crew      number of units already at the scene
+     */
+    public void setWork(int slot, int crewTicks, int tick, int crew) {
+        work[slot] = crewTicks;
+        workTick[slot] = tick;
+        onScene[slot] = crew;
+    }
+
+    /**
+     * Adds one unit to the crew at the scene, counting the work done by the
+     * crew so far first
+     *
+     * @param slot slot of the team
+     * @param tick current tick, before its work phase
+     * @return ticks the enlarged crew needs to finish, counting this one
+     */
+    public int arrive(int slot, int tick) {
+        work[slot] -= onScene[slot] * (tick - workTick[slot]);
+        workTick[slot] = tick;
+        int crew = ++onScene[slot];
+        return Math.max(1, (work[slot] + crew - 1) / crew);
+    }
+
+    /**
+     * @return number of teams in use
+     */
+    public int count() {
+        return used - freeCount;
+    }
+
+    /**
+     * @return approximate heap bytes used by the store
+     */
+    public long footprintBytes() {
+        return 16 + 4L * members.length + 5 * (16 + 4L * size.length);
+    }
+
+    private void grow() {
+        int n = size.length * 2;
+        members = Arrays.copyOf(members, n * MAX_TEAM);
+        size = Arrays.copyOf(size, n);
+        onScene = Arrays.copyOf(onScene, n);
+        work = Arrays.copyOf(work, n);
+        workTick = Arrays.copyOf(workTick, n);
+        free = Arrays.copyOf(free, n);
+    }
+}
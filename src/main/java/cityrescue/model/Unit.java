@@ -3,6 +3,7 @@ package cityrescue.model;
 import cityrescue.enums.IncidentType;
 import cityrescue.enums.UnitStatus;
 import cityrescue.enums.UnitType;
+import cityrescue.routing.Route;
 
 /**
  * Stores unit object with details such as Unit: ID, type, home station ID,
@@ -17,7 +18,10 @@ public abstract class Unit {
     private int y;
     private UnitStatus status;
     private int assignedIncidentId;
+    private Incident assignedIncident;
     private int workTicksRemaining;
+    private Route route;
+    private UnitTable table;
 
     /**
      * Creates new instance of a unit
@@ -50,11 +54,24 @@ public abstract class Unit {
     /**
      * Returns necessary work ticks to resolve incident
      *
-     * @param severity severity of the assigned incident
+     * @param severity severity of the assigned incident, or 0 for the base
+     *                 time regardless of severity
      * @return number of work ticks needed
      */
     public abstract int getTicksToResolve(int severity);
 
+    /**
+     * Scales a unit type's base work time by severity: one more tick for
+     * every level above 1
+     *
+     * @param baseTicks work ticks at severity 1
+     * @param severity  severity of the incident, or 0 for the base time
+     * @return number of work ticks needed
+     */
+    protected static int scaledTicks(int baseTicks, int severity) {
+        return baseTicks + Math.max(0, severity - 1);
+    }
+
     /**
      * @return unit ID number
      */
@@ -80,35 +97,49 @@ public abstract class Unit {
      * @return x-coordinate on the grid
      */
     public int getX() {
-        return x;
+        return table == null ? x : table.getX(unitId);
     }
 
     /**
      * @return y-coordinate on the grid
      */
     public int getY() {
-        return y;
+        return table == null ? y : table.getY(unitId);
     }
 
     /**
      * @return unit status
      */
     public UnitStatus getStatus() {
-        return status;
+        return table == null ? status : table.getStatus(unitId);
     }
 
     /**
      * @return assigned incident ID number for the unit
      */
     public int getAssignedIncidentId() {
-        return assignedIncidentId;
+        return table == null ? assignedIncidentId : table.getAssignedIncidentId(unitId);
+    }
+
+    /**
+     * @return incident the unit is assigned to, or null if none
+     */
+    public Incident getAssignedIncident() {
+        return assignedIncident;
     }
 
     /**
      * @return work ticks remaining at the units incident
      */
     public int getWorkTicksRemaining() {
-        return workTicksRemaining;
+        return table == null ? workTicksRemaining : table.getWorkTicks(unitId);
+    }
+
+    /**
+     * @return route the unit is following, or null if none is planned
+     */
+    public Route getRoute() {
+        return route;
     }
 
     /**
@@ -126,7 +157,11 @@ public abstract class Unit {
      * @param x new x-Coordinate for the unit
      */
     public void setX(int x) {
-        this.x = x;
+        if (table == null) {
+            this.x = x;
+        } else {
+            table.setX(unitId, x);
+        }
     }
 
     /**
@@ -135,7 +170,11 @@ public abstract class Unit {
      * @param y new y-coordinate for the unit
      */
     public void setY(int y) {
-        this.y = y;
+        if (table == null) {
+            this.y = y;
+        } else {
+            table.setY(unitId, y);
+        }
     }
 
     /**
@@ -144,7 +183,11 @@ public abstract class Unit {
      * @param status new unit Status
      */
     public void setStatus(UnitStatus status) {
-        this.status = status;
+        if (table == null) {
+            this.status = status;
+        } else {
+            table.setStatus(unitId, status);
+        }
     }
 
     /**
@@ -153,7 +196,21 @@ public abstract class Unit {
      * @param id units assigned incident ID
      */
     public void setAssignedIncidentId(int id) {
-        this.assignedIncidentId = id;
+        if (table == null) {
+            this.assignedIncidentId = id;
+        } else {
+            table.setAssignedIncidentId(unitId, id);
+        }
+    }
+
+    /**
+     * Assigns an incident to the unit, keeping the incident ID in step
+     *
+     * @param incident units assigned incident, or null to clear it
+     */
+    public void setAssignedIncident(Incident incident) {
+        this.assignedIncident = incident;
+        setAssignedIncidentId(incident == null ? -1 : incident.getIncidentId());
     }
 
     /**
@@ -162,15 +219,36 @@ public abstract class Unit {
      * @param ticks amount of work ticks remaining at an incident
      */
     public void setWorkTicksRemaining(int ticks) {
-        this.workTicksRemaining = ticks;
+        if (table == null) {
+            this.workTicksRemaining = ticks;
+        } else {
+            table.setWorkTicks(unitId, ticks);
+        }
+    }
+
+    /**
+     * Sets the route the unit follows to its target
+     *
+     * @param route planned route, or null to drop the current one
+     */
+    public void setRoute(Route route) {
+        this.route = route;
     }
 
     /**
      * Decreases work ticks remaining for unit at incident
      */
     public void decrementWorkTicks() {
-        if (workTicksRemaining > 0)
-            workTicksRemaining--;
+        decrementWorkTicks(1);
+    }
+
+    /**
+     * Decreases work ticks remaining by several ticks at once, stopping at 0
+     *
+     * @param ticks number of ticks of work done
+     */
+    public void decrementWorkTicks(int ticks) {
+        setWorkTicksRemaining(Math.max(0, getWorkTicksRemaining() - ticks));
     }
 
     /**
@@ -181,6 +259,24 @@ public abstract class Unit {
      * @return Manhattan distance to target
      */
     public int manhattanDistance(int tx, int ty) {
-        return Math.abs(x - tx) + Math.abs(y - ty);
+        return Math.abs(getX() - tx) + Math.abs(getY() - ty);
+    }
+
+    /**
+     * Moves the unit's changing fields into a row of a unit table, indexed by
+     * unit ID. From then on the getters and setters read and write the
+     * table, so this object is only a view.
+     *
+     * @param table table to store the fields in
+     */
+    public void bindTo(UnitTable table) {
+        table.ensureRow(unitId);
+        table.setX(unitId, x);
+        table.setY(unitId, y);
+        table.setStatus(unitId, status);
+        table.setAssignedIncidentId(unitId, assignedIncidentId);
+        table.setWorkTicks(unitId, workTicksRemaining);
+        table.setType(unitId, unitType.ordinal());
+        this.table = table;
     }
 }
\ No newline at end of file
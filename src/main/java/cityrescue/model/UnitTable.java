@@ -0,0 +1,218 @@
+package cityrescue.model;
+
+import cityrescue.enums.UnitStatus;
+import cityrescue.util.ActiveSet;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays store for the frequently changing unit fields: one
+ * primitive array per field, indexed by unit ID. {@link Unit} objects bound to
+ * a table read and write their fields here, so they act as lightweight views
+ * while the per-tick passes loop over the arrays directly.
+ */
+public class UnitTable {
+
+    private static final UnitStatus[] STATUSES = UnitStatus.values();
+
+    private int[] x;
+    private int[] y;
+    private int[] targetX;
+    private int[] targetY;
+    private int[] assignedIncident;
+    private int[] workTicks;
+    private byte[] status;
+    private byte[] type;
+
+    /**
+     * Creates new unit table
+     *
+     * @param capacity number of unit IDs to size the arrays for
+     */
+    public UnitTable(int capacity) {
+        int n = Math.max(capacity, 16);
+        x = new int[n];
+        y = new int[n];
+        targetX = new int[n];
+        targetY = new int[n];
+        assignedIncident = new int[n];
+        workTicks = new int[n];
+        status = new byte[n];
+        type = new byte[n];
+    }
+
+    /**
+     * Makes sure a row exists for a unit ID, growing the arrays if needed
+     *
+     * @param row unit ID
+     */
+    public void ensureRow(int row) {
+        if (row < x.length) {
+            return;
+        }
+        int n = Math.max(row + 1, x.length * 2);
+        x = Arrays.copyOf(x, n);
+        y = Arrays.copyOf(y, n);
+        targetX = Arrays.copyOf(targetX, n);
+        targetY = Arrays.copyOf(targetY, n);
+        assignedIncident = Arrays.copyOf(assignedIncident, n);
+        workTicks = Arrays.copyOf(workTicks, n);
+        status = Arrays.copyOf(status, n);
+        type = Arrays.copyOf(type, n);
+    }
+
+    /**
+     * @param row unit ID
+     * @return x-coordinate of the unit
+     */
+    public int getX(int row) {
+        return x[row];
+    }
+
+    /**
+     * @param row   unit ID
+     * @param value new x-coordinate
+     */
+    public void setX(int row, int value) {
+        x[row] = value;
+    }
+
+    /**
+     * @param row unit ID
+     * @return y-coordinate of the unit
+     */
+    public int getY(int row) {
+        return y[row];
+    }
+
+    /**
+     * @param row   unit ID
+     * @param value new y-coordinate
+     */
+    public void setY(int row, int value) {
+        y[row] = value;
+    }
+
+    /**
+     * @param row unit ID
+     * @return x-coordinate the unit is heading to
+     */
+    public int getTargetX(int row) {
+        return targetX[row];
+    }
+
+    /**
+     * @param row unit ID
+     * @return y-coordinate the unit is heading to
+     */
+    public int getTargetY(int row) {
+        return targetY[row];
+    }
+
+    /**
+     * Records where a unit is heading, for the movement pass
+     *
+     * @param row unit ID
+     * @param tx  target x-Coordinate
+     * @param ty  target y-Coordinate
+     */
+    public void setTarget(int row, int tx, int ty) {
+        targetX[row] = tx;
+        targetY[row] = ty;
+    }
+
+    /**
+     * @param row unit ID
+     * @return true if the unit stands on its target cell
+     */
+    public boolean isAtTarget(int row) {
+        return x[row] == targetX[row] && y[row] == targetY[row];
+    }
+
+    /**
+     * @param row unit ID
+     * @return unit status
+     */
+    public UnitStatus getStatus(int row) {
+        return STATUSES[status[row]];
+    }
+
+    /**
+     * @param row   unit ID
+     * @param value new unit status
+     */
+    public void setStatus(int row, UnitStatus value) {
+        status[row] = (byte) value.ordinal();
+    }
+
+    /**
+     * @param row unit ID
+     * @return assigned incident ID, or -1 if none
+     */
+    public int getAssignedIncidentId(int row) {
+        return assignedIncident[row];
+    }
+
+    /**
+     * @param row   unit ID
+     * @param value assigned incident ID, or -1 for none
+     */
+    public void setAssignedIncidentId(int row, int value) {
+        assignedIncident[row] = value;
+    }
+
+    /**
+     * @param row unit ID
+     * @return work ticks remaining
+     */
+    public int getWorkTicks(int row) {
+        return workTicks[row];
+    }
+
+    /**
+     * @param row   unit ID
+     * @param value work ticks remaining
+     */
+    public void setWorkTicks(int row, int value) {
+        workTicks[row] = value;
+    }
+
+    void setType(int row, int ordinal) {
+        type[row] = (byte) ordinal;
+    }
+
+    /**
+     * Counts down work for every unit in a set, stopping at 0
+     *
+     * @param working units at scene, keyed by unit ID
+     * @param ticks   number of ticks of work done
+     */
+    public void countDownWork(ActiveSet<?> working, int ticks) {
+        countDownWork(working, ticks, 0, working.size());
+    }
+
+    /**
+     * Counts down work for a slice of a set, so slices can be counted down on
+     * different threads
+     *
+     * @param working units at scene, keyed by unit ID
+     * @param ticks   number of ticks of work done
+     * @param from    first set position, inclusive
+     * @param to      last set position, exclusive
+     */
+    public void countDownWork(ActiveSet<?> working, int ticks, int from, int to) {
+        int[] work = workTicks;
+        for (int i = from; i < to; i++) {
+            int row = working.idAt(i);
+            int left = work[row] - ticks;
+            work[row] = left > 0 ? left : 0;
+        }
+    }
+
+    /**
+     * @return approximate heap bytes used by the arrays
+     */
+    public long footprintBytes() {
+        return 8 * 16 + (6L * 4 + 2) * x.length;
+    }
+}
@@ -0,0 +1,149 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+
+import java.util.Arrays;
+
+/**
+ * Shortest-path distances over the {@link CityMap} from every cell to one
+ * target cell, moving one step up, down, left or right around obstacles.
+ *
+ * <p>The field is filled by a breadth-first search from the target that runs
+ * lazily: a query only expands the search until the queried cell is reached,
+ * and the next query carries on where the last one stopped. All buffers are
+ * primitive arrays allocated once and reused for every target; an epoch stamp
+ * marks which cells belong to the current search so nothing is cleared
+ * between targets.</p>
+ */
+public class DistanceField {
+
+    private static final int[] DX = { 0, 1, 0, -1 };
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    private final CityMap map;
+    private final int width;
+    private final int height;
+    private final int[] dist;
+    private final int[] stamp;
+    private final int[] queue;
+    private int head;
+    private int tail;
+    private int epoch;
+    private int target = -1;
+    private long mapVersion = -1;
+
+    /**
+     * Creates new distance field sized for a map
+     *
+     * @param map city map the distances are measured on
+     */
+    public DistanceField(CityMap map) {
+        long cells = (long) map.getWidth() * map.getHeight();
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for distance fields: " + cells + " cells.");
+        }
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.dist = new int[(int) cells];
+        this.stamp = new int[(int) cells];
+        this.queue = new int[(int) cells];
+    }
+
+    /**
+     * Starts a new search towards a target cell, discarding the previous one
+     *
+     * @param tx target x-Coordinate
+     * @param ty target y-Coordinate
+     */
+    public void reset(int tx, int ty) {
+        epoch++;
+        if (epoch == 0) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        target = ty * width + tx;
+        mapVersion = map.getVersion();
+        head = 0;
+        tail = 0;
+        stamp[target] = epoch;
+        dist[target] = 0;
+        queue[tail++] = target;
+    }
+
+    /**
+     * @param tx target x-Coordinate
+     * @param ty target y-Coordinate
+     * @return true if this field holds the search for that target on the
+     *         current map
+     */
+    public boolean isFor(int tx, int ty) {
+        return target == ty * width + tx && mapVersion == map.getVersion();
+    }
+
+    /**
+     * Finds the number of moves needed to get from a cell to the target
+     *
+     * @param x start x-Coordinate
+     * @param y start y-Coordinate
+     * @return shortest path length, or -1 if the target cannot be reached
+     */
+    public int distanceFrom(int x, int y) {
+        int cell = y * width + x;
+        if (cell == target) {
+            return 0;
+        }
+        if (map.isBlocked(x, y)) {
+            // a unit standing on a new obstacle can still step off it
+            int best = -1;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (map.isLegalMove(nx, ny)) {
+                    int nd = distanceTo(ny * width + nx);
+                    if (nd >= 0 && (best < 0 || nd + 1 < best)) {
+                        best = nd + 1;
+                    }
+                }
+            }
+            return best;
+        }
+        return distanceTo(cell);
+    }
+
+    /**
+     * @return approximate heap bytes used by the buffers
+     */
+    public long footprintBytes() {
+        return 3L * (16 + 4L * dist.length);
+    }
+
+    private int distanceTo(int cell) {
+        while (stamp[cell] != epoch) {
+            if (head == tail) {
+                return -1;
+            }
+            expand(queue[head++]);
+        }
+        return dist[cell];
+    }
+
+    private void expand(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int next = dist[cell] + 1;
+        for (int d = 0; d < DX.length; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (nx < 0 || nx >= width || ny < 0 || ny >= height || map.isBlocked(nx, ny)) {
+                continue;
+            }
+            int n = ny * width + nx;
+            if (stamp[n] != epoch) {
+                stamp[n] = epoch;
+                dist[n] = next;
+                queue[tail++] = n;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+
+/**
+ * Small least-recently-used cache of {@link DistanceField}s keyed by target
+ * cell. Incidents that stay waiting for a unit over several dispatch rounds
+ * keep their partly built field, and a field is rebuilt automatically once the
+ * map version shows an obstacle was added or removed. Buffers are created on
+ * first use and then recycled, so steady-state lookups allocate nothing.
+ */
+public class DistanceFieldCache {
+
+    private final CityMap map;
+    private final DistanceField[] fields;
+    private final long[] lastUsed;
+    private long useCounter;
+
+    /**
+     * Creates new cache
+     *
+     * @param map  city map the distances are measured on
+     * @param size maximum number of fields kept at once
+     */
+    public DistanceFieldCache(CityMap map, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cache size must be > 0.");
+        }
+        this.map = map;
+        this.fields = new DistanceField[size];
+        this.lastUsed = new long[size];
+    }
+
+    /**
+     * Finds the field for a target, reusing a cached one when it is still
+     * valid and otherwise resetting the least recently used buffer
+     *
+     * @param tx target x-Coordinate
+     * @param ty target y-Coordinate
+     * @return field measuring distances to the target
+     */
+    public DistanceField fieldFor(int tx, int ty) {
+        int victim = 0;
+        for (int i = 0; i < fields.length; i++) {
+            DistanceField f = fields[i];
+            if (f == null) {
+                victim = i;
+                break;
+            }
+            if (f.isFor(tx, ty)) {
+                lastUsed[i] = ++useCounter;
+                return f;
+            }
+            if (lastUsed[i] < lastUsed[victim]) {
+                victim = i;
+            }
+        }
+        if (fields[victim] == null) {
+            fields[victim] = new DistanceField(map);
+        }
+        fields[victim].reset(tx, ty);
+        lastUsed[victim] = ++useCounter;
+        return fields[victim];
+    }
+
+    /**
+     * @return approximate heap bytes used by the allocated fields
+     */
+    public long footprintBytes() {
+        long total = 0;
+        for (DistanceField f : fields) {
+            if (f != null) {
+                total += f.footprintBytes();
+            }
+        }
+        return total;
+    }
+}
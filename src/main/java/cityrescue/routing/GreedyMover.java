@@ -0,0 +1,124 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+import cityrescue.model.Unit;
+import cityrescue.model.UnitTable;
+import cityrescue.util.ActiveSet;
+
+/**
+ * Original movement rule: try the four directions in fixed order and take the
+ * first legal move that reduces Manhattan distance to the target, otherwise
+ * take the first legal move at all. Cheap, but can get stuck behind
+ * obstacles.
+ */
+public class GreedyMover implements UnitMover {
+
+    private final CityMap map;
+
+    /**
+     * Creates new greedy mover
+     *
+     * @param map city map units move on
+     */
+    public GreedyMover(CityMap map) {
+        this.map = map;
+    }
+
+    @Override
+    public void planRoute(Unit unit, int tx, int ty) {
+    }
+
+    @Override
+    public void step(Unit unit, int tx, int ty) {
+        stepGreedy(map, unit, tx, ty);
+    }
+
+    /**
+     * Applies the greedy movement rule to every unit in a set, working
+     * directly on the unit table's arrays. Each unit heads for the target
+     * stored in its table row.
+     *
+     * @param table  table holding the units' fields
+     * @param moving units to move, keyed by unit ID
+     */
+    public void stepAll(UnitTable table, ActiveSet<?> moving) {
+        stepRange(table, moving, 0, moving.size());
+    }
+
+    /**
+     * Applies the greedy movement rule to a slice of a set, so slices can be
+     * moved on different threads
+     *
+     * @param table  table holding the units' fields
+     * @param moving units to move, keyed by unit ID
+     * @param from   first set position, inclusive
+     * @param to     last set position, exclusive
+     */
+    public void stepRange(UnitTable table, ActiveSet<?> moving, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int row = moving.idAt(i);
+            int unitX = table.getX(row);
+            int unitY = table.getY(row);
+            int tx = table.getTargetX(row);
+            int ty = table.getTargetY(row);
+            int distance = Math.abs(unitX - tx) + Math.abs(unitY - ty);
+            int fallback = -1;
+            int chosen = -1;
+            for (int d = 0; d < Route.DIRECTIONS; d++) {
+                int newX = unitX + Route.dx(d);
+                int newY = unitY + Route.dy(d);
+                if (map.isLegalMove(newX, newY)) {
+                    if (Math.abs(newX - tx) + Math.abs(newY - ty) < distance) {
+                        chosen = d;
+                        break;
+                    }
+                    if (fallback < 0) {
+                        fallback = d;
+                    }
+                }
+            }
+            if (chosen < 0) {
+                chosen = fallback;
+            }
+            if (chosen >= 0) {
+                table.setX(row, unitX + Route.dx(chosen));
+                table.setY(row, unitY + Route.dy(chosen));
+            }
+        }
+    }
+
+    /**
+     * Applies the greedy movement rule to one unit
+     *
+     * @param map  city map the unit moves on
+     * @param unit unit to move
+     * @param tx   target x-Coordinate
+     * @param ty   target y-Coordinate
+     */
+    static void stepGreedy(CityMap map, Unit unit, int tx, int ty) {
+        int unitX = unit.getX();
+        int unitY = unit.getY();
+        int distance = unit.manhattanDistance(tx, ty);
+        for (int d = 0; d < Route.DIRECTIONS; d++) {
+            int newX = unitX + Route.dx(d);
+            int newY = unitY + Route.dy(d);
+            if (map.isLegalMove(newX, newY)) {
+                int newDistance = Math.abs(newX - tx) + Math.abs(newY - ty);
+                if (newDistance < distance) {
+                    unit.setX(newX);
+                    unit.setY(newY);
+                    return;
+                }
+            }
+        }
+        for (int d = 0; d < Route.DIRECTIONS; d++) {
+            int newX = unitX + Route.dx(d);
+            int newY = unitY + Route.dy(d);
+            if (map.isLegalMove(newX, newY)) {
+                unit.setX(newX);
+                unit.setY(newY);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+
+import java.util.Arrays;
+
+/**
+ * Planned route for one unit, stored compactly as one direction byte per move
+ * (0 = y-1, 1 = x+1, 2 = y+1, 3 = x-1, the same order the greedy mover tries
+ * directions in) plus the index of the next move.
+ *
+ * <p>The route remembers the map version it was last checked against, so the
+ * remaining cells only have to be re-checked for obstacles after the map has
+ * actually changed.</p>
+ */
+public class Route {
+
+    /** Number of move directions. */
+    public static final int DIRECTIONS = 4;
+
+    private static final int[] DX = { 0, 1, 0, -1 };
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    private final byte[] directions;
+    private final boolean reachable;
+    private int next;
+    private long checkedVersion;
+
+    /**
+     * Creates new route
+     *
+     * @param directions     move directions from start to target
+     * @param checkedVersion map version the route was planned on
+     */
+    public Route(byte[] directions, long checkedVersion) {
+        this(directions, true, checkedVersion);
+    }
+
+    private Route(byte[] directions, boolean reachable, long checkedVersion) {
+        this.directions = directions;
+        this.reachable = reachable;
+        this.checkedVersion = checkedVersion;
+    }
+
+    /**
+     * Creates a marker route recording that the target could not be reached on
+     * a given map version, so the search is not repeated until the map changes
+     *
+     * @param mapVersion map version the search failed on
+     * @return empty unreachable route
+     */
+    public static Route unreachable(long mapVersion) {
+        return new Route(new byte[0], false, mapVersion);
+    }
+
+    /**
+     * @return true if this route leads to its target, false if it is an
+     *         unreachable marker
+     */
+    public boolean isReachable() {
+        return reachable;
+    }
+
+    /**
+     * @return map version the route was planned on or last checked against
+     */
+    public long getCheckedVersion() {
+        return checkedVersion;
+    }
+
+    /**
+     * @param direction direction code
+     * @return x change for one move in that direction
+     */
+    public static int dx(int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * @param direction direction code
+     * @return y change for one move in that direction
+     */
+    public static int dy(int direction) {
+        return DY[direction];
+    }
+
+    /**
+     * @return true if there are moves left, false if the route is finished
+     */
+    public boolean hasNext() {
+        return next < directions.length;
+    }
+
+    /**
+     * Takes the next move off the route
+     *
+     * @return direction of the move
+     */
+    public int nextDirection() {
+        return directions[next++];
+    }
+
+    /**
+     * @return number of moves left on the route
+     */
+    public int remaining() {
+        return directions.length - next;
+    }
+
+    /**
+     * @return copy of the moves left on the route
+     */
+    public byte[] remainingDirections() {
+        return Arrays.copyOfRange(directions, next, directions.length);
+    }
+
+    /**
+     * Checks whether the rest of the route is still clear. Does nothing unless
+     * the map changed since the last check.
+     *
+     * @param map city map the route runs on
+     * @param x   current x-Coordinate of the unit following the route
+     * @param y   current y-Coordinate of the unit following the route
+     * @return true if every remaining cell is free, false if an obstacle now
+     *         lies on the route
+     */
+    public boolean isClear(CityMap map, int x, int y) {
+        long version = map.getVersion();
+        if (version == checkedVersion) {
+            return true;
+        }
+        int cx = x;
+        int cy = y;
+        for (int i = next; i < directions.length; i++) {
+            cx += DX[directions[i]];
+            cy += DY[directions[i]];
+            if (map.isBlocked(cx, cy)) {
+                return false;
+            }
+        }
+        checkedVersion = version;
+        return true;
+    }
+
+    /**
+     * @return approximate heap bytes used by this route
+     */
+    public long footprintBytes() {
+        return 32 + 16 + directions.length;
+    }
+}
@@ -0,0 +1,82 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+import cityrescue.model.Unit;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves units along shortest routes planned with {@link Router}. A route is
+ * planned once at dispatch and cached on the unit; it is only planned again
+ * when an obstacle appears on the part still to be driven. If the target
+ * cannot be reached the unit falls back to the greedy rule until the map
+ * changes.
+ *
+ * <p>Routers are kept in a pool owned by the mover. A thread planning a route
+ * borrows one and hands it back, so units can be stepped from several threads
+ * at once and there are never more routers than concurrent planners. The
+ * routers go away with the mover, so a pool thread that outlives the
+ * simulation keeps no map-sized buffers alive.</p>
+ */
+public class RoutedMover implements UnitMover {
+
+    private final CityMap map;
+    private final ConcurrentLinkedQueue<Router> routers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger routerCount = new AtomicInteger();
+
+    /**
+     * Creates new routed mover
+     *
+     * @param map city map units move on
+     */
+    public RoutedMover(CityMap map) {
+        this.map = map;
+    }
+
+    @Override
+    public void planRoute(Unit unit, int tx, int ty) {
+        Router router = routers.poll();
+        if (router == null) {
+            router = new Router(map);
+            routerCount.incrementAndGet();
+        }
+        try {
+            Route route = router.findRoute(unit.getX(), unit.getY(), tx, ty);
+            unit.setRoute(route != null ? route : Route.unreachable(map.getVersion()));
+        } finally {
+            routers.offer(router);
+        }
+    }
+
+    @Override
+    public void step(Unit unit, int tx, int ty) {
+        Route route = unit.getRoute();
+        if (route == null || needsReplan(route, unit)) {
+            planRoute(unit, tx, ty);
+            route = unit.getRoute();
+        }
+        if (!route.isReachable() || !route.hasNext()) {
+            GreedyMover.stepGreedy(map, unit, tx, ty);
+            return;
+        }
+        int d = route.nextDirection();
+        unit.setX(unit.getX() + Route.dx(d));
+        unit.setY(unit.getY() + Route.dy(d));
+    }
+
+    /**
+     * @return approximate heap bytes used by the search buffers of every
+     *         router created so far
+     */
+    public long footprintBytes() {
+        return routerCount.get() * Router.footprintBytes(map.getWidth(), map.getHeight());
+    }
+
+    private boolean needsReplan(Route route, Unit unit) {
+        if (!route.isReachable()) {
+            return route.getCheckedVersion() != map.getVersion();
+        }
+        return !route.isClear(map, unit.getX(), unit.getY());
+    }
+}
@@ -0,0 +1,154 @@
+package cityrescue.routing;
+
+import cityrescue.model.CityMap;
+import cityrescue.util.LongMinHeap;
+
+import java.util.Arrays;
+
+/**
+ * A* shortest-path search over the {@link CityMap} with a Manhattan distance
+ * heuristic, which never overestimates on a four-way grid, so the paths it
+ * returns are shortest paths.
+ *
+ * <p>All working buffers are primitive arrays sized to the map and reused
+ * between searches, with an epoch stamp instead of clearing. The open list is
+ * a binary heap of longs packing the f-score and the cell index, so ties
+ * between equal f-scores always resolve the same way. A router is not safe
+ * for use by more than one thread at a time.</p>
+ */
+public class Router {
+
+    private final CityMap map;
+    private final int width;
+    private final int height;
+    private final int[] g;
+    private final int[] seen;
+    private final int[] closed;
+    private final byte[] cameFrom;
+    private final LongMinHeap open;
+    private int epoch;
+
+    /**
+     * Creates new router sized for a map
+     *
+     * @param map city map to route on
+     */
+    public Router(CityMap map) {
+        long cells = (long) map.getWidth() * map.getHeight();
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for routing: " + cells + " cells.");
+        }
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.g = new int[(int) cells];
+        this.seen = new int[(int) cells];
+        this.closed = new int[(int) cells];
+        this.cameFrom = new byte[(int) cells];
+        this.open = new LongMinHeap();
+    }
+
+    /**
+     * Finds a shortest route between two cells. The start cell itself may be
+     * blocked (a unit can always step off a cell an obstacle appeared on).
+     *
+     * @param sx start x-Coordinate
+     * @param sy start y-Coordinate
+     * @param tx target x-Coordinate
+     * @param ty target y-Coordinate
+     * @return the route, or null if the target cannot be reached
+     */
+    public Route findRoute(int sx, int sy, int tx, int ty) {
+        if (sx == tx && sy == ty) {
+            return new Route(new byte[0], map.getVersion());
+        }
+        if (!map.isLegalMove(tx, ty)) {
+            return null;
+        }
+        nextEpoch();
+        int start = sy * width + sx;
+        int goal = ty * width + tx;
+        open.clear();
+        g[start] = 0;
+        seen[start] = epoch;
+        push(heuristic(sx, sy, tx, ty), start);
+        while (!open.isEmpty()) {
+            long top = open.pop();
+            int cell = (int) top;
+            if (closed[cell] == epoch) {
+                continue;
+            }
+            closed[cell] = epoch;
+            if (cell == goal) {
+                return new Route(buildPath(start, goal), map.getVersion());
+            }
+            int x = cell % width;
+            int y = cell / width;
+            int ng = g[cell] + 1;
+            for (int d = 0; d < Route.DIRECTIONS; d++) {
+                int nx = x + Route.dx(d);
+                int ny = y + Route.dy(d);
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height || map.isBlocked(nx, ny)) {
+                    continue;
+                }
+                int n = ny * width + nx;
+                if (closed[n] == epoch) {
+                    continue;
+                }
+                if (seen[n] != epoch || ng < g[n]) {
+                    seen[n] = epoch;
+                    g[n] = ng;
+                    cameFrom[n] = (byte) d;
+                    push(ng + heuristic(nx, ny, tx, ty), n);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return approximate heap bytes used by the search buffers
+     */
+    public long footprintBytes() {
+        return footprintBytes(width, height);
+    }
+
+    /**
+     * @param width  width of the map
+     * @param height height of the map
+     * @return approximate heap bytes a router for a map of that size uses
+     */
+    public static long footprintBytes(int width, int height) {
+        long cells = (long) width * height;
+        return 3L * (16 + 4L * cells) + (16 + cells);
+    }
+
+    private byte[] buildPath(int start, int goal) {
+        int length = g[goal];
+        byte[] path = new byte[length];
+        int cell = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            int d = cameFrom[cell];
+            path[i] = (byte) d;
+            cell -= Route.dy(d) * width + Route.dx(d);
+        }
+        return path;
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if (epoch == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            epoch = 1;
+        }
+    }
+
+    private static int heuristic(int x, int y, int tx, int ty) {
+        return Math.abs(x - tx) + Math.abs(y - ty);
+    }
+
+    private void push(int f, int cell) {
+        open.push(((long) f << 32) | (cell & 0xFFFFFFFFL));
+    }
+}
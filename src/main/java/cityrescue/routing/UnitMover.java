@@ -0,0 +1,31 @@
+package cityrescue.routing;
+
+import cityrescue.model.Unit;
+
+/**
+ * Strategy for moving an EN_ROUTE unit one cell per tick towards its target.
+ *
+ * <p>{@link #step(Unit, int, int)} may be called from several threads at once
+ * for different units, so implementations must not share mutable state
+ * between steps without making it thread-confined.</p>
+ */
+public interface UnitMover {
+
+    /**
+     * Called when a unit is dispatched, before its first move
+     *
+     * @param unit unit that was dispatched
+     * @param tx   target x-Coordinate
+     * @param ty   target y-Coordinate
+     */
+    void planRoute(Unit unit, int tx, int ty);
+
+    /**
+     * Moves a unit at most one cell towards its target
+     *
+     * @param unit unit to move
+     * @param tx   target x-Coordinate
+     * @param ty   target y-Coordinate
+     */
+    void step(Unit unit, int tx, int ty);
+}
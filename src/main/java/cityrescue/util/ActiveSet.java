@@ -0,0 +1,113 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Unordered set of entities keyed by ID with O(1) add, remove and lookup, and
+ * a dense array for iteration. Removal moves the last element into the hole,
+ * so iterate from the end when removing during a walk.
+ *
+ * @param <T> entity type
+ */
+public class ActiveSet<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] items;
+    private int[] ids;
+    private int size;
+    private final IntIntHashMap positions;
+
+    /**
+     * Creates new empty set
+     */
+    public ActiveSet() {
+        items = new Object[DEFAULT_CAPACITY];
+        ids = new int[DEFAULT_CAPACITY];
+        positions = new IntIntHashMap(DEFAULT_CAPACITY, -1);
+    }
+
+    /**
+     * Adds an entity unless one with the same ID is already present
+     *
+     * @param id    ID of the entity
+     * @param value entity to add
+     * @return true if it was added, false if the ID was already present
+     */
+    public boolean add(int id, T value) {
+        if (positions.containsKey(id)) {
+            return false;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        items[size] = value;
+        ids[size] = id;
+        positions.put(id, size);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an entity by ID
+     *
+     * @param id ID of the entity
+     * @return true if it was present, false otherwise
+     */
+    public boolean remove(int id) {
+        int pos = positions.remove(id);
+        if (pos < 0) {
+            return false;
+        }
+        int last = --size;
+        if (pos != last) {
+            items[pos] = items[last];
+            ids[pos] = ids[last];
+            positions.put(ids[pos], pos);
+        }
+        items[last] = null;
+        return true;
+    }
+
+    /**
+     * @param id ID of the entity
+     * @return true if an entity with this ID is present
+     */
+    public boolean contains(int id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * @return number of entities in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index position between 0 and {@link #size()}
+     * @return the entity at that position
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) items[index];
+    }
+
+    /**
+     * @param index position between 0 and {@link #size()}
+     * @return ID of the entity at that position
+     */
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Removes every entity
+     */
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        positions.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable array of references split into pages of 1024 slots. Changing a
+ * few slots through an {@link Editor} copies only the top-level page table and
+ * the pages that were touched; all other pages are shared with the previous
+ * version, so old versions stay valid and cost little to keep.
+ *
+ * @param <T> type of value held
+ */
+public final class ChunkedArray<T> {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final ChunkedArray<?> EMPTY = new ChunkedArray<>(new Object[0][]);
+
+    private final Object[][] pages;
+
+    private ChunkedArray(Object[][] pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * @param <T> type of value held
+     * @return array with every slot null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ChunkedArray<T> empty() {
+        return (ChunkedArray<T>) EMPTY;
+    }
+
+    /**
+     * @param index slot index, 0 or more
+     * @return value in the slot, or null if it was never set
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        int p = index >>> PAGE_BITS;
+        if (p >= pages.length || pages[p] == null) {
+            return null;
+        }
+        return (T) pages[p][index & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * @return number of slots that may hold a value, a multiple of the page
+     *         size
+     */
+    public int capacity() {
+        return pages.length << PAGE_BITS;
+    }
+
+    /**
+     * @return editor producing a changed copy of this array
+     */
+    public Editor<T> edit() {
+        return new Editor<>(pages);
+    }
+
+    /**
+     * Collects slot changes and produces a new array that shares every
+     * untouched page with the original. Not safe for use by more than one
+     * thread at a time.
+     *
+     * @param <T> type of value held
+     */
+    public static final class Editor<T> {
+
+        private Object[][] pages;
+        private boolean[] copied;
+
+        private Editor(Object[][] pages) {
+            this.pages = pages.clone();
+            this.copied = new boolean[pages.length];
+        }
+
+        /**
+         * @param index slot index, 0 or more
+         * @return value in the slot as edited so far, or null
+         */
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            int p = index >>> PAGE_BITS;
+            if (p >= pages.length || pages[p] == null) {
+                return null;
+            }
+            return (T) pages[p][index & (PAGE_SIZE - 1)];
+        }
+
+        /**
+         * @param index slot index, 0 or more
+         * @param value new value, or null to clear the slot
+         */
+        public void set(int index, T value) {
+            int p = index >>> PAGE_BITS;
+            if (p >= pages.length) {
+                int n = Math.max(p + 1, pages.length * 2);
+                pages = Arrays.copyOf(pages, n);
+                copied = Arrays.copyOf(copied, n);
+            }
+            if (!copied[p]) {
+                pages[p] = pages[p] == null ? new Object[PAGE_SIZE] : pages[p].clone();
+                copied[p] = true;
+            }
+            pages[p][index & (PAGE_SIZE - 1)] = value;
+        }
+
+        /**
+         * @return the changed array; the editor must not be used afterwards
+         */
+        public ChunkedArray<T> build() {
+            ChunkedArray<T> result = new ChunkedArray<>(pages);
+            pages = null;
+            return result;
+        }
+    }
+}
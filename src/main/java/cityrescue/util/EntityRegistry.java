@@ -0,0 +1,231 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Dense slot table of entities keyed by their int ID.
+ *
+ * <p>Entities are stored in insertion order, and IDs must be added in strictly
+ * ascending order, so walking the slots from 0 to {@link #slotLimit()} visits
+ * entities in ascending ID order. An {@link IntIntHashMap} maps each ID to its
+ * slot, giving O(1) lookup, insert and remove. Removal leaves an empty slot
+ * behind which is reclaimed by compacting once empty slots outnumber live
+ * ones, so removal is amortised O(1) and the order is never disturbed.</p>
+ *
+ * @param <T> entity type
+ */
+public class EntityRegistry<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MIN_COMPACT_SLOTS = 32;
+
+    private Object[] values;
+    private int[] ids;
+    private int end;
+    private int size;
+    private int lastId;
+    private final IntIntHashMap slotById;
+
+    /**
+     * Creates new empty registry
+     */
+    public EntityRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates new empty registry with room for the given number of entities
+     *
+     * @param initialCapacity number of entities before the storage has to grow
+     */
+    public EntityRegistry(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        values = new Object[capacity];
+        ids = new int[capacity];
+        slotById = new IntIntHashMap(capacity, -1);
+        lastId = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Adds an entity under an ID higher than any ID added before
+     *
+     * @param id    ID of the entity
+     * @param value entity to store
+     * @throws IllegalArgumentException in case of the ID not being higher than
+     *                                  the last added ID, or value being null
+     */
+    public void add(int id, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Registry values must not be null.");
+        }
+        if (id <= lastId) {
+            throw new IllegalArgumentException("IDs must be added in ascending order: " + id + " after " + lastId);
+        }
+        if (end == values.length) {
+            grow(end + 1);
+        }
+        values[end] = value;
+        ids[end] = id;
+        slotById.put(id, end);
+        end++;
+        size++;
+        lastId = id;
+    }
+
+    /**
+     * Finds an entity by ID
+     *
+     * @param id ID of the entity
+     * @return the entity, or null if no entity has that ID
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        int slot = slotById.get(id);
+        return slot < 0 ? null : (T) values[slot];
+    }
+
+    /**
+     * @param id ID of the entity
+     * @return true if an entity with this ID is stored, false otherwise
+     */
+    public boolean contains(int id) {
+        return slotById.containsKey(id);
+    }
+
+    /**
+     * Removes an entity by ID. Slot positions of the remaining entities may
+     * change, so removal must not happen while walking the slots.
+     *
+     * @param id ID of the entity
+     * @return the removed entity, or null if no entity has that ID
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int id) {
+        int slot = slotById.remove(id);
+        if (slot < 0) {
+            return null;
+        }
+        T old = (T) values[slot];
+        values[slot] = null;
+        size--;
+        if (slot == end - 1) {
+            end--;
+        }
+        if (end - size > size && end > MIN_COMPACT_SLOTS) {
+            compact();
+        }
+        return old;
+    }
+
+    /**
+     * @return number of stored entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of slots in use, including empty slots left by removals
+     */
+    public int slotLimit() {
+        return end;
+    }
+
+    /**
+     * Returns the entity in a slot. Slots are ordered by ascending ID.
+     *
+     * @param slot slot index between 0 and {@link #slotLimit()}
+     * @return the entity in the slot, or null if the slot is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    /**
+     * @return array of all stored IDs in ascending order
+     */
+    public int[] ids() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                result[n++] = ids[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies all stored entities into an array in ascending ID order
+     *
+     * @param template array used only for its component type
+     * @return new array holding every stored entity
+     */
+    public T[] toArray(T[] template) {
+        T[] result = Arrays.copyOf(template, size);
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                result[n++] = valueAt(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes sure the registry can hold the given number of entities without
+     * growing
+     *
+     * @param capacity number of entities
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            grow(capacity);
+        }
+        slotById.ensureCapacity(capacity);
+    }
+
+    /**
+     * @return number of entities the registry can hold before growing
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * @return approximate heap bytes used by the registry itself, excluding the
+     *         entities it refers to
+     */
+    public long footprintBytes() {
+        return (16 + 4L * values.length) + (16 + 4L * ids.length) + slotById.footprintBytes();
+    }
+
+    private void grow(int minCapacity) {
+        if (end - size > size) {
+            compact();
+            if (end < values.length && minCapacity <= values.length) {
+                return;
+            }
+        }
+        int newCapacity = Math.max(values.length << 1, minCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+    }
+
+    private void compact() {
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                if (n != i) {
+                    values[n] = values[i];
+                    ids[n] = ids[i];
+                    slotById.put(ids[n], n);
+                }
+                n++;
+            }
+        }
+        Arrays.fill(values, n, end, null);
+        end = n;
+    }
+}
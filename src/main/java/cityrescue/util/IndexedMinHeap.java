@@ -0,0 +1,200 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of values identified by int IDs, each with a long priority
+ * key. An ID to heap position map makes removing any entry and changing its
+ * key (decrease-key and increase-key) O(log n).
+ *
+ * @param <T> type of value held
+ */
+public class IndexedMinHeap<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int[] ids = new int[DEFAULT_CAPACITY];
+    private Object[] values = new Object[DEFAULT_CAPACITY];
+    private final IntIntHashMap positions = new IntIntHashMap(DEFAULT_CAPACITY, -1);
+    private int size;
+
+    /**
+     * Adds a value
+     *
+     * @param id    unique ID of the value
+     * @param key   priority, smallest comes out first
+     * @param value the value
+     * @throws IllegalArgumentException in case of the ID already being held
+     */
+    public void add(int id, long key, T value) {
+        if (positions.containsKey(id)) {
+            throw new IllegalArgumentException("ID " + id + " is already queued.");
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        keys[i] = key;
+        ids[i] = id;
+        values[i] = value;
+        positions.put(id, i);
+        siftUp(i);
+    }
+
+    /**
+     * Changes the priority of a held value, in either direction
+     *
+     * @param id  ID of the value
+     * @param key new priority
+     * @return true if the ID was held, false otherwise
+     */
+    public boolean updateKey(int id, long key) {
+        int i = positions.get(id);
+        if (i < 0) {
+            return false;
+        }
+        long old = keys[i];
+        keys[i] = key;
+        if (key < old) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param id ID of the value
+     * @return the removed value, or null if the ID was not held
+     */
+    public T remove(int id) {
+        int i = positions.get(id);
+        if (i < 0) {
+            return null;
+        }
+        return removeAt(i);
+    }
+
+    /**
+     * Removes and returns the value with the smallest key
+     *
+     * @return the value, or null if the heap is empty
+     */
+    public T poll() {
+        return size == 0 ? null : removeAt(0);
+    }
+
+    /**
+     * @param id ID of a value
+     * @return true if the value is held, false otherwise
+     */
+    public boolean contains(int id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * @return number of values held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gives the value at a heap position, for iterating over all values in no
+     * particular order
+     *
+     * @param index heap position, 0 to size() - 1
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * Removes every value
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * @return approximate heap bytes used by the heap arrays and position map
+     */
+    public long footprintBytes() {
+        return 3 * 16 + (8L + 4 + 4) * keys.length + positions.footprintBytes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeAt(int i) {
+        T value = (T) values[i];
+        positions.remove(ids[i]);
+        int last = --size;
+        if (i != last) {
+            long key = keys[i];
+            move(last, i);
+            if (keys[i] < key) {
+                siftUp(i);
+            } else {
+                siftDown(i);
+            }
+        }
+        values[last] = null;
+        return value;
+    }
+
+    private void siftUp(int i) {
+        long key = keys[i];
+        int id = ids[i];
+        Object value = values[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        place(i, key, id, value);
+    }
+
+    private void siftDown(int i) {
+        long key = keys[i];
+        int id = ids[i];
+        Object value = values[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        place(i, key, id, value);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        ids[to] = ids[from];
+        values[to] = values[from];
+        positions.put(ids[to], to);
+    }
+
+    private void place(int i, long key, int id, Object value) {
+        keys[i] = key;
+        ids[i] = id;
+        values[i] = value;
+        positions.put(id, i);
+    }
+}
@@ -0,0 +1,226 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to int values. Uses linear probing
+ * with backward-shift deletion so lookups never have to skip tombstones, and
+ * stores keys and values in flat primitive arrays (no boxing).
+ */
+public class IntIntHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final int missingValue;
+
+    /**
+     * Creates new empty map
+     *
+     * @param missingValue value returned by get when a key is absent
+     */
+    public IntIntHashMap(int missingValue) {
+        this(DEFAULT_CAPACITY, missingValue);
+    }
+
+    /**
+     * Creates new empty map sized to hold the expected number of keys
+     *
+     * @param expectedSize number of keys expected without resizing
+     * @param missingValue value returned by get when a key is absent
+     */
+    public IntIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the value stored for a key
+     *
+     * @param key key to look up
+     * @return stored value, or the missing value if the key is absent
+     */
+    public int get(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * @param key key to look up
+     * @return true if the key is present, false otherwise
+     */
+    public boolean containsKey(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value
+     *
+     * @param key   key to store
+     * @param value value to store
+     */
+    public void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes a key from the map
+     *
+     * @param key key to remove
+     * @return value that was stored, or the missing value if the key was absent
+     */
+    public int remove(int key) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                int old = values[slot];
+                shiftBack(slot);
+                size--;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Makes sure the map can hold the given number of keys without resizing
+     *
+     * @param expectedSize number of keys expected
+     */
+    public void ensureCapacity(int expectedSize) {
+        int needed = tableSizeFor(expectedSize);
+        if (needed > keys.length) {
+            rehash(needed);
+        }
+    }
+
+    /**
+     * Removes every key from the map
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * @return approximate heap bytes used by the backing arrays
+     */
+    public long footprintBytes() {
+        return 2L * (16 + 4L * keys.length);
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // move the entry into the gap unless its home lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void rehash(int newLength) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newLength);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != EMPTY) {
+                int slot = hash(k) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new int[length];
+        values = new int[length];
+        mask = length - 1;
+        resizeAt = (int) (length * 0.75f);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / 0.75) + 1;
+        int length = Integer.highestOneBit(Math.max(needed, DEFAULT_CAPACITY) - 1) << 1;
+        return Math.max(length, DEFAULT_CAPACITY);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,96 @@
+package cityrescue.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of primitive longs. Callers pack a sort key into the high
+ * bits and a payload into the low bits, e.g. {@code (tick << 32) | id}.
+ */
+public class LongMinHeap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] heap = new long[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a value
+     *
+     * @param value value to add
+     */
+    public void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    /**
+     * @return the smallest value, without removing it
+     * @throws IllegalStateException in case of the heap being empty
+     */
+    public long peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty.");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the smallest value
+     *
+     * @return the smallest value
+     * @throws IllegalStateException in case of the heap being empty
+     */
+    public long pop() {
+        long top = peek();
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = last;
+        }
+        return top;
+    }
+
+    /**
+     * @return number of values in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the heap holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every value
+     */
+    public void clear() {
+        size = 0;
+    }
+}
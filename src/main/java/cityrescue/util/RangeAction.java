@@ -0,0 +1,54 @@
+package cityrescue.util;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join action that splits an index range in halves until the pieces are
+ * no bigger than a grain size, then runs a task on each piece. The pieces are
+ * disjoint, so the task may write to per-index state without locking.
+ */
+public class RangeAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work done on one piece of the range
+     */
+    public interface Task {
+        /**
+         * @param from first index, inclusive
+         * @param to   last index, exclusive
+         */
+        void run(int from, int to);
+    }
+
+    private final Task task;
+    private final int from;
+    private final int to;
+    private final int grain;
+
+    /**
+     * Creates new range action
+     *
+     * @param task  work to run on each piece
+     * @param from  first index, inclusive
+     * @param to    last index, exclusive
+     * @param grain largest piece run without splitting further
+     */
+    public RangeAction(Task task, int from, int to, int grain) {
+        this.task = task;
+        this.from = from;
+        this.to = to;
+        this.grain = Math.max(1, grain);
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            task.run(from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new RangeAction(task, from, mid, grain), new RangeAction(task, mid, to, grain));
+    }
+}
@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class AdvanceTest {
+
+    private CityRescueImpl stepped;
+    private CityRescueImpl jumped;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stepped = new CityRescueImpl();
+        jumped = new CityRescueImpl();
+        for (CityRescueImpl cr : new CityRescueImpl[] { stepped, jumped }) {
+            cr.initialise(12, 12);
+            int a = cr.addStation("A", 0, 0);
+            int b = cr.addStation("B", 11, 11);
+            for (UnitType t : UnitType.values()) {
+                cr.addUnit(a, t);
+                cr.addUnit(b, t);
+            }
+        }
+    }
+
+    @Test
+    void advance_matchesTickingOneByOne() throws Exception {
+        Random rnd = new Random(7);
+        IncidentType[] types = IncidentType.values();
+        for (int round = 0; round < 60; round++) {
+            IncidentType t = types[rnd.nextInt(types.length)];
+            int x = rnd.nextInt(12);
+            int y = rnd.nextInt(12);
+            stepped.reportIncident(t, 3, x, y);
+            jumped.reportIncident(t, 3, x, y);
+            stepped.dispatch();
+            jumped.dispatch();
+
+            int ticks = rnd.nextInt(30);
+            for (int i = 0; i < ticks; i++) {
+                stepped.tick();
+            }
+            jumped.advance(ticks);
+            assertEquals(stepped.getStatus(), jumped.getStatus(), "round " + round);
+        }
+    }
+
+    @Test
+    void advanceUntilQuiescent_finishesAllWork() throws Exception {
+        int i = jumped.reportIncident(IncidentType.FIRE, 2, 6, 6);
+        jumped.dispatch();
+        int ticks = jumped.advanceUntilQuiescent(1000);
+        assertTrue(jumped.isQuiescent());
+        assertTrue(jumped.viewIncident(i).contains("STATUS=RESOLVED"));
+        // 10 moves from station B, then 4 work ticks with the first done on arrival
+        assertEquals(13, ticks);
+        assertEquals(13, jumped.getCurrentTick());
+        assertEquals(0, jumped.advanceUntilQuiescent(1000));
+    }
+}
@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.dispatch.AssignmentSolver;
+import cityrescue.enums.*;
+
+public class BatchDispatchTest {
+
+    private static CityRescueImpl create(boolean batch, int maxSize) throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder()
+                .batchDispatch(batch).batchDispatchMaxSize(maxSize).checkConsistency(true).build());
+        cr.initialise(20, 20);
+        return cr;
+    }
+
+    @Test
+    void batch_servesHigherSeverityFirstWhenUnitsRunShort() throws Exception {
+        for (boolean batch : new boolean[] { false, true }) {
+            CityRescueImpl cr = create(batch, 256);
+            int s = cr.addStation("A", 0, 0);
+            int u = cr.addUnit(s, UnitType.AMBULANCE);
+            int minor = cr.reportIncident(IncidentType.MEDICAL, 1, 1, 0);
+            int major = cr.reportIncident(IncidentType.MEDICAL, 5, 2, 0);
+            cr.dispatch();
+            int served = batch ? major : minor;
+            int waiting = batch ? minor : major;
+            assertTrue(cr.viewIncident(served).contains("UNIT=" + u), "batch=" + batch);
+            assertTrue(cr.viewIncident(waiting).contains("STATUS=REPORTED"), "batch=" + batch);
+        }
+    }
+
+    @Test
+    void batch_lowersTotalResponseDistance() throws Exception {
+        long[] totals = new long[2];
+        for (int mode = 0; mode < 2; mode++) {
+            CityRescueImpl cr = create(mode == 1, 256);
+            cr.addUnit(cr.addStation("A", 0, 0), UnitType.AMBULANCE);
+            cr.addUnit(cr.addStation("B", 10, 0), UnitType.AMBULANCE);
+            cr.reportIncident(IncidentType.MEDICAL, 3, 5, 0);
+            cr.reportIncident(IncidentType.MEDICAL, 3, 0, 1);
+            cr.dispatch();
+            assertEquals(2, cr.getDispatchCount());
+            totals[mode] = cr.getTotalResponseDistance();
+        }
+        assertEquals(5 + 11, totals[0]);
+        assertEquals(1 + 5, totals[1]);
+    }
+
+    @Test
+    void oversizedBatch_fallsBackToGreedy() throws Exception {
+        CityRescueImpl greedy = create(false, 256);
+        CityRescueImpl capped = create(true, 1);
+        Random rnd = new Random(5);
+        for (CityRescueImpl cr : new CityRescueImpl[] { greedy, capped }) {
+            int s = cr.addStation("A", 3, 3);
+            cr.addUnit(s, UnitType.FIRE_ENGINE);
+            cr.addUnit(s, UnitType.FIRE_ENGINE);
+        }
+        for (int i = 0; i < 4; i++) {
+            int sev = 1 + rnd.nextInt(5);
+            int x = rnd.nextInt(20);
+            int y = rnd.nextInt(20);
+            greedy.reportIncident(IncidentType.FIRE, sev, x, y);
+            capped.reportIncident(IncidentType.FIRE, sev, x, y);
+        }
+        greedy.dispatch();
+        capped.dispatch();
+        assertEquals(greedy.getStatus(), capped.getStatus());
+    }
+
+    @Test
+    void solver_matchesBruteForceOnSmallMatrices() {
+        AssignmentSolver solver = new AssignmentSolver();
+        Random rnd = new Random(9);
+        for (int round = 0; round < 200; round++) {
+            int rows = 1 + rnd.nextInt(5);
+            int cols = rows + rnd.nextInt(3);
+            long[] cost = new long[rows * cols];
+            for (int i = 0; i < cost.length; i++) {
+                cost[i] = rnd.nextInt(4) == 0 ? AssignmentSolver.FORBIDDEN : rnd.nextInt(50);
+            }
+            for (int r = 0; r < rows; r++) {
+                cost[r * cols + r] = Math.min(cost[r * cols + r], 60);
+            }
+            int[] assignment = solver.solve(cost, rows, cols, System.nanoTime() + 1_000_000_000L);
+            long total = 0;
+            boolean[] taken = new boolean[cols];
+            for (int r = 0; r < rows; r++) {
+                assertFalse(taken[assignment[r]]);
+                taken[assignment[r]] = true;
+                total += cost[r * cols + assignment[r]];
+            }
+            assertEquals(best(cost, rows, cols, 0, new boolean[cols]), total, "round " + round);
+        }
+    }
+
+    private static long best(long[] cost, int rows, int cols, int r, boolean[] taken) {
+        if (r == rows) {
+            return 0;
+        }
+        long best = Long.MAX_VALUE;
+        for (int c = 0; c < cols; c++) {
+            if (!taken[c] && cost[r * cols + c] < AssignmentSolver.FORBIDDEN) {
+                taken[c] = true;
+                long rest = best(cost, rows, cols, r + 1, taken);
+                taken[c] = false;
+                if (rest != Long.MAX_VALUE) {
+                    best = Math.min(best, cost[r * cols + c] + rest);
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+
+public class BulkApiTest {
+
+    @Test
+    void bulkCalls_matchSingleCalls() throws Exception {
+        CityRescueImpl single = new CityRescueImpl();
+        CityRescueImpl bulk = new CityRescueImpl();
+        single.initialise(20, 20);
+        bulk.initialise(20, 20);
+
+        int[] ox = { 5, 5, 6, 5, 19 };
+        int[] oy = { 0, 1, 1, 0, 19 };
+        for (int i = 0; i < ox.length; i++) {
+            single.addObstacle(ox[i], oy[i]);
+        }
+        bulk.addObstacles(ox, oy);
+
+        String[] names = { "North", "South", "East" };
+        int[] sx = { 10, 10, 18 };
+        int[] sy = { 2, 17, 10 };
+        int first = single.addStation(names[0], sx[0], sy[0]);
+        single.addStation(names[1], sx[1], sy[1]);
+        single.addStation(names[2], sx[2], sy[2]);
+        IdRange stations = bulk.addStations(names, sx, sy);
+        assertEquals(new IdRange(first, 3), stations);
+        assertArrayEquals(single.getStationIds(), stations.toArray());
+
+        for (int s : stations.toArray()) {
+            single.setStationCapacity(s, 10);
+            bulk.setStationCapacity(s, 10);
+            for (int i = 0; i < 4; i++) {
+                single.addUnit(s, UnitType.FIRE_ENGINE);
+            }
+            IdRange units = bulk.addUnits(s, UnitType.FIRE_ENGINE, 4);
+            assertEquals(4, units.size());
+        }
+        assertEquals(0, bulk.addUnits(first, UnitType.AMBULANCE, 0).size());
+        assertArrayEquals(single.getUnitIds(), bulk.getUnitIds());
+
+        single.reportIncident(IncidentType.FIRE, 4, 7, 7);
+        bulk.reportIncident(IncidentType.FIRE, 4, 7, 7);
+        for (int t = 0; t < 20; t++) {
+            single.dispatch();
+            bulk.dispatch();
+            single.tick();
+            bulk.tick();
+        }
+        assertEquals(single.getStatus(), bulk.getStatus());
+    }
+
+    @Test
+    void failingBulkCalls_changeNothing() throws Exception {
+        CityRescueConfig config = CityRescueConfig.builder().stationLimit(3).unitLimit(5).build();
+        CityRescueImpl cr = new CityRescueImpl(config);
+        cr.initialise(10, 10);
+        cr.addObstacle(4, 4);
+        int s = cr.addStation("A", 0, 0);
+        String before = cr.getStatus();
+
+        assertThrows(InvalidLocationException.class, () -> cr.addObstacles(new int[] { 1, 10 }, new int[] { 1, 1 }));
+        assertThrows(IllegalArgumentException.class, () -> cr.addObstacles(new int[] { 1 }, new int[0]));
+        assertThrows(InvalidLocationException.class,
+                () -> cr.addStations(new String[] { "B", "C" }, new int[] { 1, 4 }, new int[] { 1, 4 }));
+        assertThrows(InvalidNameException.class,
+                () -> cr.addStations(new String[] { "B", " " }, new int[] { 1, 2 }, new int[] { 1, 2 }));
+        assertThrows(CapacityExceededException.class, () -> cr.addStations(new String[] { "B", "C", "D" },
+                new int[] { 1, 2, 3 }, new int[] { 1, 2, 3 }));
+        assertEquals(1, cr.getStationIds().length);
+
+        cr.setStationCapacity(s, 4);
+        assertThrows(IllegalStateException.class, () -> cr.addUnits(s, UnitType.AMBULANCE, 5));
+        assertThrows(InvalidUnitException.class, () -> cr.addUnits(s, null, 1));
+        assertThrows(IDNotRecognisedException.class, () -> cr.addUnits(s + 1, UnitType.AMBULANCE, 1));
+        cr.setStationCapacity(s, 10);
+        assertThrows(CapacityExceededException.class, () -> cr.addUnits(s, UnitType.AMBULANCE, 6));
+        assertEquals(0, cr.getUnitIds().length);
+        assertEquals(before, cr.getStatus());
+
+        assertEquals(5, cr.addUnits(s, UnitType.AMBULANCE, 5).size());
+    }
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+
+public class CapacityConfigTest {
+
+    @Test
+    void defaultConfig_hasNoHardIncidentCap() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(10, 10);
+        for (int i = 0; i < 1000; i++) {
+            cr.reportIncident(IncidentType.FIRE, 1 + i % 5, i % 10, (i / 10) % 10);
+        }
+        assertEquals(1000, cr.getIncidentIds().length);
+        assertTrue(cr.getStatus().contains("INCIDENTS=1000"));
+    }
+
+    @Test
+    void softLimits_throwCapacityExceeded_andStateUnchanged() throws Exception {
+        CityRescueConfig config = CityRescueConfig.builder().stationLimit(1).unitLimit(2).incidentLimit(1).build();
+        CityRescueImpl cr = new CityRescueImpl(config);
+        cr.initialise(5, 5);
+
+        int s = cr.addStation("A", 0, 0);
+        assertThrows(CapacityExceededException.class, () -> cr.addStation("B", 1, 1));
+        cr.addUnit(s, UnitType.AMBULANCE);
+        cr.addUnit(s, UnitType.AMBULANCE);
+        assertThrows(CapacityExceededException.class, () -> cr.addUnit(s, UnitType.AMBULANCE));
+        cr.reportIncident(IncidentType.MEDICAL, 1, 2, 2);
+        String before = cr.getStatus();
+        assertThrows(CapacityExceededException.class, () -> cr.reportIncident(IncidentType.MEDICAL, 1, 3, 3));
+        assertEquals(before, cr.getStatus());
+    }
+
+    @Test
+    void memoryReport_listsEachEntityKind() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(5, 5);
+        cr.addUnit(cr.addStation("A", 0, 0), UnitType.POLICE_CAR);
+        String report = cr.getMemoryReport();
+        assertTrue(report.contains("STATIONS COUNT=1"));
+        assertTrue(report.contains("UNITS COUNT=1"));
+        assertTrue(report.contains("INCIDENTS COUNT=0"));
+        assertTrue(report.contains("TOTAL BYTES="));
+    }
+}
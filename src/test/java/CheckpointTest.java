@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class CheckpointTest {
+
+    @Test
+    void restoredSimulation_continuesExactlyLikeTheOriginal() throws Exception {
+        Path dir = Files.createTempDirectory("checkpoint");
+        try {
+            for (int mode = 0; mode < 6; mode++) {
+                CityRescueConfig config = CityRescueConfig.builder()
+                        .routedMovement(mode == 1)
+                        .unitTable(mode == 2)
+                        .multiUnitResponse(mode == 3 || mode == 5)
+                        .batchDispatch(mode == 5)
+                        .rebalanceInterval(mode == 4 ? 4 : 0)
+                        .archiveSpillThreshold(40)
+                        .archiveDirectory(dir)
+                        .checkConsistency(true)
+                        .build();
+                CityRescueImpl original = new CityRescueImpl(config);
+                setUp(original);
+                Random rnd = new Random(mode);
+                for (int round = 0; round < 150; round++) {
+                    step(original, rnd);
+                }
+                Path file = dir.resolve("sim" + mode + ".ckpt");
+                original.saveCheckpoint(file);
+
+                CityRescueImpl restored = new CityRescueImpl(config);
+                restored.initialise(5, 5);
+                restored.loadCheckpoint(file);
+                assertEquals(original.getStatus(), restored.getStatus());
+                assertEquals(original.getDispatchCount(), restored.getDispatchCount());
+
+                Random a = new Random(100 + mode);
+                Random b = new Random(100 + mode);
+                for (int round = 0; round < 150; round++) {
+                    step(original, a);
+                    step(restored, b);
+                    assertEquals(original.getStatus(), restored.getStatus(), "mode " + mode + " round " + round);
+                }
+                assertEquals(original.getTotalResponseDistance(), restored.getTotalResponseDistance());
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void restoredRoute_isRecheckedAgainstObstacles() throws Exception {
+        Path file = Files.createTempFile("checkpoint", ".ckpt");
+        try {
+            CityRescueConfig config = CityRescueConfig.builder().routedMovement(true).checkConsistency(true).build();
+            CityRescueImpl original = new CityRescueImpl(config);
+            original.initialise(10, 3);
+            int unit = original.addUnit(original.addStation("West", 3, 1), UnitType.FIRE_ENGINE);
+            original.reportIncident(IncidentType.FIRE, 1, 8, 1);
+            original.dispatch();
+            original.tick();
+            // the planned straight run now has a wall in it
+            original.addObstacle(5, 1);
+            original.saveCheckpoint(file);
+
+            CityRescueImpl restored = new CityRescueImpl(config);
+            restored.loadCheckpoint(file);
+            for (int t = 0; t < 12; t++) {
+                original.tick();
+                restored.tick();
+                assertEquals(original.getStatus(), restored.getStatus(), "tick " + t);
+                assertFalse(restored.viewUnit(unit).contains("LOC=(5,1)"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void badFiles_areRejected() throws Exception {
+        Path file = Files.createTempFile("checkpoint", ".ckpt");
+        try {
+            CityRescueImpl cr = new CityRescueImpl();
+            setUp(cr);
+            step(cr, new Random(1));
+            cr.saveCheckpoint(file);
+            byte[] bytes = Files.readAllBytes(file);
+
+            Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+            CityRescueImpl target = new CityRescueImpl();
+            try {
+                target.loadCheckpoint(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // truncated
+            }
+            assertEquals(0, target.getUnitIds().length);
+
+            byte[] wrongMagic = bytes.clone();
+            wrongMagic[0] = 'X';
+            Files.write(file, wrongMagic);
+            try {
+                target.loadCheckpoint(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("not a checkpoint"));
+            }
+
+            byte[] wrongVersion = bytes.clone();
+            ByteBuffer.wrap(wrongVersion).putInt(4, 99);
+            Files.write(file, wrongVersion);
+            try {
+                target.loadCheckpoint(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("version"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void step(CityRescueImpl cr, Random rnd) throws Exception {
+        int x = rnd.nextInt(30);
+        int y = rnd.nextInt(30);
+        if (rnd.nextInt(2) == 0 && (x * 7 + y) % 11 != 0) {
+            cr.reportIncident(IncidentType.values()[rnd.nextInt(3)], 1 + rnd.nextInt(5), x, y);
+        }
+        int[] ids = cr.getIncidentIds();
+        if (ids.length > 0 && rnd.nextInt(10) == 0) {
+            try {
+                cr.cancelIncident(ids[rnd.nextInt(ids.length)]);
+            } catch (IllegalStateException e) {
+                // in progress or finished
+            }
+        }
+        if (rnd.nextInt(15) == 0) {
+            try {
+                cr.setUnitOutOfService(1 + rnd.nextInt(12), rnd.nextBoolean());
+            } catch (IllegalStateException e) {
+                // busy or already in that state
+            }
+        }
+        cr.dispatch();
+        cr.tick();
+    }
+
+    private static void setUp(CityRescueImpl cr) throws Exception {
+        cr.initialise(30, 30);
+        for (int x = 0; x < 30; x++) {
+            for (int y = 0; y < 30; y++) {
+                if ((x * 7 + y) % 11 == 0) {
+                    cr.addObstacle(x, y);
+                }
+            }
+        }
+        int a = cr.addStation("North \u00e9", 1, 2);
+        int b = cr.addStation("South", 28, 27);
+        cr.setStationCapacity(a, 10);
+        cr.setStationCapacity(b, 10);
+        for (UnitType t : UnitType.values()) {
+            for (int i = 0; i < 4; i++) {
+                cr.addUnit(i % 2 == 0 ? a : b, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import cityrescue.model.CityMap;
+
+public class CityMapTest {
+
+    @Test
+    void randomEdits_matchReferenceGrid() {
+        int w = 37;
+        int h = 23;
+        CityMap map = new CityMap(w, h);
+        boolean[][] ref = new boolean[w][h];
+        Random rnd = new Random(3);
+        for (int step = 0; step < 3000; step++) {
+            int x1 = rnd.nextInt(w);
+            int y1 = rnd.nextInt(h);
+            int op = rnd.nextInt(4);
+            if (op < 2) {
+                boolean value = op == 0;
+                if (value) {
+                    map.setBlocked(x1, y1);
+                } else {
+                    map.clearBlocked(x1, y1);
+                }
+                ref[x1][y1] = value;
+            } else {
+                int x2 = rnd.nextInt(w);
+                int y2 = rnd.nextInt(h);
+                boolean value = op == 2;
+                if (value) {
+                    map.setBlockedRect(x1, y1, x2, y2);
+                } else {
+                    map.clearBlockedRect(x1, y1, x2, y2);
+                }
+                for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
+                    for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+                        ref[x][y] = value;
+                    }
+                }
+            }
+            int count = 0;
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    assertEquals(ref[x][y], map.isBlocked(x, y));
+                    if (ref[x][y]) {
+                        count++;
+                    }
+                }
+            }
+            assertEquals(count, map.countObstacles());
+        }
+    }
+
+    @Test
+    void version_changesOnlyOnRealChanges() {
+        CityMap map = new CityMap(100, 100);
+        long v = map.getVersion();
+        map.setBlockedRect(10, 10, 80, 12);
+        assertEquals(71 * 3, map.countObstacles());
+        assertNotEquals(v, map.getVersion());
+        v = map.getVersion();
+        map.setBlockedRect(10, 10, 80, 12);
+        map.setBlocked(10, 10);
+        map.clearBlocked(0, 0);
+        map.loadObstacles(map.toBitSet());
+        assertEquals(v, map.getVersion());
+    }
+
+    @Test
+    void loadObstacles_replacesGridAndCount() {
+        CityMap map = new CityMap(70, 3);
+        map.setBlocked(0, 0);
+        BitSet bits = new BitSet();
+        bits.set(69);
+        bits.set(70);
+        bits.set(2 * 70 + 5);
+        map.loadObstacles(bits);
+        assertFalse(map.isBlocked(0, 0));
+        assertTrue(map.isBlocked(69, 0));
+        assertTrue(map.isBlocked(0, 1));
+        assertTrue(map.isBlocked(5, 2));
+        assertEquals(3, map.countObstacles());
+
+        BitSet outside = new BitSet();
+        outside.set(70 * 3);
+        try {
+            map.loadObstacles(outside);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(3, map.countObstacles());
+        }
+    }
+}
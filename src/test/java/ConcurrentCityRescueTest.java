@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.metrics.*;
+
+public class ConcurrentCityRescueTest {
+
+    private static final int THREADS = 8;
+    private static final int REPORTS = 500;
+
+    @Test
+    void concurrentReports_matchSequentialRun() throws Exception {
+        ConcurrentCityRescue concurrent = new ConcurrentCityRescue();
+        CityRescueImpl sequential = new CityRescueImpl();
+        setUp(concurrent);
+        setUp(sequential);
+
+        int total = THREADS * REPORTS;
+        int[][] reported = new int[total + 1][];
+        Throwable[] failure = new Throwable[1];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            Random rnd = new Random(t);
+            producers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < REPORTS; i++) {
+                        int type = rnd.nextInt(IncidentType.values().length);
+                        int sev = 1 + rnd.nextInt(5);
+                        int x = 1 + rnd.nextInt(19);
+                        int y = 1 + rnd.nextInt(19);
+                        int id = concurrent.reportIncident(IncidentType.values()[type], sev, x, y);
+                        synchronized (reported) {
+                            assertNull(reported[id]);
+                            reported[id] = new int[] { type, sev, x, y };
+                        }
+                        assertTrue(concurrent.viewIncident(id).contains("REPORTED"));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        start.countDown();
+        // tick and drain reports while they arrive; nothing is dispatched
+        // yet, so the outcome does not depend on the interleaving
+        for (int i = 0; i < 50; i++) {
+            concurrent.tick();
+            assertTrue(concurrent.getStatus().startsWith("TICK=" + (i + 1)));
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        assertNull(failure[0]);
+        assertEquals(total, concurrent.getIncidentIds().length);
+        assertEquals(0, concurrent.getParkedIncidentCount());
+
+        for (int i = 0; i < 50; i++) {
+            sequential.tick();
+        }
+        for (int id = 1; id <= total; id++) {
+            int[] r = reported[id];
+            assertEquals(id, sequential.reportIncident(IncidentType.values()[r[0]], r[1], r[2], r[3]));
+        }
+        for (int i = 0; i < 50; i++) {
+            sequential.dispatch();
+            concurrent.dispatch();
+            sequential.tick();
+            concurrent.tick();
+        }
+        assertEquals(sequential.getStatus(), concurrent.getStatus());
+    }
+
+    @Test
+    void parkedIncident_isVisibleBeforeDispatch() throws Exception {
+        ConcurrentCityRescue cr = new ConcurrentCityRescue();
+        setUp(cr);
+        int id = cr.reportIncident(IncidentType.FIRE, 3, 4, 5);
+        assertEquals(1, cr.getParkedIncidentCount());
+        assertEquals("I#1 TYPE=FIRE SEV=3 LOC=(4,5) STATUS=REPORTED UNIT=-", cr.viewIncident(id));
+        try {
+            cr.viewIncident(id + 1);
+            fail("Expected IDNotRecognisedException");
+        } catch (cityrescue.exceptions.IDNotRecognisedException e) {
+            // expected
+        }
+        try {
+            cr.reportIncident(IncidentType.FIRE, 3, 0, 0);
+            fail("Expected InvalidLocationException");
+        } catch (cityrescue.exceptions.InvalidLocationException e) {
+            // expected, (0, 0) is blocked
+        }
+        cr.cancelIncident(id);
+        assertEquals(0, cr.getParkedIncidentCount());
+        assertTrue(cr.viewIncident(id).contains("CANCELLED"));
+    }
+
+    @Test
+    void reports_areTimedAndCounted_withMetricsOn() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        ConcurrentCityRescue cr = new ConcurrentCityRescue(
+                CityRescueConfig.builder().metrics(registry).checkConsistency(true).build());
+        setUp(cr);
+        for (int i = 0; i < 5; i++) {
+            cr.reportIncident(IncidentType.MEDICAL, 2, 5 + i, 6);
+        }
+        MetricsSnapshot m = registry.snapshot();
+        assertEquals(5, m.getTimer(Timer.REPORT_INCIDENT).getCount());
+        assertEquals(0, m.getCount(Counter.INCIDENTS_REPORTED));
+        cr.dispatch();
+        assertEquals(5, registry.snapshot().getCount(Counter.INCIDENTS_REPORTED));
+    }
+
+    private static void setUp(CityRescue cr) throws Exception {
+        cr.initialise(20, 20);
+        cr.addObstacle(0, 0);
+        int a = cr.addStation("A", 2, 2);
+        int b = cr.addStation("B", 17, 17);
+        for (UnitType t : UnitType.values()) {
+            cr.addUnit(a, t);
+            cr.addUnit(b, t);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.coverage.*;
+import cityrescue.enums.*;
+import cityrescue.model.CityMap;
+
+public class CoverageTest {
+
+    @Test
+    void rebalancing_returnsDriftedUnits_andRestoresCoverage() throws Exception {
+        CoverageStats[] after = new CoverageStats[2];
+        CoverageStats start = null;
+        for (int mode = 0; mode < 2; mode++) {
+            CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true)
+                    .rebalanceInterval(mode == 1 ? 5 : 0).build());
+            cr.initialise(40, 40);
+            int[] ambulances = new int[4];
+            int[][] sites = { { 5, 5 }, { 34, 5 }, { 5, 34 }, { 34, 34 } };
+            for (int i = 0; i < sites.length; i++) {
+                ambulances[i] = cr.addUnit(cr.addStation("S" + i, sites[i][0], sites[i][1]), UnitType.AMBULANCE);
+            }
+            start = cr.getCoverageStats(UnitType.AMBULANCE);
+
+            // a pile-up in one corner draws every ambulance there
+            for (int i = 0; i < 4; i++) {
+                cr.reportIncident(IncidentType.MEDICAL, 1, 2 + i, 2);
+            }
+            cr.dispatch();
+            cr.advance(200);
+            for (int id : ambulances) {
+                assertTrue(cr.viewUnit(id).endsWith("STATUS=IDLE INCIDENT=-"));
+            }
+            after[mode] = cr.getCoverageStats(UnitType.AMBULANCE);
+            if (mode == 1) {
+                // worst covered station first, so not necessarily back home
+                StringBuilder views = new StringBuilder();
+                for (int id : ambulances) {
+                    views.append(cr.viewUnit(id)).append('\n');
+                }
+                for (int[] site : sites) {
+                    assertTrue(views.indexOf("LOC=(" + site[0] + "," + site[1] + ")") >= 0, views.toString());
+                }
+                assertTrue(cr.isQuiescent());
+            }
+        }
+        assertEquals(1600, start.getCellCount());
+        assertEquals(0, after[0].getUnreachableCount());
+        assertTrue(after[1].getAverageDistance() < after[0].getAverageDistance());
+        assertTrue(after[1].getP95Distance() < after[0].getP95Distance());
+        assertEquals(start.getAverageDistance(), after[1].getAverageDistance(), 1e-9);
+        assertEquals(start.getMaxDistance(), after[1].getMaxDistance());
+    }
+
+    @Test
+    void relocatingUnit_staysDispatchable() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true)
+                .rebalanceInterval(3).routedMovement(true).build());
+        cr.initialise(30, 10);
+        cr.addObstacleRect(10, 0, 10, 7);
+        int home = cr.addStation("Home", 2, 2);
+        int unit = cr.addUnit(home, UnitType.POLICE_CAR);
+        int theft = cr.reportIncident(IncidentType.CRIME, 1, 25, 2);
+        cr.dispatch();
+        for (int t = 0; t < 300 && !cr.viewIncident(theft).contains("STATUS=RESOLVED"); t++) {
+            cr.tick();
+        }
+        for (int t = 0; t < 3 && cr.isQuiescent(); t++) {
+            cr.tick();
+        }
+        assertTrue(cr.viewUnit(unit).contains("STATUS=IDLE"));
+        assertFalse(cr.isQuiescent(), "unit should be heading home");
+        cr.advance(4);
+
+        // a new call on the way home takes the unit straight off its relocation
+        int brawl = cr.reportIncident(IncidentType.CRIME, 1, 20, 9);
+        cr.dispatch();
+        assertTrue(cr.viewUnit(unit).contains("STATUS=EN_ROUTE INCIDENT=" + brawl));
+        cr.advanceUntilQuiescent(300);
+        assertTrue(cr.viewIncident(brawl).contains("STATUS=RESOLVED"));
+
+        cr.advance(100);
+        assertTrue(cr.viewUnit(unit).contains("LOC=(2,2)"));
+        CoverageStats stats = cr.getCoverageStats(UnitType.POLICE_CAR);
+        assertEquals(0, stats.getUnreachableCount());
+        assertEquals(300 - 8, stats.getCellCount());
+        assertEquals(0, cr.getCoverageStats(UnitType.FIRE_ENGINE).getCellCount()
+                - cr.getCoverageStats(UnitType.FIRE_ENGINE).getUnreachableCount());
+    }
+
+    @Test
+    void strandedUnit_countsInStats_butStaysOutOfTheGrid() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true)
+                .rebalanceInterval(1).build());
+        cr.initialise(40, 40);
+        int home = cr.addStation("Home", 5, 5);
+        int first = cr.addUnit(home, UnitType.AMBULANCE);
+        int second = cr.addUnit(home, UnitType.AMBULANCE);
+        cr.reportIncident(IncidentType.MEDICAL, 1, 30, 30);
+        cr.reportIncident(IncidentType.MEDICAL, 1, 31, 30);
+        cr.dispatch();
+        cr.advance(300);
+        // one station, so the second unit back is not needed
+        assertTrue(cr.viewUnit(first).contains("LOC=(5,5)"));
+        String view = cr.viewUnit(second);
+        assertTrue(view.contains("STATUS=IDLE"));
+        assertFalse(view.contains("LOC=(5,5)"));
+        String loc = view.substring(view.indexOf("LOC=(") + 5, view.indexOf(')', view.indexOf("LOC=(")));
+        int x = Integer.parseInt(loc.substring(0, loc.indexOf(',')));
+        int y = Integer.parseInt(loc.substring(loc.indexOf(',') + 1));
+
+        CityRescueImpl still = new CityRescueImpl();
+        still.initialise(40, 40);
+        int s = still.addStation("Home", 5, 5);
+        still.addUnit(s, UnitType.AMBULANCE);
+        still.addUnit(s, UnitType.AMBULANCE);
+        still.reportIncident(IncidentType.MEDICAL, 1, x, y);
+        still.dispatch();
+        still.advance(300);
+        assertEquals(still.getCoverageStats(UnitType.AMBULANCE).toString(),
+                cr.getCoverageStats(UnitType.AMBULANCE).toString());
+    }
+
+    @Test
+    void incrementalSources_matchFullRebuild() {
+        Random rnd = new Random(11);
+        CityMap map = new CityMap(60, 45);
+        for (int i = 0; i < 700; i++) {
+            map.setBlocked(rnd.nextInt(60), rnd.nextInt(45));
+        }
+        CoverageMap incremental = new CoverageMap(map);
+        CoverageMap full = new CoverageMap(map);
+        int[] sources = new int[40];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = rnd.nextInt(45) * 60 + rnd.nextInt(60);
+        }
+        incremental.rebuild(UnitType.AMBULANCE, sources, 3);
+        for (int i = 3; i < sources.length; i++) {
+            incremental.addSource(UnitType.AMBULANCE, sources[i] % 60, sources[i] / 60);
+            full.rebuild(UnitType.AMBULANCE, sources, i + 1);
+            for (int y = 0; y < 45; y++) {
+                for (int x = 0; x < 60; x++) {
+                    assertEquals(full.distance(UnitType.AMBULANCE, x, y), incremental.distance(UnitType.AMBULANCE, x, y));
+                }
+            }
+        }
+        assertEquals(full.stats(UnitType.AMBULANCE).toString(), incremental.stats(UnitType.AMBULANCE).toString());
+
+        map.setBlocked(0, 0);
+        assertFalse(incremental.isValid(UnitType.AMBULANCE));
+        incremental.addSource(UnitType.AMBULANCE, 1, 1);
+        assertFalse(incremental.isValid(UnitType.AMBULANCE));
+    }
+}
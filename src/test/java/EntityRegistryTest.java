@@ -0,0 +1,56 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import cityrescue.util.*;
+
+public class EntityRegistryTest {
+    private EntityRegistry<String> reg;
+
+    @BeforeEach
+    void setUp() {
+        reg = new EntityRegistry<>(2);
+    }
+
+    @Test
+    void add_get_remove_keepsAscendingIdOrder() {
+        for (int id = 1; id <= 100; id++) {
+            reg.add(id, "E" + id);
+        }
+        for (int id = 1; id <= 100; id += 2) {
+            assertEquals("E" + id, reg.remove(id));
+        }
+        assertNull(reg.get(1));
+        assertEquals("E2", reg.get(2));
+        assertEquals(50, reg.size());
+
+        int[] ids = reg.ids();
+        assertEquals(50, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(2 * (i + 1), ids[i]);
+        }
+        reg.add(101, "E101");
+        assertEquals("E101", reg.get(101));
+        assertEquals(101, reg.ids()[50]);
+    }
+
+    @Test
+    void add_rejectsNonAscendingIds() {
+        reg.add(5, "a");
+        assertThrows(IllegalArgumentException.class, () -> reg.add(5, "b"));
+        assertThrows(IllegalArgumentException.class, () -> reg.add(3, "c"));
+    }
+
+    @Test
+    void intIntHashMap_removeKeepsProbeChainsIntact() {
+        IntIntHashMap m = new IntIntHashMap(-1);
+        for (int k = 0; k < 1000; k++) {
+            m.put(k * 16, k);
+        }
+        for (int k = 0; k < 1000; k += 3) {
+            assertEquals(k, m.remove(k * 16));
+        }
+        for (int k = 0; k < 1000; k++) {
+            assertEquals(k % 3 == 0 ? -1 : k, m.get(k * 16));
+        }
+    }
+}
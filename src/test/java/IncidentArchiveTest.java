@@ -0,0 +1,139 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.archive.IncidentArchive;
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+import cityrescue.model.Incident;
+
+public class IncidentArchiveTest {
+
+    @Test
+    void spilledArchive_readsLikeMemoryArchive() throws Exception {
+        Path dir = Files.createTempDirectory("archive-test");
+        CityRescueImpl memory = new CityRescueImpl();
+        CityRescueImpl spilling = new CityRescueImpl(CityRescueConfig.builder()
+                .archiveSpillThreshold(3).archiveDirectory(dir).checkConsistency(true).build());
+        Random rnd = new Random(17);
+        for (CityRescueImpl cr : new CityRescueImpl[] { memory, spilling }) {
+            cr.initialise(15, 15);
+            int s = cr.addStation("A", 7, 7);
+            cr.setStationCapacity(s, 6);
+            for (UnitType t : UnitType.values()) {
+                cr.addUnit(s, t);
+                cr.addUnit(s, t);
+            }
+        }
+        IncidentType[] types = IncidentType.values();
+        for (int round = 0; round < 150; round++) {
+            IncidentType t = types[rnd.nextInt(types.length)];
+            int sev = 1 + rnd.nextInt(5);
+            int x = rnd.nextInt(15);
+            int y = rnd.nextInt(15);
+            int id = memory.reportIncident(t, sev, x, y);
+            spilling.reportIncident(t, sev, x, y);
+            if (rnd.nextInt(5) == 0) {
+                memory.cancelIncident(id);
+                spilling.cancelIncident(id);
+            }
+            memory.dispatch();
+            spilling.dispatch();
+            memory.tick();
+            spilling.tick();
+            assertEquals(memory.getStatus(), spilling.getStatus(), "round " + round);
+        }
+        for (int i = 0; i < 20; i++) {
+            memory.dispatch();
+            spilling.dispatch();
+            memory.advanceUntilQuiescent(1000);
+            spilling.advanceUntilQuiescent(1000);
+        }
+        assertEquals(memory.getStatus(), spilling.getStatus());
+
+        int[] ids = spilling.getIncidentIds();
+        assertArrayEquals(memory.getIncidentIds(), ids);
+        assertEquals(150, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i + 1, ids[i]);
+            assertEquals(memory.viewIncident(ids[i]), spilling.viewIncident(ids[i]));
+        }
+        assertTrue(spilling.getMemoryReport().contains("ARCHIVE COUNT=150"));
+        try (var files = Files.list(dir)) {
+            assertTrue(files.findAny().isPresent());
+        }
+        spilling.initialise(5, 5);
+        try (var files = Files.list(dir)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+
+    @Test
+    void cursor_staysInIdOrder_asRowsArriveOutOfOrder() {
+        Random rnd = new Random(3);
+        int[] order = new int[400];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i + 1;
+        }
+        // mostly ascending, with some late finishers
+        for (int i = 0; i < 60; i++) {
+            int a = rnd.nextInt(order.length);
+            int b = Math.min(order.length - 1, a + rnd.nextInt(30));
+            int t = order[a];
+            order[a] = order[b];
+            order[b] = t;
+        }
+        IncidentArchive archive = new IncidentArchive(0, null);
+        boolean[] added = new boolean[order.length + 1];
+        for (int i = 0; i < order.length; i++) {
+            Incident inc = new Incident(order[i], IncidentType.CRIME, 1, 0, 0);
+            inc.setStatus(IncidentStatus.RESOLVED);
+            archive.add(inc);
+            added[order[i]] = true;
+            if (rnd.nextInt(4) == 0 || i == order.length - 1) {
+                IncidentArchive.Cursor cursor = archive.cursor();
+                for (int id = 1; id <= order.length; id++) {
+                    if (added[id]) {
+                        assertTrue(cursor.next());
+                        assertEquals(id, cursor.get().getId());
+                    }
+                }
+                assertFalse(cursor.next());
+            }
+        }
+        archive.close();
+    }
+
+    @Test
+    void archivedIncident_keepsTerminalErrors() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(5, 5);
+        int id = cr.reportIncident(IncidentType.FIRE, 2, 1, 1);
+        cr.cancelIncident(id);
+        assertTrue(cr.viewIncident(id).endsWith("STATUS=CANCELLED UNIT=-"));
+        try {
+            cr.cancelIncident(id);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            cr.escalateIncident(id, 9);
+            fail("expected InvalidSeverityException");
+        } catch (InvalidSeverityException e) {
+        }
+        try {
+            cr.escalateIncident(id, 3);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            cr.viewIncident(id + 1);
+            fail("expected IDNotRecognisedException");
+        } catch (IDNotRecognisedException e) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.ingest.*;
+
+public class IngestTest {
+
+    @Test
+    void csvAndBinaryFeeds_matchHandWrittenLoop() throws Exception {
+        Path csv = Files.createTempFile("incidents", ".csv");
+        Path bin = Files.createTempFile("incidents", ".bin");
+        try {
+            Random rnd = new Random(4);
+            int[][] rows = new int[3000][];
+            StringBuilder sb = new StringBuilder("tick,type,severity,x,y\r\n# historical log\n\n");
+            int tick = 0;
+            for (int i = 0; i < rows.length; i++) {
+                tick += rnd.nextInt(3) == 0 ? 1 : 0;
+                int type = rnd.nextInt(3);
+                int severity = rnd.nextInt(50) == 0 ? 7 : 1 + rnd.nextInt(5);
+                int x = rnd.nextInt(50) == 0 ? 40 : rnd.nextInt(30);
+                int y = rnd.nextInt(30);
+                rows[i] = new int[] { tick, type, severity, x, y };
+                String name = IncidentType.values()[type].name();
+                sb.append(tick).append(',').append(i % 2 == 0 ? name : name.toLowerCase()).append(", ")
+                        .append(severity).append(',').append(x).append(',').append(y).append(i % 3 == 0 ? "\r\n" : "\n");
+            }
+            sb.append("5,EARTHQUAKE,3,1,1");
+            Files.write(csv, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+            CityRescueImpl expected = newSimulation();
+            int next = 0;
+            int rejected = 1;
+            for (int t = 0; t <= tick; t++) {
+                while (next < rows.length && rows[next][0] <= t) {
+                    int[] r = rows[next++];
+                    try {
+                        expected.reportIncident(IncidentType.values()[r[1]], r[2], r[3], r[4]);
+                    } catch (Exception e) {
+                        rejected++;
+                    }
+                }
+                expected.dispatch();
+                expected.tick();
+            }
+
+            try (BinaryIncidentWriter writer = new BinaryIncidentWriter(bin);
+                    CsvIncidentReader source = new CsvIncidentReader(csv)) {
+                assertEquals(rows.length + 1, writer.writeAll(source));
+            }
+            for (int feed = 0; feed < 2; feed++) {
+                IncidentSource source = feed == 0 ? new CsvIncidentReader(csv) : new BinaryIncidentReader(bin);
+                CityRescueImpl cr = newSimulation();
+                // tiny buffers so the reader keeps waiting for the simulation
+                try (IncidentIngestor ingestor = new IncidentIngestor(source, 30, 30, 7, 2)) {
+                    assertEquals(0, ingestor.nextTick());
+                    while (ingestor.nextTick() >= 0) {
+                        ingestor.injectDue(cr, cr.getCurrentTick());
+                        cr.dispatch();
+                        cr.tick();
+                    }
+                    assertEquals(rows.length + 1, ingestor.getInjectedCount() + ingestor.getRejectedCount());
+                    assertEquals(rejected, ingestor.getRejectedCount());
+                }
+                assertEquals(expected.getStatus(), cr.getStatus(), "feed " + feed);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(bin);
+        }
+    }
+
+    @Test
+    void malformedFeeds_failInjection() throws Exception {
+        Path csv = Files.createTempFile("incidents", ".csv");
+        try {
+            Files.write(csv, "0,FIRE,3,1,1\n1,FIRE,3,1\n".getBytes(StandardCharsets.US_ASCII));
+            CityRescueImpl cr = newSimulation();
+            try (IncidentIngestor ingestor = new IncidentIngestor(new CsvIncidentReader(csv), 30, 30)) {
+                try {
+                    ingestor.injectDue(cr, 10);
+                    fail("malformed line accepted");
+                } catch (IOException expected) {
+                    assertTrue(expected.getMessage().contains("Line 2"));
+                }
+            }
+
+            Files.write(csv, "not a feed".getBytes(StandardCharsets.US_ASCII));
+            try {
+                new BinaryIncidentReader(csv).close();
+                fail("wrong magic accepted");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    private static CityRescueImpl newSimulation() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(30, 30);
+        cr.addObstacleRect(12, 5, 12, 25);
+        int s = cr.addStation("Centre", 15, 15);
+        cr.setStationCapacity(s, 20);
+        for (UnitType t : UnitType.values()) {
+            for (int i = 0; i < 5; i++) {
+                cr.addUnit(s, t);
+            }
+        }
+        return cr;
+    }
+}
@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.journal.JournalReplayer;
+import cityrescue.journal.JournalWriter;
+import cityrescue.journal.JournalingCityRescue;
+
+public class JournalTest {
+
+    @Test
+    void replay_rebuildsIdenticalState() throws Exception {
+        Path file = Files.createTempFile("city", ".journal");
+        try {
+            CityRescueImpl original = new CityRescueImpl();
+            long calls;
+            // tiny segments so records and names wrap around the ring
+            try (JournalWriter journal = new JournalWriter(file, 64, 2)) {
+                JournalingCityRescue cr = new JournalingCityRescue(original, journal);
+                calls = run(cr, new Random(11));
+            }
+
+            CityRescueImpl replayed = new CityRescueImpl();
+            assertEquals(calls, JournalReplayer.replay(file, replayed));
+            assertEquals(original.getStatus(), replayed.getStatus());
+
+            CityRescueImpl partial = new CityRescueImpl();
+            assertEquals(5, JournalReplayer.replay(file, partial, 5));
+            assertEquals(2, partial.getStationIds().length);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void batchGiveUps_areReplayedExactly() throws Exception {
+        Path file = Files.createTempFile("city", ".journal");
+        try {
+            CityRescueConfig batch = CityRescueConfig.builder().batchDispatch(true).build();
+            CityRescueImpl original = new CityRescueImpl(batch);
+            try (JournalWriter journal = new JournalWriter(file)) {
+                run(new JournalingCityRescue(original, journal), new Random(5));
+            }
+            CityRescueImpl replayed = new CityRescueImpl(batch);
+            JournalReplayer.replay(file, replayed);
+            assertEquals(original.getStatus(), replayed.getStatus());
+
+            // giving up before the first batch leaves everything to the
+            // one-by-one dispatch
+            CityRescueImpl cutOff = new CityRescueImpl(batch);
+            CityRescueImpl plain = new CityRescueImpl();
+            for (CityRescueImpl cr : new CityRescueImpl[] { cutOff, plain }) {
+                cr.initialise(20, 20);
+                int s = cr.addStation("S", 10, 10);
+                for (int i = 0; i < 4; i++) {
+                    cr.addUnit(s, UnitType.AMBULANCE);
+                }
+                for (int i = 0; i < 4; i++) {
+                    cr.reportIncident(IncidentType.MEDICAL, 1 + i, 2 + 4 * i, 3 * i);
+                }
+            }
+            cutOff.dispatch(0);
+            plain.dispatch();
+            assertEquals(0, cutOff.getLastBatchCutoff());
+            assertEquals(-1, plain.getLastBatchCutoff());
+            assertEquals(plain.getStatus(), cutOff.getStatus());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void badJournals_areRejected() throws Exception {
+        Path file = Files.createTempFile("city", ".journal");
+        try {
+            try (JournalWriter journal = new JournalWriter(file)) {
+                run(new JournalingCityRescue(new CityRescueImpl(), journal), new Random(3));
+            }
+            byte[] bytes = Files.readAllBytes(file);
+
+            Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+            try {
+                JournalReplayer.replay(file, new CityRescueImpl());
+                fail("truncated journal accepted");
+            } catch (IOException expected) {
+            }
+
+            byte[] wrongMagic = bytes.clone();
+            wrongMagic[0] = 'X';
+            Files.write(file, wrongMagic);
+            try {
+                JournalReplayer.replay(file, new CityRescueImpl());
+                fail("wrong magic accepted");
+            } catch (IOException expected) {
+            }
+
+            // replaying into a simulation that already has a station gives
+            // other IDs than the ones recorded
+            Files.write(file, bytes);
+            CityRescueImpl busy = new CityRescueImpl();
+            busy.initialise(30, 30);
+            busy.addStation("Extra", 0, 1);
+            byte[] noInitialise = new byte[bytes.length - 9];
+            System.arraycopy(bytes, 0, noInitialise, 0, 8);
+            System.arraycopy(bytes, 17, noInitialise, 8, bytes.length - 17);
+            Files.write(file, noInitialise);
+            try {
+                JournalReplayer.replay(file, busy);
+                fail("diverged replay accepted");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("diverged"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long run(CityRescue cr, Random rnd) throws Exception {
+        long calls = 0;
+        cr.initialise(30, 30);
+        int a = cr.addStation("North \u00e9 with a name longer than one segment of the ring", 1, 2);
+        int b = cr.addStation("South", 28, 27);
+        cr.setStationCapacity(a, 10);
+        cr.setStationCapacity(b, 10);
+        calls += 5;
+        for (UnitType t : UnitType.values()) {
+            for (int i = 0; i < 3; i++) {
+                cr.addUnit(i % 2 == 0 ? a : b, t);
+                calls++;
+            }
+        }
+        for (int x = 5; x < 25; x += 3) {
+            cr.addObstacle(x, 15);
+            calls++;
+        }
+        cr.removeObstacle(8, 15);
+        calls++;
+        for (int round = 0; round < 200; round++) {
+            int x = rnd.nextInt(30);
+            int y = rnd.nextInt(30);
+            try {
+                cr.reportIncident(IncidentType.values()[rnd.nextInt(3)], 1 + rnd.nextInt(5), x, y);
+                calls++;
+            } catch (Exception e) {
+                // blocked cell, not recorded
+            }
+            int[] ids = cr.getIncidentIds();
+            if (ids.length > 0 && rnd.nextInt(8) == 0) {
+                try {
+                    cr.escalateIncident(ids[rnd.nextInt(ids.length)], 1 + rnd.nextInt(5));
+                    calls++;
+                } catch (IllegalStateException e) {
+                    // finished
+                }
+            }
+            if (ids.length > 0 && rnd.nextInt(10) == 0) {
+                try {
+                    cr.cancelIncident(ids[rnd.nextInt(ids.length)]);
+                    calls++;
+                } catch (IllegalStateException e) {
+                    // in progress or finished
+                }
+            }
+            if (rnd.nextInt(15) == 0) {
+                try {
+                    cr.setUnitOutOfService(1 + rnd.nextInt(9), rnd.nextBoolean());
+                    calls++;
+                } catch (IllegalStateException e) {
+                    // busy or already in that state
+                }
+            }
+            if (rnd.nextInt(40) == 0) {
+                try {
+                    cr.transferUnit(1 + rnd.nextInt(9), rnd.nextBoolean() ? a : b);
+                    calls++;
+                } catch (IllegalStateException e) {
+                    // busy or station full
+                }
+            }
+            cr.dispatch();
+            cr.tick();
+            calls += 2;
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class LinkConsistencyTest {
+
+    @Test
+    void randomOperations_keepLinksConsistent() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true).build());
+        cr.initialise(16, 16);
+        int a = cr.addStation("A", 1, 1);
+        int b = cr.addStation("B", 14, 14);
+        Random rnd = new Random(11);
+        UnitType[] unitTypes = UnitType.values();
+        IncidentType[] incidentTypes = IncidentType.values();
+        for (int step = 0; step < 2000; step++) {
+            int[] unitIds = cr.getUnitIds();
+            int[] incidentIds = cr.getIncidentIds();
+            try {
+                switch (rnd.nextInt(8)) {
+                    case 0:
+                        cr.addUnit(rnd.nextBoolean() ? a : b, unitTypes[rnd.nextInt(unitTypes.length)]);
+                        break;
+                    case 1:
+                        cr.reportIncident(incidentTypes[rnd.nextInt(incidentTypes.length)], 1 + rnd.nextInt(5),
+                                rnd.nextInt(16), rnd.nextInt(16));
+                        break;
+                    case 2:
+                        if (incidentIds.length > 0) {
+                            cr.cancelIncident(incidentIds[rnd.nextInt(incidentIds.length)]);
+                        }
+                        break;
+                    case 3:
+                        if (unitIds.length > 0) {
+                            cr.setUnitOutOfService(unitIds[rnd.nextInt(unitIds.length)], rnd.nextBoolean());
+                        }
+                        break;
+                    case 4:
+                        if (unitIds.length > 0) {
+                            cr.transferUnit(unitIds[rnd.nextInt(unitIds.length)], rnd.nextBoolean() ? a : b);
+                        }
+                        break;
+                    case 5:
+                        if (unitIds.length > 4) {
+                            cr.decommissionUnit(unitIds[rnd.nextInt(unitIds.length)]);
+                        }
+                        break;
+                    case 6:
+                        cr.dispatch();
+                        break;
+                    default:
+                        cr.tick();
+                        break;
+                }
+            } catch (IllegalStateException e) {
+                assertFalse(e.getMessage().startsWith("Link check failed"), e.getMessage());
+            } catch (Exception e) {
+                // rejected operations are expected and must leave links untouched
+            }
+            cr.checkConsistency();
+        }
+    }
+
+    @Test
+    void dispatchAndResolve_linkBothWays() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true).build());
+        cr.initialise(8, 8);
+        int s = cr.addStation("A", 0, 0);
+        int u = cr.addUnit(s, UnitType.AMBULANCE);
+        int i = cr.reportIncident(IncidentType.MEDICAL, 1, 2, 0);
+        cr.dispatch();
+        assertTrue(cr.viewUnit(u).contains("INCIDENT=" + i));
+        assertTrue(cr.viewIncident(i).contains("UNIT=" + u));
+        cr.advanceUntilQuiescent(100);
+        assertTrue(cr.viewUnit(u).contains("INCIDENT=-"));
+        assertTrue(cr.viewIncident(i).contains("STATUS=RESOLVED"));
+    }
+}
@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.exceptions.InvalidGridException;
+import cityrescue.model.CityMap;
+import cityrescue.model.MappedCityMap;
+
+public class MappedCityMapTest {
+
+    @Test
+    void randomEdits_matchHeapMap_andSurviveReopen() throws Exception {
+        Path file = Files.createTempFile("city", ".map");
+        Files.delete(file);
+        try {
+            int w = 131;
+            int h = 29;
+            CityMap heap = new CityMap(w, h);
+            try (MappedCityMap mapped = MappedCityMap.open(file, w, h)) {
+                Random rnd = new Random(5);
+                for (int step = 0; step < 2000; step++) {
+                    int x1 = rnd.nextInt(w);
+                    int y1 = rnd.nextInt(h);
+                    int x2 = rnd.nextInt(w);
+                    int y2 = rnd.nextInt(h);
+                    switch (rnd.nextInt(4)) {
+                        case 0:
+                            heap.setBlocked(x1, y1);
+                            mapped.setBlocked(x1, y1);
+                            break;
+                        case 1:
+                            heap.clearBlocked(x1, y1);
+                            mapped.clearBlocked(x1, y1);
+                            break;
+                        case 2:
+                            heap.setBlockedRect(x1, y1, x2, y2);
+                            mapped.setBlockedRect(x1, y1, x2, y2);
+                            break;
+                        default:
+                            heap.clearBlockedRect(x1, y1, x2, y2);
+                            mapped.clearBlockedRect(x1, y1, x2, y2);
+                    }
+                    assertEquals(heap.countObstacles(), mapped.countObstacles());
+                }
+                assertEquals(heap.toBitSet(), mapped.toBitSet());
+            }
+            try (MappedCityMap reopened = MappedCityMap.open(file, w, h)) {
+                assertEquals(heap.countObstacles(), reopened.countObstacles());
+                for (int x = 0; x < w; x++) {
+                    for (int y = 0; y < h; y++) {
+                        assertEquals(heap.isBlocked(x, y), reopened.isBlocked(x, y));
+                    }
+                }
+            }
+            try {
+                MappedCityMap.open(file, w + 1, h);
+                fail("size mismatch accepted");
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void simulationOnMappedMap_matchesHeapMap() throws Exception {
+        Path file = Files.createTempFile("city", ".map");
+        Files.delete(file);
+        try {
+            CityRescueImpl heap = new CityRescueImpl();
+            CityRescueImpl mapped = new CityRescueImpl(CityRescueConfig.builder().mapFile(file).build());
+            for (CityRescueImpl cr : new CityRescueImpl[] { heap, mapped }) {
+                cr.initialise(40, 30);
+                cr.addObstacleRect(10, 0, 10, 25);
+                cr.addObstacle(20, 20);
+                int s = cr.addStation("North", 2, 2);
+                cr.setStationCapacity(s, 10);
+                cr.addUnit(s, UnitType.AMBULANCE);
+                cr.addUnit(s, UnitType.FIRE_ENGINE);
+                cr.addUnit(s, UnitType.POLICE_CAR);
+                cr.reportIncident(IncidentType.MEDICAL, 3, 30, 5);
+                cr.reportIncident(IncidentType.FIRE, 4, 15, 28);
+                cr.reportIncident(IncidentType.CRIME, 2, 5, 20);
+                cr.dispatch();
+            }
+            for (int t = 0; t < 60; t++) {
+                heap.tick();
+                mapped.tick();
+                assertEquals(heap.getStatus(), mapped.getStatus(), "tick " + t);
+            }
+
+            // a new simulation on the same file starts with its obstacles
+            mapped.initialise(40, 30);
+            assertTrue(mapped.getStatus().contains("OBSTACLES=27"));
+            try {
+                mapped.initialise(41, 30);
+                fail("size mismatch accepted");
+            } catch (InvalidGridException expected) {
+            }
+            mapped.removeObstacle(20, 20);
+            assertTrue(mapped.getStatus().contains("OBSTACLES=26"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.metrics.*;
+
+public class MetricsTest {
+
+    @Test
+    void histogram_percentilesWithinBucketPrecision() {
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 100000; v++) {
+            h.record(v);
+        }
+        HistogramSnapshot s = h.snapshot();
+        assertEquals(100000, s.getCount());
+        assertEquals(1, s.getMin());
+        assertEquals(100000, s.getMax());
+        assertEquals(50000.5, s.getMean(), 1e-9);
+        for (double p : new double[] { 1, 50, 90, 99, 99.9 }) {
+            double expected = p * 1000;
+            assertEquals(expected, s.getValueAtPercentile(p), expected * 0.04);
+        }
+        assertEquals(100000, s.getValueAtPercentile(100));
+        h.reset();
+        assertEquals(0, h.snapshot().getCount());
+        assertEquals(0, h.snapshot().getValueAtPercentile(50));
+    }
+
+    @Test
+    void simulation_recordsCountsAndResponseTimes() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        CityRescueImpl plain = new CityRescueImpl();
+        CityRescueImpl measured = new CityRescueImpl(CityRescueConfig.builder().metrics(registry).build());
+        int reported = 0;
+        for (CityRescueImpl cr : new CityRescueImpl[] { plain, measured }) {
+            cr.initialise(30, 30);
+            int s = cr.addStation("Centre", 15, 15);
+            cr.setStationCapacity(s, 10);
+            for (UnitType t : UnitType.values()) {
+                cr.addUnit(s, t);
+                cr.addUnit(s, t);
+            }
+            Random rnd = new Random(9);
+            reported = 0;
+            for (int round = 0; round < 300; round++) {
+                if (rnd.nextInt(3) == 0) {
+                    cr.reportIncident(IncidentType.values()[rnd.nextInt(3)], 1 + rnd.nextInt(5), rnd.nextInt(30),
+                            rnd.nextInt(30));
+                    reported++;
+                }
+                cr.dispatch();
+                cr.tick();
+            }
+        }
+        assertEquals(plain.getStatus(), measured.getStatus());
+
+        MetricsSnapshot m = registry.snapshot();
+        assertEquals(reported, m.getCount(Counter.INCIDENTS_REPORTED));
+        assertEquals(measured.getDispatchCount(), m.getCount(Counter.UNITS_DISPATCHED));
+        assertEquals(300, m.getCount(Counter.TICKS));
+        assertEquals(300, m.getTimer(Timer.TICK).getCount());
+        assertEquals(300, m.getTimer(Timer.TICK_MOVE).getCount());
+        assertEquals(300, m.getTimer(Timer.TICK_REBALANCE).getCount());
+        assertEquals(300, m.getTimer(Timer.DISPATCH).getCount());
+        assertEquals(reported, m.getTimer(Timer.REPORT_INCIDENT).getCount());
+        assertEquals(1, m.getTimer(Timer.GET_STATUS).getCount());
+
+        long resolved = 0;
+        long dispatched = 0;
+        long arrived = 0;
+        for (IncidentType type : IncidentType.values()) {
+            dispatched += m.getResponse(type, ResponseStage.REPORT_TO_DISPATCH).getCount();
+            arrived += m.getResponse(type, ResponseStage.DISPATCH_TO_ARRIVAL).getCount();
+            resolved += m.getResponse(type, ResponseStage.ARRIVAL_TO_RESOLVE).getCount();
+        }
+        assertEquals(m.getCount(Counter.UNITS_DISPATCHED), dispatched);
+        assertEquals(m.getCount(Counter.INCIDENTS_RESOLVED), resolved);
+        assertTrue(resolved > 50 && arrived >= resolved && dispatched >= arrived);
+
+        int pending = 0;
+        for (int id : measured.getIncidentIds()) {
+            if (measured.viewIncident(id).contains("REPORTED")) {
+                pending++;
+            }
+        }
+        assertEquals(pending, m.getGauge(Gauge.PENDING_INCIDENTS));
+
+        String text = MetricsExporter.toText(m);
+        assertTrue(text.contains("cityrescue_incidents_reported_total " + reported + "\n"));
+        assertTrue(text.contains("cityrescue_timer_nanos_count{timer=\"tick\"} 300\n"));
+        assertTrue(text.contains("cityrescue_response_ticks{type=\"fire\",stage=\"report_to_dispatch\",quantile=\"0.5\"} "));
+    }
+}
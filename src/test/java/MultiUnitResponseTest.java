@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class MultiUnitResponseTest {
+
+    @Test
+    void severeIncident_getsTeam_andCrewSharesWork() throws Exception {
+        for (int mode = 0; mode < 2; mode++) {
+            CityRescueImpl cr = new CityRescueImpl(config().unitTable(mode == 1).build());
+            cr.initialise(30, 5);
+            int near = cr.addUnit(cr.addStation("West", 10, 0), UnitType.FIRE_ENGINE);
+            int other = cr.addUnit(cr.addStation("Middle", 14, 0), UnitType.FIRE_ENGINE);
+            int far = cr.addUnit(cr.addStation("East", 20, 0), UnitType.FIRE_ENGINE);
+            int fire = cr.reportIncident(IncidentType.FIRE, 5, 12, 0);
+            assertTrue(cr.viewIncident(fire).endsWith("STATUS=REPORTED UNIT=- TEAM=0/3"));
+
+            cr.dispatch();
+            assertTrue(cr.viewIncident(fire).contains("STATUS=DISPATCHED"));
+            assertTrue(cr.viewIncident(fire).endsWith("TEAM=3/3"));
+            for (int id : new int[] { near, other, far }) {
+                assertTrue(cr.viewUnit(id).contains("STATUS=EN_ROUTE INCIDENT=" + fire));
+            }
+
+            // two engines arrive at tick 2 and share 3 x 8 crew ticks, the
+            // third joins at tick 8 and the remaining 12 are split three ways
+            cr.tick();
+            cr.tick();
+            assertTrue(cr.viewIncident(fire).contains("STATUS=IN_PROGRESS"));
+            assertTrue(cr.viewUnit(near).endsWith("WORK=11"));
+            assertTrue(cr.viewUnit(far).contains("STATUS=EN_ROUTE"));
+            cr.advance(6);
+            assertTrue(cr.viewUnit(far).endsWith("STATUS=AT_SCENE INCIDENT=" + fire + " WORK=3"));
+            assertTrue(cr.viewUnit(near).endsWith("WORK=3"));
+            cr.advance(2);
+            assertTrue(cr.viewIncident(fire).contains("STATUS=IN_PROGRESS"));
+            cr.tick();
+            assertEquals(11, cr.getCurrentTick());
+            assertTrue(cr.viewIncident(fire).endsWith("STATUS=RESOLVED UNIT=-"));
+            for (int id : new int[] { near, other, far }) {
+                assertTrue(cr.viewUnit(id).endsWith("STATUS=IDLE INCIDENT=-"));
+            }
+            assertEquals(3, cr.getDispatchCount());
+        }
+    }
+
+    @Test
+    void shortHandedTeam_staysQueued_untilUnitsFreeUp() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(config().build());
+        cr.initialise(20, 20);
+        int s = cr.addStation("A", 0, 0);
+        int first = cr.addUnit(s, UnitType.AMBULANCE);
+        int crash = cr.reportIncident(IncidentType.MEDICAL, 4, 3, 0);
+        int fall = cr.reportIncident(IncidentType.MEDICAL, 1, 0, 3);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(crash).endsWith("STATUS=DISPATCHED UNIT=" + first + " TEAM=1/2"));
+        assertTrue(cr.viewIncident(fall).endsWith("STATUS=REPORTED UNIT=- TEAM=0/1"));
+
+        int second = cr.addUnit(s, UnitType.AMBULANCE);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(crash).endsWith("TEAM=2/2"));
+        assertTrue(cr.viewUnit(second).contains("INCIDENT=" + crash));
+        assertTrue(cr.viewIncident(fall).contains("STATUS=REPORTED"));
+
+        cr.escalateIncident(crash, 5);
+        assertTrue(cr.viewIncident(crash).endsWith("TEAM=2/3"));
+        cr.addUnit(s, UnitType.AMBULANCE);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(crash).endsWith("TEAM=3/3"));
+
+        cr.cancelIncident(crash);
+        for (int id : cr.getUnitIds()) {
+            assertTrue(cr.viewUnit(id).contains("STATUS=IDLE"));
+        }
+        cr.dispatch();
+        assertTrue(cr.viewIncident(fall).endsWith("STATUS=DISPATCHED UNIT=" + first + " TEAM=1/1"));
+        cr.advanceUntilQuiescent(50);
+        assertTrue(cr.viewIncident(fall).contains("STATUS=RESOLVED"));
+    }
+
+    @Test
+    void randomRun_staysConsistent_andSnapshotMatches() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(config().snapshots(true).batchDispatch(true).build());
+        cr.initialise(25, 25);
+        for (int i = 0; i < 4; i++) {
+            int s = cr.addStation("S" + i, 6 * i + 2, 6 * i + 1);
+            for (UnitType t : UnitType.values()) {
+                cr.addUnit(s, t);
+            }
+        }
+        Random rnd = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            cr.reportIncident(IncidentType.values()[rnd.nextInt(3)], 1 + rnd.nextInt(5), rnd.nextInt(25),
+                    rnd.nextInt(25));
+            int[] ids = cr.getIncidentIds();
+            int pick = ids[rnd.nextInt(ids.length)];
+            try {
+                if (rnd.nextInt(8) == 0) {
+                    cr.escalateIncident(pick, 1 + rnd.nextInt(5));
+                } else if (rnd.nextInt(12) == 0) {
+                    cr.cancelIncident(pick);
+                }
+            } catch (IllegalStateException e) {
+                // finished or in progress
+            }
+            cr.dispatch();
+            cr.tick();
+            assertEquals(cr.getStatus(), cr.getSnapshot().getStatus(), "round " + round);
+        }
+        for (int round = 0; round < 50 && !cr.isQuiescent(); round++) {
+            cr.advanceUntilQuiescent(500);
+            cr.dispatch();
+        }
+        assertTrue(cr.isQuiescent());
+        assertFalse(cr.getStatus().contains("STATUS=REPORTED"));
+    }
+
+    private static CityRescueConfig.Builder config() {
+        return CityRescueConfig.builder().multiUnitResponse(true).checkConsistency(true);
+    }
+}
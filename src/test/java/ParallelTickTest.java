@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class ParallelTickTest {
+
+    private static final int SIZE = 60;
+
+    @Test
+    void parallelTick_matchesSequentialTick() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int mode = 0; mode < 3; mode++) {
+                CityRescueImpl sequential = new CityRescueImpl(config(mode).build());
+                CityRescueImpl parallel = new CityRescueImpl(config(mode)
+                        .parallelTickThreshold(1).tickPool(pool).checkConsistency(true).build());
+                for (CityRescueImpl cr : new CityRescueImpl[] { sequential, parallel }) {
+                    setUp(cr);
+                }
+                Random rnd = new Random(41 + mode);
+                IncidentType[] types = IncidentType.values();
+                for (int round = 0; round < 120; round++) {
+                    for (int k = 0; k < 20; k++) {
+                        int x = rnd.nextInt(SIZE);
+                        int y = rnd.nextInt(SIZE);
+                        if (x % 7 == 3 && y % 5 != 0) {
+                            continue;
+                        }
+                        IncidentType t = types[rnd.nextInt(types.length)];
+                        int sev = 1 + rnd.nextInt(5);
+                        sequential.reportIncident(t, sev, x, y);
+                        parallel.reportIncident(t, sev, x, y);
+                    }
+                    sequential.dispatch();
+                    parallel.dispatch();
+                    sequential.tick();
+                    parallel.tick();
+                    assertEquals(sequential.getStatus(), parallel.getStatus(), "mode " + mode + " round " + round);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static CityRescueConfig.Builder config(int mode) {
+        return CityRescueConfig.builder()
+                .routedMovement(mode == 1)
+                .unitTable(mode == 2);
+    }
+
+    private static void setUp(CityRescueImpl cr) throws Exception {
+        cr.initialise(SIZE, SIZE);
+        // walls with gaps, so routed units have to go around
+        for (int x = 3; x < SIZE; x += 7) {
+            for (int y = 0; y < SIZE; y++) {
+                if (y % 5 != 0) {
+                    cr.addObstacle(x, y);
+                }
+            }
+        }
+        for (int s = 0; s < 4; s++) {
+            int station = cr.addStation("S" + s, 1 + (s % 2) * 56, 1 + (s / 2) * 56);
+            cr.setStationCapacity(station, 300);
+            for (int i = 0; i < 240; i++) {
+                cr.addUnit(station, UnitType.values()[i % UnitType.values().length]);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class PathDistanceDispatchTest {
+    private CityRescueImpl cr;
+    private int unitBehindWall;
+    private int unitInOpen;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cr = new CityRescueImpl(CityRescueConfig.builder().pathDistanceDispatch(true).spatialCellSize(2).build());
+        cr.initialise(7, 7);
+        for (int x = 0; x < 6; x++) {
+            cr.addObstacle(x, 2);
+        }
+        unitBehindWall = cr.addUnit(cr.addStation("North", 3, 0), UnitType.AMBULANCE);
+        unitInOpen = cr.addUnit(cr.addStation("South", 0, 6), UnitType.AMBULANCE);
+    }
+
+    @Test
+    void dispatch_prefersShorterTravelOverShorterManhattan() throws Exception {
+        int i = cr.reportIncident(IncidentType.MEDICAL, 3, 3, 3);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(i).contains("UNIT=" + unitInOpen));
+    }
+
+    @Test
+    void dispatch_seesObstacleRemoval() throws Exception {
+        int first = cr.reportIncident(IncidentType.MEDICAL, 3, 3, 3);
+        cr.dispatch();
+        cr.cancelIncident(first);
+
+        cr.removeObstacle(3, 2);
+        int second = cr.reportIncident(IncidentType.MEDICAL, 3, 3, 3);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(second).contains("UNIT=" + unitBehindWall));
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.util.IndexedMinHeap;
+
+public class PendingQueueTest {
+
+    @Test
+    void indexedHeap_matchesSortedReference() {
+        IndexedMinHeap<String> heap = new IndexedMinHeap<>();
+        TreeMap<Long, Integer> reference = new TreeMap<>();
+        long[] keyOf = new long[500];
+        Random rnd = new Random(1);
+        for (int step = 0; step < 5000; step++) {
+            int id = rnd.nextInt(500);
+            int op = rnd.nextInt(4);
+            // keys are made unique by packing the id into the low bits
+            long key = ((long) rnd.nextInt(20) << 32) | id;
+            if (op == 0 && !heap.contains(id)) {
+                heap.add(id, key, "v" + id);
+                reference.put(key, id);
+                keyOf[id] = key;
+            } else if (op == 1 && heap.contains(id)) {
+                assertEquals("v" + id, heap.remove(id));
+                reference.remove(keyOf[id]);
+            } else if (op == 2 && heap.contains(id)) {
+                reference.remove(keyOf[id]);
+                heap.updateKey(id, key);
+                reference.put(key, id);
+                keyOf[id] = key;
+            } else if (op == 3 && heap.size() > 0) {
+                int expected = reference.pollFirstEntry().getValue();
+                assertEquals("v" + expected, heap.poll());
+            }
+            assertEquals(reference.size(), heap.size());
+        }
+    }
+
+    @Test
+    void severityOrder_servesMostSevereFirst() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder()
+                .severityOrderedDispatch(true).checkConsistency(true).build());
+        cr.initialise(10, 10);
+        int s = cr.addStation("A", 0, 0);
+        int u = cr.addUnit(s, UnitType.POLICE_CAR);
+        int low = cr.reportIncident(IncidentType.CRIME, 2, 1, 1);
+        int mid = cr.reportIncident(IncidentType.CRIME, 3, 9, 9);
+        int other = cr.reportIncident(IncidentType.CRIME, 2, 5, 5);
+        cr.escalateIncident(other, 4);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(other).contains("UNIT=" + u));
+        assertTrue(cr.viewIncident(low).contains("STATUS=REPORTED"));
+        assertTrue(cr.viewIncident(mid).contains("STATUS=REPORTED"));
+
+        cr.cancelIncident(mid);
+        cr.advanceUntilQuiescent(100);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(low).contains("UNIT=" + u));
+    }
+
+    @Test
+    void defaultOrder_keepsIdOrder() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().checkConsistency(true).build());
+        cr.initialise(10, 10);
+        int u = cr.addUnit(cr.addStation("A", 0, 0), UnitType.POLICE_CAR);
+        int first = cr.reportIncident(IncidentType.CRIME, 1, 1, 1);
+        int second = cr.reportIncident(IncidentType.CRIME, 5, 2, 2);
+        cr.dispatch();
+        assertTrue(cr.viewIncident(first).contains("UNIT=" + u));
+        assertTrue(cr.viewIncident(second).contains("STATUS=REPORTED"));
+    }
+}
@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.model.Ambulance;
+import cityrescue.model.CityMap;
+import cityrescue.model.Unit;
+import cityrescue.routing.RoutedMover;
+import cityrescue.routing.Router;
+
+public class RoutedMovementTest {
+
+    private CityRescueImpl create(boolean routed) throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().routedMovement(routed).build());
+        cr.initialise(9, 9);
+        // cup opening towards the station: greedy movement walks in and oscillates
+        for (int x = 2; x <= 6; x++) {
+            cr.addObstacle(x, 4);
+        }
+        for (int y = 5; y <= 6; y++) {
+            cr.addObstacle(2, y);
+            cr.addObstacle(6, y);
+        }
+        return cr;
+    }
+
+    @Test
+    void greedyMovement_getsStuckInCup() throws Exception {
+        CityRescueImpl cr = create(false);
+        cr.addUnit(cr.addStation("A", 4, 7), UnitType.FIRE_ENGINE);
+        int i = cr.reportIncident(IncidentType.FIRE, 2, 4, 1);
+        cr.dispatch();
+        for (int t = 0; t < 40; t++) {
+            cr.tick();
+        }
+        assertTrue(cr.viewIncident(i).contains("STATUS=DISPATCHED"));
+    }
+
+    @Test
+    void routedMovement_drivesAroundCup() throws Exception {
+        CityRescueImpl cr = create(true);
+        int u = cr.addUnit(cr.addStation("A", 4, 7), UnitType.FIRE_ENGINE);
+        int i = cr.reportIncident(IncidentType.FIRE, 2, 4, 1);
+        cr.dispatch();
+        for (int t = 0; t < 12; t++) {
+            cr.tick();
+        }
+        assertTrue(cr.viewUnit(u).contains("LOC=(4,1)"));
+        assertTrue(cr.viewIncident(i).contains("STATUS=IN_PROGRESS"));
+    }
+
+    @Test
+    void routedMovement_replansWhenRouteIsBlocked() throws Exception {
+        CityRescueImpl cr = create(true);
+        int u = cr.addUnit(cr.addStation("A", 4, 7), UnitType.FIRE_ENGINE);
+        int i = cr.reportIncident(IncidentType.FIRE, 2, 4, 1);
+        cr.dispatch();
+        cr.tick();
+        // close the left-hand way round, the unit has to go round the right
+        cr.addObstacle(1, 7);
+        cr.addObstacle(1, 6);
+        cr.addObstacle(0, 6);
+        for (int t = 0; t < 40; t++) {
+            cr.tick();
+        }
+        assertTrue(cr.viewIncident(i).contains("STATUS=RESOLVED"));
+        assertTrue(cr.viewUnit(u).contains("LOC=(4,1)"));
+    }
+
+    @Test
+    void routers_arePooledPerMover_andNotBuiltToMeasure() throws Exception {
+        CityMap map = new CityMap(50, 40);
+        RoutedMover mover = new RoutedMover(map);
+        assertEquals(0, mover.footprintBytes());
+        Unit unit = new Ambulance(1, 1, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            mover.planRoute(unit, 49, 39 - i);
+        }
+        // sequential plans reuse one router
+        assertEquals(Router.footprintBytes(50, 40), mover.footprintBytes());
+        assertEquals(new Router(map).footprintBytes(), mover.footprintBytes());
+    }
+}
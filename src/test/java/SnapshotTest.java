@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+import cityrescue.exceptions.*;
+
+public class SnapshotTest {
+
+    @Test
+    void snapshot_matchesSimulationAtEveryPublish() throws Exception {
+        for (boolean table : new boolean[] { false, true }) {
+            CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder()
+                    .snapshots(true).unitTable(table).archiveSpillThreshold(50).build());
+            setUp(cr);
+            CitySnapshot first = cr.getSnapshot();
+            String firstStatus = first.getStatus();
+            Random rnd = new Random(7);
+            IncidentType[] types = IncidentType.values();
+            for (int round = 0; round < 400; round++) {
+                int x = rnd.nextInt(40);
+                int y = rnd.nextInt(40);
+                if (rnd.nextInt(2) == 0 && (x + y) % 9 != 0) {
+                    cr.reportIncident(types[rnd.nextInt(types.length)], 1 + rnd.nextInt(5), x, y);
+                }
+                int[] ids = cr.getIncidentIds();
+                if (ids.length > 0 && rnd.nextInt(8) == 0) {
+                    int id = ids[rnd.nextInt(ids.length)];
+                    try {
+                        cr.cancelIncident(id);
+                    } catch (IllegalStateException e) {
+                        // already in progress or finished
+                    }
+                }
+                if (rnd.nextBoolean()) {
+                    cr.dispatch();
+                } else {
+                    cr.tick();
+                }
+                CitySnapshot s = cr.getSnapshot();
+                assertEquals(cr.getStatus(), s.getStatus(), "table=" + table + " round " + round);
+                assertArrayEquals(cr.getUnitIds(), s.getUnitIds());
+                assertArrayEquals(cr.getIncidentIds(), s.getIncidentIds());
+                assertArrayEquals(cr.getStationIds(), s.getStationIds());
+                for (int id : cr.getIncidentIds()) {
+                    assertEquals(cr.viewIncident(id), s.viewIncident(id));
+                }
+            }
+            assertEquals(firstStatus, first.getStatus());
+            assertEquals(0, first.getIncidentIds().length);
+        }
+    }
+
+    @Test
+    void snapshot_onlyChangesAtTickOrDispatch() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl(CityRescueConfig.builder().snapshots(true).build());
+        setUp(cr);
+        int id = cr.reportIncident(IncidentType.FIRE, 2, 5, 5);
+        try {
+            cr.getSnapshot().viewIncident(id);
+            fail("Expected IDNotRecognisedException");
+        } catch (IDNotRecognisedException e) {
+            // not published yet
+        }
+        cr.dispatch();
+        assertTrue(cr.getSnapshot().viewIncident(id).contains("DISPATCHED"));
+        assertNull(new CityRescueImpl().getSnapshot());
+    }
+
+    @Test
+    void readers_neverSeeTornSnapshots() throws Exception {
+        ConcurrentCityRescue cr = new ConcurrentCityRescue(CityRescueConfig.builder().snapshots(true).build());
+        setUp(cr);
+        Throwable[] failure = new Throwable[1];
+        boolean[] done = new boolean[1];
+        Thread reader = new Thread(() -> {
+            try {
+                int lastTick = 0;
+                while (!isDone(done)) {
+                    CitySnapshot s = cr.getSnapshot();
+                    assertTrue(s.getCurrentTick() >= lastTick);
+                    lastTick = s.getCurrentTick();
+                    String status = s.getStatus();
+                    int incidents = s.getIncidentIds().length;
+                    assertTrue(status.contains(" INCIDENTS=" + incidents + " "));
+                    assertEquals(incidents, count(status, "\nI#"));
+                    assertEquals(s.getUnitIds().length, count(status, "\nU#"));
+                }
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        reader.start();
+        Random rnd = new Random(3);
+        for (int round = 0; round < 2000; round++) {
+            int x = rnd.nextInt(40);
+            int y = rnd.nextInt(40);
+            if ((x + y) % 9 != 0) {
+                cr.reportIncident(IncidentType.values()[rnd.nextInt(3)], 1 + rnd.nextInt(5), x, y);
+            }
+            cr.dispatch();
+            cr.tick();
+        }
+        synchronized (done) {
+            done[0] = true;
+        }
+        reader.join();
+        assertNull(failure[0]);
+        assertEquals(cr.getStatus(), cr.getSnapshot().getStatus());
+    }
+
+    private static boolean isDone(boolean[] done) {
+        synchronized (done) {
+            return done[0];
+        }
+    }
+
+    private static int count(String s, String part) {
+        int n = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static void setUp(CityRescue cr) throws Exception {
+        cr.initialise(40, 40);
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 40; y++) {
+                if ((x + y) % 9 == 0 && x % 4 == 1) {
+                    cr.addObstacle(x, y);
+                }
+            }
+        }
+        int a = cr.addStation("A", 3, 3);
+        int b = cr.addStation("B", 35, 36);
+        cr.setStationCapacity(a, 10);
+        cr.setStationCapacity(b, 10);
+        for (UnitType t : UnitType.values()) {
+            for (int i = 0; i < 3; i++) {
+                cr.addUnit(i % 2 == 0 ? a : b, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class UnitSelectorEquivalenceTest {
+
+    @Test
+    void gridIndex_dispatchesSameUnitsAsBruteForce() throws Exception {
+        CityRescueImpl brute = new CityRescueImpl(CityRescueConfig.builder().spatialIndex(false).build());
+        CityRescueImpl grid = new CityRescueImpl(CityRescueConfig.builder().spatialCellSize(3).build());
+        CityRescueImpl[] sims = { brute, grid };
+        for (CityRescueImpl cr : sims) {
+            cr.initialise(23, 17);
+        }
+        Random rnd = new Random(42);
+        for (int s = 0; s < 6; s++) {
+            int x = rnd.nextInt(23);
+            int y = rnd.nextInt(17);
+            for (CityRescueImpl cr : sims) {
+                int st = cr.addStation("S" + s, x, y);
+                cr.setStationCapacity(st, 20);
+            }
+        }
+        UnitType[] types = UnitType.values();
+        for (int u = 0; u < 40; u++) {
+            int st = 1 + rnd.nextInt(6);
+            UnitType t = types[rnd.nextInt(types.length)];
+            for (CityRescueImpl cr : sims) {
+                cr.addUnit(st, t);
+            }
+        }
+        IncidentType[] incTypes = IncidentType.values();
+        for (int step = 0; step < 300; step++) {
+            int n = rnd.nextInt(4);
+            for (int k = 0; k < n; k++) {
+                IncidentType t = incTypes[rnd.nextInt(incTypes.length)];
+                int sev = 1 + rnd.nextInt(5);
+                int x = rnd.nextInt(23);
+                int y = rnd.nextInt(17);
+                for (CityRescueImpl cr : sims) {
+                    cr.reportIncident(t, sev, x, y);
+                }
+            }
+            if (rnd.nextInt(10) == 0) {
+                int[] ids = brute.getIncidentIds();
+                int id = ids[rnd.nextInt(ids.length)];
+                for (CityRescueImpl cr : sims) {
+                    try {
+                        cr.cancelIncident(id);
+                    } catch (IllegalStateException e) {
+                        // already finished, same on both
+                    }
+                }
+            }
+            if (rnd.nextInt(15) == 0) {
+                int unit = 1 + rnd.nextInt(40);
+                int st = 1 + rnd.nextInt(6);
+                for (CityRescueImpl cr : sims) {
+                    try {
+                        cr.transferUnit(unit, st);
+                    } catch (IllegalStateException e) {
+                        // unit busy, same on both
+                    }
+                }
+            }
+            for (CityRescueImpl cr : sims) {
+                cr.dispatch();
+                cr.tick();
+            }
+            assertEquals(brute.getStatus(), grid.getStatus(), "diverged at step " + step);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class UnitTableTest {
+
+    @Test
+    void tableLayout_matchesObjectLayout() throws Exception {
+        for (boolean routed : new boolean[] { false, true }) {
+            CityRescueImpl objects = new CityRescueImpl(CityRescueConfig.builder().routedMovement(routed).build());
+            CityRescueImpl table = new CityRescueImpl(CityRescueConfig.builder()
+                    .routedMovement(routed).unitTable(true).checkConsistency(true).build());
+            Random rnd = new Random(23);
+            for (CityRescueImpl cr : new CityRescueImpl[] { objects, table }) {
+                cr.initialise(30, 30);
+                for (int i = 0; i < 60; i++) {
+                    cr.addObstacle((i * 7) % 30, (i * 11) % 30);
+                }
+                int a = cr.addStation("A", 2, 3);
+                int b = cr.addStation("B", 27, 25);
+                cr.setStationCapacity(a, 20);
+                cr.setStationCapacity(b, 20);
+                for (UnitType t : UnitType.values()) {
+                    for (int i = 0; i < 3; i++) {
+                        cr.addUnit(i % 2 == 0 ? a : b, t);
+                    }
+                }
+            }
+            IncidentType[] types = IncidentType.values();
+            for (int round = 0; round < 300; round++) {
+                int x = rnd.nextInt(30);
+                int y = rnd.nextInt(30);
+                if (rnd.nextInt(3) == 0 && !blocked(x, y)) {
+                    IncidentType t = types[rnd.nextInt(types.length)];
+                    int sev = 1 + rnd.nextInt(5);
+                    objects.reportIncident(t, sev, x, y);
+                    table.reportIncident(t, sev, x, y);
+                }
+                if (rnd.nextInt(10) == 0) {
+                    int unit = 1 + rnd.nextInt(9);
+                    boolean out = rnd.nextBoolean();
+                    boolean failed = false;
+                    try {
+                        objects.setUnitOutOfService(unit, out);
+                    } catch (IllegalStateException e) {
+                        failed = true;
+                    }
+                    try {
+                        table.setUnitOutOfService(unit, out);
+                        assertFalse(failed);
+                    } catch (IllegalStateException e) {
+                        assertTrue(failed);
+                    }
+                }
+                objects.dispatch();
+                table.dispatch();
+                if (rnd.nextBoolean()) {
+                    objects.tick();
+                    table.tick();
+                } else {
+                    int ticks = rnd.nextInt(4);
+                    objects.advance(ticks);
+                    table.advance(ticks);
+                }
+                assertEquals(objects.getStatus(), table.getStatus(), "routed=" + routed + " round " + round);
+            }
+        }
+    }
+
+    private static boolean blocked(int x, int y) {
+        for (int i = 0; i < 60; i++) {
+            if ((i * 7) % 30 == x && (i * 11) % 30 == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.StringWriter;
+
+import cityrescue.*;
+import cityrescue.enums.*;
+
+public class WriteStatusTest {
+
+    @Test
+    void writeStatus_matchesExpectedFormat() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(10, 10);
+        cr.addObstacle(5, 5);
+        int s = cr.addStation("A", 0, 0);
+        cr.addUnit(s, UnitType.AMBULANCE);
+        cr.addUnit(s, UnitType.FIRE_ENGINE);
+        cr.reportIncident(IncidentType.MEDICAL, 2, 1, 0);
+        cr.reportIncident(IncidentType.CRIME, 4, 9, 9);
+        cr.dispatch();
+        cr.tick();
+
+        String expected = "TICK=1\n"
+                + "STATIONS=1 UNITS=2 INCIDENTS=2 OBSTACLES=1\n"
+                + "INCIDENTS\n"
+                + "I#1 TYPE=MEDICAL SEV=2 LOC=(1,0) STATUS=IN_PROGRESS UNIT=1\n"
+                + "I#2 TYPE=CRIME SEV=4 LOC=(9,9) STATUS=REPORTED UNIT=-\n"
+                + "UNITS\n"
+                + "U#1 TYPE=AMBULANCE HOME=1 LOC=(1,0) STATUS=AT_SCENE INCIDENT=1 WORK=1\n"
+                + "U#2 TYPE=FIRE_ENGINE HOME=1 LOC=(0,0) STATUS=IDLE INCIDENT=-";
+        assertEquals(expected, cr.getStatus());
+
+        StringWriter w = new StringWriter();
+        cr.writeStatus(w);
+        assertEquals(expected, w.toString());
+    }
+
+    @Test
+    void writeStatus_toWriterMatchesGetStatus() throws Exception {
+        CityRescueImpl cr = new CityRescueImpl();
+        cr.initialise(2000, 2000);
+        int s = cr.addStation("Far", 1999, 1024);
+        cr.addUnit(s, UnitType.POLICE_CAR);
+        StringWriter w = new StringWriter();
+        cr.writeStatus(w);
+        assertEquals(cr.getStatus(), w.toString());
+        assertTrue(w.toString().contains("LOC=(1999,1024)"));
+    }
+}